@@ -0,0 +1,130 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+
+/**
+ * An assignment of actors to cores together with its cost breakdown, the same quantities the MILP
+ * models report as T_exec, T_lc and T_cc. Assignments of the heterogeneous problem additionally
+ * carry the PLink times and the number of PCIe connections.
+ */
+public final class Assignment {
+
+  private final int[] partition;
+  private final int numberOfPartitions;
+  private final double executionTime;
+  private final double localCommunicationTime;
+  private final double coreToCoreCommunicationTime;
+  private final double plinkReadTime;
+  private final double plinkKernelTime;
+  private final double plinkWriteTime;
+  private final int readConnections;
+  private final int writeConnections;
+
+  public Assignment(
+      int[] partition,
+      int numberOfPartitions,
+      double executionTime,
+      double localCommunicationTime,
+      double coreToCoreCommunicationTime) {
+    this(
+        partition,
+        numberOfPartitions,
+        executionTime,
+        localCommunicationTime,
+        coreToCoreCommunicationTime,
+        0.0,
+        0.0,
+        0.0,
+        0,
+        0);
+  }
+
+  public Assignment(
+      int[] partition,
+      int numberOfPartitions,
+      double executionTime,
+      double localCommunicationTime,
+      double coreToCoreCommunicationTime,
+      double plinkReadTime,
+      double plinkKernelTime,
+      double plinkWriteTime,
+      int readConnections,
+      int writeConnections) {
+    this.partition = partition.clone();
+    this.numberOfPartitions = numberOfPartitions;
+    this.executionTime = executionTime;
+    this.localCommunicationTime = localCommunicationTime;
+    this.coreToCoreCommunicationTime = coreToCoreCommunicationTime;
+    this.plinkReadTime = plinkReadTime;
+    this.plinkKernelTime = plinkKernelTime;
+    this.plinkWriteTime = plinkWriteTime;
+    this.readConnections = readConnections;
+    this.writeConnections = writeConnections;
+  }
+
+  /** @return the partition of the given actor */
+  public int getPartition(int actor) {
+    return partition[actor];
+  }
+
+  /** @return a copy of the partition array indexed by actor */
+  public int[] getPartitions() {
+    return partition.clone();
+  }
+
+  public int getNumberOfPartitions() {
+    return numberOfPartitions;
+  }
+
+  public double getExecutionTime() {
+    return executionTime;
+  }
+
+  public double getLocalCommunicationTime() {
+    return localCommunicationTime;
+  }
+
+  public double getCoreToCoreCommunicationTime() {
+    return coreToCoreCommunicationTime;
+  }
+
+  public double getPlinkReadTime() {
+    return plinkReadTime;
+  }
+
+  public double getPlinkKernelTime() {
+    return plinkKernelTime;
+  }
+
+  public double getPlinkWriteTime() {
+    return plinkWriteTime;
+  }
+
+  public double getPlinkTime() {
+    return plinkReadTime + plinkKernelTime + plinkWriteTime;
+  }
+
+  public int getReadConnections() {
+    return readConnections;
+  }
+
+  public int getWriteConnections() {
+    return writeConnections;
+  }
+
+  public double getTotalTime() {
+    return executionTime + localCommunicationTime + coreToCoreCommunicationTime;
+  }
+
+  /** @return true if both assignments place every actor on the same partition */
+  public boolean samePartitions(Assignment other) {
+    return Arrays.equals(partition, other.partition);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "T = %6.6f (T_exec = %6.6f, T_lc = %6.6f, T_cc = %6.6f)",
+        getTotalTime(), executionTime, localCommunicationTime, coreToCoreCommunicationTime);
+  }
+}
@@ -0,0 +1,509 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * A parallel depth first branch and bound search for the homogeneous partitioning problem.
+ *
+ * <p>Actors are assigned one at a time in decreasing order of execution time. Every assignment
+ * is a restricted growth string, i.e., an actor can only be placed on a core that is already in
+ * use or on the first unused one, which removes the core permutation symmetry just like the
+ * max_prefix constraints of the MILP. A node is pruned when its lower bound is not better than
+ * the incumbent, the bound is the sum of
+ *
+ * <ul>
+ *   <li>an execution time bound: the largest core load, the level obtained by pouring the
+ *       remaining work into the least loaded cores and the least loaded core plus the largest
+ *       remaining actor,
+ *   <li>a communication bound: the current core to core time plus the largest local time or, if
+ *       larger, the average local time with every remaining connection charged the cheaper of its
+ *       core to core cost and its local cost averaged over the cores.
+ * </ul>
+ *
+ * <p>The top of the tree is expanded into fork/join tasks that share the incumbent, every task
+ * then searches its subtree sequentially without allocating. With a gap limit, nodes that cannot
+ * improve the incumbent by more than the gap are pruned too, and the search ends as soon as the
+ * incumbent is within the gap of a known lower bound.
+ */
+public class BranchAndBoundSolver {
+
+  private static final int TASKS_PER_THREAD = 16;
+  private static final int TIME_CHECK_INTERVAL = 1024;
+
+  private final PartitioningProblem problem;
+  private final HomogeneousCostModel costModel;
+  private final int numberOfCores;
+  private final int numActors;
+
+  // -- the search order, order[k] is the actor assigned at depth k
+  private final int[] order;
+  // -- connections that are completed when the actor at depth k is assigned, i.e., their other
+  // end is at a smaller depth (backOther) or they are self loops (backOther = -1)
+  private final int[] backStart;
+  private final int[] backOther;
+  private final double[] backLocal;
+  private final double[] backGlobal;
+  // -- suffix sums of the actor costs and of the connection cost bounds from depth k onwards
+  private final double[] remainingWork;
+  private final double[] remainingEdgeBound;
+
+  private int parallelism;
+  private double timeLimit;
+  private int poolSize;
+  private double gapLimit;
+  private double externalLowerBound;
+  private final List<int[]> starts = new ArrayList<>();
+
+  // -- state shared by all the search tasks
+  private final Object incumbentLock = new Object();
+  private final List<Assignment> incumbents = new ArrayList<>();
+  private final AtomicLong exploredNodes = new AtomicLong();
+  private volatile double incumbentCost;
+  // -- nodes whose bound is not below this cost cannot improve the incumbent by more than the gap
+  private volatile double pruneCost;
+  private volatile boolean stopped;
+  private long deadline;
+
+  public BranchAndBoundSolver(PartitioningProblem problem, int numberOfCores) {
+    this.problem = problem;
+    this.costModel = new HomogeneousCostModel(problem);
+    this.numberOfCores = numberOfCores;
+    this.numActors = problem.getNumActors();
+    this.parallelism = Runtime.getRuntime().availableProcessors();
+    this.timeLimit = Double.POSITIVE_INFINITY;
+    this.poolSize = 10;
+    this.gapLimit = 0.0;
+    this.externalLowerBound = 0.0;
+
+    this.order =
+        IntStream.range(0, numActors)
+            .boxed()
+            .sorted(
+                Comparator.<Integer>comparingDouble(a -> -problem.getActorCost(a))
+                    .thenComparingInt(a -> -problem.getDegree(a))
+                    .thenComparingInt(a -> a))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    int[] depthOf = new int[numActors];
+    for (int k = 0; k < numActors; k++) depthOf[order[k]] = k;
+
+    this.backStart = new int[numActors + 1];
+    List<Integer> back = new ArrayList<>();
+    List<Integer> other = new ArrayList<>();
+    for (int k = 0; k < numActors; k++) {
+      int actor = order[k];
+      for (int i = problem.getIncidenceStart(actor); i < problem.getIncidenceEnd(actor); i++) {
+        int edge = problem.getIncidentEdge(i);
+        int otherActor = problem.getOtherEnd(edge, actor);
+        if (otherActor == actor) {
+          back.add(edge);
+          other.add(-1);
+        } else if (depthOf[otherActor] < k) {
+          back.add(edge);
+          other.add(depthOf[otherActor]);
+        }
+      }
+      backStart[k + 1] = back.size();
+    }
+    this.backOther = other.stream().mapToInt(Integer::intValue).toArray();
+    this.backLocal = back.stream().mapToDouble(problem::getEdgeLocalCost).toArray();
+    this.backGlobal = back.stream().mapToDouble(problem::getEdgeGlobalCost).toArray();
+
+    this.remainingWork = new double[numActors + 1];
+    this.remainingEdgeBound = new double[numActors + 1];
+    for (int k = numActors - 1; k >= 0; k--) {
+      remainingWork[k] = remainingWork[k + 1] + problem.getActorCost(order[k]);
+      double edgeBound = 0.0;
+      for (int i = backStart[k]; i < backStart[k + 1]; i++) {
+        double averagedLocal = backLocal[i] / numberOfCores;
+        edgeBound += backOther[i] < 0 ? averagedLocal : Math.min(averagedLocal, backGlobal[i]);
+      }
+      remainingEdgeBound[k] = remainingEdgeBound[k + 1] + edgeBound;
+    }
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
+  /** @param timeLimit the wall-clock limit in seconds */
+  public void setTimeLimit(double timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /** @param poolSize the number of improving solutions to keep */
+  public void setPoolSize(int poolSize) {
+    this.poolSize = Math.max(1, poolSize);
+  }
+
+  /** @param gapLimit the relative gap to the optimum that is good enough, in [0, 1) */
+  public void setGapLimit(double gapLimit) {
+    this.gapLimit = Math.max(0.0, Math.min(gapLimit, 1.0));
+  }
+
+  /** @param lowerBound a lower bound on the optimum known from elsewhere, e.g., {@link LowerBounds} */
+  public void setLowerBound(double lowerBound) {
+    this.externalLowerBound = Double.isNaN(lowerBound) ? 0.0 : lowerBound;
+  }
+
+  /**
+   * Adds a start solution, the best start becomes the initial incumbent so the search only looks
+   * for better solutions.
+   *
+   * @param partition the core of every actor, starts that do not use every core are ignored
+   */
+  public void addStart(int[] partition) {
+    if (partition.length != numActors) return;
+    boolean[] used = new boolean[numberOfCores];
+    for (int core : partition) {
+      if (core < 0 || core >= numberOfCores) return;
+      used[core] = true;
+    }
+    for (boolean u : used) if (!u) return;
+    starts.add(partition.clone());
+  }
+
+  /**
+   * Runs the search until the optimum is proven within the gap limit or the time limit is reached
+   *
+   * @return the improving solutions found from best to worst and the search statistics
+   */
+  public Result solve() {
+    long startTime = System.nanoTime();
+    deadline =
+        Double.isInfinite(timeLimit) ? Long.MAX_VALUE : startTime + (long) (timeLimit * 1e9);
+    incumbents.clear();
+    exploredNodes.set(0);
+    incumbentCost = Double.POSITIVE_INFINITY;
+    pruneCost = Double.POSITIVE_INFINITY;
+    stopped = false;
+
+    if (numberOfCores < 1 || numberOfCores > numActors) {
+      return new Result(ImmutableList.empty(), true, Double.POSITIVE_INFINITY, 0, 0.0);
+    }
+
+    for (int[] start : starts) {
+      Assignment assignment = costModel.evaluate(start, numberOfCores);
+      if (assignment.getTotalTime() < incumbentCost) {
+        incumbents.add(0, assignment);
+        incumbentCost = assignment.getTotalTime();
+      }
+    }
+    updatePruneCost();
+
+    State root = new State();
+    double rootBound = bound(root, new double[numberOfCores]);
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new SearchTask(root, forkDepth()));
+    } finally {
+      pool.shutdown();
+    }
+
+    boolean optimal = !stopped;
+    ImmutableList<Assignment> solutions;
+    synchronized (incumbentLock) {
+      solutions = ImmutableList.from(incumbents);
+    }
+    double lowerBound = Math.max(rootBound, externalLowerBound);
+    if (optimal && !solutions.isEmpty()) {
+      lowerBound = Math.max(lowerBound, solutions.get(0).getTotalTime() * (1.0 - gapLimit));
+    }
+    double runtime = (System.nanoTime() - startTime) * 1e-9;
+    return new Result(solutions, optimal, lowerBound, exploredNodes.get(), runtime);
+  }
+
+  /** @return the depth up to which nodes are expanded into separate fork/join tasks */
+  private int forkDepth() {
+    long target = (long) TASKS_PER_THREAD * parallelism;
+    long nodes = 1;
+    int depth = 0;
+    while (depth < numActors && nodes < target && numberOfCores > 1) {
+      nodes *= Math.min(depth + 1, numberOfCores);
+      depth++;
+    }
+    return depth;
+  }
+
+  private final class State {
+    // -- assigned[k] is the core of the actor at depth k
+    final int[] assigned;
+    final double[] load;
+    final double[] local;
+    double coreToCore;
+    int used;
+    int depth;
+    // -- values overwritten at every depth, restored on backtracking
+    final double[] savedLoad;
+    final double[] savedLocal;
+    final double[] savedCoreToCore;
+    final int[] savedUsed;
+
+    State() {
+      this.assigned = new int[numActors];
+      this.load = new double[numberOfCores];
+      this.local = new double[numberOfCores];
+      this.savedLoad = new double[numActors];
+      this.savedLocal = new double[numActors];
+      this.savedCoreToCore = new double[numActors];
+      this.savedUsed = new int[numActors];
+    }
+
+    State copy() {
+      State state = new State();
+      System.arraycopy(assigned, 0, state.assigned, 0, depth);
+      System.arraycopy(load, 0, state.load, 0, numberOfCores);
+      System.arraycopy(local, 0, state.local, 0, numberOfCores);
+      state.coreToCore = coreToCore;
+      state.used = used;
+      state.depth = depth;
+      return state;
+    }
+
+    void assign(int core) {
+      int k = depth;
+      savedLoad[k] = load[core];
+      savedLocal[k] = local[core];
+      savedCoreToCore[k] = coreToCore;
+      savedUsed[k] = used;
+
+      assigned[k] = core;
+      load[core] += problem.getActorCost(order[k]);
+      for (int i = backStart[k]; i < backStart[k + 1]; i++) {
+        int otherDepth = backOther[i];
+        if (otherDepth < 0 || assigned[otherDepth] == core) {
+          local[core] += backLocal[i];
+        } else {
+          coreToCore += backGlobal[i];
+        }
+      }
+      if (core == used) used++;
+      depth++;
+    }
+
+    void unassign() {
+      depth--;
+      int k = depth;
+      int core = assigned[k];
+      load[core] = savedLoad[k];
+      local[core] = savedLocal[k];
+      coreToCore = savedCoreToCore[k];
+      used = savedUsed[k];
+    }
+  }
+
+  /**
+   * @param state a search state
+   * @param scratch a scratch array with one entry per core
+   * @return a lower bound on the cost of every completion of the state, exact at the leaves
+   */
+  private double bound(State state, double[] scratch) {
+    int k = state.depth;
+    if (numActors - k < numberOfCores - state.used) return Double.POSITIVE_INFINITY;
+
+    double maxLoad = 0.0;
+    double minLoad = Double.POSITIVE_INFINITY;
+    double maxLocal = 0.0;
+    double sumLocal = 0.0;
+    for (int q = 0; q < numberOfCores; q++) {
+      maxLoad = Math.max(maxLoad, state.load[q]);
+      minLoad = Math.min(minLoad, state.load[q]);
+      maxLocal = Math.max(maxLocal, state.local[q]);
+      sumLocal += state.local[q];
+    }
+    double execution = maxLoad;
+    if (k < numActors) {
+      execution = Math.max(execution, waterLevel(state.load, remainingWork[k], scratch));
+      execution = Math.max(execution, minLoad + problem.getActorCost(order[k]));
+    }
+    double communication =
+        state.coreToCore
+            + Math.max(maxLocal, sumLocal / numberOfCores + remainingEdgeBound[k]);
+    return execution + communication;
+  }
+
+  /** @return the smallest level L such that the cores below L can absorb the remaining work */
+  private double waterLevel(double[] load, double remaining, double[] scratch) {
+    System.arraycopy(load, 0, scratch, 0, numberOfCores);
+    Arrays.sort(scratch, 0, numberOfCores);
+    double prefix = 0.0;
+    for (int i = 0; i < numberOfCores; i++) {
+      prefix += scratch[i];
+      double level = (prefix + remaining) / (i + 1);
+      if (i == numberOfCores - 1 || level <= scratch[i + 1]) return level;
+    }
+    return prefix;
+  }
+
+  /**
+   * Lists the children of a state that can still improve the incumbent, best bound first
+   *
+   * @return the number of children written to cores and bounds
+   */
+  private int expand(State state, int[] cores, double[] bounds, double[] scratch) {
+    int count = 0;
+    int lastCore = Math.min(state.used, numberOfCores - 1);
+    for (int core = 0; core <= lastCore; core++) {
+      state.assign(core);
+      double childBound = bound(state, scratch);
+      state.unassign();
+      if (childBound >= pruneCost) continue;
+      int i = count++;
+      while (i > 0 && bounds[i - 1] > childBound) {
+        bounds[i] = bounds[i - 1];
+        cores[i] = cores[i - 1];
+        i--;
+      }
+      bounds[i] = childBound;
+      cores[i] = core;
+    }
+    return count;
+  }
+
+  private void offer(State state, double cost) {
+    synchronized (incumbentLock) {
+      if (cost >= incumbentCost) return;
+      int[] partition = new int[numActors];
+      for (int k = 0; k < numActors; k++) partition[order[k]] = state.assigned[k];
+      incumbents.add(0, costModel.evaluate(partition, numberOfCores));
+      if (incumbents.size() > poolSize) incumbents.remove(incumbents.size() - 1);
+      incumbentCost = cost;
+      updatePruneCost();
+    }
+  }
+
+  /** Prunes everything once the incumbent is within the gap of the external lower bound. */
+  private void updatePruneCost() {
+    double target = incumbentCost * (1.0 - gapLimit);
+    pruneCost = target <= externalLowerBound ? Double.NEGATIVE_INFINITY : target;
+  }
+
+  private final class SearchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final State state;
+    private final int forkDepth;
+    private final int[][] cores;
+    private final double[][] bounds;
+    private final double[] scratch;
+    private long nodes;
+
+    SearchTask(State state, int forkDepth) {
+      this.state = state;
+      this.forkDepth = forkDepth;
+      this.cores = new int[numActors][numberOfCores];
+      this.bounds = new double[numActors][numberOfCores];
+      this.scratch = new double[numberOfCores];
+    }
+
+    @Override
+    protected void compute() {
+      if (stopped) return;
+      if (state.depth < forkDepth && state.depth < numActors) {
+        int k = state.depth;
+        int count = expand(state, cores[k], bounds[k], scratch);
+        List<SearchTask> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          State child = state.copy();
+          child.assign(cores[k][i]);
+          children.add(new SearchTask(child, forkDepth));
+        }
+        exploredNodes.incrementAndGet();
+        invokeAll(children);
+      } else {
+        search();
+        exploredNodes.addAndGet(nodes % TIME_CHECK_INTERVAL);
+      }
+    }
+
+    private void search() {
+      if (stopped) return;
+      if (++nodes % TIME_CHECK_INTERVAL == 0) {
+        exploredNodes.addAndGet(TIME_CHECK_INTERVAL);
+        if (System.nanoTime() > deadline) {
+          stopped = true;
+          return;
+        }
+      }
+      int k = state.depth;
+      if (k == numActors) {
+        double cost = bound(state, scratch);
+        if (cost < incumbentCost) offer(state, cost);
+        return;
+      }
+      int count = expand(state, cores[k], bounds[k], scratch);
+      for (int i = 0; i < count; i++) {
+        // -- the incumbent may have improved while exploring the previous children
+        if (bounds[k][i] >= pruneCost) break;
+        state.assign(cores[k][i]);
+        search();
+        state.unassign();
+      }
+    }
+  }
+
+  /** The outcome of a branch and bound search. */
+  public static final class Result {
+    private final ImmutableList<Assignment> solutions;
+    private final boolean optimal;
+    private final double lowerBound;
+    private final long nodes;
+    private final double runtime;
+
+    Result(
+        ImmutableList<Assignment> solutions,
+        boolean optimal,
+        double lowerBound,
+        long nodes,
+        double runtime) {
+      this.solutions = solutions;
+      this.optimal = optimal;
+      this.lowerBound = lowerBound;
+      this.nodes = nodes;
+      this.runtime = runtime;
+    }
+
+    /** @return the improving solutions found during the search, best first */
+    public ImmutableList<Assignment> getSolutions() {
+      return solutions;
+    }
+
+    /**
+     * @return true if the search completed, i.e., the first solution is optimal up to the gap limit
+     */
+    public boolean isOptimal() {
+      return optimal;
+    }
+
+    public double getLowerBound() {
+      return lowerBound;
+    }
+
+    public long getNodes() {
+      return nodes;
+    }
+
+    /** @return the search time in seconds */
+    public double getRuntime() {
+      return runtime;
+    }
+
+    /** @return the relative gap between the best solution and the lower bound */
+    public double getGap() {
+      if (solutions.isEmpty()) return Double.POSITIVE_INFINITY;
+      double best = solutions.get(0).getTotalTime();
+      return best == 0.0 ? 0.0 : (best - lowerBound) / best;
+    }
+  }
+}
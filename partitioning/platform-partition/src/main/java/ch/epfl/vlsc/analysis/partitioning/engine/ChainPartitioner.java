@@ -0,0 +1,351 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Partitions the actors into contiguous segments of an order of the network, one segment per core,
+ * by dynamic programming over the prefixes of the order. The order is the reverse post order of a
+ * depth first search from the sources, which is the pipeline order of a chain and keeps every
+ * branch of a series-parallel network contiguous.
+ *
+ * <p>The objective is the homogeneous T, the largest execution plus the largest local
+ * communication of a segment plus the core to core communication of the connections between
+ * segments. The two maxima do not add up over the segments, so every prefix keeps the Pareto front
+ * of its largest execution, largest local communication and communication saved inside its
+ * segments, and the prefixes that can not beat the upper bound are dropped. The result is the best
+ * contiguous partition of the order, which is not always the best partition of the network since
+ * interleaving actors can balance the cores better.
+ */
+public class ChainPartitioner {
+
+  // -- the quadratic number of segments is too many beyond this
+  private static final int MAX_ACTORS = 2048;
+  // -- the Pareto front of a prefix is cut to its most promising labels beyond this
+  private static final int MAX_LABELS = 256;
+
+  /** The shape of the network, ignoring the directions and multiplicities of the connections. */
+  public enum Structure {
+    // -- a single path
+    CHAIN,
+    // -- reducible by series and parallel reductions, i.e., free of K4 minors
+    SERIES_PARALLEL,
+    GENERAL
+  }
+
+  /** The best contiguous partition and how it was found. */
+  public static final class Result {
+    private final Assignment assignment;
+    private final Structure structure;
+    private final boolean exact;
+    private final long labels;
+
+    private Result(Assignment assignment, Structure structure, boolean exact, long labels) {
+      this.assignment = assignment;
+      this.structure = structure;
+      this.exact = exact;
+      this.labels = labels;
+    }
+
+    /** @return the best contiguous partition below the upper bound, null if there is none */
+    public Assignment getAssignment() {
+      return assignment;
+    }
+
+    public Structure getStructure() {
+      return structure;
+    }
+
+    /** @return true if no Pareto front was cut, i.e., the partition is the best contiguous one */
+    public boolean isExact() {
+      return exact;
+    }
+
+    /** @return the number of labels of the prefixes */
+    public long getLabels() {
+      return labels;
+    }
+  }
+
+  /** A prefix split into segments, with the segment it ends with. */
+  private static final class Label {
+    private final double execution;
+    private final double local;
+    private final double saved;
+    private final int segmentStart;
+    private final Label parent;
+
+    private Label(double execution, double local, double saved, int segmentStart, Label parent) {
+      this.execution = execution;
+      this.local = local;
+      this.saved = saved;
+      this.segmentStart = segmentStart;
+      this.parent = parent;
+    }
+
+    private boolean dominates(Label other) {
+      return execution <= other.execution && local <= other.local && saved >= other.saved;
+    }
+  }
+
+  private final PartitioningProblem problem;
+  private final HomogeneousCostModel costModel;
+  private final Structure structure;
+  private final int[] order;
+  private final int[] position;
+
+  public ChainPartitioner(PartitioningProblem problem) {
+    this.problem = problem;
+    this.costModel = new HomogeneousCostModel(problem);
+    this.structure = detectStructure(problem);
+    this.order = depthFirstOrder(problem);
+    this.position = new int[order.length];
+    for (int ix = 0; ix < order.length; ix++) position[order[ix]] = ix;
+  }
+
+  public Structure getStructure() {
+    return structure;
+  }
+
+  /** @return the actors in the order of the segments */
+  public int[] getOrder() {
+    return order.clone();
+  }
+
+  /**
+   * @param numberOfCores the number of cores, i.e., segments
+   * @param upperBound the T to beat, infinite to find any partition
+   * @return the best contiguous partition with a T below the upper bound
+   */
+  public Result solve(int numberOfCores, double upperBound) {
+    int numActors = problem.getNumActors();
+    if (numberOfCores < 1 || numberOfCores > numActors || numActors > MAX_ACTORS) {
+      return new Result(null, structure, false, 0);
+    }
+
+    // -- the core to core communication of the connections inside a prefix, the ones it does not
+    // keep inside its segments are cut
+    double[] prefixGlobal = new double[numActors + 1];
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = problem.getEdgeSource(e);
+      int target = problem.getEdgeTarget(e);
+      if (source == target) continue;
+      prefixGlobal[Math.max(position[source], position[target]) + 1] +=
+          problem.getEdgeGlobalCost(e);
+    }
+    for (int ix = 0; ix < numActors; ix++) prefixGlobal[ix + 1] += prefixGlobal[ix];
+
+    // -- labels[i][p] is the front of the first i actors of the order split into p segments
+    List<List<List<Label>>> labels = new ArrayList<>();
+    for (int i = 0; i <= numActors; i++) {
+      List<List<Label>> row = new ArrayList<>();
+      for (int p = 0; p <= numberOfCores; p++) row.add(new ArrayList<>());
+      labels.add(row);
+    }
+    labels.get(0).get(0).add(new Label(0.0, 0.0, 0.0, 0, null));
+    boolean exact = true;
+    long count = 1;
+
+    for (int end = 1; end <= numActors; end++) {
+      // -- the segments [start, end) from the shortest to the longest
+      double execution = 0.0;
+      double local = 0.0;
+      double saved = 0.0;
+      int remaining = numActors - end;
+      for (int start = end - 1; start >= 0; start--) {
+        int actor = order[start];
+        execution += problem.getActorCost(actor);
+        for (int ix = problem.getIncidenceStart(actor); ix < problem.getIncidenceEnd(actor); ix++) {
+          int edge = problem.getIncidentEdge(ix);
+          int other = problem.getOtherEnd(edge, actor);
+          if (other == actor) {
+            local += problem.getEdgeLocalCost(edge);
+          } else if (position[other] > start && position[other] < end) {
+            local += problem.getEdgeLocalCost(edge);
+            saved += problem.getEdgeGlobalCost(edge);
+          }
+        }
+        // -- a segment is a core, the actors after it need the other cores
+        int lowest = Math.max(1, numberOfCores - remaining);
+        for (int p = lowest; p <= Math.min(numberOfCores, start + 1); p++) {
+          for (Label previous : labels.get(start).get(p - 1)) {
+            Label label =
+                new Label(
+                    Math.max(previous.execution, execution),
+                    Math.max(previous.local, local),
+                    previous.saved + saved,
+                    start,
+                    previous);
+            if (partialBound(label, prefixGlobal[end]) >= upperBound) continue;
+            insert(labels.get(end).get(p), label);
+          }
+        }
+      }
+      for (int p = 1; p <= numberOfCores; p++) {
+        List<Label> front = labels.get(end).get(p);
+        count += front.size();
+        if (front.size() > MAX_LABELS) {
+          double cut = prefixGlobal[end];
+          front.sort((a, b) -> Double.compare(partialBound(a, cut), partialBound(b, cut)));
+          front.subList(MAX_LABELS, front.size()).clear();
+          exact = false;
+        }
+      }
+    }
+
+    Label best = null;
+    double bestTime = upperBound;
+    for (Label label : labels.get(numActors).get(numberOfCores)) {
+      double time = partialBound(label, prefixGlobal[numActors]);
+      if (time < bestTime) {
+        bestTime = time;
+        best = label;
+      }
+    }
+    if (best == null) return new Result(null, structure, exact, count);
+
+    int[] partition = new int[numActors];
+    int core = numberOfCores - 1;
+    int end = numActors;
+    for (Label label = best; label.parent != null; label = label.parent) {
+      for (int ix = label.segmentStart; ix < end; ix++) partition[order[ix]] = core;
+      end = label.segmentStart;
+      core--;
+    }
+    return new Result(costModel.evaluate(partition, numberOfCores), structure, exact, count);
+  }
+
+  /** @return the T of the prefix with its connections to the rest left uncut */
+  private static double partialBound(Label label, double prefixGlobal) {
+    return label.execution + label.local + prefixGlobal - label.saved;
+  }
+
+  /** Adds the label to the front unless it is dominated, and drops the labels it dominates. */
+  private static void insert(List<Label> front, Label label) {
+    for (Label other : front) {
+      if (other.dominates(label)) return;
+    }
+    front.removeIf(label::dominates);
+    front.add(label);
+  }
+
+  /**
+   * @return the actors in reverse post order of a depth first search over the connections, from
+   *     the actors without inputs first, the connections that close cycles are ignored
+   */
+  private static int[] depthFirstOrder(PartitioningProblem problem) {
+    int numActors = problem.getNumActors();
+    boolean[] hasInput = new boolean[numActors];
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      if (problem.getEdgeSource(e) != problem.getEdgeTarget(e)) {
+        hasInput[problem.getEdgeTarget(e)] = true;
+      }
+    }
+    boolean[] visited = new boolean[numActors];
+    int[] postOrder = new int[numActors];
+    int finished = 0;
+    for (int pass = 0; pass < 2; pass++) {
+      for (int root = 0; root < numActors; root++) {
+        // -- the sources first, then whatever a cycle keeps unreachable from them
+        if (visited[root] || (pass == 0 && hasInput[root])) continue;
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[] {root, problem.getIncidenceStart(root)});
+        visited[root] = true;
+        while (!stack.isEmpty()) {
+          int[] top = stack.peek();
+          int actor = top[0];
+          if (top[1] == problem.getIncidenceEnd(actor)) {
+            stack.pop();
+            postOrder[finished++] = actor;
+            continue;
+          }
+          int edge = problem.getIncidentEdge(top[1]++);
+          if (problem.getEdgeSource(edge) != actor) continue;
+          int next = problem.getEdgeTarget(edge);
+          if (!visited[next]) {
+            visited[next] = true;
+            stack.push(new int[] {next, problem.getIncidenceStart(next)});
+          }
+        }
+      }
+    }
+    int[] order = new int[numActors];
+    for (int ix = 0; ix < numActors; ix++) order[ix] = postOrder[numActors - 1 - ix];
+    return order;
+  }
+
+  /** @return the structure of the undirected simple graph of the network */
+  static Structure detectStructure(PartitioningProblem problem) {
+    int numActors = problem.getNumActors();
+    List<Set<Integer>> neighbors = new ArrayList<>();
+    for (int a = 0; a < numActors; a++) neighbors.add(new HashSet<>());
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = problem.getEdgeSource(e);
+      int target = problem.getEdgeTarget(e);
+      if (source == target) continue;
+      neighbors.get(source).add(target);
+      neighbors.get(target).add(source);
+    }
+
+    int undirectedEdges = 0;
+    int maxDegree = 0;
+    for (Set<Integer> set : neighbors) {
+      undirectedEdges += set.size();
+      maxDegree = Math.max(maxDegree, set.size());
+    }
+    undirectedEdges /= 2;
+    if (maxDegree <= 2 && undirectedEdges == numActors - 1 && isConnected(neighbors)) {
+      return Structure.CHAIN;
+    }
+
+    // -- remove the vertices of degree at most 2, joining the two neighbors of a vertex of degree
+    // 2, parallel edges merge in the sets, the graph vanishes if and only if it has no K4 minor
+    boolean[] removed = new boolean[numActors];
+    Deque<Integer> queue = new ArrayDeque<>();
+    for (int a = 0; a < numActors; a++) if (neighbors.get(a).size() <= 2) queue.add(a);
+    int left = numActors;
+    while (!queue.isEmpty()) {
+      int actor = queue.poll();
+      if (removed[actor] || neighbors.get(actor).size() > 2) continue;
+      removed[actor] = true;
+      left--;
+      Integer[] ends = neighbors.get(actor).toArray(new Integer[0]);
+      for (int other : ends) neighbors.get(other).remove(actor);
+      if (ends.length == 2) {
+        neighbors.get(ends[0]).add(ends[1]);
+        neighbors.get(ends[1]).add(ends[0]);
+      }
+      for (int other : ends) if (neighbors.get(other).size() <= 2) queue.add(other);
+    }
+    return left == 0 ? Structure.SERIES_PARALLEL : Structure.GENERAL;
+  }
+
+  private static boolean isConnected(List<Set<Integer>> neighbors) {
+    if (neighbors.isEmpty()) return true;
+    boolean[] seen = new boolean[neighbors.size()];
+    Deque<Integer> queue = new ArrayDeque<>();
+    queue.add(0);
+    seen[0] = true;
+    int reached = 1;
+    while (!queue.isEmpty()) {
+      for (int other : neighbors.get(queue.poll())) {
+        if (!seen[other]) {
+          seen[other] = true;
+          reached++;
+          queue.add(other);
+        }
+      }
+    }
+    return reached == neighbors.size();
+  }
+
+  @Override
+  public String toString() {
+    return structure + " " + Arrays.toString(order);
+  }
+}
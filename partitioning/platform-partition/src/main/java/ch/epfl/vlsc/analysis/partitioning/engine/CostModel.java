@@ -0,0 +1,27 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+/**
+ * Evaluates assignments of a partitioning problem. Partitions 0 to numberOfCores - 1 are the
+ * software cores, models with an accelerator use numberOfCores as the hardware partition.
+ */
+public interface CostModel {
+
+  PartitioningProblem getProblem();
+
+  /** @return the number of partitions of an assignment to the given number of cores */
+  int getNumberOfPartitions(int numberOfCores);
+
+  /**
+   * @param partition the partition of every actor
+   * @param numberOfCores the number of software cores
+   * @return the assignment with its cost breakdown
+   */
+  Assignment evaluate(int[] partition, int numberOfCores);
+
+  /**
+   * @param partition the partition of every actor
+   * @param numberOfCores the number of software cores
+   * @return true if the assignment satisfies the side constraints of the MILP formulation
+   */
+  boolean isFeasible(int[] partition, int numberOfCores);
+}
@@ -0,0 +1,250 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fiduccia-Mattheyses style local search that improves a given assignment by moving single actors
+ * between the partitions, including the accelerator for the heterogeneous cost model.
+ *
+ * <p>A pass keeps the best move of every unlocked actor in gain buckets, repeatedly applies the
+ * move with the highest gain, even if it makes the assignment worse, and locks the moved actor.
+ * At the end of the pass the moves after the best prefix are undone. The cost terms are kept by
+ * an {@link IncrementalEvaluator}, so a move and the gain updates of the neighbours of the moved
+ * actor cost O(degree) evaluations. Because T_exec and T_lc are maxima, a move can also change the
+ * gain of actors that are not neighbours, the stored gains are therefore checked again when an
+ * actor reaches the top bucket and the actor is put back if its gain dropped.
+ */
+public class FiducciaMattheysesRefiner {
+
+  private static final int BUCKETS_PER_SIDE = 512;
+  private static final double EPSILON = 1e-12;
+
+  private final CostModel costModel;
+  private int maxPasses = 16;
+
+  public FiducciaMattheysesRefiner(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /** @param maxPasses the largest number of passes, the search stops earlier without progress */
+  public void setMaxPasses(int maxPasses) {
+    this.maxPasses = maxPasses;
+  }
+
+  /** The outcome of a refinement. */
+  public static final class Result {
+    private final Assignment assignment;
+    private final double initialTime;
+    private final int moves;
+    private final int passes;
+
+    private Result(Assignment assignment, double initialTime, int moves, int passes) {
+      this.assignment = assignment;
+      this.initialTime = initialTime;
+      this.moves = moves;
+      this.passes = passes;
+    }
+
+    public Assignment getAssignment() {
+      return assignment;
+    }
+
+    public double getInitialTime() {
+      return initialTime;
+    }
+
+    /** @return the number of moves kept over all passes */
+    public int getMoves() {
+      return moves;
+    }
+
+    public int getPasses() {
+      return passes;
+    }
+  }
+
+  /**
+   * @param initial a feasible partition of every actor
+   * @param numberOfCores the number of software cores
+   * @return the refined assignment, never worse than the initial one
+   */
+  public Result refine(int[] initial, int numberOfCores) {
+    PartitioningProblem problem = costModel.getProblem();
+    IncrementalEvaluator evaluator = new IncrementalEvaluator(costModel, numberOfCores, initial);
+    double initialTime = evaluator.getTotalTime();
+    int numActors = initial.length;
+    int numPartitions = evaluator.getNumberOfPartitions();
+    double scale = Math.max(initialTime, EPSILON) / BUCKETS_PER_SIDE;
+    GainBuckets buckets = new GainBuckets(numActors, 2 * BUCKETS_PER_SIDE + 1);
+    double[] gain = new double[1];
+    boolean[] locked = new boolean[numActors];
+    int[] movedActor = new int[numActors];
+    int[] movedFrom = new int[numActors];
+
+    int keptMoves = 0;
+    int passes = 0;
+    while (passes < maxPasses) {
+      passes++;
+      Arrays.fill(locked, false);
+      buckets.clear();
+      for (int a = 0; a < numActors; a++) {
+        insert(evaluator, buckets, a, numPartitions, scale, gain);
+      }
+
+      double passStart = evaluator.getTotalTime();
+      double best = passStart;
+      int bestPrefix = 0;
+      int moves = 0;
+      while (!buckets.isEmpty()) {
+        int actor = buckets.peekMax();
+        int bucket = buckets.bucketOf(actor);
+        buckets.remove(actor);
+        // -- the stored gain may be stale, look again and put the actor back if it dropped
+        int target = bestMove(evaluator, actor, numPartitions, gain);
+        if (target < 0) continue;
+        int fresh = toBucket(gain[0], scale);
+        if (fresh < bucket) {
+          buckets.insert(actor, fresh);
+          continue;
+        }
+
+        movedActor[moves] = actor;
+        movedFrom[moves] = evaluator.getPartition(actor);
+        evaluator.move(actor, target);
+        locked[actor] = true;
+        moves++;
+        double current = evaluator.getTotalTime();
+        if (current < best - EPSILON * Math.max(1.0, best)) {
+          best = current;
+          bestPrefix = moves;
+        }
+
+        // -- only the neighbours see their communication gains change
+        for (int i = problem.getIncidenceStart(actor); i < problem.getIncidenceEnd(actor); i++) {
+          int neighbour = problem.getOtherEnd(problem.getIncidentEdge(i), actor);
+          if (locked[neighbour]) continue;
+          buckets.remove(neighbour);
+          insert(evaluator, buckets, neighbour, numPartitions, scale, gain);
+        }
+      }
+
+      for (int m = moves - 1; m >= bestPrefix; m--) evaluator.move(movedActor[m], movedFrom[m]);
+      keptMoves += bestPrefix;
+      evaluator.reset(evaluator.toAssignment().getPartitions());
+      if (bestPrefix == 0) break;
+    }
+
+    return new Result(
+        costModel.evaluate(evaluator.toAssignment().getPartitions(), numberOfCores),
+        initialTime,
+        keptMoves,
+        passes);
+  }
+
+  private void insert(
+      IncrementalEvaluator evaluator,
+      GainBuckets buckets,
+      int actor,
+      int numPartitions,
+      double scale,
+      double[] gain) {
+    if (bestMove(evaluator, actor, numPartitions, gain) >= 0) {
+      buckets.insert(actor, toBucket(gain[0], scale));
+    }
+  }
+
+  /**
+   * @param gain receives the decrease of the total time of the returned move
+   * @return the feasible target partition with the largest gain, or -1 if there is none
+   */
+  private int bestMove(
+      IncrementalEvaluator evaluator, int actor, int numPartitions, double[] gain) {
+    int from = evaluator.getPartition(actor);
+    double before = evaluator.getTotalTime();
+    int best = -1;
+    double bestTotal = Double.POSITIVE_INFINITY;
+    for (int to = 0; to < numPartitions; to++) {
+      if (!evaluator.canMove(actor, to)) continue;
+      evaluator.move(actor, to);
+      double total = evaluator.getTotalTime();
+      boolean feasible = evaluator.isFeasible();
+      evaluator.move(actor, from);
+      if (feasible && total < bestTotal) {
+        bestTotal = total;
+        best = to;
+      }
+    }
+    gain[0] = before - bestTotal;
+    return best;
+  }
+
+  private static int toBucket(double gain, double scale) {
+    long index = Math.round(gain / scale);
+    return (int) Math.max(0, Math.min(2 * BUCKETS_PER_SIDE, index + BUCKETS_PER_SIDE));
+  }
+
+  /**
+   * The classic FM bucket array, actors with the same quantized gain form a doubly linked list and
+   * the highest non-empty bucket is tracked, all operations are O(1) apart from the downward scan
+   * for the next non-empty bucket.
+   */
+  private static final class GainBuckets {
+    private final int[] head;
+    private final int[] next;
+    private final int[] previous;
+    private final int[] bucket;
+    private int max;
+    private int size;
+
+    GainBuckets(int numActors, int numBuckets) {
+      this.head = new int[numBuckets];
+      this.next = new int[numActors];
+      this.previous = new int[numActors];
+      this.bucket = new int[numActors];
+      clear();
+    }
+
+    void clear() {
+      Arrays.fill(head, -1);
+      Arrays.fill(bucket, -1);
+      max = -1;
+      size = 0;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int bucketOf(int actor) {
+      return bucket[actor];
+    }
+
+    void insert(int actor, int index) {
+      bucket[actor] = index;
+      previous[actor] = -1;
+      next[actor] = head[index];
+      if (head[index] >= 0) previous[head[index]] = actor;
+      head[index] = actor;
+      max = Math.max(max, index);
+      size++;
+    }
+
+    void remove(int actor) {
+      int index = bucket[actor];
+      if (index < 0) return;
+      if (previous[actor] >= 0) {
+        next[previous[actor]] = next[actor];
+      } else {
+        head[index] = next[actor];
+      }
+      if (next[actor] >= 0) previous[next[actor]] = previous[actor];
+      bucket[actor] = -1;
+      size--;
+    }
+
+    int peekMax() {
+      while (head[max] < 0) max--;
+      return head[max];
+    }
+  }
+}
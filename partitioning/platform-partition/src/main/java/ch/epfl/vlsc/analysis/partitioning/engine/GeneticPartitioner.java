@@ -0,0 +1,463 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Island model genetic algorithm over actor to partition assignments for both cost models, meant
+ * for design space sweeps where a set of diverse good assignments is worth more than a proof of
+ * optimality.
+ *
+ * <p>Genomes are restricted growth strings over the software cores, the same encoding as the
+ * restricted growth constraint of the MILP models, so assignments that only differ by a
+ * permutation of the cores are the same individual; with an accelerator, core 0 and the
+ * accelerator keep their index since core 0 hosts the PLink. The
+ * crossover copies a connected group of actors, grown by a breadth first search over the
+ * connections, from the second parent into the first one after matching the cores of the parents
+ * by overlap, so that groups of actors that communicate stay together. Mutations move an actor to
+ * a random partition or to the partition of one of its neighbours. Children are repaired to keep
+ * the pins and to leave no partition empty, and replace the worst individual of their island if
+ * they are better and not already in it. The fitness is the total time of an {@link
+ * IncrementalEvaluator}, computed from the arrays of the problem, multiplied by the number of
+ * PCIe connections over the limit plus one.
+ *
+ * <p>The islands evolve in parallel on a fork/join pool for a number of generations, then the best
+ * individual of every island replaces the worst individual of the next island in a ring. The
+ * evolution stops early once an island holds an individual at least as good as the target
+ * objective.
+ */
+public class GeneticPartitioner {
+
+  private static final double CROSSOVER_RATE = 0.9;
+  private static final double NEIGHBOUR_MUTATION_RATE = 0.5;
+  private static final int TOURNAMENT_SIZE = 2;
+
+  private final CostModel costModel;
+  private final PartitioningProblem problem;
+  private final HeterogeneousProblem heterogeneous;
+  private double timeLimit = 10.0;
+  private int islands = 1;
+  private int populationSize = 64;
+  private int migrationInterval = 20;
+  private int maxGenerations = Integer.MAX_VALUE;
+  private int maxSolutions = 10;
+  private long seed = 0;
+  private double targetObjective = Double.NEGATIVE_INFINITY;
+
+  public GeneticPartitioner(CostModel costModel) {
+    this.costModel = costModel;
+    this.problem = costModel.getProblem();
+    this.heterogeneous =
+        costModel instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) costModel).getProblem()
+            : null;
+  }
+
+  /** @param timeLimit the wall-clock budget in seconds */
+  public void setTimeLimit(double timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /** @param islands the number of islands, they evolve in parallel */
+  public void setIslands(int islands) {
+    this.islands = Math.max(1, islands);
+  }
+
+  /** @param populationSize the number of individuals of every island */
+  public void setPopulationSize(int populationSize) {
+    this.populationSize = Math.max(TOURNAMENT_SIZE, populationSize);
+  }
+
+  /** @param migrationInterval the number of generations between two migrations */
+  public void setMigrationInterval(int migrationInterval) {
+    this.migrationInterval = Math.max(1, migrationInterval);
+  }
+
+  /** @param maxGenerations stop after this many generations of every island */
+  public void setMaxGenerations(int maxGenerations) {
+    this.maxGenerations = maxGenerations;
+  }
+
+  /** @param maxSolutions the largest number of distinct assignments returned */
+  public void setMaxSolutions(int maxSolutions) {
+    this.maxSolutions = Math.max(1, maxSolutions);
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** @param targetObjective stop evolving once an island holds an assignment at least this good */
+  public void setTargetObjective(double targetObjective) {
+    this.targetObjective = targetObjective;
+  }
+
+  /** The distinct best assignments over all islands. */
+  public static final class Result {
+    private final ImmutableList<Assignment> solutions;
+    private final int generations;
+    private final int migrations;
+    private final double runtime;
+
+    private Result(
+        ImmutableList<Assignment> solutions, int generations, int migrations, double runtime) {
+      this.solutions = solutions;
+      this.generations = generations;
+      this.migrations = migrations;
+      this.runtime = runtime;
+    }
+
+    /** @return the distinct feasible assignments of the final populations, best first */
+    public ImmutableList<Assignment> getSolutions() {
+      return solutions;
+    }
+
+    /** @return the number of generations of every island */
+    public int getGenerations() {
+      return generations;
+    }
+
+    public int getMigrations() {
+      return migrations;
+    }
+
+    /** @return the wall-clock time in seconds */
+    public double getRuntime() {
+      return runtime;
+    }
+  }
+
+  /**
+   * @param start a feasible partition of every actor, refined it is part of every initial
+   *     population
+   * @param numberOfCores the number of software cores
+   * @return the distinct best assignments found
+   */
+  public Result solve(int[] start, int numberOfCores) {
+    long startTime = System.nanoTime();
+    long deadline =
+        Double.isInfinite(timeLimit) ? Long.MAX_VALUE : startTime + (long) (timeLimit * 1e9);
+
+    // -- the populations keep their best individual, so the result is never worse than this
+    int[] polishedStart =
+        new FiducciaMattheysesRefiner(costModel)
+            .refine(start, numberOfCores)
+            .getAssignment()
+            .getPartitions();
+    List<Island> population = new ArrayList<>();
+    for (int i = 0; i < islands; i++) {
+      population.add(new Island(polishedStart, numberOfCores, seed + i * 0x9E3779B97F4A7C15L));
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(islands);
+    int generations = 0;
+    int migrations = 0;
+    try {
+      while (generations < maxGenerations
+          && System.nanoTime() < deadline
+          && !reachedTarget(population)) {
+        int epoch = Math.min(migrationInterval, maxGenerations - generations);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Island island : population) {
+          tasks.add(ForkJoinTask.adapt(() -> island.evolve(epoch, deadline)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        generations += epoch;
+        if (islands > 1) {
+          // -- ring migration, the emigrants are taken before any island receives one
+          int[][] emigrants = new int[islands][];
+          for (int i = 0; i < islands; i++) emigrants[i] = population.get(i).best();
+          for (int i = 0; i < islands; i++) {
+            population.get((i + 1) % islands).receive(emigrants[i]);
+          }
+          migrations++;
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    // -- the distinct feasible individuals of all islands, polished by local search
+    List<Assignment> candidates = new ArrayList<>();
+    for (Island island : population) {
+      for (int i = 0; i < populationSize; i++) {
+        if (costModel.isFeasible(island.genomes[i], numberOfCores)) {
+          candidates.add(costModel.evaluate(island.genomes[i], numberOfCores));
+        }
+      }
+    }
+    candidates.sort(Comparator.comparingDouble(Assignment::getTotalTime));
+    List<Assignment> solutions = new ArrayList<>();
+    for (Assignment candidate : candidates) {
+      if (solutions.size() == maxSolutions) break;
+      Assignment polished =
+          new FiducciaMattheysesRefiner(costModel)
+              .refine(candidate.getPartitions(), numberOfCores)
+              .getAssignment();
+      int[] genome = polished.getPartitions();
+      normalize(genome, numberOfCores, new int[costModel.getNumberOfPartitions(numberOfCores)]);
+      boolean seen = false;
+      for (Assignment kept : solutions) seen |= Arrays.equals(kept.getPartitions(), genome);
+      if (!seen) solutions.add(costModel.evaluate(genome, numberOfCores));
+    }
+    solutions.sort(Comparator.comparingDouble(Assignment::getTotalTime));
+    return new Result(
+        ImmutableList.from(solutions),
+        generations,
+        migrations,
+        (System.nanoTime() - startTime) * 1e-9);
+  }
+
+  /** @return true if an island holds an individual at least as good as the target objective */
+  private boolean reachedTarget(List<Island> population) {
+    for (Island island : population) {
+      if (island.bestFitness() <= targetObjective) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Relabels the software cores in the order of their first actor. With an accelerator, core 0
+   * hosts the PLink and the accelerator keeps its index, so both keep their labels.
+   */
+  private void normalize(int[] genome, int numberOfCores, int[] label) {
+    Arrays.fill(label, -1);
+    int next = 0;
+    if (heterogeneous != null) label[next++] = 0;
+    for (int a = 0; a < genome.length; a++) {
+      int p = genome[a];
+      if (p >= numberOfCores) continue;
+      if (label[p] < 0) label[p] = next++;
+      genome[a] = label[p];
+    }
+  }
+
+  /** A population with its own evaluator, random generator and scratch arrays. */
+  private final class Island {
+    private final int numberOfCores;
+    private final int numActors;
+    private final int numPartitions;
+    private final int hardware;
+    private final IncrementalEvaluator evaluator;
+    private final SplittableRandom random;
+
+    private final int[][] genomes;
+    private final double[] fitness;
+    private final int[] hashes;
+
+    private final int[] child;
+    private final int[] label;
+    private final int[] count;
+    private final int[] overlap;
+    private final int[] mapping;
+    private final int[] queue;
+    private final int[] visited;
+    private int visit;
+
+    private Island(int[] start, int numberOfCores, long islandSeed) {
+      this.numberOfCores = numberOfCores;
+      this.numActors = start.length;
+      this.numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+      this.hardware = heterogeneous != null ? numberOfCores : -1;
+      this.evaluator = new IncrementalEvaluator(costModel, numberOfCores, start);
+      this.random = new SplittableRandom(islandSeed);
+      this.genomes = new int[populationSize][numActors];
+      this.fitness = new double[populationSize];
+      this.hashes = new int[populationSize];
+      this.child = new int[numActors];
+      this.label = new int[numPartitions];
+      this.count = new int[numPartitions];
+      this.overlap = new int[numPartitions * numPartitions];
+      this.mapping = new int[numPartitions];
+      this.queue = new int[numActors];
+      this.visited = new int[numActors];
+
+      // -- the start, mutations of it and random assignments
+      for (int i = 0; i < populationSize; i++) {
+        int[] genome = genomes[i];
+        if (i < populationSize / 2) {
+          System.arraycopy(start, 0, genome, 0, numActors);
+          if (i > 0) mutate(genome, 1 + random.nextInt(Math.max(1, numActors / 10)));
+        } else {
+          for (int a = 0; a < numActors; a++) genome[a] = random.nextInt(numPartitions);
+        }
+        repair(genome);
+        normalize(genome, numberOfCores, label);
+        fitness[i] = evaluate(genome);
+        hashes[i] = Arrays.hashCode(genome);
+      }
+    }
+
+    private void evolve(int generations, long deadline) {
+      for (int g = 0; g < generations && System.nanoTime() < deadline; g++) {
+        for (int c = 0; c < populationSize; c++) {
+          int first = select();
+          if (random.nextDouble() < CROSSOVER_RATE) {
+            crossover(genomes[first], genomes[select()]);
+          } else {
+            System.arraycopy(genomes[first], 0, child, 0, numActors);
+          }
+          mutate(child, 1 + (random.nextInt(4) == 0 ? random.nextInt(4) : 0));
+          repair(child);
+          normalize(child, numberOfCores, label);
+          replaceWorst(child, evaluate(child));
+        }
+      }
+    }
+
+    private double evaluate(int[] genome) {
+      evaluator.reset(genome);
+      int excess = evaluator.getConnections() - HeterogeneousProblem.MAX_PCIE_CONNECTIONS;
+      return evaluator.getTotalTime() * (1 + Math.max(0, excess));
+    }
+
+    private int select() {
+      int best = random.nextInt(populationSize);
+      for (int t = 1; t < TOURNAMENT_SIZE; t++) {
+        int other = random.nextInt(populationSize);
+        if (fitness[other] < fitness[best]) best = other;
+      }
+      return best;
+    }
+
+    /** Puts the genome in place of the worst individual if it is better and new to the island. */
+    private void replaceWorst(int[] genome, double value) {
+      int worst = 0;
+      for (int i = 1; i < populationSize; i++) if (fitness[i] > fitness[worst]) worst = i;
+      if (value >= fitness[worst]) return;
+      int hash = Arrays.hashCode(genome);
+      for (int i = 0; i < populationSize; i++) {
+        if (hashes[i] == hash && Arrays.equals(genomes[i], genome)) return;
+      }
+      System.arraycopy(genome, 0, genomes[worst], 0, numActors);
+      fitness[worst] = value;
+      hashes[worst] = hash;
+    }
+
+    private int[] best() {
+      return genomes[bestIndex()].clone();
+    }
+
+    private double bestFitness() {
+      return fitness[bestIndex()];
+    }
+
+    private int bestIndex() {
+      int best = 0;
+      for (int i = 1; i < populationSize; i++) if (fitness[i] < fitness[best]) best = i;
+      return best;
+    }
+
+    private void receive(int[] emigrant) {
+      replaceWorst(emigrant, evaluate(emigrant));
+    }
+
+    /**
+     * Copies a connected group of actors from the second parent into a copy of the first one,
+     * with the cores of the second parent renamed to the cores of the first one they overlap most.
+     */
+    private void crossover(int[] first, int[] second) {
+      // -- greedy matching of the partitions by overlap, core 0 and the accelerator map to
+      // themselves
+      Arrays.fill(overlap, 0);
+      for (int a = 0; a < numActors; a++) overlap[second[a] * numPartitions + first[a]]++;
+      Arrays.fill(mapping, -1);
+      Arrays.fill(label, 0);
+      if (hardware >= 0) {
+        mapping[hardware] = hardware;
+        label[hardware] = 1;
+        mapping[0] = 0;
+        label[0] = 1;
+      }
+      for (int matched = hardware >= 0 ? 2 : 0; matched < numPartitions; matched++) {
+        int bestFrom = -1;
+        int bestTo = -1;
+        for (int from = 0; from < numPartitions; from++) {
+          if (mapping[from] >= 0) continue;
+          for (int to = 0; to < numPartitions; to++) {
+            if (label[to] != 0) continue;
+            if (bestFrom < 0
+                || overlap[from * numPartitions + to]
+                    > overlap[bestFrom * numPartitions + bestTo]) {
+              bestFrom = from;
+              bestTo = to;
+            }
+          }
+        }
+        mapping[bestFrom] = bestTo;
+        label[bestTo] = 1;
+      }
+
+      // -- breadth first group from a random actor
+      System.arraycopy(first, 0, child, 0, numActors);
+      int size = 1 + random.nextInt(Math.max(1, numActors / 2));
+      visit++;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = random.nextInt(numActors);
+      visited[queue[0]] = visit;
+      while (head < tail && head < size) {
+        int actor = queue[head++];
+        child[actor] = mapping[second[actor]];
+        for (int i = problem.getIncidenceStart(actor); i < problem.getIncidenceEnd(actor); i++) {
+          int neighbour = problem.getOtherEnd(problem.getIncidentEdge(i), actor);
+          if (visited[neighbour] != visit) {
+            visited[neighbour] = visit;
+            queue[tail++] = neighbour;
+          }
+        }
+      }
+    }
+
+    private void mutate(int[] genome, int moves) {
+      for (int m = 0; m < moves; m++) {
+        int actor = random.nextInt(numActors);
+        int degree = problem.getIncidenceEnd(actor) - problem.getIncidenceStart(actor);
+        if (degree > 0 && random.nextDouble() < NEIGHBOUR_MUTATION_RATE) {
+          int edge =
+              problem.getIncidentEdge(problem.getIncidenceStart(actor) + random.nextInt(degree));
+          genome[actor] = genome[problem.getOtherEnd(edge, actor)];
+        } else {
+          genome[actor] = random.nextInt(numPartitions);
+        }
+      }
+    }
+
+    /** Puts the pinned actors on their side and fills the empty partitions. */
+    private void repair(int[] genome) {
+      if (heterogeneous != null) {
+        for (int a = 0; a < numActors; a++) {
+          if (genome[a] == hardware && heterogeneous.isSoftwareOnly(a)) {
+            genome[a] = random.nextInt(numberOfCores);
+          } else if (genome[a] != hardware && heterogeneous.isHardwareOnly(a)) {
+            genome[a] = hardware;
+          }
+        }
+      }
+      Arrays.fill(count, 0);
+      for (int p : genome) count[p]++;
+      for (int p = 0; p < numPartitions; p++) {
+        // -- give the empty partition an actor that can move there, from a partition with more
+        for (int tries = 0; count[p] == 0 && tries < 4 * numActors; tries++) {
+          int actor = random.nextInt(numActors);
+          int from = genome[actor];
+          if (count[from] <= 1) continue;
+          if (heterogeneous != null) {
+            if (p == hardware && heterogeneous.isSoftwareOnly(actor)) continue;
+            if (from == hardware && heterogeneous.isHardwareOnly(actor)) continue;
+          }
+          genome[actor] = p;
+          count[from]--;
+          count[p]++;
+        }
+      }
+    }
+  }
+}
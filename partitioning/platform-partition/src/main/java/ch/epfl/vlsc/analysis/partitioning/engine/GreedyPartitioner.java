@@ -0,0 +1,224 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Quick constructive partitioning used to seed the exact engines with an incumbent and to bound
+ * the objective terms of the MILP models.
+ *
+ * <p>The software cores are filled with two constructions and the better one is kept: a longest
+ * processing time assignment of the actors, and a communication aware variant that first merges
+ * actors along the most expensive connections, as long as a merged group does not exceed a slack
+ * over the average core load, and then places the groups with the same rule. For the
+ * heterogeneous problem the actors without a software profile start on the accelerator and
+ * actors are then moved there one at a time while this lowers the objective.
+ */
+public class GreedyPartitioner {
+
+  private static final double[] MERGE_SLACK = {0.0, 0.1, 0.25, 0.5};
+
+  private final CostModel costModel;
+  private final PartitioningProblem problem;
+
+  public GreedyPartitioner(CostModel costModel) {
+    this.costModel = costModel;
+    this.problem = costModel.getProblem();
+  }
+
+  /**
+   * @param numberOfCores the number of software cores
+   * @return the best feasible assignment found, or null if the constructions found none
+   */
+  public Assignment solve(int numberOfCores) {
+    boolean[] software = new boolean[problem.getNumActors()];
+    Arrays.fill(software, true);
+    HeterogeneousProblem heterogeneous = null;
+    if (costModel instanceof HeterogeneousCostModel) {
+      heterogeneous = ((HeterogeneousCostModel) costModel).getProblem();
+      for (int a = 0; a < software.length; a++) software[a] = !heterogeneous.isHardwareOnly(a);
+    }
+
+    Assignment best = null;
+    int[] lpt = longestProcessingTime(singletons(software), numberOfCores);
+    if (lpt != null) best = better(best, complete(lpt, numberOfCores, heterogeneous));
+    for (double slack : MERGE_SLACK) {
+      int[] merged =
+          longestProcessingTime(mergeGroups(software, numberOfCores, slack), numberOfCores);
+      if (merged != null) best = better(best, complete(merged, numberOfCores, heterogeneous));
+    }
+    return best;
+  }
+
+  private Assignment better(Assignment best, Assignment candidate) {
+    if (candidate == null) return best;
+    if (best == null || candidate.getTotalTime() < best.getTotalTime()) return candidate;
+    return best;
+  }
+
+  /** Adds the accelerator to a software assignment, or evaluates it for the homogeneous case. */
+  private Assignment complete(
+      int[] partition, int numberOfCores, HeterogeneousProblem heterogeneous) {
+    if (heterogeneous == null) {
+      return costModel.isFeasible(partition, numberOfCores)
+          ? costModel.evaluate(partition, numberOfCores)
+          : null;
+    }
+    int hardware = numberOfCores;
+    boolean onHardware = false;
+    for (int a = 0; a < partition.length; a++) {
+      if (heterogeneous.isHardwareOnly(a)) {
+        partition[a] = hardware;
+        onHardware = true;
+      }
+    }
+
+    // -- move actors to the accelerator while it pays off, the first move is forced if the
+    // -- accelerator would otherwise stay empty
+    Assignment current = onHardware ? costModel.evaluate(partition, numberOfCores) : null;
+    while (true) {
+      int bestActor = -1;
+      Assignment bestMove = null;
+      for (int a = 0; a < partition.length; a++) {
+        if (partition[a] == hardware || heterogeneous.isSoftwareOnly(a)) continue;
+        int core = partition[a];
+        partition[a] = hardware;
+        if (coreUsed(partition, core)) {
+          Assignment move = costModel.evaluate(partition, numberOfCores);
+          if ((bestMove == null || move.getTotalTime() < bestMove.getTotalTime())
+              && connectionsFit(partition, hardware)) {
+            bestMove = move;
+            bestActor = a;
+          }
+        }
+        partition[a] = core;
+      }
+      if (bestMove == null) break;
+      if (current != null && bestMove.getTotalTime() >= current.getTotalTime()) break;
+      partition[bestActor] = hardware;
+      current = bestMove;
+    }
+    return current != null && costModel.isFeasible(partition, numberOfCores) ? current : null;
+  }
+
+  private boolean coreUsed(int[] partition, int core) {
+    for (int p : partition) if (p == core) return true;
+    return false;
+  }
+
+  private boolean connectionsFit(int[] partition, int hardware) {
+    return ((HeterogeneousCostModel) costModel).countConnections(partition, hardware)
+        <= HeterogeneousProblem.MAX_PCIE_CONNECTIONS;
+  }
+
+  /** @return the group of every software actor, every actor in its own group */
+  private int[] singletons(boolean[] software) {
+    int[] group = new int[software.length];
+    for (int a = 0; a < group.length; a++) group[a] = software[a] ? a : -1;
+    return group;
+  }
+
+  /**
+   * Merges actors along the connections in decreasing order of the communication saved by
+   * keeping both ends on the same core.
+   *
+   * @return the group of every software actor, -1 for the others
+   */
+  private int[] mergeGroups(boolean[] software, int numberOfCores, double slack) {
+    int numActors = problem.getNumActors();
+    int[] parent = new int[numActors];
+    double[] load = new double[numActors];
+    double total = 0.0;
+    double largest = 0.0;
+    int groups = 0;
+    for (int a = 0; a < numActors; a++) {
+      parent[a] = a;
+      if (!software[a]) continue;
+      load[a] = problem.getActorCost(a);
+      total += load[a];
+      largest = Math.max(largest, load[a]);
+      groups++;
+    }
+    double capacity = Math.max(total / numberOfCores, largest) * (1.0 + slack);
+
+    Integer[] edges = new Integer[problem.getNumEdges()];
+    for (int e = 0; e < edges.length; e++) edges[e] = e;
+    Arrays.sort(edges, Comparator.comparingDouble(e -> -saving(e)));
+    for (int e : edges) {
+      if (groups <= numberOfCores || saving(e) <= 0.0) break;
+      int s = problem.getEdgeSource(e);
+      int t = problem.getEdgeTarget(e);
+      if (!software[s] || !software[t]) continue;
+      int rs = find(parent, s);
+      int rt = find(parent, t);
+      if (rs == rt || load[rs] + load[rt] > capacity) continue;
+      parent[rt] = rs;
+      load[rs] += load[rt];
+      groups--;
+    }
+
+    int[] group = new int[numActors];
+    for (int a = 0; a < numActors; a++) group[a] = software[a] ? find(parent, a) : -1;
+    return group;
+  }
+
+  private double saving(int edge) {
+    return problem.getEdgeGlobalCost(edge) - problem.getEdgeLocalCost(edge);
+  }
+
+  private static int find(int[] parent, int a) {
+    while (parent[a] != a) {
+      parent[a] = parent[parent[a]];
+      a = parent[a];
+    }
+    return a;
+  }
+
+  /**
+   * Places the groups on the cores in decreasing order of load, each on the least loaded core,
+   * ties broken by the number of groups so that no core stays empty.
+   *
+   * @param group the group of every actor, -1 for actors that are not placed
+   * @return the core of every actor, -1 for actors not placed, or null if there are fewer groups
+   *     than cores
+   */
+  private int[] longestProcessingTime(int[] group, int numberOfCores) {
+    int numActors = problem.getNumActors();
+    double[] groupLoad = new double[numActors];
+    boolean[] isGroup = new boolean[numActors];
+    int groups = 0;
+    for (int a = 0; a < numActors; a++) {
+      if (group[a] < 0) continue;
+      groupLoad[group[a]] += problem.getActorCost(a);
+      if (!isGroup[group[a]]) {
+        isGroup[group[a]] = true;
+        groups++;
+      }
+    }
+    if (groups < numberOfCores) return null;
+
+    Integer[] order = new Integer[groups];
+    for (int a = 0, i = 0; a < numActors; a++) if (isGroup[a]) order[i++] = a;
+    Arrays.sort(order, Comparator.comparingDouble(g -> -groupLoad[g]));
+
+    double[] coreLoad = new double[numberOfCores];
+    int[] coreGroups = new int[numberOfCores];
+    int[] groupCore = new int[numActors];
+    for (int g : order) {
+      int core = 0;
+      for (int c = 1; c < numberOfCores; c++) {
+        if (coreLoad[c] < coreLoad[core]
+            || (coreLoad[c] == coreLoad[core] && coreGroups[c] < coreGroups[core])) {
+          core = c;
+        }
+      }
+      groupCore[g] = core;
+      coreLoad[core] += groupLoad[g];
+      coreGroups[core]++;
+    }
+
+    int[] partition = new int[numActors];
+    for (int a = 0; a < numActors; a++) partition[a] = group[a] < 0 ? -1 : groupCore[group[a]];
+    return partition;
+  }
+}
@@ -0,0 +1,137 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+/**
+ * Evaluates the objective of the HeterogeneousModel. The accelerator is partition numberOfCores,
+ * its execution time is the PLink time, i.e. the PCIe reads of connections leaving the
+ * accelerator, the longest hardware actor and the PCIe writes of connections entering it. Core 0
+ * hosts the PLink, so connections between core 0 and the accelerator are paid as local
+ * communication on core 0 while the other cores pay them as core to core communication.
+ */
+public class HeterogeneousCostModel implements CostModel {
+
+  private final HeterogeneousProblem problem;
+
+  public HeterogeneousCostModel(HeterogeneousProblem problem) {
+    this.problem = problem;
+  }
+
+  @Override
+  public HeterogeneousProblem getProblem() {
+    return problem;
+  }
+
+  @Override
+  public int getNumberOfPartitions(int numberOfCores) {
+    return numberOfCores + 1;
+  }
+
+  @Override
+  public Assignment evaluate(int[] partition, int numberOfCores) {
+    int hardware = numberOfCores;
+    double[] execution = new double[numberOfCores];
+    double[] local = new double[numberOfCores];
+    double coreToCore = 0.0;
+    double kernel = 0.0;
+    double read = 0.0;
+    double write = 0.0;
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      if (partition[a] == hardware) {
+        kernel = Math.max(kernel, problem.getHardwareCost(a));
+      } else {
+        execution[partition[a]] += problem.getActorCost(a);
+      }
+    }
+
+    boolean[] readPort = new boolean[problem.getNumPorts()];
+    boolean[] writePort = new boolean[problem.getNumPorts()];
+    int readConnections = 0;
+    int writeConnections = 0;
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = partition[problem.getEdgeSource(e)];
+      int target = partition[problem.getEdgeTarget(e)];
+      int port = problem.getEdgeSourcePort(e);
+      if (source == hardware && target == hardware) continue;
+      if (source == hardware || target == hardware) {
+        if (source == hardware) {
+          read += problem.getEdgeReadCost(e);
+          if (!readPort[port]) {
+            readPort[port] = true;
+            readConnections++;
+          }
+        } else {
+          write += problem.getEdgeWriteCost(e);
+          if (!writePort[port]) {
+            writePort[port] = true;
+            writeConnections++;
+          }
+        }
+        int core = source == hardware ? target : source;
+        if (core == 0) {
+          local[0] += problem.getEdgeLocalCost(e);
+        } else {
+          coreToCore += problem.getEdgeGlobalCost(e);
+        }
+      } else if (source == target) {
+        local[source] += problem.getEdgeLocalCost(e);
+      } else {
+        coreToCore += problem.getEdgeGlobalCost(e);
+      }
+    }
+
+    double plink = read + kernel + write;
+    return new Assignment(
+        partition,
+        numberOfCores + 1,
+        Math.max(HomogeneousCostModel.max(execution), plink),
+        HomogeneousCostModel.max(local),
+        coreToCore,
+        read,
+        kernel,
+        write,
+        readConnections,
+        writeConnections);
+  }
+
+  /**
+   * @return true if the pinned actors are on their side, no partition is empty and the PCIe
+   *     connections fit on the accelerator
+   */
+  @Override
+  public boolean isFeasible(int[] partition, int numberOfCores) {
+    int hardware = numberOfCores;
+    boolean[] used = new boolean[numberOfCores + 1];
+    int usedPartitions = 0;
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      int p = partition[a];
+      if (p < 0 || p > hardware) return false;
+      if (p == hardware && problem.isSoftwareOnly(a)) return false;
+      if (p != hardware && problem.isHardwareOnly(a)) return false;
+      if (!used[p]) {
+        used[p] = true;
+        usedPartitions++;
+      }
+    }
+    if (usedPartitions != numberOfCores + 1) return false;
+    return countConnections(partition, hardware) <= HeterogeneousProblem.MAX_PCIE_CONNECTIONS;
+  }
+
+  /** @return the number of PCIe read plus write connections of the accelerator */
+  public int countConnections(int[] partition, int hardware) {
+    boolean[] readPort = new boolean[problem.getNumPorts()];
+    boolean[] writePort = new boolean[problem.getNumPorts()];
+    int connections = 0;
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      boolean sourceOnHardware = partition[problem.getEdgeSource(e)] == hardware;
+      boolean targetOnHardware = partition[problem.getEdgeTarget(e)] == hardware;
+      int port = problem.getEdgeSourcePort(e);
+      if (sourceOnHardware && !targetOnHardware && !readPort[port]) {
+        readPort[port] = true;
+        connections++;
+      } else if (!sourceOnHardware && targetOnHardware && !writePort[port]) {
+        writePort[port] = true;
+        connections++;
+      }
+    }
+    return connections;
+  }
+}
@@ -0,0 +1,152 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.ir.network.Connection;
+import se.lth.cs.tycho.ir.network.Instance;
+import se.lth.cs.tycho.ir.network.Network;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The homogeneous problem extended with the accelerator data used by the HeterogeneousModel: the
+ * hardware execution time of every actor, the PCIe read and write times of every connection and
+ * the output port of every connection, since fan outs of a port share a single PCIe connection.
+ */
+public class HeterogeneousProblem extends PartitioningProblem {
+
+  /** The largest number of PCIe read plus write connections of a partition. */
+  public static final int MAX_PCIE_CONNECTIONS = 15;
+
+  private final double[] hardwareCost;
+  private final boolean[] softwareOnly;
+  private final boolean[] hardwareOnly;
+  private final double[] edgeReadCost;
+  private final double[] edgeWriteCost;
+  private final int[] edgeSourcePort;
+  private final int numPorts;
+
+  /**
+   * @param software the software part of the problem
+   * @param hardwareCost the hardware execution time of every actor
+   * @param softwareOnly actors that can not be placed on the accelerator
+   * @param hardwareOnly actors that can not be placed on a core
+   * @param edgeReadCost the PCIe read time of every connection from hardware to software
+   * @param edgeWriteCost the PCIe write time of every connection from software to hardware
+   * @param edgeSourcePort the output port of every connection, numbered from 0
+   */
+  public HeterogeneousProblem(
+      PartitioningProblem software,
+      double[] hardwareCost,
+      boolean[] softwareOnly,
+      boolean[] hardwareOnly,
+      double[] edgeReadCost,
+      double[] edgeWriteCost,
+      int[] edgeSourcePort) {
+    super(software);
+    this.hardwareCost = hardwareCost.clone();
+    this.softwareOnly = softwareOnly.clone();
+    this.hardwareOnly = hardwareOnly.clone();
+    this.edgeReadCost = edgeReadCost.clone();
+    this.edgeWriteCost = edgeWriteCost.clone();
+    this.edgeSourcePort = edgeSourcePort.clone();
+    int ports = 0;
+    for (int port : edgeSourcePort) ports = Math.max(ports, port + 1);
+    this.numPorts = ports;
+  }
+
+  /**
+   * Builds the problem from the network and the profiles, the costs are the same as the ones used
+   * by the HeterogeneousModel.
+   */
+  public static HeterogeneousProblem fromNetwork(
+      Network network,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      double multicoreClockPeriod,
+      double accelClockPeriod) {
+
+    PartitioningProblem software = fromNetwork(network, multicoreDB, multicoreClockPeriod);
+
+    ImmutableList<Instance> instances = network.getInstances();
+    int numActors = instances.size();
+    double[] hardwareCost = new double[numActors];
+    boolean[] softwareOnly = new boolean[numActors];
+    boolean[] hardwareOnly = new boolean[numActors];
+    for (int a = 0; a < numActors; a++) {
+      Instance instance = instances.get(a);
+      hardwareCost[a] = accelDB.getInstanceTicks(instance) * accelClockPeriod;
+      softwareOnly[a] = !accelDB.getExecutionProfileDataBase().contains(instance);
+      hardwareOnly[a] = !multicoreDB.getExecutionProfileDataBase().contains(instance);
+    }
+
+    ImmutableList<Connection> connections = network.getConnections();
+    int numEdges = connections.size();
+    double[] edgeReadCost = new double[numEdges];
+    double[] edgeWriteCost = new double[numEdges];
+    int[] edgeSourcePort = new int[numEdges];
+    Map<String, Integer> ports = new HashMap<>();
+    for (int e = 0; e < numEdges; e++) {
+      Connection connection = connections.get(e);
+      Long bufferSizeBytes = Long.valueOf(multicoreDB.getConnectionBytes(connection));
+      Long bytesExchanged = multicoreDB.getBytesExchanged(connection);
+      edgeReadCost[e] = accelDB.getPCIeReadTime(bufferSizeBytes, bytesExchanged) * 1e-9;
+      edgeWriteCost[e] = accelDB.getPCIeWriteTime(bufferSizeBytes, bytesExchanged) * 1e-9;
+      String port = software.getEdgeSource(e) + "." + connection.getSource().getPort();
+      edgeSourcePort[e] = ports.computeIfAbsent(port, p -> ports.size());
+    }
+
+    return new HeterogeneousProblem(
+        software,
+        hardwareCost,
+        softwareOnly,
+        hardwareOnly,
+        edgeReadCost,
+        edgeWriteCost,
+        edgeSourcePort);
+  }
+
+  /**
+   * @param onHardware the side of every actor, true for the accelerator
+   * @return the problem with every actor pinned to its side, the pins of this problem are expected
+   *     to agree with it
+   */
+  public HeterogeneousProblem pin(boolean[] onHardware) {
+    boolean[] software = new boolean[onHardware.length];
+    for (int a = 0; a < onHardware.length; a++) software[a] = !onHardware[a];
+    return new HeterogeneousProblem(
+        this, hardwareCost, software, onHardware, edgeReadCost, edgeWriteCost, edgeSourcePort);
+  }
+
+  public double getHardwareCost(int actor) {
+    return hardwareCost[actor];
+  }
+
+  /** @return true if the actor has no hardware profile and is pinned to software */
+  public boolean isSoftwareOnly(int actor) {
+    return softwareOnly[actor];
+  }
+
+  /** @return true if the actor has no software profile and is pinned to hardware */
+  public boolean isHardwareOnly(int actor) {
+    return hardwareOnly[actor];
+  }
+
+  public double getEdgeReadCost(int edge) {
+    return edgeReadCost[edge];
+  }
+
+  public double getEdgeWriteCost(int edge) {
+    return edgeWriteCost[edge];
+  }
+
+  public int getEdgeSourcePort(int edge) {
+    return edgeSourcePort[edge];
+  }
+
+  public int getNumPorts() {
+    return numPorts;
+  }
+}
@@ -0,0 +1,66 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+/**
+ * Evaluates the homogeneous objective T = T_exec + T_lc + T_cc of an assignment, where T_exec and
+ * T_lc are the largest per core execution and local communication times and T_cc is the sum of
+ * the core to core communication times.
+ */
+public class HomogeneousCostModel implements CostModel {
+
+  private final PartitioningProblem problem;
+
+  public HomogeneousCostModel(PartitioningProblem problem) {
+    this.problem = problem;
+  }
+
+  @Override
+  public PartitioningProblem getProblem() {
+    return problem;
+  }
+
+  @Override
+  public int getNumberOfPartitions(int numberOfCores) {
+    return numberOfCores;
+  }
+
+  @Override
+  public Assignment evaluate(int[] partition, int numberOfCores) {
+    double[] execution = new double[numberOfCores];
+    double[] local = new double[numberOfCores];
+    double coreToCore = 0.0;
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      execution[partition[a]] += problem.getActorCost(a);
+    }
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = partition[problem.getEdgeSource(e)];
+      int target = partition[problem.getEdgeTarget(e)];
+      if (source == target) {
+        local[source] += problem.getEdgeLocalCost(e);
+      } else {
+        coreToCore += problem.getEdgeGlobalCost(e);
+      }
+    }
+    return new Assignment(partition, numberOfCores, max(execution), max(local), coreToCore);
+  }
+
+  /** @return true if every actor is on one of the cores and no core is left empty */
+  @Override
+  public boolean isFeasible(int[] partition, int numberOfCores) {
+    boolean[] used = new boolean[numberOfCores];
+    int usedCores = 0;
+    for (int core : partition) {
+      if (core < 0 || core >= numberOfCores) return false;
+      if (!used[core]) {
+        used[core] = true;
+        usedCores++;
+      }
+    }
+    return usedCores == numberOfCores;
+  }
+
+  static double max(double[] values) {
+    double result = 0.0;
+    for (double value : values) result = Math.max(result, value);
+    return result;
+  }
+}
@@ -0,0 +1,247 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the cost terms of an assignment up to date while single actors are moved, a move only
+ * touches the connections of the moved actor so it costs O(degree) and allocates nothing. The
+ * terms are the ones of the {@link HomogeneousCostModel}, or of the {@link
+ * HeterogeneousCostModel} when the evaluator is built for one, in which case partition
+ * numberOfCores is the accelerator.
+ *
+ * <p>The evaluator is not thread safe, every search thread needs its own.
+ */
+public class IncrementalEvaluator {
+
+  private final PartitioningProblem problem;
+  private final HeterogeneousProblem heterogeneous;
+  private final int numberOfCores;
+  private final int hardware;
+  private final int numPartitions;
+
+  private final int[] partition;
+  private final int[] actorsIn;
+  private final double[] execution;
+  private final double[] local;
+  private double coreToCore;
+  // -- accelerator terms, unused in the homogeneous case
+  private double read;
+  private double write;
+  private double kernel;
+  private final int[] readEdges;
+  private final int[] writeEdges;
+  private int readConnections;
+  private int writeConnections;
+  // -- actors sorted by decreasing hardware time, to find the new kernel time after a removal
+  private final int[] byHardwareCost;
+
+  /**
+   * @param costModel the cost model whose terms are tracked
+   * @param numberOfCores the number of software cores
+   * @param initial the initial partition of every actor
+   */
+  public IncrementalEvaluator(CostModel costModel, int numberOfCores, int[] initial) {
+    this.problem = costModel.getProblem();
+    this.heterogeneous =
+        costModel instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) costModel).getProblem()
+            : null;
+    this.numberOfCores = numberOfCores;
+    this.hardware = heterogeneous != null ? numberOfCores : -1;
+    this.numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+    this.partition = new int[problem.getNumActors()];
+    this.actorsIn = new int[numPartitions];
+    this.execution = new double[numberOfCores];
+    this.local = new double[numberOfCores];
+    int ports = heterogeneous != null ? heterogeneous.getNumPorts() : 0;
+    this.readEdges = new int[ports];
+    this.writeEdges = new int[ports];
+    if (heterogeneous != null) {
+      this.byHardwareCost =
+          IntStream.range(0, problem.getNumActors())
+              .boxed()
+              .sorted(
+                  (a, b) ->
+                      Double.compare(
+                          heterogeneous.getHardwareCost(b), heterogeneous.getHardwareCost(a)))
+              .mapToInt(Integer::intValue)
+              .toArray();
+    } else {
+      this.byHardwareCost = new int[0];
+    }
+    reset(initial);
+  }
+
+  /** Recomputes all the terms for the given partition, also clears the rounding drift. */
+  public void reset(int[] initial) {
+    System.arraycopy(initial, 0, partition, 0, partition.length);
+    Arrays.fill(actorsIn, 0);
+    Arrays.fill(execution, 0.0);
+    Arrays.fill(local, 0.0);
+    Arrays.fill(readEdges, 0);
+    Arrays.fill(writeEdges, 0);
+    coreToCore = 0.0;
+    read = 0.0;
+    write = 0.0;
+    kernel = 0.0;
+    readConnections = 0;
+    writeConnections = 0;
+    for (int a = 0; a < partition.length; a++) addActor(a);
+    for (int e = 0; e < problem.getNumEdges(); e++) updateEdge(e, 1);
+  }
+
+  private void addActor(int actor) {
+    int p = partition[actor];
+    actorsIn[p]++;
+    if (p == hardware) {
+      kernel = Math.max(kernel, heterogeneous.getHardwareCost(actor));
+    } else {
+      execution[p] += problem.getActorCost(actor);
+    }
+  }
+
+  private void removeActor(int actor) {
+    int p = partition[actor];
+    actorsIn[p]--;
+    if (p == hardware) {
+      if (heterogeneous.getHardwareCost(actor) >= kernel) {
+        // -- the longest hardware actor leaves, look for the next one still on the accelerator
+        kernel = 0.0;
+        for (int a : byHardwareCost) {
+          if (a != actor && partition[a] == hardware) {
+            kernel = heterogeneous.getHardwareCost(a);
+            break;
+          }
+        }
+      }
+    } else {
+      execution[p] -= problem.getActorCost(actor);
+    }
+  }
+
+  /** Adds (sign 1) or removes (sign -1) the contribution of an edge for the current partition. */
+  private void updateEdge(int edge, int sign) {
+    int source = partition[problem.getEdgeSource(edge)];
+    int target = partition[problem.getEdgeTarget(edge)];
+    if (source == hardware || target == hardware) {
+      if (source == target) return;
+      int port = heterogeneous.getEdgeSourcePort(edge);
+      if (source == hardware) {
+        read += sign * heterogeneous.getEdgeReadCost(edge);
+        if (sign > 0 && readEdges[port]++ == 0) readConnections++;
+        if (sign < 0 && --readEdges[port] == 0) readConnections--;
+      } else {
+        write += sign * heterogeneous.getEdgeWriteCost(edge);
+        if (sign > 0 && writeEdges[port]++ == 0) writeConnections++;
+        if (sign < 0 && --writeEdges[port] == 0) writeConnections--;
+      }
+      int core = source == hardware ? target : source;
+      if (core == 0) {
+        local[0] += sign * problem.getEdgeLocalCost(edge);
+      } else {
+        coreToCore += sign * problem.getEdgeGlobalCost(edge);
+      }
+    } else if (source == target) {
+      local[source] += sign * problem.getEdgeLocalCost(edge);
+    } else {
+      coreToCore += sign * problem.getEdgeGlobalCost(edge);
+    }
+  }
+
+  /** Moves an actor to another partition in O(degree). */
+  public void move(int actor, int to) {
+    if (partition[actor] == to) return;
+    int begin = problem.getIncidenceStart(actor);
+    int end = problem.getIncidenceEnd(actor);
+    for (int i = begin; i < end; i++) updateEdge(problem.getIncidentEdge(i), -1);
+    removeActor(actor);
+    partition[actor] = to;
+    addActor(actor);
+    for (int i = begin; i < end; i++) updateEdge(problem.getIncidentEdge(i), 1);
+  }
+
+  /**
+   * @return the change of the total time if the actor moved to the given partition, the state is
+   *     left unchanged
+   */
+  public double delta(int actor, int to) {
+    int from = partition[actor];
+    double before = getTotalTime();
+    move(actor, to);
+    double after = getTotalTime();
+    move(actor, from);
+    return after - before;
+  }
+
+  /**
+   * @return true if moving the actor keeps the pinned actors on their side and leaves no partition
+   *     empty, the PCIe connection limit is checked by {@link #isFeasible} after the move
+   */
+  public boolean canMove(int actor, int to) {
+    int from = partition[actor];
+    if (from == to || actorsIn[from] <= 1) return false;
+    if (heterogeneous != null) {
+      if (to == hardware && heterogeneous.isSoftwareOnly(actor)) return false;
+      if (from == hardware && heterogeneous.isHardwareOnly(actor)) return false;
+    }
+    return true;
+  }
+
+  /** @return the number of PCIe connections of the accelerator, reads and writes */
+  public int getConnections() {
+    return readConnections + writeConnections;
+  }
+
+  /** @return true if the current assignment satisfies the connection limit of the accelerator */
+  public boolean isFeasible() {
+    return readConnections + writeConnections <= HeterogeneousProblem.MAX_PCIE_CONNECTIONS;
+  }
+
+  public int getNumberOfCores() {
+    return numberOfCores;
+  }
+
+  public int getNumberOfPartitions() {
+    return numPartitions;
+  }
+
+  public int getPartition(int actor) {
+    return partition[actor];
+  }
+
+  public double getExecutionTime() {
+    double result = kernel + read + write;
+    for (double value : execution) result = Math.max(result, value);
+    return result;
+  }
+
+  public double getLocalCommunicationTime() {
+    double result = 0.0;
+    for (double value : local) result = Math.max(result, value);
+    return result;
+  }
+
+  public double getCoreToCoreCommunicationTime() {
+    return coreToCore;
+  }
+
+  public double getTotalTime() {
+    return getExecutionTime() + getLocalCommunicationTime() + coreToCore;
+  }
+
+  /** @return the current assignment with its cost breakdown */
+  public Assignment toAssignment() {
+    return new Assignment(
+        partition,
+        numPartitions,
+        getExecutionTime(),
+        getLocalCommunicationTime(),
+        coreToCore,
+        read,
+        kernel,
+        write,
+        readConnections,
+        writeConnections);
+  }
+}
@@ -0,0 +1,257 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+
+/**
+ * Lower bounds on the objective of every feasible assignment, computed from the problem arrays
+ * without a solver. They bound the objective of the models from below before the solve and tell
+ * how far the incumbent can still be from the optimum.
+ *
+ * <p>The execution bound is the larger of the work per core and the largest actor. With an
+ * accelerator, an actor only leaves the cores if its kernel fits under the execution time, so the
+ * bound is the smallest level at which the cores can absorb the work of the actors whose kernel
+ * does not fit. The communication bound relaxes T_lc from the most loaded core to the average over
+ * the cores, every connection then costs at least the smaller of its averaged local cost and its
+ * global cost. In the homogeneous case every core holds an actor, so the connections that are
+ * cheaper inside a core still cross at least half the minimum cut of the network per core.
+ */
+public class LowerBounds {
+
+  // -- the minimum cut is O(V^3), larger networks go without it
+  private static final int MAX_CUT_ACTORS = 512;
+
+  private final PartitioningProblem problem;
+  private final HeterogeneousProblem heterogeneous;
+
+  public LowerBounds(CostModel costModel) {
+    this.problem = costModel.getProblem();
+    this.heterogeneous =
+        costModel instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) costModel).getProblem()
+            : null;
+  }
+
+  /** The parts of the bound, the objective is at least the execution plus the communication. */
+  public static final class Result {
+    private final double workBound;
+    private final double largestActorBound;
+    private final double executionBound;
+    private final double communicationBound;
+    private final double cutBound;
+
+    private Result(
+        double workBound,
+        double largestActorBound,
+        double executionBound,
+        double communicationBound,
+        double cutBound) {
+      this.workBound = workBound;
+      this.largestActorBound = largestActorBound;
+      this.executionBound = executionBound;
+      this.communicationBound = communicationBound;
+      this.cutBound = cutBound;
+    }
+
+    /** @return the software work per core */
+    public double getWorkBound() {
+      return workBound;
+    }
+
+    /** @return the largest actor that must stay on a core, or the largest kernel */
+    public double getLargestActorBound() {
+      return largestActorBound;
+    }
+
+    /** @return a lower bound on T_exec */
+    public double getExecutionBound() {
+      return executionBound;
+    }
+
+    /** @return a lower bound on T_lc + T_cc, the cut bound included */
+    public double getCommunicationBound() {
+      return communicationBound;
+    }
+
+    /** @return the part of the communication bound due to the minimum cut */
+    public double getCutBound() {
+      return cutBound;
+    }
+
+    /** @return a lower bound on T */
+    public double getBound() {
+      return executionBound + communicationBound;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "T >= %6.6f (work %6.6f, largest actor %6.6f, communication %6.6f of which cut %6.6f)",
+          getBound(), workBound, largestActorBound, communicationBound, cutBound);
+    }
+  }
+
+  /**
+   * @param numberOfCores the number of software cores
+   * @return the lower bounds of every assignment to the given number of cores
+   */
+  public Result compute(int numberOfCores) {
+    return heterogeneous == null
+        ? computeHomogeneous(numberOfCores)
+        : computeHeterogeneous(numberOfCores);
+  }
+
+  private Result computeHomogeneous(int numberOfCores) {
+    double total = problem.getTotalActorCost();
+    double largest = 0.0;
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      largest = Math.max(largest, problem.getActorCost(a));
+    }
+    double work = total / numberOfCores;
+
+    double communication = 0.0;
+    double[] saving = new double[problem.getNumEdges()];
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      double local = problem.getEdgeLocalCost(e);
+      if (numberOfCores == 1 || problem.getEdgeSource(e) == problem.getEdgeTarget(e)) {
+        communication += local / numberOfCores;
+      } else {
+        double averaged = local / numberOfCores;
+        double global = problem.getEdgeGlobalCost(e);
+        communication += Math.min(averaged, global);
+        saving[e] = Math.max(0.0, global - averaged);
+      }
+    }
+    // -- every core is a nonempty part, the boundary of each weighs at least the minimum cut and
+    // every cut connection is on two boundaries
+    double cut = 0.0;
+    if (numberOfCores > 1 && problem.getNumActors() <= MAX_CUT_ACTORS) {
+      cut = numberOfCores * minimumCut(saving) / 2.0;
+    }
+    return new Result(work, largest, Math.max(work, largest), communication + cut, cut);
+  }
+
+  private Result computeHeterogeneous(int numberOfCores) {
+    int numActors = problem.getNumActors();
+    // -- the kernel must fit the execution time, below the longest hardware only kernel or the
+    // shortest kernel that can leave the cores there is no assignment
+    double minLevel = 0.0;
+    double shortestKernel = Double.POSITIVE_INFINITY;
+    for (int a = 0; a < numActors; a++) {
+      if (heterogeneous.isHardwareOnly(a)) {
+        minLevel = Math.max(minLevel, heterogeneous.getHardwareCost(a));
+      }
+      if (!heterogeneous.isSoftwareOnly(a)) {
+        shortestKernel = Math.min(shortestKernel, heterogeneous.getHardwareCost(a));
+      }
+    }
+    if (!Double.isInfinite(shortestKernel)) minLevel = Math.max(minLevel, shortestKernel);
+
+    // -- at level L the actors whose kernel exceeds L stay on the cores, the bound is the smallest
+    // L at least as large as the work and the largest of those actors
+    Integer[] byKernel = new Integer[numActors];
+    for (int a = 0; a < numActors; a++) byKernel[a] = a;
+    Arrays.sort(byKernel, (x, y) -> Double.compare(kernel(y), kernel(x)));
+    double[] suffixWork = new double[numActors + 1];
+    double[] suffixLargest = new double[numActors + 1];
+    for (int i = 0; i < numActors; i++) {
+      int a = byKernel[i];
+      double cost = heterogeneous.isHardwareOnly(a) ? 0.0 : problem.getActorCost(a);
+      suffixWork[i + 1] = suffixWork[i] + cost;
+      suffixLargest[i + 1] = Math.max(suffixLargest[i], cost);
+    }
+    // -- byKernel is in decreasing kernel order, the first i actors stay on the cores at any level
+    // between the kernels of actors i and i - 1
+    double best = Double.POSITIVE_INFINITY;
+    double bestWork = 0.0;
+    double bestLargest = 0.0;
+    for (int i = 0; i <= numActors; i++) {
+      double level = i < numActors ? Math.max(minLevel, kernel(byKernel[i])) : minLevel;
+      double work = suffixWork[i] / numberOfCores;
+      double value = Math.max(level, Math.max(work, suffixLargest[i]));
+      if (value < best) {
+        best = value;
+        bestWork = work;
+        bestLargest = Math.max(level, suffixLargest[i]);
+      }
+      // -- the later prefixes only add work at the same level
+      if (i < numActors && kernel(byKernel[i]) <= minLevel) break;
+    }
+
+    // -- connections with a software only end pay at least their averaged local cost, the others
+    // may be inside the accelerator for free
+    double communication = 0.0;
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      if (heterogeneous.isSoftwareOnly(problem.getEdgeSource(e))
+          || heterogeneous.isSoftwareOnly(problem.getEdgeTarget(e))) {
+        communication +=
+            Math.min(problem.getEdgeLocalCost(e) / numberOfCores, problem.getEdgeGlobalCost(e));
+      }
+    }
+    return new Result(bestWork, bestLargest, best, communication, 0.0);
+  }
+
+  /** @return the kernel time of an actor, infinite for the actors that cannot leave the cores */
+  private double kernel(int actor) {
+    return heterogeneous.isSoftwareOnly(actor)
+        ? Double.POSITIVE_INFINITY
+        : heterogeneous.getHardwareCost(actor);
+  }
+
+  /** @return the weight of the minimum cut of the network with the given edge weights */
+  private double minimumCut(double[] weight) {
+    int n = problem.getNumActors();
+    if (n < 2) return 0.0;
+    double[][] w = new double[n][n];
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int s = problem.getEdgeSource(e);
+      int t = problem.getEdgeTarget(e);
+      if (s == t) continue;
+      w[s][t] += weight[e];
+      w[t][s] += weight[e];
+    }
+
+    // -- Stoer-Wagner with a dense matrix
+    int[] active = new int[n];
+    for (int v = 0; v < n; v++) active[v] = v;
+    double[] attachment = new double[n];
+    boolean[] added = new boolean[n];
+    double best = Double.POSITIVE_INFINITY;
+    for (int size = n; size > 1; size--) {
+      Arrays.fill(added, false);
+      for (int i = 0; i < size; i++) attachment[active[i]] = 0.0;
+      int previous = -1;
+      int last = -1;
+      for (int step = 0; step < size; step++) {
+        int next = -1;
+        for (int i = 0; i < size; i++) {
+          int v = active[i];
+          if (!added[v] && (next < 0 || attachment[v] > attachment[next])) next = v;
+        }
+        added[next] = true;
+        previous = last;
+        last = next;
+        if (step == size - 1) break;
+        for (int i = 0; i < size; i++) {
+          int v = active[i];
+          if (!added[v]) attachment[v] += w[next][v];
+        }
+      }
+      best = Math.min(best, attachment[last]);
+      if (best == 0.0) return 0.0;
+      // -- merge the last vertex into the previous one
+      for (int i = 0; i < size; i++) {
+        int v = active[i];
+        w[previous][v] += w[last][v];
+        w[v][previous] = w[previous][v];
+      }
+      w[previous][previous] = 0.0;
+      for (int i = 0; i < size; i++) {
+        if (active[i] == last) {
+          active[i] = active[size - 1];
+          break;
+        }
+      }
+    }
+    return best;
+  }
+}
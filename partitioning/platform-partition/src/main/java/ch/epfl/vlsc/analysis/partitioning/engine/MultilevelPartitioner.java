@@ -0,0 +1,179 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multilevel partitioning in the style of METIS for networks that are too large for the exact
+ * engines.
+ *
+ * <p>The problem is coarsened by heavy edge matching: every actor is merged with the unmatched
+ * neighbour it exchanges the most traffic with, as long as the merged actor does not exceed the
+ * fair share of a core and, with an accelerator, the two actors are not pinned to different
+ * sides. Connections inside a merged actor become self loops and parallel connections are
+ * merged, so every coarse assignment has exactly the cost of the fine assignment it stands for.
+ * The coarsest problem is solved by the given coarse solver, the solution is then projected back
+ * level by level and refined with {@link FiducciaMattheysesRefiner} at every level.
+ */
+public class MultilevelPartitioner {
+
+  /** Solves the coarsest problem. */
+  public interface CoarseSolver {
+    /**
+     * @param costModel the cost model of the coarsest problem
+     * @param numberOfCores the number of software cores
+     * @return a feasible assignment or null if none was found
+     */
+    Assignment solve(CostModel costModel, int numberOfCores);
+  }
+
+  private static final double MIN_REDUCTION = 0.95;
+
+  private final CostModel costModel;
+  private int coarsestSize = 40;
+  private long seed = 0;
+
+  public MultilevelPartitioner(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /** @param coarsestSize coarsening stops once the problem has at most this many actors */
+  public void setCoarsestSize(int coarsestSize) {
+    this.coarsestSize = coarsestSize;
+  }
+
+  /** @param seed the seed of the random visiting order of the matching */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** The refined assignment of the original problem and the size of every level. */
+  public static final class Result {
+    private final Assignment assignment;
+    private final ImmutableList<Integer> levelSizes;
+    private final double coarseTime;
+
+    private Result(Assignment assignment, ImmutableList<Integer> levelSizes, double coarseTime) {
+      this.assignment = assignment;
+      this.levelSizes = levelSizes;
+      this.coarseTime = coarseTime;
+    }
+
+    /** @return the assignment, or null if the coarse solver found none */
+    public Assignment getAssignment() {
+      return assignment;
+    }
+
+    /** @return the number of actors of every level, from the original problem to the coarsest */
+    public ImmutableList<Integer> getLevelSizes() {
+      return levelSizes;
+    }
+
+    /** @return the objective of the coarsest solution before refinement */
+    public double getCoarseTime() {
+      return coarseTime;
+    }
+  }
+
+  /** A coarsening level, toCoarse maps the actors of the finer level to the actors of this one. */
+  private static final class Level {
+    private final CostModel costModel;
+    private final int[] toCoarse;
+
+    private Level(CostModel costModel, int[] toCoarse) {
+      this.costModel = costModel;
+      this.toCoarse = toCoarse;
+    }
+  }
+
+  public Result solve(int numberOfCores, CoarseSolver coarseSolver) {
+    int numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+    int targetSize = Math.max(coarsestSize, 2 * numPartitions);
+    double fairShare = costModel.getProblem().getTotalActorCost() / numberOfCores;
+    Random random = new Random(seed);
+
+    List<Level> levels = new ArrayList<>();
+    CostModel current = costModel;
+    while (current.getProblem().getNumActors() > targetSize) {
+      Level level = coarsen(current, fairShare, random);
+      int size = level.costModel.getProblem().getNumActors();
+      if (size > MIN_REDUCTION * current.getProblem().getNumActors()) break;
+      levels.add(level);
+      current = level.costModel;
+    }
+
+    ImmutableList.Builder<Integer> sizes = ImmutableList.builder();
+    sizes.add(costModel.getProblem().getNumActors());
+    for (Level level : levels) sizes.add(level.costModel.getProblem().getNumActors());
+
+    Assignment assignment = coarseSolver.solve(current, numberOfCores);
+    if (assignment == null) return new Result(null, sizes.build(), Double.NaN);
+    double coarseTime = assignment.getTotalTime();
+    FiducciaMattheysesRefiner.Result refined =
+        new FiducciaMattheysesRefiner(current).refine(assignment.getPartitions(), numberOfCores);
+    int[] partition = refined.getAssignment().getPartitions();
+    for (int l = levels.size() - 1; l >= 0; l--) {
+      int[] toCoarse = levels.get(l).toCoarse;
+      CostModel finer = l == 0 ? costModel : levels.get(l - 1).costModel;
+      int[] projected = new int[toCoarse.length];
+      for (int a = 0; a < toCoarse.length; a++) projected[a] = partition[toCoarse[a]];
+      partition =
+          new FiducciaMattheysesRefiner(finer)
+              .refine(projected, numberOfCores)
+              .getAssignment()
+              .getPartitions();
+    }
+    return new Result(costModel.evaluate(partition, numberOfCores), sizes.build(), coarseTime);
+  }
+
+  private Level coarsen(CostModel fine, double fairShare, Random random) {
+    PartitioningProblem problem = fine.getProblem();
+    HeterogeneousProblem heterogeneous =
+        fine instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) fine).getProblem()
+            : null;
+    int numActors = problem.getNumActors();
+
+    // -- heavy edge matching in random order
+    int[] order = new int[numActors];
+    for (int a = 0; a < numActors; a++) order[a] = a;
+    for (int i = numActors - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = order[i];
+      order[i] = order[j];
+      order[j] = tmp;
+    }
+    int[] toCoarse = new int[numActors];
+    Arrays.fill(toCoarse, -1);
+    int coarseActors = 0;
+    for (int u : order) {
+      if (toCoarse[u] >= 0) continue;
+      int match = -1;
+      double heaviest = -1.0;
+      for (int i = problem.getIncidenceStart(u); i < problem.getIncidenceEnd(u); i++) {
+        int edge = problem.getIncidentEdge(i);
+        int v = problem.getOtherEnd(edge, u);
+        if (v == u || toCoarse[v] >= 0) continue;
+        if (problem.getActorCost(u) + problem.getActorCost(v) > fairShare) continue;
+        if (heterogeneous != null
+            && ((heterogeneous.isSoftwareOnly(u) && heterogeneous.isHardwareOnly(v))
+                || (heterogeneous.isHardwareOnly(u) && heterogeneous.isSoftwareOnly(v)))) {
+          continue;
+        }
+        if (problem.getEdgeGlobalCost(edge) > heaviest) {
+          heaviest = problem.getEdgeGlobalCost(edge);
+          match = v;
+        }
+      }
+      toCoarse[u] = coarseActors;
+      if (match >= 0) toCoarse[match] = coarseActors;
+      coarseActors++;
+    }
+
+    return new Level(NetworkReduction.contract(fine, toCoarse, coarseActors), toCoarse);
+  }
+}
@@ -0,0 +1,388 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduces a network before it is partitioned, every actor of the reduced network is a group of
+ * actors that are always placed together. Three rules shrink the network:
+ *
+ * <ul>
+ *   <li>parallel connections between the same actors from the same port are merged into one
+ *       connection with the sum of their costs,
+ *   <li>actors without execution time in software and in hardware, e.g., splitters and mergers,
+ *       are folded into the neighbour they exchange the most traffic with,
+ *   <li>actors of a chain, i.e., with two neighbours, are contracted with a neighbour when the
+ *       traffic between them is at least the execution time of the lighter side, which is the
+ *       most that separating them could take off a core.
+ * </ul>
+ *
+ * <p>Merging connections is exact, every reduced assignment has the cost of the assignment it
+ * stands for. Folding and contracting restrict the search to the assignments that keep the groups
+ * together, so the reduced optimum bounds the original one from above. A group never exceeds the
+ * fair share of a core, never mixes actors pinned to different sides and at least as many groups
+ * as partitions are left.
+ */
+public class NetworkReduction {
+
+  private final CostModel costModel;
+
+  public NetworkReduction(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /** The reduced network and the group of every actor. */
+  public static final class Result {
+    private final CostModel original;
+    private final CostModel reduced;
+    private final int[] toReduced;
+    private final int[] representative;
+    private final int mergedConnections;
+    private final int foldedActors;
+    private final int contractedActors;
+
+    private Result(
+        CostModel original,
+        CostModel reduced,
+        int[] toReduced,
+        int[] representative,
+        int mergedConnections,
+        int foldedActors,
+        int contractedActors) {
+      this.original = original;
+      this.reduced = reduced;
+      this.toReduced = toReduced;
+      this.representative = representative;
+      this.mergedConnections = mergedConnections;
+      this.foldedActors = foldedActors;
+      this.contractedActors = contractedActors;
+    }
+
+    /** @return the cost model of the reduced network */
+    public CostModel getCostModel() {
+      return reduced;
+    }
+
+    /** @return the actor of the reduced network that stands for the actor */
+    public int getGroup(int actor) {
+      return toReduced[actor];
+    }
+
+    /** @return the first actor of the group of the actor */
+    public int getRepresentative(int actor) {
+      return representative[actor];
+    }
+
+    public int getMergedConnections() {
+      return mergedConnections;
+    }
+
+    public int getFoldedActors() {
+      return foldedActors;
+    }
+
+    public int getContractedActors() {
+      return contractedActors;
+    }
+
+    /** @return true if some actors are grouped, i.e., the search is restricted */
+    public boolean hasGroups() {
+      return foldedActors + contractedActors > 0;
+    }
+
+    /**
+     * @param assignment an assignment of the reduced network, with any number of cores
+     * @return the assignment of the original network it stands for
+     */
+    public Assignment expand(Assignment assignment) {
+      int[] partition = new int[toReduced.length];
+      for (int a = 0; a < partition.length; a++) {
+        partition[a] = assignment.getPartition(toReduced[a]);
+      }
+      // -- the accelerator is a partition but not a core
+      int numberOfCores = assignment.getNumberOfPartitions() - original.getNumberOfPartitions(0);
+      return original.evaluate(partition, numberOfCores);
+    }
+
+    /**
+     * @param partition an assignment of the original network
+     * @return the assignment with every actor moved to the partition of its representative, it
+     *     may leave a partition empty
+     */
+    public int[] project(int[] partition) {
+      int[] projected = new int[partition.length];
+      for (int a = 0; a < partition.length; a++) projected[a] = partition[representative[a]];
+      return projected;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d actors and %d connections reduced to %d and %d: %d parallel connections merged, "
+              + "%d zero cost actors folded, %d chain actors contracted",
+          original.getProblem().getNumActors(),
+          original.getProblem().getNumEdges(),
+          reduced.getProblem().getNumActors(),
+          reduced.getProblem().getNumEdges(),
+          mergedConnections,
+          foldedActors,
+          contractedActors);
+    }
+  }
+
+  /** The groups of the actors, merged with union by index so that the root is the first actor. */
+  private final class Groups {
+    private final int[] parent;
+    private final double[] cost;
+    private final boolean[] softwareOnly;
+    private final boolean[] hardwareOnly;
+    private final double fairShare;
+    private final int minGroups;
+    private int groups;
+
+    private Groups(int numberOfCores) {
+      PartitioningProblem problem = costModel.getProblem();
+      HeterogeneousProblem heterogeneous = getHeterogeneous();
+      int numActors = problem.getNumActors();
+      this.parent = new int[numActors];
+      this.cost = new double[numActors];
+      this.softwareOnly = new boolean[numActors];
+      this.hardwareOnly = new boolean[numActors];
+      for (int a = 0; a < numActors; a++) {
+        parent[a] = a;
+        cost[a] = problem.getActorCost(a);
+        if (heterogeneous != null) {
+          softwareOnly[a] = heterogeneous.isSoftwareOnly(a);
+          hardwareOnly[a] = heterogeneous.isHardwareOnly(a);
+        }
+      }
+      this.fairShare = problem.getTotalActorCost() / numberOfCores;
+      this.minGroups = costModel.getNumberOfPartitions(numberOfCores);
+      this.groups = numActors;
+    }
+
+    private int find(int actor) {
+      while (parent[actor] != actor) {
+        parent[actor] = parent[parent[actor]];
+        actor = parent[actor];
+      }
+      return actor;
+    }
+
+    private boolean canMerge(int a, int b) {
+      int ra = find(a);
+      int rb = find(b);
+      return ra != rb
+          && groups > minGroups
+          && cost[ra] + cost[rb] <= fairShare
+          && !((softwareOnly[ra] || softwareOnly[rb]) && (hardwareOnly[ra] || hardwareOnly[rb]));
+    }
+
+    private void merge(int a, int b) {
+      int ra = find(a);
+      int rb = find(b);
+      int root = Math.min(ra, rb);
+      int other = Math.max(ra, rb);
+      parent[other] = root;
+      cost[root] += cost[other];
+      softwareOnly[root] |= softwareOnly[other];
+      hardwareOnly[root] |= hardwareOnly[other];
+      groups--;
+    }
+  }
+
+  private HeterogeneousProblem getHeterogeneous() {
+    return costModel instanceof HeterogeneousCostModel
+        ? ((HeterogeneousCostModel) costModel).getProblem()
+        : null;
+  }
+
+  /**
+   * @param numberOfCores the number of software cores
+   * @return the reduced network
+   */
+  public Result reduce(int numberOfCores) {
+    PartitioningProblem problem = costModel.getProblem();
+    HeterogeneousProblem heterogeneous = getHeterogeneous();
+    int numActors = problem.getNumActors();
+    Groups groups = new Groups(numberOfCores);
+
+    // -- fold the actors without execution time into their heaviest neighbour
+    int folded = 0;
+    for (int a = 0; a < numActors; a++) {
+      if (problem.getActorCost(a) > 0.0
+          || (heterogeneous != null && heterogeneous.getHardwareCost(a) > 0.0)) {
+        continue;
+      }
+      int best = -1;
+      double heaviest = -1.0;
+      for (int ix = problem.getIncidenceStart(a); ix < problem.getIncidenceEnd(a); ix++) {
+        int edge = problem.getIncidentEdge(ix);
+        int other = problem.getOtherEnd(edge, a);
+        if (problem.getEdgeGlobalCost(edge) > heaviest && groups.canMerge(a, other)) {
+          heaviest = problem.getEdgeGlobalCost(edge);
+          best = other;
+        }
+      }
+      if (best >= 0) {
+        groups.merge(a, best);
+        folded++;
+      }
+    }
+
+    // -- contract the chain actors with the neighbour they exchange the most traffic with
+    int contracted = 0;
+    for (int a = 0; a < numActors; a++) {
+      Map<Integer, Double> traffic = new HashMap<>();
+      for (int ix = problem.getIncidenceStart(a); ix < problem.getIncidenceEnd(a); ix++) {
+        int edge = problem.getIncidentEdge(ix);
+        int other = problem.getOtherEnd(edge, a);
+        if (other != a) traffic.merge(other, problem.getEdgeGlobalCost(edge), Double::sum);
+      }
+      if (traffic.size() != 2) continue;
+      int best = -1;
+      double heaviest = -1.0;
+      for (Map.Entry<Integer, Double> entry : traffic.entrySet()) {
+        int other = entry.getKey();
+        double lighter = Math.min(groups.cost[groups.find(a)], groups.cost[groups.find(other)]);
+        if (entry.getValue() >= lighter
+            && entry.getValue() > heaviest
+            && groups.canMerge(a, other)) {
+          heaviest = entry.getValue();
+          best = other;
+        }
+      }
+      if (best >= 0) {
+        groups.merge(a, best);
+        contracted++;
+      }
+    }
+
+    int[] toReduced = new int[numActors];
+    int[] representative = new int[numActors];
+    int[] reducedIndex = new int[numActors];
+    Arrays.fill(reducedIndex, -1);
+    int reducedActors = 0;
+    for (int a = 0; a < numActors; a++) {
+      int root = groups.find(a);
+      if (reducedIndex[root] < 0) reducedIndex[root] = reducedActors++;
+      toReduced[a] = reducedIndex[root];
+      representative[a] = root;
+    }
+
+    int[] identity = new int[numActors];
+    for (int a = 0; a < numActors; a++) identity[a] = a;
+    int merged =
+        problem.getNumEdges() - contract(costModel, identity, numActors).getProblem().getNumEdges();
+
+    return new Result(
+        costModel,
+        contract(costModel, toReduced, reducedActors),
+        toReduced,
+        representative,
+        merged,
+        folded,
+        contracted);
+  }
+
+  /**
+   * Merges the actors of the fine network into the actors of a coarse one. Connections inside a
+   * merged actor become self loops and parallel connections are merged, connections of different
+   * ports stay apart since every port is a separate PCIe connection. A merged actor runs in
+   * software for the sum of the times of its actors and in hardware for the longest of them, so
+   * every coarse assignment has exactly the cost of the fine assignment it stands for.
+   *
+   * @param fine the cost model of the fine network
+   * @param toCoarse the coarse actor of every fine actor
+   * @param coarseActors the number of coarse actors
+   * @return the cost model of the coarse network
+   */
+  static CostModel contract(CostModel fine, int[] toCoarse, int coarseActors) {
+    PartitioningProblem problem = fine.getProblem();
+    HeterogeneousProblem heterogeneous =
+        fine instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) fine).getProblem()
+            : null;
+    int numActors = problem.getNumActors();
+
+    // -- merged actors
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    String[] firstName = new String[coarseActors];
+    double[] actorCost = new double[coarseActors];
+    double[] hardwareCost = new double[coarseActors];
+    boolean[] softwareOnly = new boolean[coarseActors];
+    boolean[] hardwareOnly = new boolean[coarseActors];
+    for (int a = 0; a < numActors; a++) {
+      int c = toCoarse[a];
+      if (firstName[c] == null) firstName[c] = problem.getActorName(a);
+      actorCost[c] += problem.getActorCost(a);
+      if (heterogeneous != null) {
+        hardwareCost[c] = Math.max(hardwareCost[c], heterogeneous.getHardwareCost(a));
+        softwareOnly[c] |= heterogeneous.isSoftwareOnly(a);
+        hardwareOnly[c] |= heterogeneous.isHardwareOnly(a);
+      }
+    }
+    for (String name : firstName) names.add(name);
+
+    // -- merged connections
+    Map<String, Integer> edgeIndex = new HashMap<>();
+    List<int[]> edges = new ArrayList<>();
+    List<double[]> costs = new ArrayList<>();
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = toCoarse[problem.getEdgeSource(e)];
+      int target = toCoarse[problem.getEdgeTarget(e)];
+      int port = heterogeneous != null ? heterogeneous.getEdgeSourcePort(e) : 0;
+      double read = heterogeneous != null ? heterogeneous.getEdgeReadCost(e) : 0.0;
+      double write = heterogeneous != null ? heterogeneous.getEdgeWriteCost(e) : 0.0;
+      Integer index = edgeIndex.get(source + ":" + target + ":" + port);
+      if (index == null) {
+        edgeIndex.put(source + ":" + target + ":" + port, edges.size());
+        edges.add(new int[] {source, target, port});
+        costs.add(
+            new double[] {problem.getEdgeLocalCost(e), problem.getEdgeGlobalCost(e), read, write});
+      } else {
+        double[] cost = costs.get(index);
+        cost[0] += problem.getEdgeLocalCost(e);
+        cost[1] += problem.getEdgeGlobalCost(e);
+        cost[2] += read;
+        cost[3] += write;
+      }
+    }
+    int numEdges = edges.size();
+    int[] edgeSource = new int[numEdges];
+    int[] edgeTarget = new int[numEdges];
+    int[] edgeSourcePort = new int[numEdges];
+    double[] edgeLocalCost = new double[numEdges];
+    double[] edgeGlobalCost = new double[numEdges];
+    double[] edgeReadCost = new double[numEdges];
+    double[] edgeWriteCost = new double[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      edgeSource[e] = edges.get(e)[0];
+      edgeTarget[e] = edges.get(e)[1];
+      edgeSourcePort[e] = edges.get(e)[2];
+      edgeLocalCost[e] = costs.get(e)[0];
+      edgeGlobalCost[e] = costs.get(e)[1];
+      edgeReadCost[e] = costs.get(e)[2];
+      edgeWriteCost[e] = costs.get(e)[3];
+    }
+
+    PartitioningProblem coarse =
+        new PartitioningProblem(
+            names.build(), actorCost, edgeSource, edgeTarget, edgeLocalCost, edgeGlobalCost);
+    if (heterogeneous == null) return new HomogeneousCostModel(coarse);
+    return new HeterogeneousCostModel(
+        new HeterogeneousProblem(
+            coarse,
+            hardwareCost,
+            softwareOnly,
+            hardwareOnly,
+            edgeReadCost,
+            edgeWriteCost,
+            edgeSourcePort));
+  }
+}
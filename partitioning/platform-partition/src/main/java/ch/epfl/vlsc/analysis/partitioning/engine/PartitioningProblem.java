@@ -0,0 +1,223 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import ch.epfl.vlsc.analysis.partitioning.parser.CommonProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.ir.network.Connection;
+import se.lth.cs.tycho.ir.network.Instance;
+import se.lth.cs.tycho.ir.network.Network;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+import se.lth.cs.tycho.reporting.CompilationException;
+import se.lth.cs.tycho.reporting.Diagnostic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An array based view of the homogeneous partitioning problem. Actors and connections are
+ * identified by their index, all costs are already scaled to seconds so the combinatorial engines
+ * never have to touch the profile databases or the network while searching.
+ */
+public class PartitioningProblem {
+
+  private final ImmutableList<String> actorNames;
+  private final double[] actorCost;
+  private final int[] edgeSource;
+  private final int[] edgeTarget;
+  private final double[] edgeLocalCost;
+  private final double[] edgeGlobalCost;
+  // -- incident edges of every actor in compressed row form, self loops appear once
+  private final int[] incidenceStart;
+  private final int[] incidentEdges;
+
+  /**
+   * @param actorNames the actor names, actor i is actorNames[i]
+   * @param actorCost the software execution time of every actor
+   * @param edgeSource the source actor of every connection
+   * @param edgeTarget the target actor of every connection
+   * @param edgeLocalCost the cost of every connection if both ends are on the same core
+   * @param edgeGlobalCost the cost of every connection if its ends are on different cores
+   */
+  public PartitioningProblem(
+      ImmutableList<String> actorNames,
+      double[] actorCost,
+      int[] edgeSource,
+      int[] edgeTarget,
+      double[] edgeLocalCost,
+      double[] edgeGlobalCost) {
+    int numActors = actorNames.size();
+    int numEdges = edgeSource.length;
+    if (actorCost.length != numActors
+        || edgeTarget.length != numEdges
+        || edgeLocalCost.length != numEdges
+        || edgeGlobalCost.length != numEdges) {
+      throw new IllegalArgumentException("Inconsistent partitioning problem dimensions");
+    }
+    this.actorNames = actorNames;
+    this.actorCost = actorCost.clone();
+    this.edgeSource = edgeSource.clone();
+    this.edgeTarget = edgeTarget.clone();
+    this.edgeLocalCost = edgeLocalCost.clone();
+    this.edgeGlobalCost = edgeGlobalCost.clone();
+
+    int[] degree = new int[numActors];
+    for (int e = 0; e < numEdges; e++) {
+      degree[edgeSource[e]]++;
+      if (edgeTarget[e] != edgeSource[e]) degree[edgeTarget[e]]++;
+    }
+    this.incidenceStart = new int[numActors + 1];
+    for (int a = 0; a < numActors; a++) incidenceStart[a + 1] = incidenceStart[a] + degree[a];
+    this.incidentEdges = new int[incidenceStart[numActors]];
+    int[] fill = new int[numActors];
+    for (int e = 0; e < numEdges; e++) {
+      int s = edgeSource[e];
+      int t = edgeTarget[e];
+      incidentEdges[incidenceStart[s] + fill[s]++] = e;
+      if (t != s) incidentEdges[incidenceStart[t] + fill[t]++] = e;
+    }
+  }
+
+  /** Shares the data of another problem, used by problems that extend this one. */
+  protected PartitioningProblem(PartitioningProblem other) {
+    this.actorNames = other.actorNames;
+    this.actorCost = other.actorCost;
+    this.edgeSource = other.edgeSource;
+    this.edgeTarget = other.edgeTarget;
+    this.edgeLocalCost = other.edgeLocalCost;
+    this.edgeGlobalCost = other.edgeGlobalCost;
+    this.incidenceStart = other.incidenceStart;
+    this.incidentEdges = other.incidentEdges;
+  }
+
+  /**
+   * Builds the problem from the network and the software profiles, the costs are the same as the
+   * ones used by the MILP formulation in the MulticorePerformanceModel.
+   *
+   * @param network the actor network
+   * @param multicoreDB the software profile
+   * @param multicoreClockPeriod the period of a software tick
+   * @return the partitioning problem
+   */
+  public static PartitioningProblem fromNetwork(
+      Network network, MulticoreProfileDataBase multicoreDB, double multicoreClockPeriod) {
+
+    ImmutableList<Instance> instances = network.getInstances();
+    int numActors = instances.size();
+    Map<String, Integer> actorIndex = new HashMap<>();
+    double[] actorCost = new double[numActors];
+    for (int a = 0; a < numActors; a++) {
+      Instance instance = instances.get(a);
+      actorIndex.put(instance.getInstanceName(), a);
+      actorCost[a] = multicoreDB.getInstanceTicks(instance).doubleValue() * multicoreClockPeriod;
+    }
+
+    ImmutableList<Connection> connections = network.getConnections();
+    int numEdges = connections.size();
+    int[] edgeSource = new int[numEdges];
+    int[] edgeTarget = new int[numEdges];
+    double[] edgeLocalCost = new double[numEdges];
+    double[] edgeGlobalCost = new double[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      Connection connection = connections.get(e);
+      edgeSource[e] = indexOf(connection.getSource(), actorIndex);
+      edgeTarget[e] = indexOf(connection.getTarget(), actorIndex);
+      edgeLocalCost[e] =
+          multicoreDB.getCommunicationTicks(
+                  connection, CommonProfileDataBase.CommunicationTicks.Kind.Local)
+              * multicoreClockPeriod;
+      edgeGlobalCost[e] =
+          multicoreDB.getCommunicationTicks(
+                  connection, CommonProfileDataBase.CommunicationTicks.Kind.Global)
+              * multicoreClockPeriod;
+    }
+
+    return new PartitioningProblem(
+        instances.map(Instance::getInstanceName),
+        actorCost,
+        edgeSource,
+        edgeTarget,
+        edgeLocalCost,
+        edgeGlobalCost);
+  }
+
+  private static int indexOf(Connection.End end, Map<String, Integer> actorIndex) {
+    String instanceName =
+        end.getInstance()
+            .orElseThrow(
+                () ->
+                    new CompilationException(
+                        new Diagnostic(
+                            Diagnostic.Kind.ERROR,
+                            "Could not get instance from connection end None." + end.getPort())));
+    Integer index = actorIndex.get(instanceName);
+    if (index == null) {
+      throw new CompilationException(
+          new Diagnostic(Diagnostic.Kind.ERROR, "Could not find instance " + instanceName));
+    }
+    return index;
+  }
+
+  public int getNumActors() {
+    return actorCost.length;
+  }
+
+  public int getNumEdges() {
+    return edgeSource.length;
+  }
+
+  public ImmutableList<String> getActorNames() {
+    return actorNames;
+  }
+
+  public String getActorName(int actor) {
+    return actorNames.get(actor);
+  }
+
+  public double getActorCost(int actor) {
+    return actorCost[actor];
+  }
+
+  public int getEdgeSource(int edge) {
+    return edgeSource[edge];
+  }
+
+  public int getEdgeTarget(int edge) {
+    return edgeTarget[edge];
+  }
+
+  public double getEdgeLocalCost(int edge) {
+    return edgeLocalCost[edge];
+  }
+
+  public double getEdgeGlobalCost(int edge) {
+    return edgeGlobalCost[edge];
+  }
+
+  /** @return the actor at the other end of the edge, or the actor itself for self loops */
+  public int getOtherEnd(int edge, int actor) {
+    return edgeSource[edge] == actor ? edgeTarget[edge] : edgeSource[edge];
+  }
+
+  /** @return the index of the first incident edge of the actor in {@link #getIncidentEdge} */
+  public int getIncidenceStart(int actor) {
+    return incidenceStart[actor];
+  }
+
+  /** @return one past the index of the last incident edge of the actor */
+  public int getIncidenceEnd(int actor) {
+    return incidenceStart[actor + 1];
+  }
+
+  public int getIncidentEdge(int position) {
+    return incidentEdges[position];
+  }
+
+  public int getDegree(int actor) {
+    return incidenceStart[actor + 1] - incidenceStart[actor];
+  }
+
+  public double getTotalActorCost() {
+    double total = 0.0;
+    for (double cost : actorCost) total += cost;
+    return total;
+  }
+}
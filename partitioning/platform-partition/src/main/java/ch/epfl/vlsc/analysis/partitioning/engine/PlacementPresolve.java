@@ -0,0 +1,97 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fixes the side of the actors whose placement is implied by the profiles, before the decision
+ * variables of the heterogeneous models are built. An actor is fixed to software when
+ *
+ * <ul>
+ *   <li>it has no hardware profile or it is pinned to software, i.e., it can never be on the
+ *       accelerator,
+ *   <li>its hardware time exceeds an upper bound on T, the PLink kernel takes at least the time of
+ *       every actor on the accelerator, so no solution within the bound places it there.
+ * </ul>
+ *
+ * <p>Actors without a software profile are never fixed, they are pinned to the accelerator by the
+ * models. The rules only remove assignments that are infeasible or worse than the bound, the
+ * optimum within the bound is kept.
+ */
+public class PlacementPresolve {
+
+  /** The rules of the presolve, the connection rule is applied by the models. */
+  public enum Rule {
+    SOFTWARE_ONLY("software_only"),
+    SLOWER_IN_HARDWARE("slower_in_hardware"),
+    ZERO_TRAFFIC("zero_traffic");
+
+    private final String name;
+
+    Rule(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private final HeterogeneousProblem problem;
+
+  public PlacementPresolve(HeterogeneousProblem problem) {
+    this.problem = problem;
+  }
+
+  /** The rule that fixes every actor, if any. */
+  public static final class Result {
+    private final Rule[] fixed;
+
+    private Result(Rule[] fixed) {
+      this.fixed = fixed;
+    }
+
+    /** @return the rule that fixes the actor to software, or null if the actor is free */
+    public Rule getRule(int actor) {
+      return fixed[actor];
+    }
+
+    public boolean isFixedToSoftware(int actor) {
+      return fixed[actor] != null;
+    }
+
+    /** @return the number of actors fixed by every rule */
+    public Map<Rule, Integer> getFixedActors() {
+      Map<Rule, Integer> counts = new EnumMap<>(Rule.class);
+      for (Rule rule : fixed) {
+        if (rule != null) counts.merge(rule, 1, Integer::sum);
+      }
+      return counts;
+    }
+
+    @Override
+    public String toString() {
+      Map<Rule, Integer> counts = getFixedActors();
+      return String.format(
+          "%d of %d actors fixed to software: %d software only, %d slower in hardware",
+          counts.values().stream().mapToInt(Integer::intValue).sum(),
+          fixed.length,
+          counts.getOrDefault(Rule.SOFTWARE_ONLY, 0),
+          counts.getOrDefault(Rule.SLOWER_IN_HARDWARE, 0));
+    }
+  }
+
+  /**
+   * @param upperBound an upper bound on T, e.g., the objective of a known solution, or infinity
+   * @return the actors fixed to software
+   */
+  public Result presolve(double upperBound) {
+    Rule[] fixed = new Rule[problem.getNumActors()];
+    for (int a = 0; a < fixed.length; a++) {
+      if (problem.isHardwareOnly(a)) continue;
+      if (problem.isSoftwareOnly(a)) fixed[a] = Rule.SOFTWARE_ONLY;
+      else if (problem.getHardwareCost(a) > upperBound) fixed[a] = Rule.SLOWER_IN_HARDWARE;
+    }
+    return new Result(fixed);
+  }
+}
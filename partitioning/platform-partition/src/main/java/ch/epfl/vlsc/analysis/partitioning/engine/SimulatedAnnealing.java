@@ -0,0 +1,233 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulated annealing over actor to partition assignments for both cost models.
+ *
+ * <p>Every chain starts from the given assignment and proposes moves of a random actor to a random
+ * other partition. The cost change is evaluated by an {@link IncrementalEvaluator}, so a move costs
+ * O(degree) and allocates nothing. Moves that empty a partition, break a pin or exceed the PCIe
+ * connections are rejected, the others are accepted with the Metropolis rule. The temperature
+ * decays geometrically over the wall-clock budget, it starts where an uphill move of the average
+ * size around the start is rarely accepted since the starts are already good solutions. The best
+ * assignment of every chain is polished with {@link FiducciaMattheysesRefiner}, the chains run in
+ * parallel with their own seeds and the best assignment of all chains wins. All chains stop early
+ * once one of them reaches the target objective.
+ */
+public class SimulatedAnnealing {
+
+  private static final int TIME_CHECK_INTERVAL = 1024;
+  private static final int SAMPLE_MOVES = 256;
+  // -- the starts are greedy or refined solutions, a hot start would only throw them away
+  private static final double INITIAL_ACCEPTANCE = 1e-4;
+  private static final double FINAL_TEMPERATURE_RATIO = 1e-4;
+
+  private final CostModel costModel;
+  private double timeLimit = 10.0;
+  private int chains = 1;
+  private long seed = 0;
+  private long maxMovesPerChain = Long.MAX_VALUE;
+  private double targetObjective = Double.NEGATIVE_INFINITY;
+  private volatile boolean targetReached;
+
+  public SimulatedAnnealing(CostModel costModel) {
+    this.costModel = costModel;
+  }
+
+  /** @param timeLimit the wall-clock budget in seconds, every chain anneals over all of it */
+  public void setTimeLimit(double timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /** @param chains the number of independent chains, each runs on its own thread */
+  public void setChains(int chains) {
+    this.chains = Math.max(1, chains);
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /** @param maxMovesPerChain stop a chain after this many proposed moves, for repeatable runs */
+  public void setMaxMovesPerChain(long maxMovesPerChain) {
+    this.maxMovesPerChain = maxMovesPerChain;
+  }
+
+  /** @param targetObjective stop all chains once one finds an assignment at least this good */
+  public void setTargetObjective(double targetObjective) {
+    this.targetObjective = targetObjective;
+  }
+
+  /** The outcome of the annealing, the distinct best assignments of the chains, best first. */
+  public static final class Result {
+    private final ImmutableList<Assignment> chainBests;
+    private final long moves;
+    private final long acceptedMoves;
+    private final double runtime;
+
+    private Result(
+        ImmutableList<Assignment> chainBests, long moves, long acceptedMoves, double runtime) {
+      this.chainBests = chainBests;
+      this.moves = moves;
+      this.acceptedMoves = acceptedMoves;
+      this.runtime = runtime;
+    }
+
+    /** @return the distinct best assignments of the chains, best first */
+    public ImmutableList<Assignment> getSolutions() {
+      return chainBests;
+    }
+
+    /** @return the number of moves proposed over all chains */
+    public long getMoves() {
+      return moves;
+    }
+
+    public long getAcceptedMoves() {
+      return acceptedMoves;
+    }
+
+    /** @return the wall-clock time in seconds */
+    public double getRuntime() {
+      return runtime;
+    }
+  }
+
+  /** The state of a single chain. */
+  private final class Chain {
+    private final IncrementalEvaluator evaluator;
+    private final SplittableRandom random;
+    private final int numActors;
+    private final int numPartitions;
+    private final int[] best;
+    private double bestTime;
+    private long moves;
+    private long accepted;
+
+    private Chain(int[] start, int numberOfCores, long chainSeed) {
+      this.evaluator = new IncrementalEvaluator(costModel, numberOfCores, start);
+      this.random = new SplittableRandom(chainSeed);
+      this.numActors = start.length;
+      this.numPartitions = evaluator.getNumberOfPartitions();
+      this.best = start.clone();
+      this.bestTime = evaluator.getTotalTime();
+    }
+
+    /** @return the mean increase of the uphill moves among a sample of random moves */
+    private double sampleUphill() {
+      double sum = 0.0;
+      int count = 0;
+      for (int i = 0; i < SAMPLE_MOVES; i++) {
+        int actor = random.nextInt(numActors);
+        int to = random.nextInt(numPartitions);
+        if (!evaluator.canMove(actor, to)) continue;
+        double delta = evaluator.delta(actor, to);
+        if (delta > 0.0) {
+          sum += delta;
+          count++;
+        }
+      }
+      return count == 0 ? 0.0 : sum / count;
+    }
+
+    private Assignment run(long deadline, long startTime) {
+      double initialTemperature = sampleUphill() / -Math.log(INITIAL_ACCEPTANCE);
+      if (initialTemperature <= 0.0) initialTemperature = Math.max(bestTime, 1e-12) * 1e-3;
+      double temperature = initialTemperature;
+      double current = evaluator.getTotalTime();
+      double span = Math.max(1.0, deadline - startTime);
+
+      while (moves < maxMovesPerChain) {
+        if (moves % TIME_CHECK_INTERVAL == 0) {
+          long now = System.nanoTime();
+          if (now >= deadline || targetReached) break;
+          temperature =
+              initialTemperature * Math.pow(FINAL_TEMPERATURE_RATIO, (now - startTime) / span);
+        }
+        moves++;
+        int actor = random.nextInt(numActors);
+        int to = random.nextInt(numPartitions);
+        if (!evaluator.canMove(actor, to)) continue;
+        int from = evaluator.getPartition(actor);
+        evaluator.move(actor, to);
+        double next = evaluator.getTotalTime();
+        double delta = next - current;
+        if (evaluator.isFeasible()
+            && (delta <= 0.0 || random.nextDouble() < Math.exp(-delta / temperature))) {
+          current = next;
+          accepted++;
+          if (current < bestTime) {
+            bestTime = current;
+            for (int a = 0; a < numActors; a++) best[a] = evaluator.getPartition(a);
+            if (bestTime <= targetObjective) targetReached = true;
+          }
+        } else {
+          evaluator.move(actor, from);
+        }
+      }
+      // -- the chain ends cold but not necessarily in a local optimum of single moves
+      return new FiducciaMattheysesRefiner(costModel)
+          .refine(best, evaluator.getNumberOfCores())
+          .getAssignment();
+    }
+  }
+
+  /**
+   * @param start a feasible partition of every actor
+   * @param numberOfCores the number of software cores
+   * @return the best assignments of the chains
+   */
+  public Result solve(int[] start, int numberOfCores) {
+    long startTime = System.nanoTime();
+    long deadline =
+        Double.isInfinite(timeLimit) ? Long.MAX_VALUE : startTime + (long) (timeLimit * 1e9);
+    targetReached = false;
+    List<Chain> chainStates = new ArrayList<>();
+    for (int c = 0; c < chains; c++) {
+      chainStates.add(new Chain(start, numberOfCores, seed + c * 0x9E3779B97F4A7C15L));
+    }
+
+    List<Assignment> bests = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(chains);
+    try {
+      List<Future<Assignment>> futures = new ArrayList<>();
+      for (Chain chain : chainStates) {
+        futures.add(executor.submit(() -> chain.run(deadline, startTime)));
+      }
+      for (Future<Assignment> future : futures) bests.add(future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while annealing", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Annealing chain failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // -- chains that end in the same assignment are reported once
+    bests.sort(Comparator.comparingDouble(Assignment::getTotalTime));
+    List<Assignment> distinct = new ArrayList<>();
+    for (Assignment assignment : bests) {
+      boolean seen = false;
+      for (Assignment kept : distinct) {
+        seen |= Arrays.equals(kept.getPartitions(), assignment.getPartitions());
+      }
+      if (!seen) distinct.add(assignment);
+    }
+    long moves = chainStates.stream().mapToLong(chain -> chain.moves).sum();
+    long accepted = chainStates.stream().mapToLong(chain -> chain.accepted).sum();
+    return new Result(
+        ImmutableList.from(distinct), moves, accepted, (System.nanoTime() - startTime) * 1e-9);
+  }
+}
@@ -0,0 +1,257 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Upper bounds on the cost terms of every feasible assignment, computed from the problem arrays
+ * before the models are built. Every partition holds at least one actor, so a core holds at most
+ * the actors that are left when every other partition takes one, i.e., its execution time is at
+ * most the sum of the most expensive of them. With an accelerator, only the actors that may run
+ * on a core count for the cores and only the connections that may cross the boundary count for the
+ * PLink.
+ *
+ * <p>The bounds only depend on the profiles and the number of cores, they are sound for every
+ * assignment and leave the tightening by the objective of a known solution to the models.
+ */
+public class UpperBounds {
+
+  private final PartitioningProblem problem;
+  private final HeterogeneousProblem heterogeneous;
+
+  public UpperBounds(CostModel costModel) {
+    this.problem = costModel.getProblem();
+    this.heterogeneous =
+        costModel instanceof HeterogeneousCostModel
+            ? ((HeterogeneousCostModel) costModel).getProblem()
+            : null;
+  }
+
+  /** The upper bounds, the accelerator ones are 0 in the homogeneous case. */
+  public static final class Result {
+    private final double coreExecution;
+    private final double plinkCoreLocal;
+    private final double coreLocal;
+    private final double coreToCore;
+    private final double plinkRead;
+    private final double plinkKernel;
+    private final double plinkWrite;
+    private final int readConnections;
+    private final int writeConnections;
+    private final int actorsOnCore;
+    private final int actorsOnAccelerator;
+
+    private Result(
+        double coreExecution,
+        double plinkCoreLocal,
+        double coreLocal,
+        double coreToCore,
+        double plinkRead,
+        double plinkKernel,
+        double plinkWrite,
+        int readConnections,
+        int writeConnections,
+        int actorsOnCore,
+        int actorsOnAccelerator) {
+      this.coreExecution = coreExecution;
+      this.plinkCoreLocal = plinkCoreLocal;
+      this.coreLocal = coreLocal;
+      this.coreToCore = coreToCore;
+      this.plinkRead = plinkRead;
+      this.plinkKernel = plinkKernel;
+      this.plinkWrite = plinkWrite;
+      this.readConnections = readConnections;
+      this.writeConnections = writeConnections;
+      this.actorsOnCore = actorsOnCore;
+      this.actorsOnAccelerator = actorsOnAccelerator;
+    }
+
+    /** @return a bound on T_exec_* of every core */
+    public double getCoreExecution() {
+      return coreExecution;
+    }
+
+    /** @return a bound on t_plink, i.e., read, kernel and write */
+    public double getPlink() {
+      return plinkRead + plinkKernel + plinkWrite;
+    }
+
+    /** @return a bound on T_exec */
+    public double getExecution() {
+      return Math.max(coreExecution, getPlink());
+    }
+
+    /** @return a bound on T_lc_* of the core that hosts the PLink, core 0 */
+    public double getPlinkCoreLocal() {
+      return plinkCoreLocal;
+    }
+
+    /** @return a bound on T_lc_* of the other cores */
+    public double getCoreLocal() {
+      return coreLocal;
+    }
+
+    /** @return a bound on T_lc */
+    public double getLocal() {
+      return Math.max(plinkCoreLocal, coreLocal);
+    }
+
+    /** @return a bound on T_cc */
+    public double getCoreToCore() {
+      return coreToCore;
+    }
+
+    public double getPlinkRead() {
+      return plinkRead;
+    }
+
+    public double getPlinkKernel() {
+      return plinkKernel;
+    }
+
+    public double getPlinkWrite() {
+      return plinkWrite;
+    }
+
+    public int getReadConnections() {
+      return readConnections;
+    }
+
+    public int getWriteConnections() {
+      return writeConnections;
+    }
+
+    /** @return a bound on T */
+    public double getTotal() {
+      return getExecution() + getLocal() + coreToCore;
+    }
+
+    /** @return a bound on the number of actors of a core */
+    public int getActorsOnCore() {
+      return actorsOnCore;
+    }
+
+    /** @return a bound on the number of actors of the accelerator */
+    public int getActorsOnAccelerator() {
+      return actorsOnAccelerator;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "T <= %6.6f (T_exec %6.6f, T_lc %6.6f, T_cc %6.6f, t_plink %6.6f)",
+          getTotal(), getExecution(), getLocal(), coreToCore, getPlink());
+    }
+  }
+
+  /**
+   * @param numberOfCores the number of software cores
+   * @return the upper bounds of every assignment to the given number of cores
+   */
+  public Result compute(int numberOfCores) {
+    int numActors = problem.getNumActors();
+    // -- the other cores and the accelerator each take at least one actor
+    int otherPartitions = numberOfCores - 1 + (heterogeneous == null ? 0 : 1);
+
+    // -- a core holds at most the actors that may run on a core less one for every other core
+    double[] costs =
+        IntStream.range(0, numActors)
+            .filter(this::mayRunOnCore)
+            .mapToDouble(problem::getActorCost)
+            .sorted()
+            .toArray();
+    int onCore =
+        Math.max(0, Math.min(costs.length - (numberOfCores - 1), numActors - otherPartitions));
+    double coreExecution = 0.0;
+    for (int i = costs.length - onCore; i < costs.length; i++) coreExecution += costs[i];
+
+    // -- a core loses at least half of the local cost incident to the actors of the other cores,
+    // every connection has two ends
+    double[] incident = new double[numActors];
+    double coreLocal = 0.0;
+    double plinkCoreLocal = 0.0;
+    double coreToCore = 0.0;
+    double plinkRead = 0.0;
+    double plinkWrite = 0.0;
+    boolean[] readPort = new boolean[heterogeneous == null ? 0 : heterogeneous.getNumPorts()];
+    boolean[] writePort = new boolean[readPort.length];
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = problem.getEdgeSource(e);
+      int target = problem.getEdgeTarget(e);
+      double local = problem.getEdgeLocalCost(e);
+      double global = problem.getEdgeGlobalCost(e);
+      boolean bothOnCore = mayRunOnCore(source) && mayRunOnCore(target);
+      if (bothOnCore) {
+        coreLocal += local;
+        incident[source] += local;
+        if (target != source) incident[target] += local;
+      }
+      if (heterogeneous == null) {
+        if (source != target && numberOfCores > 1) coreToCore += global;
+        continue;
+      }
+      // -- a connection between a core and the accelerator is local to core 0 and core to core
+      // for the others
+      boolean readBoundary = mayRunOnAccelerator(source) && mayRunOnCore(target);
+      boolean writeBoundary = mayRunOnCore(source) && mayRunOnAccelerator(target);
+      if (source != target && (readBoundary || writeBoundary)) {
+        plinkCoreLocal += bothOnCore ? 0.0 : local;
+        if (numberOfCores > 1) coreToCore += global;
+      } else if (source != target && bothOnCore && numberOfCores > 1) {
+        coreToCore += global;
+      }
+      if (source != target && readBoundary) {
+        plinkRead += heterogeneous.getEdgeReadCost(e);
+        readPort[heterogeneous.getEdgeSourcePort(e)] = true;
+      }
+      if (source != target && writeBoundary) {
+        plinkWrite += heterogeneous.getEdgeWriteCost(e);
+        writePort[heterogeneous.getEdgeSourcePort(e)] = true;
+      }
+    }
+    double[] sortedIncident = Arrays.copyOf(incident, numActors);
+    Arrays.sort(sortedIncident);
+    double removed = 0.0;
+    for (int i = 0; i < Math.min(numberOfCores - 1, numActors); i++) removed += sortedIncident[i];
+    coreLocal = Math.max(0.0, coreLocal - removed / 2.0);
+    plinkCoreLocal += coreLocal;
+
+    double plinkKernel = 0.0;
+    int onAccelerator = 0;
+    if (heterogeneous != null) {
+      for (int a = 0; a < numActors; a++) {
+        if (mayRunOnAccelerator(a)) {
+          plinkKernel = Math.max(plinkKernel, heterogeneous.getHardwareCost(a));
+          onAccelerator++;
+        }
+      }
+      onAccelerator = Math.max(0, Math.min(onAccelerator, numActors - numberOfCores));
+    }
+    return new Result(
+        coreExecution,
+        heterogeneous == null ? coreLocal : plinkCoreLocal,
+        coreLocal,
+        coreToCore,
+        plinkRead,
+        plinkKernel,
+        plinkWrite,
+        count(readPort),
+        count(writePort),
+        onCore,
+        onAccelerator);
+  }
+
+  private boolean mayRunOnCore(int actor) {
+    return heterogeneous == null || !heterogeneous.isHardwareOnly(actor);
+  }
+
+  private boolean mayRunOnAccelerator(int actor) {
+    return heterogeneous != null && !heterogeneous.isSoftwareOnly(actor);
+  }
+
+  private static int count(boolean[] flags) {
+    int count = 0;
+    for (boolean flag : flags) if (flag) count++;
+    return count;
+  }
+}
@@ -0,0 +1,66 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.engine.SimulatedAnnealing;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the homogeneous partitioning problem with simulated annealing instead of a MILP solver,
+ * one chain per thread over the whole time limit, starting from the greedy or warm start.
+ */
+public class AnnealingModel extends AssignmentModel {
+
+  public AnnealingModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+
+    info("Starting simulated annealing on " + numberOfCores + " cores");
+
+    PartitioningProblem problem =
+        PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    CostModel costModel = new HomogeneousCostModel(problem);
+    computeLowerBounds(costModel, numberOfCores);
+    Assignment start =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (start == null) {
+      info("Could not find a start for " + numberOfCores + " cores");
+      this.assignments = ImmutableList.empty();
+      return ImmutableList.empty();
+    }
+
+    SimulatedAnnealing annealing = new SimulatedAnnealing(costModel);
+    annealing.setTimeLimit(timeLimit);
+    annealing.setChains(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    annealing.setTargetObjective(getObjectiveStop());
+    SimulatedAnnealing.Result result = annealing.solve(start.getPartitions(), numberOfCores);
+    info(
+        String.format(
+            "Simulated annealing on %d cores finished in %.3f s after %d moves, %d accepted: %s",
+            numberOfCores,
+            result.getRuntime(),
+            result.getMoves(),
+            result.getAcceptedMoves(),
+            result.getSolutions().get(0)));
+
+    this.assignments = result.getSolutions();
+    return assignments.map(assignment -> createSolution(problem, assignment));
+  }
+}
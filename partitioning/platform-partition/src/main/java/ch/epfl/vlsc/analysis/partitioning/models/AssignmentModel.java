@@ -0,0 +1,60 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+
+/**
+ * Base of the homogeneous models that are solved by the combinatorial engines instead of a MILP
+ * solver, the solutions are kept as assignments and summarized with the same columns as the
+ * MulticorePerformanceModel.
+ */
+public abstract class AssignmentModel extends MulticorePerformanceModel {
+
+  protected ImmutableList<Assignment> assignments;
+
+  public AssignmentModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+    this.assignments = ImmutableList.empty();
+  }
+
+  @Override
+  public void solutionsSummary(File dumpDir) {
+
+    File dumpFile = new File(dumpDir + "/solutions.csv");
+    try {
+      PrintWriter solutionWriter = new PrintWriter(dumpFile);
+      solutionWriter.println("T,T_exec,T_lc,T_cc,lower_bound,gap");
+      for (int solutionIndex = 0; solutionIndex < assignments.size(); solutionIndex++) {
+        Assignment assignment = assignments.get(solutionIndex);
+        System.out.println("Solution " + solutionIndex + ": " + assignment);
+        solutionWriter.println(
+            assignment.getTotalTime()
+                + ","
+                + assignment.getExecutionTime()
+                + ","
+                + assignment.getLocalCommunicationTime()
+                + ","
+                + assignment.getCoreToCoreCommunicationTime()
+                + ","
+                + lowerBound
+                + ","
+                + getGap(assignment.getTotalTime()));
+      }
+      solutionWriter.close();
+    } catch (FileNotFoundException e) {
+      fatalError("Could not print solution summaries: " + e.getMessage());
+    }
+  }
+}
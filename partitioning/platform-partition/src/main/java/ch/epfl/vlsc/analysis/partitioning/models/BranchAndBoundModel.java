@@ -0,0 +1,66 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.BranchAndBoundSolver;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the homogeneous partitioning problem with the built-in branch and bound search instead
+ * of a MILP solver, the objective is the same as the one of the MulticorePerformanceModel.
+ */
+public class BranchAndBoundModel extends AssignmentModel {
+
+  public BranchAndBoundModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+
+    info("Starting branch and bound partitioning on " + numberOfCores + " cores");
+
+    PartitioningProblem problem =
+        PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    CostModel costModel = new HomogeneousCostModel(problem);
+    BranchAndBoundSolver solver = new BranchAndBoundSolver(problem, numberOfCores);
+    solver.setTimeLimit(timeLimit);
+    solver.setGapLimit(gapLimit);
+    solver.setLowerBound(computeLowerBounds(costModel, numberOfCores).getBound());
+    if (threads > 0) solver.setParallelism(threads);
+    Assignment start =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (start != null) solver.addStart(start.getPartitions());
+
+    BranchAndBoundSolver.Result result = solver.solve();
+    raiseLowerBound(result.getLowerBound());
+    info(
+        String.format(
+            "Branch and bound on %d cores finished in %.3f s after %d nodes: %s, %d solutions, "
+                + "bound %6.6f, gap %.2f%%",
+            numberOfCores,
+            result.getRuntime(),
+            result.getNodes(),
+            result.isOptimal() ? "OPTIMAL" : "TIME_LIMIT",
+            result.getSolutions().size(),
+            result.getLowerBound(),
+            result.getGap() * 100.0));
+
+    this.assignments = result.getSolutions();
+    return assignments.map(assignment -> createSolution(problem, assignment));
+  }
+}
@@ -0,0 +1,493 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.solver.LinearExpression;
+import ch.epfl.vlsc.analysis.partitioning.solver.ObjectiveSense;
+import ch.epfl.vlsc.analysis.partitioning.solver.OptimizationModel;
+import ch.epfl.vlsc.analysis.partitioning.solver.Sense;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolutionPool;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolveStatus;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolverSettings;
+import ch.epfl.vlsc.analysis.partitioning.solver.Variable;
+import ch.epfl.vlsc.analysis.partitioning.solver.VariableType;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Solves the HeterogeneousModel in two stages. A master problem picks the actors of the
+ * accelerator from the PLink read, kernel and write times and the software load spread over the
+ * cores, and the subproblem maps the software actors onto the cores with the hardware actors
+ * fixed. The master is a relaxation of the model, so its objective bounds the T of every hardware
+ * set it still holds. Every set the subproblem tried gets an optimality cut that raises the master
+ * objective of the set to the lower bound of its subproblem, and the sets whose subproblem is
+ * solved to optimality or infeasible are also cut off from the master. The lower bound of the core
+ * count is the smaller of the master bound and the subproblem bounds of the sets cut off. The
+ * iterations stop once it is within the gap limit of the best T, the master has no set left, or it
+ * proposes a set it tried already.
+ *
+ * <p>The hardware sets tried for a core count are good candidates for the others, so the models of
+ * a sweep share them, and every model starts from the shared set with the best greedy T on its
+ * core count before it asks the master. The core counts are solved in order, so the shared sets
+ * and the result do not depend on the scheduling.
+ *
+ * <p>The outputs of every iteration go into decomposition/iteration of the core count, the ones of
+ * the best iteration are copied to the core count itself, with the iterations in
+ * decomposition.csv.
+ */
+public class DecomposedHeterogeneousModel extends HeterogeneousModel {
+
+  private static final int DEFAULT_ITERATIONS = 10;
+
+  /** The hardware sets the models of a sweep tried, shared across the core counts. */
+  public static final class HardwareCandidates {
+    private final Set<Set<String>> candidates = new LinkedHashSet<>();
+
+    public synchronized void add(Set<String> hardware) {
+      candidates.add(Collections.unmodifiableSet(new TreeSet<>(hardware)));
+    }
+
+    public synchronized List<Set<String>> snapshot() {
+      return new ArrayList<>(candidates);
+    }
+  }
+
+  private final HardwareCandidates candidates;
+  private int maxIterations = DEFAULT_ITERATIONS;
+  // -- the output directory of the iteration being solved, null outside of the iterations
+  private Path iterationPath;
+
+  /**
+   * @param candidates the hardware sets shared with the models of the other core counts
+   */
+  public DecomposedHeterogeneousModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      Double multicoreClockPeriod,
+      Double accelClockPeriod,
+      Double timeLimit,
+      HardwareCandidates candidates) {
+    super(task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, timeLimit);
+    this.candidates = candidates;
+  }
+
+  /** @param maxIterations the largest number of subproblems per core count, 0 for the default */
+  public void setMaxIterations(int maxIterations) {
+    this.maxIterations = maxIterations > 0 ? maxIterations : DEFAULT_ITERATIONS;
+  }
+
+  @Override
+  protected Path getOutputPath(String mode, int numberOfCores) {
+    return iterationPath != null ? iterationPath : super.getOutputPath(mode, numberOfCores);
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+    info("Solving the decomposed heterogeneous model for " + numberOfCores + " cores");
+    long startTime = System.nanoTime();
+    File dumpDir = getOutputPath("heterogeneous", numberOfCores).toFile();
+    dumpDir.mkdirs();
+
+    setPinnedHardware(null);
+    HeterogeneousProblem problem = makeProblem();
+    double staticBound =
+        computeLowerBounds(new HeterogeneousCostModel(problem), numberOfCores).getBound();
+
+    OptimizationModel master = makeMaster(problem, numberOfCores);
+    Set<String> first = selectSharedCandidate(problem, numberOfCores);
+
+    double totalLimit = this.timeLimit;
+    double bestTime = Double.POSITIVE_INFINITY;
+    double masterBound = Double.NaN;
+    // -- the smallest subproblem bound of the hardware sets cut off from the master
+    double provedBound = Double.POSITIVE_INFINITY;
+    Set<Set<String>> tried = new HashSet<>();
+    ImmutableList<PartitioningSolution<String>> bestSolutions = ImmutableList.empty();
+    int bestIteration = -1;
+    File reportFile = new File(dumpDir, "decomposition.csv");
+    try (PrintWriter writer = new PrintWriter(reportFile)) {
+      writer.println(
+          "iteration,source,hardware_actors,master_bound,T,status,runtime,subproblem_bound,proved");
+      for (int iteration = 0; iteration < maxIterations; iteration++) {
+        double remaining = totalLimit - (System.nanoTime() - startTime) * 1e-9;
+        if (remaining <= 0.0) {
+          info("No time left for the decomposition on " + numberOfCores + " cores");
+          break;
+        }
+
+        Set<String> hardware;
+        String source;
+        if (iteration == 0 && first != null) {
+          hardware = first;
+          source = "shared";
+        } else {
+          SolverSettings settings = new SolverSettings(remaining);
+          settings.setThreads(this.threads);
+          settings.setLogFile(dumpDir.toPath().resolve("master.log"));
+          SolutionPool pool = backend.solve(master, settings);
+          if (pool.getStatus() == SolveStatus.INFEASIBLE) {
+            // -- every hardware set is cut off, the subproblem bounds of the sets cover them all
+            info("The master has no hardware set left on " + numberOfCores + " cores");
+            masterBound = Double.POSITIVE_INFINITY;
+            break;
+          }
+          if (pool.isEmpty()) {
+            info("The master found no hardware set on " + numberOfCores + " cores in time");
+            break;
+          }
+          masterBound = pool.getObjectiveBound();
+          if (Double.isNaN(masterBound)) {
+            masterBound =
+                pool.getStatus() == SolveStatus.OPTIMAL
+                    ? pool.getBestObjective()
+                    : Double.NEGATIVE_INFINITY;
+          }
+          if (Math.min(masterBound, provedBound) >= bestTime * (1.0 - gapLimit)) {
+            info(
+                String.format(
+                    "The lower bound %6.6f closes the gap to T = %6.6f on %d cores",
+                    Math.min(masterBound, provedBound), bestTime, numberOfCores));
+            break;
+          }
+          hardware = new TreeSet<>();
+          for (int a = 0; a < problem.getNumActors(); a++) {
+            if (pool.get(0).getValue(master.getVariable("h_" + a)) > 0.5) {
+              hardware.add(problem.getActorName(a));
+            }
+          }
+          source = "master";
+          // -- the optimality cut of the set already holds the master bound up
+          if (tried.contains(hardware)) {
+            info(
+                "The master proposes a hardware set it tried already on "
+                    + numberOfCores
+                    + " cores");
+            break;
+          }
+        }
+        tried.add(hardware);
+        candidates.add(hardware);
+
+        // -- the subproblem gets its share of the time that is left
+        this.iterationPath =
+            dumpDir.toPath().resolve("decomposition").resolve(String.valueOf(iteration));
+        this.timeLimit = Math.max(1.0, remaining / (maxIterations - iteration));
+        setPinnedHardware(hardware);
+        ImmutableList<PartitioningSolution<String>> solutions;
+        try {
+          solutions = super.solveModel(numberOfCores);
+        } finally {
+          setPinnedHardware(null);
+          this.iterationPath = null;
+          this.timeLimit = totalLimit;
+        }
+
+        double time =
+            solutionPool == null || solutionPool.isEmpty()
+                ? Double.POSITIVE_INFINITY
+                : solutionPool.get(0).getValue(model.getVariable("T"));
+        // -- the bound of the subproblem holds for every mapping of the set, the incumbent only
+        // once the subproblem is solved, and a reduced subproblem only solves some of them
+        SolveStatus status = getLastStatus();
+        boolean proved =
+            !isRestricted() && (status == SolveStatus.OPTIMAL || status == SolveStatus.INFEASIBLE);
+        double subproblemBound =
+            proved && status == SolveStatus.INFEASIBLE ? Double.POSITIVE_INFINITY : lowerBound;
+        if (Double.isNaN(subproblemBound)) subproblemBound = staticBound;
+        LinearExpression flipped = flip(master, problem, hardware);
+        if (proved) {
+          master.addConstraint(flipped, Sense.GREATER_EQUAL, 1.0, "constraint_tried_" + iteration);
+          provedBound = Math.min(provedBound, subproblemBound);
+        } else {
+          addOptimalityCut(master, flipped, subproblemBound, iteration);
+        }
+        writer.println(
+            iteration
+                + ","
+                + source
+                + ","
+                + String.join(" ", hardware)
+                + ","
+                + masterBound
+                + ","
+                + time
+                + ","
+                + (solutionPool == null ? "" : solutionPool.getStatus())
+                + ","
+                + (solutionPool == null ? "" : solutionPool.getRuntime())
+                + ","
+                + subproblemBound
+                + ","
+                + proved);
+        writer.flush();
+        if (time < bestTime) {
+          bestTime = time;
+          bestSolutions = solutions;
+          bestIteration = iteration;
+        }
+      }
+    } catch (FileNotFoundException e) {
+      fatalError("Could not save the decomposition report: " + e.getMessage());
+    }
+
+    // -- the hardware sets the master still holds are bounded by its objective, the ones cut off
+    // by their subproblem bounds
+    this.lowerBound =
+        Double.isNaN(masterBound)
+            ? staticBound
+            : Math.max(staticBound, Math.min(masterBound, provedBound));
+    if (bestIteration < 0) {
+      info("The decomposition found no solution on " + numberOfCores + " cores");
+      return bestSolutions;
+    }
+    copyIteration(
+        dumpDir.toPath().resolve("decomposition").resolve(String.valueOf(bestIteration)),
+        dumpDir.toPath());
+    restoreSolutions(numberOfCores, bestSolutions);
+    info(
+        String.format(
+            "Solved the decomposed heterogeneous model for %d cores: T = %6.6f from iteration %d,"
+                + " lower bound %6.6f",
+            numberOfCores, bestTime, bestIteration, lowerBound));
+    return bestSolutions;
+  }
+
+  /**
+   * Builds the master problem, with a binary h_a for every actor on the accelerator. The PLink
+   * time follows the hardware set exactly. The cores are bounded by their average load and the
+   * load of every software actor, and every connection that has a software end pays the cheapest
+   * of its local and core to core costs, so the objective never exceeds the T of the best mapping
+   * of the set.
+   */
+  private OptimizationModel makeMaster(HeterogeneousProblem problem, int numberOfCores) {
+    OptimizationModel master = new OptimizationModel("master_" + numberOfCores);
+    int numActors = problem.getNumActors();
+    Variable[] hardware = new Variable[numActors];
+    for (int a = 0; a < numActors; a++) {
+      double lower = problem.isHardwareOnly(a) ? 1.0 : 0.0;
+      double upper = problem.isSoftwareOnly(a) ? 0.0 : 1.0;
+      hardware[a] = master.addVariable(lower, upper, VariableType.BINARY, "h_" + a);
+    }
+
+    // -- the accelerator and every core hold at least one actor
+    LinearExpression onHardware = new LinearExpression();
+    for (Variable h : hardware) onHardware.addTerm(1.0, h);
+    master.addConstraint(onHardware, Sense.GREATER_EQUAL, 1.0, "constraint_hardware_used");
+    master.addConstraint(
+        onHardware, Sense.LESS_EQUAL, numActors - numberOfCores, "constraint_cores_used");
+
+    Variable kernel =
+        master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink_kernel");
+    Variable[] readPorts = new Variable[problem.getNumPorts()];
+    Variable[] writePorts = new Variable[problem.getNumPorts()];
+    for (int p = 0; p < problem.getNumPorts(); p++) {
+      readPorts[p] = master.addVariable(0.0, 1.0, VariableType.BINARY, "read_port_" + p);
+      writePorts[p] = master.addVariable(0.0, 1.0, VariableType.BINARY, "write_port_" + p);
+    }
+    LinearExpression plink = LinearExpression.of(kernel);
+    LinearExpression communication = new LinearExpression();
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = problem.getEdgeSource(e);
+      int target = problem.getEdgeTarget(e);
+      if (source == target) continue;
+      // -- read from the accelerator when the source is on it and the target is not, write the
+      // other way around
+      Variable read = master.addVariable(0.0, 1.0, VariableType.CONTINUOUS, "read_" + e);
+      Variable write = master.addVariable(0.0, 1.0, VariableType.CONTINUOUS, "write_" + e);
+      LinearExpression readExpression = LinearExpression.of(hardware[source]);
+      readExpression.addTerm(-1.0, hardware[target]);
+      master.addConstraint(read, Sense.GREATER_EQUAL, readExpression, "constraint_read_" + e);
+      LinearExpression writeExpression = LinearExpression.of(hardware[target]);
+      writeExpression.addTerm(-1.0, hardware[source]);
+      master.addConstraint(write, Sense.GREATER_EQUAL, writeExpression, "constraint_write_" + e);
+      int port = problem.getEdgeSourcePort(e);
+      master.addConstraint(readPorts[port], Sense.GREATER_EQUAL, read, "constraint_read_port_" + e);
+      master.addConstraint(
+          writePorts[port], Sense.GREATER_EQUAL, write, "constraint_write_port_" + e);
+      plink.addTerm(problem.getEdgeReadCost(e), read);
+      plink.addTerm(problem.getEdgeWriteCost(e), write);
+
+      // -- the connection has a software end unless both ends are on the accelerator
+      Variable software = master.addVariable(0.0, 1.0, VariableType.CONTINUOUS, "software_" + e);
+      LinearExpression sourceInSoftware = LinearExpression.of(1.0);
+      sourceInSoftware.addTerm(-1.0, hardware[source]);
+      master.addConstraint(
+          software, Sense.GREATER_EQUAL, sourceInSoftware, "constraint_software_source_" + e);
+      LinearExpression targetInSoftware = LinearExpression.of(1.0);
+      targetInSoftware.addTerm(-1.0, hardware[target]);
+      master.addConstraint(
+          software, Sense.GREATER_EQUAL, targetInSoftware, "constraint_software_target_" + e);
+      // -- a core pays its local costs and the cores share them at best evenly, a single core
+      // pays them all
+      double cost =
+          numberOfCores == 1
+              ? problem.getEdgeLocalCost(e)
+              : Math.min(problem.getEdgeLocalCost(e) / numberOfCores, problem.getEdgeGlobalCost(e));
+      communication.addTerm(cost, software);
+    }
+    LinearExpression connections = new LinearExpression();
+    for (int p = 0; p < problem.getNumPorts(); p++) {
+      connections.addTerm(1.0, readPorts[p]);
+      connections.addTerm(1.0, writePorts[p]);
+    }
+    master.addConstraint(
+        connections,
+        Sense.LESS_EQUAL,
+        HeterogeneousProblem.MAX_PCIE_CONNECTIONS,
+        "constraint_number_of_connections");
+
+    Variable plinkTime =
+        master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink");
+    master.addConstraint(plinkTime, Sense.EQUAL, plink, "constraint_plink_time");
+
+    Variable executionTime =
+        master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_exec");
+    master.addConstraint(executionTime, Sense.GREATER_EQUAL, plinkTime, "constraint_T_exec_plink");
+    // -- the software load is spread over the cores at best evenly
+    LinearExpression load = scaled(numberOfCores, executionTime);
+    for (int a = 0; a < numActors; a++) {
+      master.addConstraint(
+          LinearExpression.of(kernel),
+          Sense.GREATER_EQUAL,
+          scaled(problem.getHardwareCost(a), hardware[a]),
+          "constraint_kernel_" + a);
+      // -- an actor in software runs on some core
+      LinearExpression actor = LinearExpression.of(executionTime);
+      actor.addTerm(problem.getActorCost(a), hardware[a]);
+      master.addConstraint(
+          actor, Sense.GREATER_EQUAL, problem.getActorCost(a), "constraint_T_exec_" + a);
+      load.addTerm(problem.getActorCost(a), hardware[a]);
+    }
+    master.addConstraint(
+        load, Sense.GREATER_EQUAL, problem.getTotalActorCost(), "constraint_T_exec_load");
+
+    Variable communicationTime =
+        master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_comm");
+    master.addConstraint(communicationTime, Sense.EQUAL, communication, "constraint_T_comm");
+
+    LinearExpression objective = LinearExpression.of(executionTime);
+    objective.addTerm(1.0, communicationTime);
+    master.setObjective(objective, ObjectiveSense.MINIMIZE);
+    return master;
+  }
+
+  private static LinearExpression scaled(double coefficient, Variable variable) {
+    LinearExpression expression = new LinearExpression();
+    expression.addTerm(coefficient, variable);
+    return expression;
+  }
+
+  /**
+   * @return the number of actors whose side differs from the hardware set, zero for the set itself
+   *     and at least one for every other set
+   */
+  private static LinearExpression flip(
+      OptimizationModel master, HeterogeneousProblem problem, Set<String> hardware) {
+    LinearExpression flipped = new LinearExpression();
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      Variable h = master.getVariable("h_" + a);
+      if (hardware.contains(problem.getActorName(a))) {
+        flipped.addConstant(1.0);
+        flipped.addTerm(-1.0, h);
+      } else {
+        flipped.addTerm(1.0, h);
+      }
+    }
+    return flipped;
+  }
+
+  /**
+   * Raises the master objective of the hardware set to the lower bound of its subproblem, the cut
+   * is slack for every other set.
+   */
+  private static void addOptimalityCut(
+      OptimizationModel master, LinearExpression flipped, double bound, int iteration) {
+    if (bound <= 0.0 || Double.isInfinite(bound)) return;
+    LinearExpression objective = LinearExpression.of(master.getVariable("T_exec"));
+    objective.addTerm(1.0, master.getVariable("T_comm"));
+    objective.multAdd(bound, flipped);
+    master.addConstraint(objective, Sense.GREATER_EQUAL, bound, "constraint_bound_" + iteration);
+  }
+
+  /**
+   * @return the shared hardware set with the best greedy T on the given number of cores, the one
+   *     of the unpinned greedy solution included, or null if none of them is feasible
+   */
+  private Set<String> selectSharedCandidate(HeterogeneousProblem problem, int numberOfCores) {
+    List<Set<String>> shared = candidates.snapshot();
+    Assignment greedy =
+        new GreedyPartitioner(new HeterogeneousCostModel(problem)).solve(numberOfCores);
+    if (greedy != null) {
+      Set<String> hardware = new TreeSet<>();
+      for (int a = 0; a < problem.getNumActors(); a++) {
+        if (greedy.getPartition(a) == numberOfCores) hardware.add(problem.getActorName(a));
+      }
+      shared.add(hardware);
+    }
+
+    Set<String> best = null;
+    double bestTime = Double.POSITIVE_INFINITY;
+    for (Set<String> hardware : shared) {
+      boolean[] onHardware = new boolean[problem.getNumActors()];
+      boolean consistent = true;
+      for (int a = 0; a < onHardware.length; a++) {
+        onHardware[a] = hardware.contains(problem.getActorName(a));
+        if (onHardware[a] ? problem.isSoftwareOnly(a) : problem.isHardwareOnly(a)) {
+          consistent = false;
+        }
+      }
+      if (!consistent) continue;
+      Assignment assignment =
+          new GreedyPartitioner(new HeterogeneousCostModel(problem.pin(onHardware)))
+              .solve(numberOfCores);
+      if (assignment != null && assignment.getTotalTime() < bestTime) {
+        bestTime = assignment.getTotalTime();
+        best = hardware;
+      }
+    }
+    if (best != null) {
+      info(
+          String.format(
+              "Starting the decomposition on %d cores from a shared hardware set of %d actors,"
+                  + " greedy T = %6.6f",
+              numberOfCores, best.size(), bestTime));
+    }
+    return best;
+  }
+
+  /** Copies the reports of an iteration to the core count, the configurations are restored. */
+  private void copyIteration(Path iteration, Path dumpDir) {
+    File[] files = iteration.toFile().listFiles(File::isFile);
+    if (files == null) return;
+    for (File file : files) {
+      try {
+        Files.copy(
+            file.toPath(), dumpDir.resolve(file.getName()), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        error("Could not copy " + file + ": " + e.getMessage());
+      }
+    }
+  }
+}
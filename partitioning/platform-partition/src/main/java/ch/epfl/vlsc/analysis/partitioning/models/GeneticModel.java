@@ -0,0 +1,69 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.GeneticPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the homogeneous partitioning problem with an island model genetic algorithm, one island
+ * per thread over the whole time limit. The solutions are the distinct best assignments of the
+ * final populations, for design space sweeps that want several good partitions.
+ */
+public class GeneticModel extends AssignmentModel {
+
+  public GeneticModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+
+    info("Starting the genetic algorithm on " + numberOfCores + " cores");
+
+    PartitioningProblem problem =
+        PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    CostModel costModel = new HomogeneousCostModel(problem);
+    computeLowerBounds(costModel, numberOfCores);
+    Assignment start =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (start == null) {
+      info("Could not find a start for " + numberOfCores + " cores");
+      this.assignments = ImmutableList.empty();
+      return ImmutableList.empty();
+    }
+
+    GeneticPartitioner genetic = new GeneticPartitioner(costModel);
+    genetic.setTimeLimit(timeLimit);
+    genetic.setIslands(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    genetic.setTargetObjective(getObjectiveStop());
+    GeneticPartitioner.Result result = genetic.solve(start.getPartitions(), numberOfCores);
+    info(
+        String.format(
+            "Genetic algorithm on %d cores finished in %.3f s after %d generations and %d "
+                + "migrations, %d distinct solutions, best %s",
+            numberOfCores,
+            result.getRuntime(),
+            result.getGenerations(),
+            result.getMigrations(),
+            result.getSolutions().size(),
+            result.getSolutions().get(0)));
+
+    this.assignments = result.getSolutions();
+    return assignments.map(assignment -> createSolution(problem, assignment));
+  }
+}
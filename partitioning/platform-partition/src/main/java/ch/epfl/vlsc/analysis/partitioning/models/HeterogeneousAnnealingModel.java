@@ -0,0 +1,59 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.SimulatedAnnealing;
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the heterogeneous partitioning problem with simulated annealing, the accelerator with
+ * its PLink read, kernel and write times and its connection limit included. The outputs have the
+ * same layout as the ones of the HeterogeneousModel.
+ */
+public class HeterogeneousAnnealingModel extends HeterogeneousAssignmentModel {
+
+  public HeterogeneousAnnealingModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      Double multicoreClockPeriod,
+      Double accelClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, timeLimit);
+  }
+
+  @Override
+  protected ImmutableList<Assignment> solveAssignments(
+      HeterogeneousCostModel costModel, int numberOfCores) {
+
+    info("Starting heterogeneous simulated annealing on " + numberOfCores + " cores");
+    Assignment start =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (start == null) {
+      info("Could not find a start for " + numberOfCores + " cores");
+      return ImmutableList.empty();
+    }
+
+    SimulatedAnnealing annealing = new SimulatedAnnealing(costModel);
+    annealing.setTimeLimit(timeLimit);
+    annealing.setChains(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    annealing.setTargetObjective(getObjectiveStop());
+    SimulatedAnnealing.Result result = annealing.solve(start.getPartitions(), numberOfCores);
+    info(
+        String.format(
+            "Simulated annealing on %d cores finished in %.3f s after %d moves, %d accepted: %s",
+            numberOfCores,
+            result.getRuntime(),
+            result.getMoves(),
+            result.getAcceptedMoves(),
+            result.getSolutions().get(0)));
+    return result.getSolutions();
+  }
+}
@@ -0,0 +1,182 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Compiler;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.network.Instance;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Base of the heterogeneous models that are solved by the combinatorial engines instead of a MILP
+ * solver. The solutions are kept as assignments and written with the same layout as the ones of
+ * the HeterogeneousModel.
+ */
+public abstract class HeterogeneousAssignmentModel extends HeterogeneousModel {
+
+  protected HeterogeneousProblem problem;
+  protected ImmutableList<Assignment> assignments = ImmutableList.empty();
+
+  public HeterogeneousAssignmentModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      Double multicoreClockPeriod,
+      Double accelClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, timeLimit);
+  }
+
+  /**
+   * @param costModel the cost model of the network
+   * @param numberOfCores the number of software cores
+   * @return the feasible assignments found, best first
+   */
+  protected abstract ImmutableList<Assignment> solveAssignments(
+      HeterogeneousCostModel costModel, int numberOfCores);
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    File dumpDir = getOutputPath("heterogeneous", numberOfCores).toFile();
+    dumpDir.mkdirs();
+
+    this.problem =
+        HeterogeneousProblem.fromNetwork(
+            task.getNetwork(), multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod);
+    HeterogeneousCostModel costModel = new HeterogeneousCostModel(problem);
+    computeLowerBounds(costModel, numberOfCores);
+    this.assignments = solveAssignments(costModel, numberOfCores);
+    if (assignments.isEmpty()) return ImmutableList.empty();
+
+    ImmutableList<TypedPartition> partitions = makeHeterogeneousPartitionSet(numberOfCores);
+    ImmutableList<PartitioningSolution<Instance>> solutions =
+        assignments.map(assignment -> createSolution(partitions, assignment));
+    return saveSolutions(solutions, partitions, dumpDir);
+  }
+
+  protected PartitioningSolution<Instance> createSolution(
+      ImmutableList<TypedPartition> partitions, Assignment assignment) {
+    ImmutableList<Instance> instances = task.getNetwork().getInstances();
+    ImmutableList.Builder<Partition<Instance>> partitionsBuilder = ImmutableList.builder();
+    for (TypedPartition p : partitions) {
+      ImmutableList.Builder<Instance> instancesInP = ImmutableList.builder();
+      for (int actor = 0; actor < instances.size(); actor++) {
+        if (assignment.getPartition(actor) == p.toIndex()) instancesInP.add(instances.get(actor));
+      }
+      partitionsBuilder.add(new Partition<>(instancesInP.build(), p));
+    }
+    return new PartitioningSolution<>(partitionsBuilder.build());
+  }
+
+  /** @return the software execution time of every core of the assignment */
+  private double[] getCoreExecutionTimes(Assignment assignment) {
+    double[] times = new double[assignment.getNumberOfPartitions() - 1];
+    for (int actor = 0; actor < problem.getNumActors(); actor++) {
+      int p = assignment.getPartition(actor);
+      if (p < times.length) times[p] += problem.getActorCost(actor);
+    }
+    return times;
+  }
+
+  @Override
+  public void dumpTimingReport(File dumpDir, ImmutableList<TypedPartition> partitions) {
+    File dumpFile = new File(dumpDir.toPath().resolve("timing.json").toUri());
+    try {
+      JsonArray jArray = new JsonArray();
+      for (Assignment assignment : assignments) {
+        JsonObject jObjTimes = new JsonObject();
+        jObjTimes.addProperty("T", assignment.getTotalTime());
+
+        JsonObject jObjCoreTimes = new JsonObject();
+        double[] coreTimes = getCoreExecutionTimes(assignment);
+        for (TypedPartition p : partitions) {
+          if (p instanceof SoftwarePartition) {
+            jObjCoreTimes.addProperty("T_exec_" + p.toString(), coreTimes[p.toIndex()]);
+          }
+        }
+        jObjCoreTimes.addProperty("max", assignment.getExecutionTime());
+        jObjTimes.add("T_exec", jObjCoreTimes);
+        jObjTimes.addProperty("t_plink", assignment.getPlinkTime());
+        jObjTimes.addProperty("t_plink_read", assignment.getPlinkReadTime());
+        jObjTimes.addProperty("t_plink_write", assignment.getPlinkWriteTime());
+        jObjTimes.addProperty("t_plink_kernel", assignment.getPlinkKernelTime());
+        jObjTimes.addProperty("read_connections", assignment.getReadConnections());
+        jObjTimes.addProperty("write_connections", assignment.getWriteConnections());
+        jObjTimes.addProperty("T_lc", assignment.getLocalCommunicationTime());
+        jObjTimes.addProperty("T_cc", assignment.getCoreToCoreCommunicationTime());
+        double gap = getGap(assignment.getTotalTime());
+        if (!Double.isNaN(gap)) jObjTimes.addProperty("gap", gap);
+        jArray.add(jObjTimes);
+      }
+
+      Gson gson = new GsonBuilder().setPrettyPrinting().create();
+      FileWriter writer = new FileWriter(dumpFile);
+      JsonObject jsonObject = new JsonObject();
+      if (!Double.isNaN(lowerBound)) jsonObject.addProperty("lower_bound", lowerBound);
+      jsonObject.add("timings", jArray);
+      gson.toJson(jsonObject, writer);
+      writer.flush();
+
+    } catch (IOException e) {
+      fatalError("Could dump timing breakdown: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void solutionsSummary(File dumpDir) {
+    File dumpFile = new File(dumpDir + "/solutions.csv");
+    try {
+      PrintWriter solutionWriter = new PrintWriter(dumpFile);
+      solutionWriter.println(
+          "T,T_exec,T_lc,T_cc,t_plink,t_plink_read,t_plink_kernel,t_plink_write,"
+              + "read_connections,write_connections,lower_bound,gap");
+      for (int solutionIndex = 0; solutionIndex < assignments.size(); solutionIndex++) {
+        Assignment assignment = assignments.get(solutionIndex);
+        System.out.println("Solution " + solutionIndex + " : " + assignment);
+        solutionWriter.println(
+            assignment.getTotalTime()
+                + ","
+                + assignment.getExecutionTime()
+                + ","
+                + assignment.getLocalCommunicationTime()
+                + ","
+                + assignment.getCoreToCoreCommunicationTime()
+                + ","
+                + assignment.getPlinkTime()
+                + ","
+                + assignment.getPlinkReadTime()
+                + ","
+                + assignment.getPlinkKernelTime()
+                + ","
+                + assignment.getPlinkWriteTime()
+                + ","
+                + assignment.getReadConnections()
+                + ","
+                + assignment.getWriteConnections()
+                + ","
+                + lowerBound
+                + ","
+                + getGap(assignment.getTotalTime()));
+      }
+      solutionWriter.close();
+    } catch (FileNotFoundException e) {
+      fatalError("Could not print solution summaries: " + e.getMessage());
+    }
+  }
+}
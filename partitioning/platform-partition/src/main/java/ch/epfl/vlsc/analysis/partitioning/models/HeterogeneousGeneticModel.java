@@ -0,0 +1,61 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.GeneticPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the heterogeneous partitioning problem with an island model genetic algorithm, the
+ * accelerator with its PLink times and its connection limit included. The outputs have the same
+ * layout as the ones of the HeterogeneousModel.
+ */
+public class HeterogeneousGeneticModel extends HeterogeneousAssignmentModel {
+
+  public HeterogeneousGeneticModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      Double multicoreClockPeriod,
+      Double accelClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, timeLimit);
+  }
+
+  @Override
+  protected ImmutableList<Assignment> solveAssignments(
+      HeterogeneousCostModel costModel, int numberOfCores) {
+
+    info("Starting the heterogeneous genetic algorithm on " + numberOfCores + " cores");
+    Assignment start =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (start == null) {
+      info("Could not find a start for " + numberOfCores + " cores");
+      return ImmutableList.empty();
+    }
+
+    GeneticPartitioner genetic = new GeneticPartitioner(costModel);
+    genetic.setTimeLimit(timeLimit);
+    genetic.setIslands(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    genetic.setTargetObjective(getObjectiveStop());
+    GeneticPartitioner.Result result = genetic.solve(start.getPartitions(), numberOfCores);
+    info(
+        String.format(
+            "Genetic algorithm on %d cores finished in %.3f s after %d generations and %d "
+                + "migrations, %d distinct solutions, best %s",
+            numberOfCores,
+            result.getRuntime(),
+            result.getGenerations(),
+            result.getMigrations(),
+            result.getSolutions().size(),
+            result.getSolutions().get(0)));
+    return result.getSolutions();
+  }
+}
@@ -1,11 +1,18 @@
 package ch.epfl.vlsc.analysis.partitioning.models;
 
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.UpperBounds;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousProblem;
+import ch.epfl.vlsc.analysis.partitioning.engine.NetworkReduction;
+import ch.epfl.vlsc.analysis.partitioning.engine.PlacementPresolve;
 import ch.epfl.vlsc.analysis.partitioning.parser.CommonProfileDataBase;
 import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
 import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
 
 import com.google.gson.*;
-import gurobi.*;
+import ch.epfl.vlsc.analysis.partitioning.solver.*;
 
 import se.lth.cs.tycho.attribute.GlobalNames;
 import se.lth.cs.tycho.compiler.CompilationTask;
@@ -25,12 +32,47 @@ import java.io.*;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
 import java.util.stream.Collectors;
 
 public class HeterogeneousModel extends MulticorePerformanceModel {
 
-  private final DeviceProfileDataBase accelDB;
-  private final Double accelClockPeriod;
+  protected DeviceProfileDataBase accelDB;
+  protected Double accelClockPeriod;
+  // -- the conjunction of every pair of variables, keyed by their indices, shared by all the cost
+  // terms of the current model
+  private final Map<Long, Variable> conjunctionCache = new HashMap<>();
+  // -- the largest number of used cores of the parametric model of a Pareto front, 0 requires
+  // every core to be used
+  private int usedCoresLimit = 0;
+  // -- the objectives optimized after T, in order, over the solutions within the tolerance of T
+  private List<SecondaryObjective> secondaryObjectives = Collections.emptyList();
+  private double objectiveTolerance = 0.0;
+  // -- the instance names of the actors every solution places on the accelerator, null lets the
+  // model choose
+  private Set<String> pinnedHardware;
+  // -- the actors the presolve of the current model fixed to software and the rule that fixed
+  // them, they have no variable for the accelerator
+  private Map<Instance, PlacementPresolve.Rule> fixedToSoftware = new HashMap<>();
+
+  /** The objectives that break ties between solutions of about the same T. */
+  public enum SecondaryObjective {
+    // -- read_connections + write_connections, every PCIe connection costs build time
+    CONNECTIONS("plink_connections"),
+    // -- the actors on the FPGA, fewer of them build and close timing faster
+    HARDWARE_ACTORS("hardware_actors");
+
+    private final String name;
+
+    SecondaryObjective(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
 
   public HeterogeneousModel(
       CompilationTask task,
@@ -59,475 +101,925 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
     return builder.build();
   }
 
-  @Override
-  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
-
-    Network network = task.getNetwork();
+  /**
+   * @param secondaryObjectives the objectives to optimize after T, in lexicographic order
+   * @param objectiveTolerance the relative increase of T the secondary objectives may trade for
+   */
+  public void setSecondaryObjectives(
+      List<SecondaryObjective> secondaryObjectives, double objectiveTolerance) {
+    this.secondaryObjectives = secondaryObjectives;
+    this.objectiveTolerance = objectiveTolerance;
+  }
 
-    try {
+  /**
+   * @param pinnedHardware the instance names of the actors to place on the accelerator, every
+   *     other actor goes to software, null lets the model choose
+   */
+  protected void setPinnedHardware(Set<String> pinnedHardware) {
+    this.pinnedHardware = pinnedHardware;
+  }
 
-      context
-          .getReporter()
-          .report(
-              new Diagnostic(
-                  Diagnostic.Kind.INFO, "Solving performance model for " + numberOfCores));
-      GRBEnv env = new GRBEnv(true);
-      Path logPath = context.getConfiguration().get(Compiler.targetPath).resolve("heterogeneous");
-      if (!logPath.toFile().exists()) {
-        logPath.toFile().mkdirs();
-      }
-      Path logfile = logPath.resolve("partitions.log");
+  /** @return the problem of the model, with the actors pinned to their side if it is fixed */
+  protected HeterogeneousProblem makeProblem() {
+    HeterogeneousProblem problem =
+        HeterogeneousProblem.fromNetwork(
+            task.getNetwork(), multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod);
+    if (pinnedHardware == null) return problem;
+    boolean[] onHardware = new boolean[problem.getNumActors()];
+    for (int a = 0; a < onHardware.length; a++) {
+      onHardware[a] = pinnedHardware.contains(problem.getActorName(a));
+    }
+    return problem.pin(onHardware);
+  }
 
-      context
-          .getReporter()
-          .report(new Diagnostic(Diagnostic.Kind.INFO, "Logging into " + logfile.toString()));
+  /**
+   * Traces the front of the smallest T for every limit on the number of used cores with a single
+   * parametric model. The model has numberOfCores cores and a used binary for every core but the
+   * first, the limit is an epsilon constraint on the number of used cores. The backend keeps the
+   * model across the limits, every limit only changes a right hand side and the bounds, and starts
+   * from the solution of the previous limit, which stays feasible. The solutions of every limit are
+   * saved as the ones of the model for that many cores, and the front goes into pareto.csv.
+   *
+   * @param maxCores the largest number of cores
+   * @return a map from core limits to solutions, sorted by core limit
+   */
+  public Map<Integer, ImmutableList<PartitioningSolution<String>>> solveParetoFront(int maxCores) {
+    return solveParetoFront(maxCores, null, null);
+  }
 
-      env.set("LogFile", logfile.toString());
+  /**
+   * Traces the Pareto front with a time limit for every core limit, e.g., from a time budget.
+   *
+   * @param maxCores the largest number of cores
+   * @param allocate gives the time limit of a core limit when its solve starts, null keeps the
+   *     time limit of the model
+   * @param release is told the core limit once its solve ended, null if nothing is to be told
+   * @return a map from core limits to solutions, sorted by core limit
+   */
+  public Map<Integer, ImmutableList<PartitioningSolution<String>>> solveParetoFront(
+      int maxCores, IntToDoubleFunction allocate, IntConsumer release) {
+    Double modelTimeLimit = this.timeLimit;
+    Map<Integer, ImmutableList<PartitioningSolution<String>>> front = new TreeMap<>();
+    File dumpFile =
+        getOutputPath("heterogeneous", maxCores).getParent().resolve("pareto.csv").toFile();
+    dumpFile.getParentFile().mkdirs();
+    beginSweep();
+    try (PrintWriter writer = new PrintWriter(dumpFile)) {
+      writer.println("core_limit,cores_used,T,lower_bound,gap,runtime,pareto");
+      double bestTime = Double.POSITIVE_INFINITY;
+      for (int limit = 1; limit <= maxCores; limit++) {
+        this.usedCoresLimit = limit;
+        if (allocate != null) setTimeLimit(allocate.applyAsDouble(limit));
+        ImmutableList<PartitioningSolution<String>> solutions;
+        try {
+          solutions = solveModel(maxCores);
+        } finally {
+          if (release != null) release.accept(limit);
+        }
+        front.put(limit, solutions);
+        if (solutionPool == null || solutionPool.isEmpty()) {
+          info("No solution with at most " + limit + " cores");
+          continue;
+        }
+        double time = solutionPool.get(0).getValue(model.getVariable("T"));
+        int usedCores = solutionPool.get(0).getIntegerValue(model.getVariable("cores_used"));
+        // -- a point is on the front if it is better than every point with fewer cores
+        boolean pareto = time < bestTime;
+        bestTime = Math.min(bestTime, time);
+        writer.println(
+            limit
+                + ","
+                + usedCores
+                + ","
+                + time
+                + ","
+                + lowerBound
+                + ","
+                + getGap(time)
+                + ","
+                + solutionPool.getRuntime()
+                + ","
+                + pareto);
+      }
+    } catch (FileNotFoundException e) {
+      fatalError("Could not save the Pareto front: " + e.getMessage());
+    } finally {
+      endSweep();
+      this.usedCoresLimit = 0;
+      this.timeLimit = modelTimeLimit;
+    }
+    info("Saved the Pareto front into " + dumpFile);
+    return front;
+  }
 
-      env.start();
+  /**
+   * @param solution a solution of the parametric model
+   * @return the solution without its empty cores, the accelerator follows the used ones
+   */
+  private static PartitioningSolution<Instance> dropUnusedCores(
+      PartitioningSolution<Instance> solution) {
+    ImmutableList<Partition<Instance>> used =
+        solution.getPartitions().stream()
+            .filter(
+                p ->
+                    p.getPartitionType() instanceof SoftwarePartition
+                        && (p.getPartitionType().toIndex() == 0 || !p.getInstances().isEmpty()))
+            .collect(ImmutableList.collector());
+    ImmutableList.Builder<Partition<Instance>> partitions = ImmutableList.builder();
+    partitions.addAll(used);
+    for (Partition<Instance> p : solution.getPartitions()) {
+      if (p.getPartitionType() instanceof HardwarePartition) {
+        partitions.add(new Partition<>(p.getInstances(), new HardwarePartition(used.size())));
+      }
+    }
+    return new PartitioningSolution<>(partitions.build());
+  }
 
-      model = new GRBModel(env);
+  @Override
+  protected void applyScenario(ProfileScenario scenario) {
+    super.applyScenario(scenario);
+    if (scenario.getAccelDB() != null) this.accelDB = scenario.getAccelDB();
+    if (scenario.getAccelClockPeriod() != null) {
+      this.accelClockPeriod = scenario.getAccelClockPeriod();
+    }
+  }
 
-      model.set(GRB.DoubleParam.TimeLimit, this.timeLimit);
+  @Override
+  protected ProfileScenario currentScenario() {
+    return super.currentScenario().setAccelDB(accelDB).setAccelClockPeriod(accelClockPeriod);
+  }
 
-      //            int numberOfCores =
-      // context.getConfiguration().get(PartitionSettings.cpuCoreCount);
-      if (numberOfCores < 1) {
-        throw new CompilationException(
-            new Diagnostic(
-                Diagnostic.Kind.ERROR,
-                String.format(
-                    "Invalid number of cores %d, " + "number of cores should be larger that 0.",
-                    numberOfCores)));
-      }
+  /** The solutions of a scenario are saved by solveModel, with the timing report. */
+  @Override
+  protected void saveScenarioSolutions(
+      int numberOfCores, ImmutableList<PartitioningSolution<String>> solutions) {}
 
-      // Set of all partitions
-      ImmutableList<TypedPartition> partitions = makeHeterogeneousPartitionSet(numberOfCores);
-
-      HardwarePartition accelPartition =
-          partitions.stream()
-              .filter(p -> p instanceof HardwarePartition)
-              .map(p -> (HardwarePartition) p)
-              .findFirst()
-              .orElseThrow(
-                  () ->
-                      new CompilationException(
-                          new Diagnostic(Diagnostic.Kind.ERROR, "Hardware partition not set")));
-
-      SoftwarePartition plinkPartition = (SoftwarePartition) partitions.get(0);
-
-      Map<Instance, DecisionVariables> instanceDecisionVariables =
-          network.getInstances().stream()
-              .collect(
-                  Collectors.toMap(
-                      Function.identity(),
-                      instance -> new DecisionVariables(instance, partitions, model)));
-
-      Map<Instance, GRBVar> instanceNotOnAccelDecisionVariables =
-          makeInstanceNotOnAccelMap(accelPartition, instanceDecisionVariables);
-
-      // make sure every actor is assigned to exactly one partition
-      for (Instance i : task.getNetwork().getInstances()) {
-        GRBLinExpr uniquePartitionExpression =
-            instanceDecisionVariables.get(i).getUniquePartitionConstraint();
-        model.addConstr(
-            uniquePartitionExpression, GRB.EQUAL, 1.0, i.getInstanceName() + "_unique_partition");
-      }
+  @Override
+  protected List<String> getObjectiveTermNames(int numberOfCores) {
+    List<String> names = super.getObjectiveTermNames(numberOfCores);
+    names.addAll(Arrays.asList("t_plink", "t_plink_read", "t_plink_kernel", "t_plink_write"));
+    return names;
+  }
 
-      // make sure every partition is used
-      for (TypedPartition p : partitions) {
-        // -- we want to make sure that every partition has at least one actor in it,
-        // the plink partition can exceptionally have no real actors and only contain the plink
-        GRBLinExpr actorInPartitionExpr = new GRBLinExpr();
-        for (Instance instance : network.getInstances()) {
-          GRBVar decisionVariable =
-              instanceDecisionVariables.get(instance).getDecisionVariable(p);
-          actorInPartitionExpr.addTerm(1.0, decisionVariable);
-        }
-        GRBVar actorsInPartition =
-            model.addVar(
-                0.0,
-                network.getInstances().size() + 1,
-                0.0,
-                GRB.INTEGER,
-                "actors_in_" + p.toString());
-        model.addConstr(
-            actorsInPartition,
-            GRB.EQUAL,
-            actorInPartitionExpr,
-            "constraint_actors_in_" + p.toString());
-
-        model.addConstr(
-            actorsInPartition, GRB.GREATER_EQUAL, 1.0, "constraint_used_" + p.toString());
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
 
-      }
-      
-      {
-        GRBLinExpr actorsOnAccel = new GRBLinExpr();
-        for (Instance instance : network.getInstances()) {
-          GRBVar decisionVariable = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
+    Network network = task.getNetwork();
 
-        }
-      }
-      // Plink read/kernel/write times
-      GRBLinExpr plinkReadTimeExpression =
-          getPLinkReadTimeExpression(
-              accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+    context
+        .getReporter()
+        .report(
+            new Diagnostic(Diagnostic.Kind.INFO, "Solving performance model for " + numberOfCores));
+    long buildStartTime = System.nanoTime();
+    File dumpDir =
+        getOutputPath("heterogeneous", usedCoresLimit > 0 ? usedCoresLimit : numberOfCores)
+            .toFile();
+    if (!dumpDir.exists()) {
+      dumpDir.mkdirs();
+    }
+    // -- every core count logs into its own directory so that they can be solved concurrently
+    Path logfile = dumpDir.toPath().resolve("partitions.log");
 
+    context
+        .getReporter()
+        .report(new Diagnostic(Diagnostic.Kind.INFO, "Logging into " + logfile.toString()));
 
-      GRBLinExpr plinkNumberOfReadConnections =
-          getNumberOfReadConnectionsExpression(
-              accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+    SolverSettings settings = new SolverSettings(this.timeLimit);
+    settings.setLogFile(logfile);
+    settings.setThreads(this.threads);
 
-      GRBLinExpr plinkWriteTimeExpression =
-          getPlinkWriteTimeExpression(
-              accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+    model = new OptimizationModel("heterogeneous_" + numberOfCores);
+    conjunctionCache.clear();
 
+    //            int numberOfCores =
+    // context.getConfiguration().get(PartitionSettings.cpuCoreCount);
+    if (numberOfCores < 1) {
+      throw new CompilationException(
+          new Diagnostic(
+              Diagnostic.Kind.ERROR,
+              String.format(
+                  "Invalid number of cores %d, " + "number of cores should be larger that 0.",
+                  numberOfCores)));
+    }
 
+    // Set of all partitions
+    ImmutableList<TypedPartition> partitions = makeHeterogeneousPartitionSet(numberOfCores);
+
+    HardwarePartition accelPartition =
+        partitions.stream()
+            .filter(p -> p instanceof HardwarePartition)
+            .map(p -> (HardwarePartition) p)
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new CompilationException(
+                        new Diagnostic(Diagnostic.Kind.ERROR, "Hardware partition not set")));
+
+    SoftwarePartition plinkPartition = (SoftwarePartition) partitions.get(0);
+
+    // -- start from the greedy solution or the previous core count, and bound the objective
+    // terms by the objective of the start
+    HeterogeneousCostModel costModel = new HeterogeneousCostModel(makeProblem());
+    NetworkReduction.Result reduction = reduceNetwork(costModel, numberOfCores);
+    Assignment start =
+        usedCoresLimit > 0
+            ? solveReduced(
+                costModel,
+                reduction,
+                reduced -> new GreedyPartitioner(reduced).solve(usedCoresLimit))
+            : keepGroupsTogether(
+                costModel,
+                reduction,
+                selectStart(
+                    costModel,
+                    solveReduced(
+                        costModel,
+                        reduction,
+                        reduced -> new GreedyPartitioner(reduced).solve(numberOfCores)),
+                    numberOfCores),
+                numberOfCores);
+
+    // -- fix the actors whose side is implied by the profiles and the start, their variables for
+    // the accelerator and the conjunctions of those are never built
+    fixedToSoftware = presolve(costModel.getProblem(), start);
+    ImmutableList<TypedPartition> corePartitions =
+        partitions.stream()
+            .filter(p -> p instanceof SoftwarePartition)
+            .collect(ImmutableList.collector());
+    Map<Instance, DecisionVariables> instanceDecisionVariables =
+        network.getInstances().stream()
+            .collect(
+                Collectors.toMap(
+                    Function.identity(),
+                    instance ->
+                        new DecisionVariables(
+                            instance,
+                            fixedToSoftware.containsKey(instance) ? corePartitions : partitions,
+                            model)));
+    fixedToSoftware.forEach(
+        (instance, rule) -> presolved(rule, getAcceleratorVariableName(instance, accelPartition)));
+
+    Map<Instance, Variable> instanceNotOnAccelDecisionVariables =
+        makeInstanceNotOnAccelMap(accelPartition, instanceDecisionVariables);
+
+    if (start != null) {
+      Map<String, Integer> startMap = toStartMap(costModel.getProblem(), start);
+      // -- the accelerator of a start with fewer cores moves to the last partition
+      startMap.replaceAll(
+          (actor, index) -> index == start.getNumberOfPartitions() - 1 ? numberOfCores : index);
+      applyWarmStart(instanceDecisionVariables, startMap);
+    }
 
-      GRBLinExpr plinkNumberOfWriteConnections =
-          getNumberOfWriteConnectionsExpression(
-              accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+    tieGroupedActors(instanceDecisionVariables, partitions);
 
-      // -- constraint the number of connection to and form the hardware
+    // make sure every actor is assigned to exactly one partition
+    for (Instance i : task.getNetwork().getInstances()) {
+      LinearExpression uniquePartitionExpression =
+          instanceDecisionVariables.get(i).getUniquePartitionConstraint();
+      model.addConstraint(
+          uniquePartitionExpression, Sense.EQUAL, 1.0, i.getInstanceName() + "_unique_partition");
+    }
 
-      GRBVar numberOfReadConnections =
-          model.addVar(
-              0.0, task.getNetwork().getConnections().size(), 0.0, GRB.INTEGER, "read_connections");
-      GRBVar numberOfWriteConnections =
-          model.addVar(
-              0.0,
-              task.getNetwork().getConnections().size(),
+    // make sure every partition is used
+    List<Variable> coreUsedList = new ArrayList<>();
+    for (TypedPartition p : partitions) {
+      // -- we want to make sure that every partition has at least one actor in it,
+      // the plink partition can exceptionally have no real actors and only contain the plink
+      LinearExpression actorInPartitionExpr = new LinearExpression();
+      for (Instance instance : network.getInstances()) {
+        Variable decisionVariable = instanceDecisionVariables.get(instance).getDecisionVariable(p);
+        if (decisionVariable != null) actorInPartitionExpr.addTerm(1.0, decisionVariable);
+      }
+      Variable actorsInPartition =
+          model.addVariable(
               0.0,
-              GRB.INTEGER,
-              "write_connections");
-
-      model.addConstr(
-          numberOfReadConnections,
-          GRB.EQUAL,
-          plinkNumberOfReadConnections,
-          "constraint_number_of_reads");
-      model.addConstr(
-          numberOfWriteConnections,
-          GRB.EQUAL,
-          plinkNumberOfWriteConnections,
-          "constraint_number_of_writes");
-      GRBLinExpr numberOfConnectionsExpressions = new GRBLinExpr();
-
-      numberOfConnectionsExpressions.addTerm(1.0, numberOfReadConnections);
-      numberOfConnectionsExpressions.addTerm(1.0, numberOfWriteConnections);
+              network.getInstances().size() + 1,
+              VariableType.INTEGER,
+              "actors_in_" + p.toString());
+      model.addConstraint(
+          actorsInPartition,
+          Sense.EQUAL,
+          actorInPartitionExpr,
+          "constraint_actors_in_" + p.toString());
+
+      if (usedCoresLimit > 0 && p instanceof SoftwarePartition && p.toIndex() > 0) {
+        // -- the cores of the parametric model may be empty, the used binary tells which are not
+        Variable coreUsed = model.addVariable(0.0, 1.0, VariableType.BINARY, "used_" + p);
+        model.addConstraint(
+            actorsInPartition, Sense.GREATER_EQUAL, coreUsed, "constraint_used_" + p.toString());
+        LinearExpression capacity = new LinearExpression();
+        capacity.addTerm(network.getInstances().size(), coreUsed);
+        model.addConstraint(
+            actorsInPartition, Sense.LESS_EQUAL, capacity, "constraint_unused_" + p.toString());
+        coreUsedList.add(coreUsed);
+      } else {
+        model.addConstraint(
+            actorsInPartition, Sense.GREATER_EQUAL, 1.0, "constraint_used_" + p.toString());
+      }
+    }
+    if (usedCoresLimit > 0) {
+      // -- the used cores come first, and at most the limit of them, the first one holds the
+      // PLink and is always used
+      LinearExpression usedCoresExpression = LinearExpression.of(1.0);
+      for (int i = 0; i < coreUsedList.size(); i++) {
+        usedCoresExpression.addTerm(1.0, coreUsedList.get(i));
+        if (i > 0) {
+          model.addConstraint(
+              coreUsedList.get(i),
+              Sense.LESS_EQUAL,
+              coreUsedList.get(i - 1),
+              "constraint_used_order_" + i);
+        }
+      }
+      Variable usedCores =
+          model.addVariable(1.0, numberOfCores, VariableType.INTEGER, "cores_used");
+      model.addConstraint(usedCores, Sense.EQUAL, usedCoresExpression, "constraint_cores_used");
+      model.addConstraint(
+          usedCores, Sense.LESS_EQUAL, usedCoresLimit, "constraint_cores_used_limit");
+    }
 
-      model.addConstr(
-          numberOfConnectionsExpressions, GRB.LESS_EQUAL, 15., "constraint_number_of_connections");
+    {
+      LinearExpression actorsOnAccel = new LinearExpression();
+      for (Instance instance : network.getInstances()) {
+        Variable decisionVariable =
+            instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
+      }
+    }
+    // Plink read/kernel/write times
+    LinearExpression plinkReadTimeExpression =
+        getPLinkReadTimeExpression(
+            accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+
+    LinearExpression plinkNumberOfReadConnections =
+        getNumberOfReadConnectionsExpression(
+            accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+
+    LinearExpression plinkWriteTimeExpression =
+        getPlinkWriteTimeExpression(
+            accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+
+    LinearExpression plinkNumberOfWriteConnections =
+        getNumberOfWriteConnectionsExpression(
+            accelPartition, instanceDecisionVariables, instanceNotOnAccelDecisionVariables);
+
+    // -- constraint the number of connection to and form the hardware
+
+    Variable numberOfReadConnections =
+        model.addVariable(
+            0.0,
+            task.getNetwork().getConnections().size(),
+            VariableType.INTEGER,
+            "read_connections");
+    Variable numberOfWriteConnections =
+        model.addVariable(
+            0.0,
+            task.getNetwork().getConnections().size(),
+            VariableType.INTEGER,
+            "write_connections");
+
+    model.addConstraint(
+        numberOfReadConnections,
+        Sense.EQUAL,
+        plinkNumberOfReadConnections,
+        "constraint_number_of_reads");
+    model.addConstraint(
+        numberOfWriteConnections,
+        Sense.EQUAL,
+        plinkNumberOfWriteConnections,
+        "constraint_number_of_writes");
+    LinearExpression numberOfConnectionsExpressions = new LinearExpression();
+
+    numberOfConnectionsExpressions.addTerm(1.0, numberOfReadConnections);
+    numberOfConnectionsExpressions.addTerm(1.0, numberOfWriteConnections);
+
+    model.addConstraint(
+        numberOfConnectionsExpressions, Sense.LESS_EQUAL, 15., "constraint_number_of_connections");
+
+    Variable plinkKernelTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink_kernel");
+
+    ImmutableList<Variable> hardwareTimes =
+        getPLinkKernelTimeExpression(accelPartition, instanceDecisionVariables);
+    model.addMaxConstraint(
+        plinkKernelTime, hardwareTimes.toArray(new Variable[0]), 0.0, "constraint_t_plink_kernel");
+
+    LinearExpression plinkKernelTimeExpression = new LinearExpression();
+    plinkKernelTimeExpression.addTerm(1.0, plinkKernelTime);
+
+    Variable plinkReadTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink_read");
+    Variable plinkWriteTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink_write");
+
+    model.addConstraint(
+        plinkReadTime, Sense.EQUAL, plinkReadTimeExpression, "constraint_t_plink_read");
+    model.addConstraint(
+        plinkWriteTime, Sense.EQUAL, plinkWriteTimeExpression, "constraint_t_plink_write");
+
+    Variable plinkTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "t_plink");
+
+    LinearExpression plinkTimeExpression = new LinearExpression();
+    plinkTimeExpression.addTerm(1.0, plinkReadTime);
+    plinkTimeExpression.addTerm(1.0, plinkKernelTime);
+    plinkTimeExpression.addTerm(1.0, plinkWriteTime);
+
+    model.addConstraint(plinkTime, Sense.EQUAL, plinkTimeExpression, "constraint_plink_time");
+
+    // formulate the time spent in each partition
+
+    ImmutableList<SoftwarePartition> softwarePartitions =
+        partitions.stream()
+            .filter(p -> p instanceof SoftwarePartition)
+            .map(p -> (SoftwarePartition) p)
+            .collect(ImmutableList.collector());
 
-      GRBVar plinkKernelTime =
-          model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "t_plink_kernel");
+    List<Variable> partitionExecTimeList = new ArrayList<>();
+    for (SoftwarePartition partition : softwarePartitions) {
+      LinearExpression partitionTimeExpression =
+          getPartitionTimeExpression(
+              partition, instanceDecisionVariables, task.getNetwork().getInstances());
+
+      Variable partitionExecTime =
+          model.addVariable(
+              0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_exec_" + partition.toString());
+      //        if (partition.equals(plinkPartition)) {
+      //          partitionTimeExpression.addTerm(1, plinkTime);
+      //          Variable plinkCoreTime =
+      //              model.addVar(
+      //                  0.0,
+      //                  Double.MAX_VALUE,
+      //                  0.0,
+      //                  GRB.CONTINUOUS,
+      //                  "T_exec_" + partition.toString() + "_core");
+      //          model.addConstraint(
+      //              plinkCoreTime,
+      //              Sense.EQUAL,
+      //              partitionTimeExpression,
+      //              "constraint_T_exec_" + partition.toString() + "_core");
+      //          Variable[] args = {plinkCoreTime, plinkTime};
+      //          model.addMaxConstraint(
+      //              partitionExecTime, args, 0.0, "constraint_T_exec_" + partition.toString());
+
+      //        }
+      model.addConstraint(
+          partitionExecTime,
+          Sense.EQUAL,
+          partitionTimeExpression,
+          "constraint_T_exec_" + partition.toString());
+
+      partitionExecTimeList.add(partitionExecTime);
+    }
+    partitionExecTimeList.add(plinkTime);
+    Variable[] partitionExecTimeArray =
+        partitionExecTimeList.toArray(new Variable[softwarePartitions.size()]);
+    Variable executionTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_exec");
+    model.addMaxConstraint(executionTime, partitionExecTimeArray, 0.0, "constraint_T_exec");
+
+    // -- pin software and hardware actors
+    for (Instance instance : task.getNetwork().getInstances()) {
+      // -- the presolve already fixed the software only actors, they have nothing to pin
+      if (fixedToSoftware.containsKey(instance)) continue;
+      if (!this.accelDB.getExecutionProfileDataBase().contains(instance)) {
+        // -- instance should be software only
+        Variable v = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
+        model.addConstraint(
+            v, Sense.EQUAL, 0.0, "constraint_pinned_software_" + instance.getInstanceName());
+        info("Actor " + instance.getInstanceName() + " is pinned to software");
+      }
+      if (!this.multicoreDB.getExecutionProfileDataBase().contains(instance)) {
+        Variable v = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
+        model.addConstraint(
+            v, Sense.EQUAL, 1.0, "constraint_pinned_hardware_" + instance.getInstanceName());
+        info("Actor " + instance.getInstanceName() + " is pinned to hardware");
+      }
+      if (pinnedHardware != null) {
+        Variable v = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
+        boolean onHardware = pinnedHardware.contains(instance.getInstanceName());
+        model.addConstraint(
+            v,
+            Sense.EQUAL,
+            onHardware ? 1.0 : 0.0,
+            "constraint_fixed_"
+                + (onHardware ? "hardware_" : "software_")
+                + instance.getInstanceName());
+      }
+    }
 
-      ImmutableList<GRBVar> hardwareTimes =
-          getPLinkKernelTimeExpression(accelPartition, instanceDecisionVariables);
-      model.addGenConstrMax(
-          plinkKernelTime, hardwareTimes.toArray(new GRBVar[0]), 0.0, "constraint_t_plink_kernel");
+    // -- local communication
 
-      GRBLinExpr plinkKernelTimeExpression = new GRBLinExpr();
-      plinkKernelTimeExpression.addTerm(1.0, plinkKernelTime);
+    List<Variable> localCommunicationTimeList = new ArrayList<>();
+    for (SoftwarePartition partition : softwarePartitions) {
 
-      GRBVar plinkReadTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "t_plink_read");
-      GRBVar plinkWriteTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "t_plink_write");
+      LinearExpression localCommunicationTimeExpression =
+          getLocalCoreCommunicationExpression(
+              partition, instanceDecisionVariables, task.getNetwork().getConnections());
+      if (partition.equals(plinkPartition)) {
+        LinearExpression plinkLocalCommunicationExpression =
+            getPLinkLocalCommunicationCostExpression(
+                plinkPartition, accelPartition, instanceDecisionVariables);
+        localCommunicationTimeExpression.add(plinkLocalCommunicationExpression);
+      }
+      Variable localCommunicationTimeInPartition =
+          model.addVariable(
+              0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_lc_" + partition.toString());
 
-      model.addConstr(plinkReadTime, GRB.EQUAL, plinkReadTimeExpression, "constraint_t_plink_read");
-      model.addConstr(
-          plinkWriteTime, GRB.EQUAL, plinkWriteTimeExpression, "constraint_t_plink_write");
+      model.addConstraint(
+          localCommunicationTimeInPartition,
+          Sense.EQUAL,
+          localCommunicationTimeExpression,
+          "T_lc_" + partition.toString() + "_constraint");
 
-      GRBVar plinkTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "t_plink");
+      localCommunicationTimeList.add(localCommunicationTimeInPartition);
+    }
 
-      GRBLinExpr plinkTimeExpression = new GRBLinExpr();
-      plinkTimeExpression.addTerm(1.0, plinkReadTime);
-      plinkTimeExpression.addTerm(1.0, plinkKernelTime);
-      plinkTimeExpression.addTerm(1.0, plinkWriteTime);
+    Variable localCommunicationTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_lc");
+    Variable[] localCommunicationTimeInPartitionArray =
+        localCommunicationTimeList.toArray(new Variable[localCommunicationTimeList.size()]);
+    model.addMaxConstraint(
+        localCommunicationTime, localCommunicationTimeInPartitionArray, 0.0, "T_lc_constraint");
+
+    // -- global communications
+    LinearExpression globalCommunicationTimeExpression =
+        getCoreToCoreCommunicationTime(
+            softwarePartitions, instanceDecisionVariables, task.getNetwork().getConnections());
+    LinearExpression plinkGlobalCommunicationExpression =
+        getSoftwareToPLinkCommunicationCostExpression(
+            plinkPartition, accelPartition, softwarePartitions, instanceDecisionVariables);
+    globalCommunicationTimeExpression.add(plinkGlobalCommunicationExpression);
+    // -- bounded by the objective of the start below
+    Variable globalCommunicationTime =
+        model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_cc");
+    model.addConstraint(
+        globalCommunicationTime, Sense.EQUAL, globalCommunicationTimeExpression, "T_cc_constraint");
+
+    LinearExpression objectiveExpression = new LinearExpression();
+    objectiveExpression.addTerm(1.0, executionTime);
+    objectiveExpression.addTerm(1.0, localCommunicationTime);
+    objectiveExpression.addTerm(1.0, globalCommunicationTime);
+
+    Variable totalTime = model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T");
+    model.addConstraint(totalTime, Sense.EQUAL, objectiveExpression, "constraint_total_time");
+
+    Path modelFile = dumpDir.toPath().resolve("model.lp");
+    info("Writing model into " + modelFile);
+    settings.setModelFile(modelFile);
+
+    model.setObjective(objectiveExpression, ObjectiveSense.MINIMIZE);
+
+    reportPresolve();
+    // -- the upper bounds assume that every core is used, they do not hold for fewer cores
+    if (usedCoresLimit == 0) {
+      applyUpperBounds(new UpperBounds(costModel).compute(numberOfCores), numberOfCores);
+    }
+    if (start != null) boundByIncumbent(start.getTotalTime(), getObjectiveTermNames(numberOfCores));
+    // -- bound the objective from below and stop once the incumbent is close enough to the bound,
+    // the bound does not grow with the number of cores so the one of the limit holds for fewer
+    applyLowerBounds(
+        computeLowerBounds(costModel, usedCoresLimit > 0 ? usedCoresLimit : numberOfCores),
+        settings);
+
+    solve(settings, buildStartTime);
+    dumpWarmStartReport(dumpDir);
+    if (!secondaryObjectives.isEmpty()) solveSecondaryObjectives(settings, accelPartition);
+
+    ImmutableList<PartitioningSolution<Instance>> solutions =
+        collectSolution(partitions, instanceDecisionVariables);
+    // -- the parametric solutions are exact for their limit, refining them could use more cores
+    if (usedCoresLimit > 0) solutions = solutions.map(HeterogeneousModel::dropUnusedCores);
+    else if (refine) {
+      solutions =
+          refineSolutions(costModel, solutions, Instance::getInstanceName, numberOfCores, dumpDir);
+    }
 
-      model.addConstr(plinkTime, GRB.EQUAL, plinkTimeExpression, "constraint_plink_time");
+    info("Solved the heterogeneous model for " + numberOfCores + " cores");
 
-      // formulate the time spent in each partition
+    return saveSolutions(solutions, partitions, dumpDir);
+  }
 
-      ImmutableList<SoftwarePartition> softwarePartitions =
-          partitions.stream()
-              .filter(p -> p instanceof SoftwarePartition)
-              .map(p -> (SoftwarePartition) p)
-              .collect(ImmutableList.collector());
+  /**
+   * Optimizes the secondary objectives in order. The first one is optimized over the solutions whose
+   * T is within the tolerance of the best T, every later one also keeps the ones before it at their
+   * optimum. Every stage starts from the best solution of the previous one, and the solutions of the
+   * last stage that found any replace the solutions of the model. The stages share the time that
+   * the solve of T left of the time limit, so that the core count stays within its limit.
+   *
+   * <p>The model may be the one held by the session of a sweep or a Pareto front, so the
+   * constraints, the objective and the start of the stages are removed once they are done.
+   *
+   * @param settings the settings of the solve of T
+   * @param accelPartition the accelerator partition
+   */
+  private void solveSecondaryObjectives(SolverSettings settings, HardwarePartition accelPartition) {
+    if (solutionPool == null || solutionPool.isEmpty()) return;
+    int numConstraints = model.getNumConstraints();
+    LinearExpression objective = model.getObjective();
+    ObjectiveSense sense = model.getObjectiveSense();
+    double[] start = model.getVariables().stream().mapToDouble(Variable::getStart).toArray();
+    try {
+      solveSecondaryStages(settings, accelPartition);
+    } finally {
+      model.truncateConstraints(numConstraints);
+      model.setObjective(objective, sense);
+      model.getVariables().forEach(v -> v.setStart(start[v.getIndex()]));
+    }
+  }
 
-      List<GRBVar> partitionExecTimeList = new ArrayList<>();
-      for (SoftwarePartition partition : softwarePartitions) {
-        GRBLinExpr partitionTimeExpression =
-            getPartitionTimeExpression(
-                partition, instanceDecisionVariables, task.getNetwork().getInstances());
-
-        GRBVar partitionExecTime =
-            model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_exec_" + partition.toString());
-//        if (partition.equals(plinkPartition)) {
-//          partitionTimeExpression.addTerm(1, plinkTime);
-//          GRBVar plinkCoreTime =
-//              model.addVar(
-//                  0.0,
-//                  GRB.INFINITY,
-//                  0.0,
-//                  GRB.CONTINUOUS,
-//                  "T_exec_" + partition.toString() + "_core");
-//          model.addConstr(
-//              plinkCoreTime,
-//              GRB.EQUAL,
-//              partitionTimeExpression,
-//              "constraint_T_exec_" + partition.toString() + "_core");
-//          GRBVar[] args = {plinkCoreTime, plinkTime};
-//          model.addGenConstrMax(
-//              partitionExecTime, args, 0.0, "constraint_T_exec_" + partition.toString());
-
-//        }
-        model.addConstr(
-            partitionExecTime,
-            GRB.EQUAL,
-            partitionTimeExpression,
-            "constraint_T_exec_" + partition.toString());
-
-
-        partitionExecTimeList.add(partitionExecTime);
+  /** Optimizes every secondary objective over the model of T, with the constraints of a stage. */
+  private void solveSecondaryStages(SolverSettings settings, HardwarePartition accelPartition) {
+    Variable totalTime = model.getVariable("T");
+    double bestTime = solutionPool.get(0).getValue(totalTime);
+    model.addConstraint(
+        totalTime,
+        Sense.LESS_EQUAL,
+        bestTime * (1.0 + objectiveTolerance),
+        "constraint_lexicographic_T");
+    // -- the stop and the bound of T mean nothing to the other objectives
+    settings.setObjectiveStop(Double.NaN);
+    settings.setModelFile(null);
+    double remaining = settings.getTimeLimit() - solutionPool.getRuntime();
+
+    for (int stage = 0; stage < secondaryObjectives.size(); stage++) {
+      SecondaryObjective objective = secondaryObjectives.get(stage);
+      if (remaining <= 0.0) {
+        info("No time left to minimize " + objective.getName());
+        return;
       }
-      partitionExecTimeList.add(plinkTime);
-      GRBVar[] partitionExecTimeArray =
-          partitionExecTimeList.toArray(new GRBVar[softwarePartitions.size()]);
-      GRBVar executionTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_exec");
-      model.addGenConstrMax(executionTime, partitionExecTimeArray, 0.0, "constraint_T_exec");
-
-      // -- pin software and hardware actors
-      for (Instance instance : task.getNetwork().getInstances()) {
-        if (!this.accelDB.getExecutionProfileDataBase().contains(instance)) {
-          // -- instance should be software only
-          GRBVar v = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
-          model.addConstr(
-              v, GRB.EQUAL, 0.0, "constraint_pinned_software_" + instance.getInstanceName());
-          info("Actor " + instance.getInstanceName() + " is pinned to software");
-        }
-        if (!this.multicoreDB.getExecutionProfileDataBase().contains(instance)) {
-          GRBVar v = instanceDecisionVariables.get(instance).getDecisionVariable(accelPartition);
-          model.addConstr(
-              v, GRB.EQUAL, 1.0, "constraint_pinned_hardware_" + instance.getInstanceName());
-          info("Actor " + instance.getInstanceName() + " is pinned to hardware");
-        }
+      settings.setTimeLimit(remaining / (secondaryObjectives.size() - stage));
+      LinearExpression expression = new LinearExpression();
+      if (objective == SecondaryObjective.CONNECTIONS) {
+        expression.addTerm(1.0, model.getVariable("read_connections"));
+        expression.addTerm(1.0, model.getVariable("write_connections"));
+      } else {
+        expression.addTerm(1.0, model.getVariable("actors_in_" + accelPartition.toString()));
       }
+      Solution incumbent = solutionPool.get(0);
+      model.getVariables().forEach(v -> v.setStart(incumbent.getValue(v)));
+      model.setObjective(expression, ObjectiveSense.MINIMIZE);
+
+      SolutionPool pool = backend.solve(model, settings);
+      remaining -= pool.getRuntime();
+      info(
+          String.format(
+              "Minimized %s with T <= %6.6f in %.3f s: %s, best %s",
+              objective.getName(),
+              bestTime * (1.0 + objectiveTolerance),
+              pool.getRuntime(),
+              pool.getStatus(),
+              pool.getBestObjective()));
+      if (pool.isEmpty()) return;
+      this.solutionPool = pool;
+      model.addConstraint(
+          expression,
+          Sense.LESS_EQUAL,
+          pool.getBestObjective(),
+          "constraint_lexicographic_" + objective.getName());
+    }
+  }
 
-      // -- local communication
-
-      List<GRBVar> localCommunicationTimeList = new ArrayList<>();
-      for (SoftwarePartition partition : softwarePartitions) {
-
-        GRBLinExpr localCommunicationTimeExpression =
-            getLocalCoreCommunicationExpression(
-                partition, instanceDecisionVariables, task.getNetwork().getConnections());
-        if (partition.equals(plinkPartition)) {
-          GRBLinExpr plinkLocalCommunicationExpression =
-              getPLinkLocalCommunicationCostExpression(
-                  plinkPartition, accelPartition, instanceDecisionVariables);
-          localCommunicationTimeExpression.add(plinkLocalCommunicationExpression);
-        }
-        GRBVar localCommunicationTimeInPartition =
-            model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_lc_" + partition.toString());
-
-        model.addConstr(
-            localCommunicationTimeInPartition,
-            GRB.EQUAL,
-            localCommunicationTimeExpression,
-            "T_lc_" + partition.toString() + "_constraint");
+  /**
+   * Writes the multicore configurations, with the PLink on the first core, the xcf
+   * configurations, the solution summary and the timing report of the solutions.
+   *
+   * @param solutions the solutions with the hardware partition
+   * @param partitions the partitions of the solutions, the accelerator included
+   * @param dumpDir the output directory of the core count
+   * @return the solutions with instance names
+   */
+  protected ImmutableList<PartitioningSolution<String>> saveSolutions(
+      ImmutableList<PartitioningSolution<Instance>> solutions,
+      ImmutableList<TypedPartition> partitions,
+      File dumpDir) {
+
+    saveConfigurations(solutions, dumpDir);
+
+    solutionsSummary(dumpDir);
+
+    dumpTimingReport(dumpDir, partitions);
+
+    ImmutableList<PartitioningSolution<String>> rawPartitions =
+        solutions.stream()
+            .map(
+                sol -> {
+                  ImmutableList<Partition<String>> namedPartitions =
+                      sol.getPartitions().stream()
+                          .map(
+                              p ->
+                                  new Partition<String>(
+                                      p.getInstances().map(Instance::getInstanceName),
+                                      p.getPartitionType()))
+                          .collect(ImmutableList.collector());
+                  return new PartitioningSolution<String>(namedPartitions);
+                })
+            .collect(ImmutableList.collector());
 
-        localCommunicationTimeList.add(localCommunicationTimeInPartition);
-      }
+    return rawPartitions;
+  }
 
-      GRBVar localCommunicationTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_lc");
-      GRBVar[] localCommunicationTimeInPartitionArray =
-          localCommunicationTimeList.toArray(new GRBVar[localCommunicationTimeList.size()]);
-      model.addGenConstrMax(
-          localCommunicationTime, localCommunicationTimeInPartitionArray, 0.0, "T_lc_constraint");
-
-      // -- global communications
-      GRBLinExpr globalCommunicationTimeExpression =
-          getCoreToCoreCommunicationTime(
-              softwarePartitions, instanceDecisionVariables, task.getNetwork().getConnections());
-      GRBLinExpr plinkGlobalCommunicationExpression =
-          getSoftwareToPLinkCommunicationCostExpression(
-              plinkPartition, accelPartition, softwarePartitions, instanceDecisionVariables);
-      globalCommunicationTimeExpression.add(plinkGlobalCommunicationExpression);
-      // -- compute and upper bound for the global communication time
-      // TODO: Maybe make the bound tighter?
-      GRBVar globalCommunicationTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_cc");
-      model.addConstr(
-          globalCommunicationTime, GRB.EQUAL, globalCommunicationTimeExpression, "T_cc_constraint");
-
-      GRBLinExpr objectiveExpression = new GRBLinExpr();
-      objectiveExpression.addTerm(1.0, executionTime);
-      objectiveExpression.addTerm(1.0, localCommunicationTime);
-      objectiveExpression.addTerm(1.0, globalCommunicationTime);
-
-      GRBVar totalTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T");
-      model.addConstr(totalTime, GRB.EQUAL, objectiveExpression, "constraint_total_time");
-
-      File dumpDir = logPath.resolve(String.valueOf(numberOfCores)).toFile();
-      if (!dumpDir.exists()) {
-        dumpDir.mkdirs();
-      }
+  /**
+   * Writes the multicore configurations, with the PLink on the first core, and the xcf
+   * configurations of the solutions.
+   *
+   * @param solutions the solutions with the hardware partition
+   * @param dumpDir the output directory of the core count
+   */
+  protected void saveConfigurations(
+      ImmutableList<PartitioningSolution<Instance>> solutions, File dumpDir) {
+
+    ImmutableList<PartitioningSolution<String>> rawSoftwareSolutions =
+        solutions.stream()
+            .map(
+                sol -> {
+                  ImmutableList<Partition<String>> swPartitions =
+                      sol.getPartitions().stream()
+                          .filter(p -> p.getPartitionType() instanceof SoftwarePartition)
+                          .map(
+                              p -> {
+                                if (p.getPartitionType().toIndex() == 0)
+                                  return new Partition<String>(
+                                      ImmutableList.concat(
+                                          p.getInstances().map(Instance::getInstanceName),
+                                          ImmutableList.of("system_plink_0")),
+                                      p.getPartitionType());
+                                else
+                                  return new Partition<String>(
+                                      p.getInstances().map(Instance::getInstanceName),
+                                      p.getPartitionType());
+                              })
+                          .collect(ImmutableList.collector());
+                  return new PartitioningSolution<String>(swPartitions);
+                })
+            .collect(ImmutableList.collector());
 
-      Path modelFile = dumpDir.toPath().resolve("model.lp");
-      info("Writing model into " + modelFile);
-
-      model.write(modelFile.toAbsolutePath().toString());
-
-      model.setObjective(objectiveExpression, GRB.MINIMIZE);
-
-      model.presolve();
-      model.optimize();
-      ;
-
-      ImmutableList<PartitioningSolution<Instance>> solutions =
-          collectSolution(model, partitions, instanceDecisionVariables);
-
-      info("Solved the heterogeneous model for " + numberOfCores + " cores");
-
-      ImmutableList<PartitioningSolution<String>> rawSoftwareSolutions =
-          solutions.stream()
-              .map(
-                  sol -> {
-                    ImmutableList<Partition<String>> swPartitions =
-                        sol.getPartitions().stream()
-                            .filter(p -> p.getPartitionType() instanceof SoftwarePartition)
-                            .map(
-                                p -> {
-                                  if (p.getPartitionType().toIndex() == 0)
-                                    return new Partition<String>(
-                                        ImmutableList.concat(
-                                            p.getInstances().map(Instance::getInstanceName),
-                                            ImmutableList.of("system_plink_0")),
-                                        p.getPartitionType());
-                                  else
-                                    return new Partition<String>(
-                                        p.getInstances().map(Instance::getInstanceName),
-                                        p.getPartitionType());
-                                })
-                            .collect(ImmutableList.collector());
-                    return new PartitioningSolution<String>(swPartitions);
-                  })
-              .collect(ImmutableList.collector());
+    info("Saving multicore configs into " + dumpDir);
+    File multicoreDumpDir = new File(dumpDir + "/multicore");
+    multicoreDumpDir.mkdirs();
+    for (PartitioningSolution<String> sol : rawSoftwareSolutions) {
+      dumpMulticoreConfig(
+          multicoreDumpDir + "/config_" + rawSoftwareSolutions.indexOf(sol) + ".xml",
+          sol,
+          multicoreDB);
+    }
+    info("Saving xcf configurations into " + dumpDir);
+    File xcfDumpDir = new File(dumpDir + "/xcf");
+    xcfDumpDir.mkdirs();
+    Map<Connection, Integer> bufferDepth =
+        task.getNetwork().getConnections().stream()
+            .collect(
+                Collectors.toMap(
+                    Function.identity(),
+                    c -> this.multicoreDB.getConnectionSettingsDataBase().get(c).getDepth()));
+    HeterogeneousCostModel costModel =
+        new HeterogeneousCostModel(
+            HeterogeneousProblem.fromNetwork(
+                task.getNetwork(), multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod));
+    for (PartitioningSolution<Instance> sol : solutions) {
+      dumpXcfConfig(
+          xcfDumpDir + "/configuration_" + solutions.indexOf(sol) + ".xcf",
+          sol,
+          bufferDepth,
+          task,
+          getObjectiveVector(costModel, sol));
+    }
+  }
 
-      info("Saving multicore configs into " + dumpDir);
-      File multicoreDumpDir = new File(dumpDir + "/multicore");
-      multicoreDumpDir.mkdirs();
-      for (PartitioningSolution<String> sol : rawSoftwareSolutions) {
-        dumpMulticoreConfig(
-            multicoreDumpDir + "/config_" + rawSoftwareSolutions.indexOf(sol) + ".xml",
-            sol,
-            multicoreDB);
-      }
-      info("Saving xcf configurations into " + dumpDir);
-      File xcfDumpDir = new File(dumpDir + "/xcf");
-      xcfDumpDir.mkdirs();
-      Map<Connection, Integer> bufferDepth =
-          task.getNetwork().getConnections().stream()
-              .collect(
-                  Collectors.toMap(
-                      Function.identity(),
-                      c -> this.multicoreDB.getConnectionSettingsDataBase().get(c).getDepth()));
-      for (PartitioningSolution<Instance> sol : solutions) {
-        dumpXcfConfig(
-            xcfDumpDir + "/configuration_" + solutions.indexOf(sol) + ".xcf",
-            sol,
-            bufferDepth,
-            task);
+  /**
+   * @param costModel the cost model of the network
+   * @param solution a solution with the hardware partition
+   * @return T and the secondary objectives of the solution, empty if it is not a complete partition
+   */
+  private Map<String, Number> getObjectiveVector(
+      HeterogeneousCostModel costModel, PartitioningSolution<Instance> solution) {
+    HeterogeneousProblem problem = costModel.getProblem();
+    Map<String, Integer> actorIndex = new HashMap<>();
+    for (int actor = 0; actor < problem.getNumActors(); actor++) {
+      actorIndex.put(problem.getActorName(actor), actor);
+    }
+    int numberOfCores =
+        (int)
+            solution.getPartitions().stream()
+                .filter(p -> p.getPartitionType() instanceof SoftwarePartition)
+                .count();
+    int[] partition = new int[problem.getNumActors()];
+    Arrays.fill(partition, -1);
+    int hardwareActors = 0;
+    for (Partition<Instance> p : solution.getPartitions()) {
+      boolean hardware = p.getPartitionType() instanceof HardwarePartition;
+      for (Instance instance : p.getInstances()) {
+        Integer actor = actorIndex.get(instance.getInstanceName());
+        if (actor == null) continue;
+        partition[actor] = hardware ? numberOfCores : p.getPartitionType().toIndex();
+        if (hardware) hardwareActors++;
       }
+    }
+    if (!costModel.isFeasible(partition, numberOfCores)) return Collections.emptyMap();
+    Assignment assignment = costModel.evaluate(partition, numberOfCores);
+    Map<String, Number> objectives = new LinkedHashMap<>();
+    objectives.put("T", assignment.getTotalTime());
+    objectives.put(
+        SecondaryObjective.CONNECTIONS.getName(),
+        assignment.getReadConnections() + assignment.getWriteConnections());
+    objectives.put(SecondaryObjective.HARDWARE_ACTORS.getName(), hardwareActors);
+    return objectives;
+  }
 
-      solutionsSummary(dumpDir);
-
-      dumpTimingReport(dumpDir, partitions);
-
-      ImmutableList<PartitioningSolution<String>> rawPartitions =
-          solutions.stream()
-              .map(
-                  sol -> {
-                    ImmutableList<Partition<String>> namedPartitions =
-                        sol.getPartitions().stream()
-                            .map(
-                                p ->
-                                    new Partition<String>(
-                                        p.getInstances().map(Instance::getInstanceName),
-                                        p.getPartitionType()))
-                            .collect(ImmutableList.collector());
-                    return new PartitioningSolution<String>(namedPartitions);
-                  })
-              .collect(ImmutableList.collector());
-
-      return rawPartitions;
+  @Override
+  public void restoreSolutions(
+      int numberOfCores, ImmutableList<PartitioningSolution<String>> solutions) {
+    File dumpDir = getOutputPath("heterogeneous", numberOfCores).toFile();
+    dumpDir.mkdirs();
+    Map<String, Instance> instances =
+        task.getNetwork().getInstances().stream()
+            .collect(Collectors.toMap(Instance::getInstanceName, Function.identity()));
+    ImmutableList<PartitioningSolution<Instance>> instanceSolutions =
+        solutions.map(
+            sol ->
+                new PartitioningSolution<>(
+                    sol.getPartitions()
+                        .map(
+                            p ->
+                                new Partition<>(
+                                    p.getInstances().map(instances::get), p.getPartitionType()))));
+    saveConfigurations(instanceSolutions, dumpDir);
+  }
 
-    } catch (GRBException e) {
-      throw new CompilationException(
-          new Diagnostic(
-              Diagnostic.Kind.ERROR,
-              String.format(
-                  "GRB exception caught with error %s. %s", e.getErrorCode(), e.getMessage())));
+  @Override
+  protected void applyUpperBounds(UpperBounds.Result bounds, int numberOfCores) {
+    super.applyUpperBounds(bounds, numberOfCores);
+    boundAbove("t_plink", bounds.getPlink());
+    boundAbove("t_plink_read", bounds.getPlinkRead());
+    boundAbove("t_plink_kernel", bounds.getPlinkKernel());
+    boundAbove("t_plink_write", bounds.getPlinkWrite());
+    boundAbove("read_connections", bounds.getReadConnections());
+    boundAbove("write_connections", bounds.getWriteConnections());
+    for (TypedPartition partition : makeHeterogeneousPartitionSet(numberOfCores)) {
+      boundAbove(
+          "actors_in_" + partition.toString(),
+          partition instanceof SoftwarePartition
+              ? bounds.getActorsOnCore()
+              : bounds.getActorsOnAccelerator());
     }
   }
 
-  protected ImmutableList<GRBVar> getPLinkKernelTimeExpression(
+  protected ImmutableList<Variable> getPLinkKernelTimeExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariableMap) {
 
-    GRBLinExpr expr = new GRBLinExpr();
-    try {
-      int numActors = task.getNetwork().getInstances().size();
-      GRBVar[] variables =
-          task.getNetwork().getInstances().map(instanceDecisionVariableMap::get).stream()
-              .map(vars -> vars.getDecisionVariable(accelPartition))
-              .collect(Collectors.toList())
-              .toArray(new GRBVar[numActors]);
-
-      double upperBound =
-          task.getNetwork().getInstances().stream()
-                  .map(i -> this.accelDB.getInstanceTicks(i).doubleValue())
-                  .reduce(Double::sum)
-                  .orElseThrow(
-                      () ->
-                          new CompilationException(
-                              new Diagnostic(
-                                  Diagnostic.Kind.ERROR,
-                                  "Could not compute " + "t_plink upper bound")))
-              * this.accelClockPeriod;
-
-      ImmutableList.Builder<GRBVar> builder = ImmutableList.builder();
-      for (int ix = 0; ix < numActors; ix++) {
-        Instance inst = task.getNetwork().getInstances().get(ix);
-        String varName = "t_hw_" + inst.getInstanceName();
-        GRBVar identityVar = model.addVar(0.0, upperBound, 0.0, GRB.CONTINUOUS, varName);
-        GRBLinExpr tmp = new GRBLinExpr();
-        double execTime = this.accelClockPeriod * this.accelDB.getInstanceTicks(inst);
-        tmp.addTerm(execTime, variables[ix]);
-
-        model.addConstr(identityVar, GRB.EQUAL, tmp, "constraint_" + varName);
-
-        builder.add(identityVar);
+    LinearExpression expr = new LinearExpression();
+    int numActors = task.getNetwork().getInstances().size();
+    Variable[] variables =
+        task.getNetwork().getInstances().map(instanceDecisionVariableMap::get).stream()
+            .map(vars -> vars.getDecisionVariable(accelPartition))
+            .collect(Collectors.toList())
+            .toArray(new Variable[numActors]);
+
+    double upperBound =
+        task.getNetwork().getInstances().stream()
+                .map(i -> this.accelDB.getInstanceTicks(i).doubleValue())
+                .reduce(Double::sum)
+                .orElseThrow(
+                    () ->
+                        new CompilationException(
+                            new Diagnostic(
+                                Diagnostic.Kind.ERROR,
+                                "Could not compute " + "t_plink upper bound")))
+            * this.accelClockPeriod;
+
+    ImmutableList.Builder<Variable> builder = ImmutableList.builder();
+    for (int ix = 0; ix < numActors; ix++) {
+      Instance inst = task.getNetwork().getInstances().get(ix);
+      String varName = "t_hw_" + inst.getInstanceName();
+      if (variables[ix] == null) {
+        presolved(fixedToSoftware.get(inst), varName);
+        continue;
       }
+      double execTime = this.accelClockPeriod * this.accelDB.getInstanceTicks(inst);
+      // -- an actor on the accelerator takes exactly its own time
+      Variable identityVar =
+          model.addVariable(0.0, Math.min(upperBound, execTime), VariableType.CONTINUOUS, varName);
+      LinearExpression tmp = new LinearExpression();
+      tmp.addTerm(execTime, variables[ix]);
 
-      return builder.build();
+      model.addConstraint(identityVar, Sense.EQUAL, tmp, "constraint_" + varName);
 
-    } catch (GRBException e) {
-      fatalError("could build plink kernel time expression");
+      builder.add(identityVar);
     }
-    return ImmutableList.empty();
+
+    return builder.build();
   }
 
   public static class ExpressionTuple {
-    public final GRBLinExpr first;
-    public final GRBLinExpr second;
+    public final LinearExpression first;
+    public final LinearExpression second;
 
-    private ExpressionTuple(GRBLinExpr first, GRBLinExpr second) {
+    private ExpressionTuple(LinearExpression first, LinearExpression second) {
       this.first = first;
       this.second = second;
     }
 
-    public static ExpressionTuple of(GRBLinExpr first, GRBLinExpr second) {
+    public static ExpressionTuple of(LinearExpression first, LinearExpression second) {
       return new ExpressionTuple(first, second);
     }
   }
@@ -540,12 +1032,11 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceNotOnAccelVariables
    * @return
    */
-  protected GRBLinExpr getPLinkReadTimeExpression(
+  protected LinearExpression getPLinkReadTimeExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariableMap,
-      Map<Instance, GRBVar> instanceNotOnAccelVariables) {
-    GRBLinExpr expr = new GRBLinExpr();
-
+      Map<Instance, Variable> instanceNotOnAccelVariables) {
+    LinearExpression expr = new LinearExpression();
 
     for (Connection connection : task.getNetwork().getConnections()) {
 
@@ -557,12 +1048,15 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
               + accelPartition.toString()
               + "_not_"
               + accelPartition.toString();
-      GRBVar hardwareSoftwareConnectionVariable = makeConjunction(
-              instanceDecisionVariableMap.get(sourceInstance).getDecisionVariable(accelPartition),
-              instanceNotOnAccelVariables.get(targetInstance),
-              hardwareSoftwareConnectionVariableName
-      );
-
+      Variable hardwareSoftwareConnectionVariable =
+          makeBoundaryConjunction(
+              sourceInstance,
+              targetInstance,
+              accelPartition,
+              instanceDecisionVariableMap,
+              instanceNotOnAccelVariables,
+              hardwareSoftwareConnectionVariableName);
+      if (hardwareSoftwareConnectionVariable == null) continue;
 
       Long bufferSizeBytes = Long.valueOf((this.multicoreDB.getConnectionBytes(connection)));
       Long byteExchanged = this.multicoreDB.getBytesExchanged(connection);
@@ -582,12 +1076,12 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceNotOnAccelVariables
    * @return
    */
-  protected GRBLinExpr getPlinkWriteTimeExpression(
+  protected LinearExpression getPlinkWriteTimeExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariableMap,
-      Map<Instance, GRBVar> instanceNotOnAccelVariables) {
-    GRBLinExpr expr = new GRBLinExpr();
-    GRBLinExpr connectionCount = new GRBLinExpr();
+      Map<Instance, Variable> instanceNotOnAccelVariables) {
+    LinearExpression expr = new LinearExpression();
+    LinearExpression connectionCount = new LinearExpression();
     for (Connection connection : task.getNetwork().getConnections()) {
       Instance sourceInstance = findInstance(connection.getSource());
       Instance targetInstance = findInstance(connection.getTarget());
@@ -598,11 +1092,15 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
               + "_"
               + accelPartition.toString();
 
-      GRBVar hardwareSoftwareConnectionVariable = makeConjunction(
-              instanceNotOnAccelVariables.get(sourceInstance),
-              instanceDecisionVariableMap.get(targetInstance).getDecisionVariable(accelPartition),
-              hardwareSoftwareConnectionVariableName
-      );
+      Variable hardwareSoftwareConnectionVariable =
+          makeBoundaryConjunction(
+              targetInstance,
+              sourceInstance,
+              accelPartition,
+              instanceDecisionVariableMap,
+              instanceNotOnAccelVariables,
+              hardwareSoftwareConnectionVariableName);
+      if (hardwareSoftwareConnectionVariable == null) continue;
       Long bufferSizeBytes = Long.valueOf(this.multicoreDB.getConnectionBytes(connection));
 
       Long bytesExchanged = this.multicoreDB.getBytesExchanged(connection);
@@ -621,33 +1119,33 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceDecisionVariableMap
    * @return
    */
-  protected Map<Instance, GRBVar> makeInstanceNotOnAccelMap(
+  protected Map<Instance, Variable> makeInstanceNotOnAccelMap(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariableMap) {
 
-    Map<Instance, GRBVar> mapping = new HashMap<>();
-
-    try {
-      for (Instance instance : task.getNetwork().getInstances()) {
+    Map<Instance, Variable> mapping = new HashMap<>();
 
-        GRBVar instanceOnAccelDecisionVariable =
-            instanceDecisionVariableMap.get(instance).getDecisionVariable(accelPartition);
-        String varName = "d_not_" + instance.getInstanceName() + "_accel";
-        GRBVar instanceNotOnAccelDecisionVariable =
-            model.addVar(0.0, 1.0, 0.0, GRB.BINARY, varName);
+    for (Instance instance : task.getNetwork().getInstances()) {
 
-        GRBLinExpr expr = new GRBLinExpr();
-        expr.addConstant(1.0);
-        expr.addTerm(-1.0, instanceOnAccelDecisionVariable);
+      Variable instanceOnAccelDecisionVariable =
+          instanceDecisionVariableMap.get(instance).getDecisionVariable(accelPartition);
+      String varName = "d_not_" + instance.getInstanceName() + "_accel";
+      // -- an actor fixed to software is never on the accelerator, it has no variable to negate
+      if (instanceOnAccelDecisionVariable == null) {
+        presolved(fixedToSoftware.get(instance), varName);
+        continue;
+      }
+      Variable instanceNotOnAccelDecisionVariable =
+          model.addVariable(0.0, 1.0, VariableType.BINARY, varName);
 
-        model.addConstr(
-            instanceNotOnAccelDecisionVariable, GRB.EQUAL, expr, "constraint_" + varName);
+      LinearExpression expr = new LinearExpression();
+      expr.addConstant(1.0);
+      expr.addTerm(-1.0, instanceOnAccelDecisionVariable);
 
-        mapping.put(instance, instanceNotOnAccelDecisionVariable);
-      }
-    } catch (GRBException e) {
+      model.addConstraint(
+          instanceNotOnAccelDecisionVariable, Sense.EQUAL, expr, "constraint_" + varName);
 
-      fatalError("Could not build instances not on accel mappings: " + e.getMessage());
+      mapping.put(instance, instanceNotOnAccelDecisionVariable);
     }
 
     return mapping;
@@ -661,10 +1159,10 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceNotOnAccelMap
    * @return
    */
-  protected GRBLinExpr getNumberOfWriteConnectionsExpression(
+  protected LinearExpression getNumberOfWriteConnectionsExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
-      Map<Instance, GRBVar> instanceNotOnAccelMap) {
+      Map<Instance, Variable> instanceNotOnAccelMap) {
 
     return getNumberOfPCIeConnectionsExpression(
         accelPartition, instanceDecisionVariablesMap, instanceNotOnAccelMap, false);
@@ -678,21 +1176,21 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceNotOnAccelMap
    * @return
    */
-  protected GRBLinExpr getNumberOfReadConnectionsExpression(
+  protected LinearExpression getNumberOfReadConnectionsExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
-      Map<Instance, GRBVar> instanceNotOnAccelMap) {
+      Map<Instance, Variable> instanceNotOnAccelMap) {
     return getNumberOfPCIeConnectionsExpression(
         accelPartition, instanceDecisionVariablesMap, instanceNotOnAccelMap, true);
   }
 
-  private GRBLinExpr getNumberOfPCIeConnectionsExpression(
+  private LinearExpression getNumberOfPCIeConnectionsExpression(
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
-      Map<Instance, GRBVar> instanceNotOnAccelMap,
+      Map<Instance, Variable> instanceNotOnAccelMap,
       boolean is_read) {
 
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
 
     for (Instance sourceInstance : task.getNetwork().getInstances()) {
 
@@ -726,86 +1224,221 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
       // ...
       // where targetInstance_j is a consumer for outputport_i
 
-      GRBVar sourceDecisionVariable =
-          is_read
-              ? instanceDecisionVariablesMap.get(sourceInstance).getDecisionVariable(accelPartition)
-              : instanceNotOnAccelMap.get(sourceInstance);
-
       for (String output : outputPorts) {
 
-        List<GRBVar> conjunctions =
+        List<Connection> portConnections =
             outputConnections.stream()
                 .filter(c -> c.getSource().getPort().equals(output))
+                .collect(Collectors.toList());
+        List<Variable> conjunctions =
+            portConnections.stream()
                 .map(
                     c -> {
                       Instance targetInstance = findInstance(c.getTarget());
-                      GRBVar targetDecisionVariable =
-                          is_read
-                              ? instanceNotOnAccelMap.get(targetInstance)
-                              : instanceDecisionVariablesMap
-                                  .get(targetInstance)
-                                  .getDecisionVariable(accelPartition);
                       String conjunctionName =
                           (is_read ? "d_read_connection_" : "d_write_connection_")
                               + getConnectionName(c)
                               + (is_read ? "_accel_not_accel" : "_not_accel_accel");
-                      return makeConjunction(
-                          sourceDecisionVariable, targetDecisionVariable, conjunctionName);
+                      return makeBoundaryConjunction(
+                          is_read ? sourceInstance : targetInstance,
+                          is_read ? targetInstance : sourceInstance,
+                          accelPartition,
+                          instanceDecisionVariablesMap,
+                          instanceNotOnAccelMap,
+                          conjunctionName);
                     })
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
         String disjunctionName =
             (is_read ? "d_read_connection_" : "d_write_connection_")
                 + sourceInstance.getInstanceName()
                 + "_"
                 + output;
-        try {
-
-          GRBVar disjunction = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, disjunctionName);
-          if (conjunctions.size() >= 2) {
-
-            GRBVar[] args = conjunctions.toArray(new GRBVar[0]);
-            model.addGenConstrOr(disjunction, args, "disjunction_constraint_" + disjunctionName);
-
-          } else {
-            model.addConstr(
+        // -- the port never crosses the boundary if its actors on the accelerator side are all
+        // fixed to software
+        if (conjunctions.isEmpty()) {
+          presolved(
+              fixedToSoftware.get(
+                  is_read ? sourceInstance : findInstance(portConnections.get(0).getTarget())),
+              disjunctionName);
+          continue;
+        }
+        Variable disjunction = model.addVariable(0.0, 1.0, VariableType.BINARY, disjunctionName);
+        if (conjunctions.size() >= 2) {
+          // -- linearized like the conjunctions, the disjunction is at least every argument and
+          // at most their sum
+          LinearExpression sum = new LinearExpression();
+          for (int i = 0; i < conjunctions.size(); i++) {
+            model.addConstraint(
                 disjunction,
-                GRB.EQUAL,
-                conjunctions.get(0),
-                "disjunction_constraint_" + disjunctionName);
+                Sense.GREATER_EQUAL,
+                conjunctions.get(i),
+                "disjunction_constraint_" + disjunctionName + "_" + i);
+            sum.addTerm(1.0, conjunctions.get(i));
           }
-
-          // total number of write connections (excluding fanouts) is then the some of all the
-          // fanout-excluded
-          // write connections
-          expr.addTerm(1.0, disjunction);
-        } catch (GRBException e) {
-          fatalError(
-              "Could not build the disjunction for "
-                  + (is_read ? "read" : "write")
-                  + " connection "
-                  + sourceInstance.getInstanceName()
-                  + "_"
-                  + output
-                  + ":"
-                  + e.getMessage());
+          model.addConstraint(
+              disjunction, Sense.LESS_EQUAL, sum, "disjunction_constraint_" + disjunctionName);
+
+        } else {
+          model.addConstraint(
+              disjunction,
+              Sense.EQUAL,
+              conjunctions.get(0),
+              "disjunction_constraint_" + disjunctionName);
         }
+
+        // total number of write connections (excluding fanouts) is then the some of all the
+        // fanout-excluded
+        // write connections
+        expr.addTerm(1.0, disjunction);
       }
     }
     return expr;
   }
 
-  protected GRBVar makeConjunction(GRBVar v1, GRBVar v2, String name) {
+  /**
+   * Returns a variable equal to the conjunction of two binary variables. The conjunction is
+   * linearized with the McCormick inequalities
+   *
+   * <pre>
+   *   z <= v1, z <= v2, z >= v1 + v2 - 1
+   * </pre>
+   *
+   * which are exact for binary arguments, so z needs no integrality of its own. The conjunction of
+   * a pair is built once per model and shared by every cost term that needs it, the name is the
+   * one of its first use.
+   *
+   * @param v1 a binary variable
+   * @param v2 another binary variable
+   * @param name the name of the conjunction if it is new
+   * @return the conjunction of v1 and v2
+   */
+  protected Variable makeConjunction(Variable v1, Variable v2, String name) {
+    long key =
+        ((long) Math.min(v1.getIndex(), v2.getIndex()) << 32)
+            | Math.max(v1.getIndex(), v2.getIndex());
+    Variable conjunction = conjunctionCache.get(key);
+    if (conjunction != null) return conjunction;
+
+    conjunction = model.addVariable(0.0, 1.0, VariableType.CONTINUOUS, name);
+    model.addConstraint(conjunction, Sense.LESS_EQUAL, v1, "constraint_and_" + name + "_first");
+    model.addConstraint(conjunction, Sense.LESS_EQUAL, v2, "constraint_and_" + name + "_second");
+    LinearExpression both = new LinearExpression();
+    both.addTerm(1.0, v1);
+    both.addTerm(1.0, v2);
+    both.addConstant(-1.0);
+    model.addConstraint(conjunction, Sense.GREATER_EQUAL, both, "constraint_and_" + name + "_both");
+    conjunctionCache.put(key, conjunction);
+    return conjunction;
+  }
 
-    GRBVar conjunction = null;
-    try {
-      conjunction = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, name);
-      GRBVar[] args = {v1, v2};
-      model.addGenConstrAnd(conjunction, args, "constraint_and_" + name);
+  /**
+   * Returns the conjunction of an actor on the accelerator and another one off it, i.e., whether
+   * their connection crosses the PCIe. The presolve removes it when one of them is fixed to
+   * software: it is 0 if the first one is, and the accelerator variable of the first one if only
+   * the second one is.
+   *
+   * @param onAccel the actor on the accelerator
+   * @param offAccel the actor off the accelerator
+   * @param accelPartition the accelerator partition
+   * @param instanceDecisionVariableMap a map from instances to decision variables
+   * @param instanceNotOnAccelMap a map from instances to their not on accelerator variable
+   * @param name the name of the conjunction if it is new
+   * @return the conjunction, or null if it is 0
+   */
+  private Variable makeBoundaryConjunction(
+      Instance onAccel,
+      Instance offAccel,
+      HardwarePartition accelPartition,
+      Map<Instance, DecisionVariables> instanceDecisionVariableMap,
+      Map<Instance, Variable> instanceNotOnAccelMap,
+      String name) {
+    Variable onAccelVariable =
+        instanceDecisionVariableMap.get(onAccel).getDecisionVariable(accelPartition);
+    Variable offAccelVariable = instanceNotOnAccelMap.get(offAccel);
+    if (onAccelVariable != null && offAccelVariable != null) {
+      return makeConjunction(onAccelVariable, offAccelVariable, name);
+    }
+    presolved(
+        fixedToSoftware.get(onAccelVariable == null ? onAccel : offAccel),
+        getConjunctionName(
+            getAcceleratorVariableName(onAccel, accelPartition),
+            "d_not_" + offAccel.getInstanceName() + "_accel"));
+    return onAccelVariable;
+  }
 
-    } catch (GRBException e) {
-      fatalError("could not build conjunction between " + name + ": " + e.getMessage());
+  /**
+   * Returns the conjunction of a core variable and the accelerator variable of an actor for a cost
+   * term. The presolve removes it if the actor is fixed to software, the conjunction is 0, or if
+   * the term costs nothing.
+   *
+   * @param coreVariable the variable of an actor on a core
+   * @param accelInstance the actor on the accelerator
+   * @param accelVariable the accelerator variable of the actor, null if it is fixed to software
+   * @param accelPartition the accelerator partition
+   * @param cost the coefficient of the conjunction in the cost term
+   * @param name the name of the conjunction if it is new
+   * @return the conjunction, or null if the presolve removed it
+   */
+  private Variable makeAcceleratorConjunction(
+      Variable coreVariable,
+      Instance accelInstance,
+      Variable accelVariable,
+      HardwarePartition accelPartition,
+      double cost,
+      String name) {
+    String conjunctionName =
+        getConjunctionName(
+            coreVariable.getName(), getAcceleratorVariableName(accelInstance, accelPartition));
+    if (accelVariable == null) {
+      presolved(fixedToSoftware.get(accelInstance), conjunctionName);
+      return null;
     }
-    return conjunction;
+    if (hasNoTraffic(cost)) {
+      presolved(PlacementPresolve.Rule.ZERO_TRAFFIC, conjunctionName);
+      return null;
+    }
+    return makeConjunction(coreVariable, accelVariable, name);
+  }
+
+  /** @return the name of the decision variable of the instance for the accelerator */
+  private static String getAcceleratorVariableName(
+      Instance instance, HardwarePartition accelPartition) {
+    return String.format("d_%s_%s", instance.getInstanceName(), accelPartition.toString());
+  }
+
+  /**
+   * @return a name for the conjunction of two variables that does not depend on the cost term that
+   *     builds it, the presolve counts a shared conjunction once
+   */
+  private static String getConjunctionName(String first, String second) {
+    return "and_" + first + "_" + second;
+  }
+
+  /**
+   * Fixes the actors whose side is implied by the profiles to software. The objective of the start
+   * bounds T, relaxed by the tolerance that the secondary objectives may trade T for. The start
+   * changes with the scenario and the core limit, so the bound is not used while sweeping, the
+   * sweep patches the model of its first solve.
+   *
+   * @param problem the problem of the model
+   * @param start the start of the model, or null
+   * @return the actors fixed to software and the rule that fixed them
+   */
+  private Map<Instance, PlacementPresolve.Rule> presolve(
+      HeterogeneousProblem problem, Assignment start) {
+    double upperBound =
+        start == null || sweeping || usedCoresLimit > 0
+            ? Double.POSITIVE_INFINITY
+            : start.getTotalTime() * (1.0 + objectiveTolerance);
+    PlacementPresolve.Result result = new PlacementPresolve(problem).presolve(upperBound);
+    info("Presolve: " + result);
+    Map<Instance, PlacementPresolve.Rule> fixed = new HashMap<>();
+    ImmutableList<Instance> instances = task.getNetwork().getInstances();
+    for (int actor = 0; actor < instances.size(); actor++) {
+      if (result.isFixedToSoftware(actor)) fixed.put(instances.get(actor), result.getRule(actor));
+    }
+    return fixed;
   }
 
   /**
@@ -817,7 +1450,7 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
    * @param instanceDecisionVariablesMap
    * @return
    */
-  protected GRBLinExpr getSoftwareToPLinkCommunicationCostExpression(
+  protected LinearExpression getSoftwareToPLinkCommunicationCostExpression(
       SoftwarePartition plinkPartition,
       HardwarePartition accelPartition,
       ImmutableList<SoftwarePartition> softwarePartitions,
@@ -827,7 +1460,7 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
         softwarePartitions.stream()
             .filter(p -> !p.equals(plinkPartition))
             .collect(ImmutableList.collector());
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
     for (SoftwarePartition p : nonPlinkPartitions) {
 
       // outbound plink to other partitions
@@ -838,60 +1471,56 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
             this.multicoreDB.getCommunicationTicks(
                     connection, CommonProfileDataBase.CommunicationTicks.Kind.Global)
                 * this.multicoreClockPeriod;
-        try {
-          {
-            // outbound
-            GRBVar targetDecisionVariable =
-                instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(accelPartition);
-            GRBVar sourceActorDecisionVariable =
-                instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(p);
-            String varName =
-                getConnectionName(connection)
-                    + "_"
-                    + p.toString()
-                    + "_"
-                    + accelPartition.toString();
-
-            GRBVar conjunctionVariable = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, varName);
-            GRBVar[] args = {sourceActorDecisionVariable, targetDecisionVariable};
-            model.addGenConstrAnd(conjunctionVariable, args, "constraint_" + varName);
-
-            expr.addTerm(communicationTime, conjunctionVariable);
-          }
-          {
-            // inbound
-            GRBVar targetDecisionVariable =
-                instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(p);
-            GRBVar sourceActorDecisionVariable =
-                instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(accelPartition);
-
-            String varName =
-                getConnectionName(connection)
-                    + "_"
-                    + accelPartition.toString()
-                    + "_"
-                    + p.toString();
-
-            GRBVar conjunctionVariable = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, varName);
-            GRBVar[] args = {sourceActorDecisionVariable, targetDecisionVariable};
-            model.addGenConstrAnd(conjunctionVariable, args, "constraint_" + varName);
-            expr.addTerm(communicationTime, conjunctionVariable);
-          }
+        {
+          // outbound
+          Variable targetDecisionVariable =
+              instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(accelPartition);
+          Variable sourceActorDecisionVariable =
+              instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(p);
+          String varName =
+              getConnectionName(connection) + "_" + p.toString() + "_" + accelPartition.toString();
+
+          Variable conjunctionVariable =
+              makeAcceleratorConjunction(
+                  sourceActorDecisionVariable,
+                  targetActor,
+                  targetDecisionVariable,
+                  accelPartition,
+                  communicationTime,
+                  varName);
+          if (conjunctionVariable != null) expr.addTerm(communicationTime, conjunctionVariable);
+        }
+        {
+          // inbound
+          Variable targetDecisionVariable =
+              instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(p);
+          Variable sourceActorDecisionVariable =
+              instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(accelPartition);
 
-        } catch (GRBException e) {
-          fatalError("Could not build the plink to software partition cost: " + e.getMessage());
+          String varName =
+              getConnectionName(connection) + "_" + accelPartition.toString() + "_" + p.toString();
+
+          Variable conjunctionVariable =
+              makeAcceleratorConjunction(
+                  targetDecisionVariable,
+                  sourceActor,
+                  sourceActorDecisionVariable,
+                  accelPartition,
+                  communicationTime,
+                  varName);
+          if (conjunctionVariable != null) expr.addTerm(communicationTime, conjunctionVariable);
         }
       }
     }
     return expr;
   }
 
-  protected GRBLinExpr getPLinkLocalCommunicationCostExpression(
+  protected LinearExpression getPLinkLocalCommunicationCostExpression(
       SoftwarePartition plinkPartition,
       HardwarePartition accelPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
 
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
 
     for (Connection connection : task.getNetwork().getConnections()) {
 
@@ -903,68 +1532,65 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
                   connection, CommonProfileDataBase.CommunicationTicks.Kind.Local)
               * this.multicoreClockPeriod;
 
-      try {
-        {
-          // inbound
-          GRBVar targetDecisionVar =
-              instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(accelPartition);
-          GRBVar sourceDecisionVar =
-              instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(plinkPartition);
-          String varName =
-              getConnectionName(connection)
-                  + "_"
-                  + plinkPartition.toString()
-                  + "_"
-                  + accelPartition.toString();
-          GRBVar conjunction = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, varName);
-          GRBVar[] args = {sourceDecisionVar, targetDecisionVar};
-          model.addGenConstrAnd(conjunction, args, "constraint_" + varName);
-          expr.addTerm(communicationTime, conjunction);
-        }
-        {
-          // outbound
-          GRBVar targetDecisionVariable =
-              instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(plinkPartition);
-          GRBVar sourceDecisionVariable =
-              instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(accelPartition);
-          String varName =
-              getConnectionName(connection)
-                  + "_"
-                  + accelPartition.toString()
-                  + "_"
-                  + plinkPartition.toString();
-          GRBVar conjunction = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, varName);
-          GRBVar[] args = {sourceDecisionVariable, targetDecisionVariable};
-          model.addGenConstrAnd(conjunction, args, "constraint_" + varName);
-          expr.addTerm(communicationTime, conjunction);
-        }
-      } catch (GRBException e) {
-        fatalError("Could not formulate the plink local communication cost: " + e.getMessage());
+      {
+        // inbound
+        Variable targetDecisionVar =
+            instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(accelPartition);
+        Variable sourceDecisionVar =
+            instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(plinkPartition);
+        String varName =
+            getConnectionName(connection)
+                + "_"
+                + plinkPartition.toString()
+                + "_"
+                + accelPartition.toString();
+        Variable conjunction =
+            makeAcceleratorConjunction(
+                sourceDecisionVar,
+                targetActor,
+                targetDecisionVar,
+                accelPartition,
+                communicationTime,
+                varName);
+        if (conjunction != null) expr.addTerm(communicationTime, conjunction);
+      }
+      {
+        // outbound
+        Variable targetDecisionVariable =
+            instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(plinkPartition);
+        Variable sourceDecisionVariable =
+            instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(accelPartition);
+        String varName =
+            getConnectionName(connection)
+                + "_"
+                + accelPartition.toString()
+                + "_"
+                + plinkPartition.toString();
+        Variable conjunction =
+            makeAcceleratorConjunction(
+                targetDecisionVariable,
+                sourceActor,
+                sourceDecisionVariable,
+                accelPartition,
+                communicationTime,
+                varName);
+        if (conjunction != null) expr.addTerm(communicationTime, conjunction);
       }
     }
     return expr;
   }
 
   private ImmutableList<PartitioningSolution<Instance>> collectSolution(
-      GRBModel model,
       ImmutableList<TypedPartition> partitions,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
     ImmutableList.Builder<PartitioningSolution<Instance>> solutionBuilder = ImmutableList.builder();
 
-    if (model == null) {
+    if (solutionPool == null) {
       return ImmutableList.empty();
     }
 
-    try {
-      int solutionCount = model.get(GRB.IntAttr.SolCount);
-
-      for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
-        model.set(GRB.IntParam.SolutionNumber, solutionIndex);
-        solutionBuilder.add(createSolution(partitions, instanceDecisionVariablesMap));
-      }
-
-    } catch (GRBException e) {
-      fatalError("Could not obtains solutions: " + e.getMessage());
+    for (Solution solution : solutionPool.getSolutions()) {
+      solutionBuilder.add(createSolution(partitions, instanceDecisionVariablesMap, solution));
     }
 
     return solutionBuilder.build();
@@ -972,7 +1598,8 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
 
   private PartitioningSolution<Instance> createSolution(
       ImmutableList<TypedPartition> partitions,
-      Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
+      Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
+      Solution solution) {
 
     List<List<Instance>> builder = new ArrayList<>();
 
@@ -987,15 +1614,13 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
 
       for (TypedPartition p : partitions) {
 
-        GRBVar decisionVariable = instanceDecisionVariablesMap.get(instance).getDecisionVariable(p);
-        try {
-          double decisionValue = decisionVariable.get(GRB.DoubleAttr.Xn);
-          if (decisionValue > bestValue) {
-            bestPartitionIndex = p.toIndex();
-            bestValue = decisionValue;
-          }
-        } catch (GRBException e) {
-          fatalError("Could not extract decision variable: " + e.getMessage());
+        Variable decisionVariable =
+            instanceDecisionVariablesMap.get(instance).getDecisionVariable(p);
+        if (decisionVariable == null) continue;
+        double decisionValue = solution.getValue(decisionVariable);
+        if (decisionValue > bestValue) {
+          bestPartitionIndex = p.toIndex();
+          bestValue = decisionValue;
         }
       }
 
@@ -1012,50 +1637,48 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
 
   public void dumpTimingReport(File dumpDir, ImmutableList<TypedPartition> partitions) {
 
-    if (model == null) return;
+    if (solutionPool == null) return;
     File dumpFile = new File(dumpDir.toPath().resolve("timing.json").toUri());
 
     try {
       JsonArray jArray = new JsonArray();
-      try {
-        int solutionCount = model.get(GRB.IntAttr.SolCount);
-        for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
-
-          model.set(GRB.IntParam.SolutionNumber, solutionIndex);
+      for (Solution solution : solutionPool.getSolutions()) {
 
-          JsonObject jObjTimes = new JsonObject();
+        JsonObject jObjTimes = new JsonObject();
 
-          jObjTimes.addProperty("T", getVariableValue("T"));
+        jObjTimes.addProperty("T", getVariableValue("T", solution));
 
-          JsonObject jObjCoreTimes = new JsonObject();
-          for (TypedPartition p : partitions) {
-            if (p instanceof SoftwarePartition) {
-              String varName = "T_exec_" + p.toString();
-              jObjCoreTimes.addProperty(varName, getVariableValue(varName));
-            }
+        JsonObject jObjCoreTimes = new JsonObject();
+        for (TypedPartition p : partitions) {
+          if (p instanceof SoftwarePartition) {
+            String varName = "T_exec_" + p.toString();
+            jObjCoreTimes.addProperty(varName, getVariableValue(varName, solution));
           }
-          jObjCoreTimes.addProperty("max", getVariableValue("T_exec"));
-          jObjTimes.add("T_exec", jObjCoreTimes);
-          for (String varName :
-              ImmutableList.of(
-                  "t_plink",
-                  "t_plink_read",
-                  "t_plink_write",
-                  "t_plink_kernel",
-                  "read_connections",
-                  "write_connections", "T_lc", "T_cc")) {
-            jObjTimes.addProperty(varName, getVariableValue(varName));
-          }
-
-          jArray.add(jObjTimes);
         }
-      } catch (GRBException e) {
-        fatalError("Could not print solution summary: " + e.getMessage());
+        jObjCoreTimes.addProperty("max", getVariableValue("T_exec", solution));
+        jObjTimes.add("T_exec", jObjCoreTimes);
+        for (String varName :
+            ImmutableList.of(
+                "t_plink",
+                "t_plink_read",
+                "t_plink_write",
+                "t_plink_kernel",
+                "read_connections",
+                "write_connections",
+                "T_lc",
+                "T_cc")) {
+          jObjTimes.addProperty(varName, getVariableValue(varName, solution));
+        }
+        double gap = getGap(getVariableValue("T", solution));
+        if (!Double.isNaN(gap)) jObjTimes.addProperty("gap", gap);
+
+        jArray.add(jObjTimes);
       }
 
       Gson gson = new GsonBuilder().setPrettyPrinting().create();
       FileWriter writer = new FileWriter(dumpFile);
       JsonObject jsonObject = new JsonObject();
+      if (!Double.isNaN(lowerBound)) jsonObject.addProperty("lower_bound", lowerBound);
       jsonObject.add("timings", jArray);
       gson.toJson(jsonObject, writer);
       writer.flush();
@@ -1065,21 +1688,9 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
     }
   }
 
-  public Double getVariableValue(String varName) {
-    Double value = Double.valueOf(0);
-    try {
-      GRBVar variable = model.getVarByName(varName);
-      value = variable.get(GRB.DoubleAttr.Xn);
-
-    } catch (GRBException e) {
-      fatalError("Could not get the variable " + varName + " as json: " + e.getMessage());
-    }
-    return value;
-  }
-
   @Override
   public void solutionsSummary(File dumpDir) {
-    if (model == null) return;
+    if (solutionPool == null) return;
     File dumpFile = new File(dumpDir + "/solutions.csv");
     try {
 
@@ -1097,18 +1708,12 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
               "read_connections",
               "write_connections");
 
-      solutionWriter.println(String.join(",", variables));
-      try {
-        int solutionCount = model.get(GRB.IntAttr.SolCount);
-        for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
-
-          model.set(GRB.IntParam.SolutionNumber, solutionIndex);
+      solutionWriter.println(String.join(",", variables) + ",lower_bound,gap");
+      for (int solutionIndex = 0; solutionIndex < solutionPool.size(); solutionIndex++) {
 
-          printTimingBreakdown(solutionIndex, solutionWriter, variables);
-          System.out.println();
-        }
-      } catch (GRBException e) {
-        fatalError("Could not print solution summary: " + e.getMessage());
+        printTimingBreakdown(
+            solutionIndex, solutionPool.get(solutionIndex), solutionWriter, variables);
+        System.out.println();
       }
       solutionWriter.close();
     } catch (FileNotFoundException e) {
@@ -1116,26 +1721,19 @@ public class HeterogeneousModel extends MulticorePerformanceModel {
     }
   }
 
-  public void printTimingBreakdown(int id, PrintWriter writer, ImmutableList<String> variables) {
+  public void printTimingBreakdown(
+      int id, Solution solution, PrintWriter writer, ImmutableList<String> variables) {
 
     ImmutableList.Builder<String> builder = ImmutableList.builder();
     System.out.println("Solution " + id + " : ");
     for (String varName : variables) {
-      try {
-        GRBVar variable = model.getVarByName(varName);
-        try {
-
-          Double value = variable.get(GRB.DoubleAttr.Xn);
-          System.out.printf("%s = %6.6f s\n", varName, value);
-          builder.add(String.valueOf(value));
-        } catch (NullPointerException e) {
-          fatalError("Could not get the value for " + varName + ": " + e.getMessage());
-        }
-      } catch (GRBException e) {
-        fatalError("Could not get the variable " + varName + ": " + e.getMessage());
-      }
+      Double value = getVariableValue(varName, solution);
+      System.out.printf("%s = %6.6f s\n", varName, value);
+      builder.add(String.valueOf(value));
     }
 
+    builder.add(String.valueOf(lowerBound));
+    builder.add(String.valueOf(getGap(getVariableValue("T", solution))));
     writer.println(String.join(",", builder.build()));
   }
 }
@@ -0,0 +1,61 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.MultilevelPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * The multilevel counterpart of the HeterogeneousModel: the network is coarsened by heavy edge
+ * matching, the coarsest problem is solved greedily and the solution is refined at every level,
+ * the accelerator included. The outputs have the same layout as the ones of the
+ * HeterogeneousModel.
+ */
+public class HeterogeneousMultilevelModel extends HeterogeneousAssignmentModel {
+
+  private int coarsestSize = 0;
+
+  public HeterogeneousMultilevelModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      DeviceProfileDataBase accelDB,
+      Double multicoreClockPeriod,
+      Double accelClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, timeLimit);
+  }
+
+  /** @param coarsestSize the largest number of actors of the coarsest level, 0 for the default */
+  public void setCoarsestSize(int coarsestSize) {
+    this.coarsestSize = coarsestSize;
+  }
+
+  @Override
+  protected ImmutableList<Assignment> solveAssignments(
+      HeterogeneousCostModel costModel, int numberOfCores) {
+
+    info("Starting heterogeneous multilevel partitioning on " + numberOfCores + " cores");
+    MultilevelPartitioner partitioner = new MultilevelPartitioner(costModel);
+    if (coarsestSize > 0) partitioner.setCoarsestSize(coarsestSize);
+    MultilevelPartitioner.Result result =
+        partitioner.solve(
+            numberOfCores, (coarse, cores) -> new GreedyPartitioner(coarse).solve(cores));
+
+    if (result.getAssignment() == null) {
+      info("Could not partition the coarsest network on " + numberOfCores + " cores");
+      return ImmutableList.empty();
+    }
+    info(
+        String.format(
+            "Multilevel partitioning on %d cores over levels of %s actors: coarsest T = %6.6f, "
+                + "refined %s",
+            numberOfCores, result.getLevelSizes(), result.getCoarseTime(), result.getAssignment()));
+    return ImmutableList.of(result.getAssignment());
+  }
+}
@@ -1,8 +1,19 @@
 package ch.epfl.vlsc.analysis.partitioning.models;
 
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.ChainPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.FiducciaMattheysesRefiner;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.LowerBounds;
+import ch.epfl.vlsc.analysis.partitioning.engine.NetworkReduction;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.engine.PlacementPresolve;
+import ch.epfl.vlsc.analysis.partitioning.engine.UpperBounds;
 import ch.epfl.vlsc.analysis.partitioning.parser.CommonProfileDataBase;
 import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
-import gurobi.*;
+import ch.epfl.vlsc.analysis.partitioning.solver.*;
 import se.lth.cs.tycho.compiler.CompilationTask;
 import se.lth.cs.tycho.compiler.Compiler;
 import se.lth.cs.tycho.compiler.Context;
@@ -19,14 +30,37 @@ import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MulticorePerformanceModel extends PerformanceModel {
 
-  protected final MulticoreProfileDataBase multicoreDB;
-  protected final Double multicoreClockPeriod;
-  protected final Double timeLimit;
+  protected MulticoreProfileDataBase multicoreDB;
+  protected Double multicoreClockPeriod;
+  protected Double timeLimit;
   private final ImmutableList<Instance> softwareActors;
+  // -- a solution with one core less used to derive the start of the next solve
+  protected PartitioningSolution<String> warmStart;
+  // -- improve the solutions of the solver by local search before returning them
+  protected boolean refine = false;
+  // -- formulate the core to core communication with one split variable per connection
+  protected boolean cutCoreToCore = true;
+  // -- fold the zero cost actors and contract the chains of the network before solving it
+  protected boolean reduce = false;
+  // -- the representative of every grouped actor of the network being solved
+  private Map<Instance, Instance> representatives = new LinkedHashMap<>();
+  // -- the scenario of the sweep being solved, null outside of sweeps
+  protected ProfileScenario scenario;
+  // -- the restricted growth order of the first scenario, kept so that the scenarios share the
+  // structure of their models
+  private ImmutableList<Instance> sweepGrowthOrder;
+  // -- the start of the last solve if it was within the gap limit and the solver was skipped
+  private Assignment provenStart;
+  // -- the names of the variables that the presolve kept out of the model, by rule
+  private final Map<PlacementPresolve.Rule, Set<String>> presolved =
+      new EnumMap<>(PlacementPresolve.Rule.class);
 
   public MulticorePerformanceModel(
       CompilationTask task,
@@ -42,6 +76,345 @@ public class MulticorePerformanceModel extends PerformanceModel {
     this.softwareActors = task.getNetwork().getInstances();
   }
 
+  /**
+   * Sets the solution the next solve starts from, it should have one core less than the next
+   * solve.
+   *
+   * @param warmStart a solution with numberOfCores - 1 cores or null to start from scratch
+   */
+  public void setWarmStart(PartitioningSolution<String> warmStart) {
+    this.warmStart = warmStart;
+  }
+
+  /** @param timeLimit the wall-clock limit of the next solves, in seconds */
+  public void setTimeLimit(double timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  public void setRefine(boolean refine) {
+    this.refine = refine;
+  }
+
+  /**
+   * @param reduce true to fold the zero cost actors and contract the chains of the network, the
+   *     model then only keeps the assignments that place every group of actors together
+   */
+  public void setReduce(boolean reduce) {
+    this.reduce = reduce;
+  }
+
+  /**
+   * @param cutCoreToCore true for the cut formulation of the core to core communication, false for
+   *     the pairwise one with a conjunction for every connection and pair of cores
+   */
+  public void setCutCoreToCore(boolean cutCoreToCore) {
+    this.cutCoreToCore = cutCoreToCore;
+  }
+
+  /**
+   * Improves solutions with Fiduccia-Mattheyses passes over the cost terms of the model and writes
+   * the objective before and after the refinement of every solution into refinement.csv.
+   *
+   * @param costModel the cost model of the problem that was solved
+   * @param solutions the solutions of the solver
+   * @param nameOf the instance name of a partition element
+   * @param numberOfCores the number of software cores
+   * @param dumpDir the directory of refinement.csv
+   * @return the refined solutions, with the partition types of the given ones
+   */
+  protected <T> ImmutableList<PartitioningSolution<T>> refineSolutions(
+      CostModel costModel,
+      ImmutableList<PartitioningSolution<T>> solutions,
+      Function<T, String> nameOf,
+      int numberOfCores,
+      File dumpDir) {
+
+    PartitioningProblem problem = costModel.getProblem();
+    Map<String, Integer> actorIndex = new HashMap<>();
+    for (int actor = 0; actor < problem.getNumActors(); actor++) {
+      actorIndex.put(problem.getActorName(actor), actor);
+    }
+    FiducciaMattheysesRefiner refiner = new FiducciaMattheysesRefiner(costModel);
+    ImmutableList.Builder<PartitioningSolution<T>> refined = ImmutableList.builder();
+    try (PrintWriter writer = new PrintWriter(new File(dumpDir, "refinement.csv"))) {
+      writer.println("solution,T,T_refined,moves,passes");
+      for (int solutionIndex = 0; solutionIndex < solutions.size(); solutionIndex++) {
+        PartitioningSolution<T> solution = solutions.get(solutionIndex);
+        int[] partition = new int[problem.getNumActors()];
+        Arrays.fill(partition, -1);
+        for (Partition<T> p : solution.getPartitions()) {
+          for (T element : p.getInstances()) {
+            Integer actor = actorIndex.get(nameOf.apply(element));
+            if (actor != null) partition[actor] = p.getPartitionType().toIndex();
+          }
+        }
+        if (!costModel.isFeasible(partition, numberOfCores)) {
+          info("Could not refine solution " + solutionIndex + ", it is not a complete partition");
+          refined.add(solution);
+          continue;
+        }
+        FiducciaMattheysesRefiner.Result result = refiner.refine(partition, numberOfCores);
+        Assignment assignment = result.getAssignment();
+        info(
+            String.format(
+                "Refined solution %d with %d moves from T = %6.6f to %s",
+                solutionIndex, result.getMoves(), result.getInitialTime(), assignment));
+        writer.println(
+            solutionIndex
+                + ","
+                + result.getInitialTime()
+                + ","
+                + assignment.getTotalTime()
+                + ","
+                + result.getMoves()
+                + ","
+                + result.getPasses());
+
+        ImmutableList.Builder<Partition<T>> partitions = ImmutableList.builder();
+        for (Partition<T> p : solution.getPartitions()) {
+          int index = p.getPartitionType().toIndex();
+          ImmutableList<T> elements =
+              solution.getPartitions().stream()
+                  .flatMap(q -> q.getInstances().stream())
+                  .filter(
+                      element -> {
+                        Integer actor = actorIndex.get(nameOf.apply(element));
+                        return actor == null
+                            ? p.getInstances().contains(element)
+                            : assignment.getPartition(actor) == index;
+                      })
+                  .collect(ImmutableList.collector());
+          partitions.add(new Partition<>(elements, p.getPartitionType()));
+        }
+        refined.add(new PartitioningSolution<>(partitions.build()));
+      }
+    } catch (FileNotFoundException e) {
+      error("Could not save the refinement report: " + e.getMessage());
+      return solutions;
+    }
+    return refined.build();
+  }
+
+  /**
+   * Derives a start for numberOfCores cores from a solution with one core less by splitting its
+   * most loaded core (with at least two actors) in two halves of similar load, the second half is
+   * moved to the new core. A solution with numberOfCores cores, e.g., of a solve to resume, is
+   * kept as it is.
+   *
+   * @param previous a solution with numberOfCores - 1 or numberOfCores software cores
+   * @param numberOfCores the number of software cores of the start
+   * @return a map from actor names to partition indices, hardware actors are mapped to
+   *     numberOfCores (i.e., the hardware partition index), or an empty map if the previous
+   *     solution can not be split
+   */
+  protected Map<String, Integer> splitHeaviestCore(
+      PartitioningSolution<String> previous, int numberOfCores) {
+
+    Map<String, Long> ticks = new HashMap<>();
+    for (Instance instance : task.getNetwork().getInstances()) {
+      ticks.put(instance.getInstanceName(), multicoreDB.getInstanceTicks(instance));
+    }
+
+    Map<String, Integer> start = new HashMap<>();
+    Partition<String> heaviest = null;
+    long heaviestLoad = -1;
+    int previousCores = 0;
+    for (Partition<String> partition : previous.getPartitions()) {
+      ImmutableList<String> actors =
+          partition.getInstances().stream()
+              .filter(ticks::containsKey)
+              .collect(ImmutableList.collector());
+      if (partition.getPartitionType() instanceof HardwarePartition) {
+        actors.forEach(actor -> start.put(actor, numberOfCores));
+        continue;
+      }
+      previousCores++;
+      actors.forEach(actor -> start.put(actor, partition.getPartitionType().toIndex()));
+      long load = actors.stream().mapToLong(ticks::get).sum();
+      if (actors.size() > 1 && load > heaviestLoad) {
+        heaviest = partition;
+        heaviestLoad = load;
+      }
+    }
+    if (previousCores == numberOfCores) return start;
+    if (heaviest == null || previousCores != numberOfCores - 1) return Collections.emptyMap();
+
+    // -- greedily balance the actors of the heaviest core over itself and the new core
+    List<String> actors =
+        heaviest.getInstances().stream()
+            .filter(ticks::containsKey)
+            .sorted(Comparator.comparingLong(actor -> -ticks.get(actor)))
+            .collect(Collectors.toList());
+    long kept = 0;
+    long moved = 0;
+    for (String actor : actors) {
+      if (moved < kept) {
+        start.put(actor, numberOfCores - 1);
+        moved += ticks.get(actor);
+      } else {
+        kept += ticks.get(actor);
+      }
+    }
+    return start;
+  }
+
+  /**
+   * Picks the start of a solve, the greedy solution or the warm start derived from the solution
+   * with one core less, whichever is better.
+   *
+   * @param costModel the cost model of the problem being solved
+   * @param heuristic the greedy solution, or null if there is none
+   * @param numberOfCores the number of software cores
+   * @return the start, or null if there is none
+   */
+  protected Assignment selectStart(CostModel costModel, Assignment heuristic, int numberOfCores) {
+    PartitioningProblem problem = costModel.getProblem();
+    Assignment best = heuristic;
+    String origin = "the greedy solution";
+    if (warmStart != null) {
+      Map<String, Integer> split = splitHeaviestCore(warmStart, numberOfCores);
+      int[] partition =
+          problem.getActorNames().stream()
+              .mapToInt(actor -> split.getOrDefault(actor, -1))
+              .toArray();
+      if (split.isEmpty() || !costModel.isFeasible(partition, numberOfCores)) {
+        info("Could not derive a warm start for " + numberOfCores + " cores");
+      } else {
+        Assignment warm = costModel.evaluate(partition, numberOfCores);
+        if (best == null || warm.getTotalTime() <= best.getTotalTime()) {
+          best = warm;
+          origin =
+              "the solution for "
+                  + warmStart.getPartitions().stream()
+                      .filter(p -> p.getPartitionType() instanceof SoftwarePartition)
+                      .count()
+                  + " cores";
+        }
+      }
+    }
+    if (best != null) info(String.format("Starting from %s, %s", origin, best));
+    return best;
+  }
+
+  /**
+   * @param problem the problem the assignment belongs to
+   * @param assignment an assignment of the problem
+   * @return a map from actor names to partition indices
+   */
+  protected Map<String, Integer> toStartMap(PartitioningProblem problem, Assignment assignment) {
+    Map<String, Integer> start = new HashMap<>();
+    for (int actor = 0; actor < problem.getNumActors(); actor++) {
+      start.put(problem.getActorName(actor), assignment.getPartition(actor));
+    }
+    return start;
+  }
+
+  /**
+   * @param numberOfCores the number of software cores
+   * @return the names of the objective terms of the model
+   */
+  protected List<String> getObjectiveTermNames(int numberOfCores) {
+    List<String> names = new ArrayList<>(Arrays.asList("T", "T_exec", "T_lc", "T_cc"));
+    for (SoftwarePartition partition : makeSoftwarePartitionSet(numberOfCores)) {
+      names.add("T_exec_" + partition.toString());
+      names.add("T_lc_" + partition.toString());
+    }
+    return names;
+  }
+
+  /**
+   * Orders the software actors for the restricted growth constraints, the most expensive actors
+   * first and then the ones with the most connections. Pinning the heaviest actor to the first
+   * core and letting the next heavy actors open the other cores cuts the symmetric subtrees close
+   * to the root of the search, where they are largest.
+   *
+   * @param problem the partitioning problem of the network
+   * @return the software actors in restricted growth order
+   */
+  protected ImmutableList<Instance> getRestrictedGrowthOrder(PartitioningProblem problem) {
+    Map<String, Integer> index = new HashMap<>();
+    for (int actor = 0; actor < problem.getNumActors(); actor++) {
+      index.put(problem.getActorName(actor), actor);
+    }
+    ToDoubleFunction<Instance> cost =
+        instance -> {
+          Integer actor = index.get(instance.getInstanceName());
+          return actor == null ? 0.0 : problem.getActorCost(actor);
+        };
+    ToIntFunction<Instance> degree =
+        instance -> {
+          Integer actor = index.get(instance.getInstanceName());
+          return actor == null ? 0 : problem.getDegree(actor);
+        };
+    // -- the sort is stable, ties keep the network order
+    return getSoftwareActors().stream()
+        .sorted(
+            Comparator.comparingDouble(cost)
+                .reversed()
+                .thenComparing(Comparator.comparingInt(degree).reversed()))
+        .collect(ImmutableList.collector());
+  }
+
+  /**
+   * Bounds the time variables from above by the bounds derived from the profiles, the start then
+   * tightens them further.
+   *
+   * @param bounds the upper bounds of the problem
+   * @param numberOfCores the number of software cores
+   */
+  protected void applyUpperBounds(UpperBounds.Result bounds, int numberOfCores) {
+    info("Upper bounds on " + numberOfCores + " cores: " + bounds);
+    boundAbove("T", bounds.getTotal());
+    boundAbove("T_exec", bounds.getExecution());
+    boundAbove("T_lc", bounds.getLocal());
+    boundAbove("T_cc", bounds.getCoreToCore());
+    for (SoftwarePartition partition : makeSoftwarePartitionSet(numberOfCores)) {
+      boundAbove("T_exec_" + partition.toString(), bounds.getCoreExecution());
+      boundAbove(
+          "T_lc_" + partition.toString(),
+          partition.toIndex() == 0 ? bounds.getPlinkCoreLocal() : bounds.getCoreLocal());
+    }
+  }
+
+  /**
+   * Relabels the cores of a start in the order of their first use by the software actors, so that
+   * the start satisfies the restricted growth constraints.
+   *
+   * @param start a map from actor names to core indices
+   * @param order the software actors in restricted growth order
+   * @return the relabeled start or an empty map if some software actor is missing
+   */
+  protected Map<String, Integer> toRestrictedGrowth(
+      Map<String, Integer> start, ImmutableList<Instance> order) {
+    Map<Integer, Integer> relabel = new HashMap<>();
+    Map<String, Integer> result = new HashMap<>();
+    for (Instance instance : order) {
+      Integer core = start.get(instance.getInstanceName());
+      if (core == null) return Collections.emptyMap();
+      result.put(instance.getInstanceName(), relabel.computeIfAbsent(core, c -> relabel.size()));
+    }
+    return result;
+  }
+
+  /**
+   * Sets the start values of the a_* and d_* variables
+   *
+   * @param instanceDecisionVariables a map from instances to decision variables
+   * @param start a map from actor names to partition indices
+   */
+  protected void applyWarmStart(
+      Map<Instance, DecisionVariables> instanceDecisionVariables, Map<String, Integer> start) {
+    for (Map.Entry<Instance, DecisionVariables> entry : instanceDecisionVariables.entrySet()) {
+      Integer index = start.get(entry.getKey().getInstanceName());
+      if (index == null) continue;
+      DecisionVariables vars = entry.getValue();
+      vars.getPartitionNumber().setStart(index);
+      for (TypedPartition p : vars.getPartitionSet()) {
+        vars.getDecisionVariable(p).setStart(p.toIndex() == index ? 1.0 : 0.0);
+      }
+    }
+  }
+
   protected ImmutableList<SoftwarePartition> makeSoftwarePartitionSet(int numberOfCores) {
 
     ImmutableList.Builder<SoftwarePartition> builder = ImmutableList.builder();
@@ -58,116 +431,240 @@ public class MulticorePerformanceModel extends PerformanceModel {
   }
 
   protected void getSymmetryBreakingConstraints(Instance instance, DecisionVariables vars) {
-    try {
-      // -- to break the symmetry we need to make sure that
-      // a_i = p  <=>   d_i_p = true
-      // I.e, if the partition index (partitionNumber) is equal to a partition index (i.e. core
-      // index) then
-      // the decision variable assigning instance i to partition p is true
-      for (TypedPartition p : vars.getPartitionSet()) {
-        GRBVar decisionVariable = vars.getDecisionVariable(p);
-        int partitionAsIndex = p.toIndex();
-        GRBLinExpr expr = new GRBLinExpr();
-        expr.addTerm(1.0, vars.getPartitionNumber());
-        model.addGenConstrIndicator(
-            decisionVariable,
-            1,
-            expr,
-            GRB.EQUAL,
-            partitionAsIndex,
-            "symmetry_breaking_" + instance.getInstanceName() + "_" + p.toString());
-      }
-    } catch (GRBException e) {
-      fatalError("Could not build the symmtery breaking constraints");
+    // -- to break the symmetry we need to make sure that
+    // a_i = p  <=>   d_i_p = true
+    // I.e, if the partition index (partitionNumber) is equal to a partition index (i.e. core
+    // index) then
+    // the decision variable assigning instance i to partition p is true
+    for (TypedPartition p : vars.getPartitionSet()) {
+      Variable decisionVariable = vars.getDecisionVariable(p);
+      int partitionAsIndex = p.toIndex();
+      LinearExpression expr = new LinearExpression();
+      expr.addTerm(1.0, vars.getPartitionNumber());
+      model.addIndicatorConstraint(
+          decisionVariable,
+          1,
+          expr,
+          Sense.EQUAL,
+          partitionAsIndex,
+          "symmetry_breaking_" + instance.getInstanceName() + "_" + p.toString());
     }
   }
   /**
    * This function builds the symmetry breaking and core utilization constraints
    *
    * @param instanceDecisionVariables
+   * @param order the software actors in restricted growth order
    * @param numberOfCores number of cores to be used
    */
   protected void restrictedGrowthConstraint(
-      Map<Instance, DecisionVariables> instanceDecisionVariables, int numberOfCores) {
-
-    GRBVar firstActorVariable =
-        instanceDecisionVariables.get(getSoftwareActors().get(0)).getPartitionNumber();
-    try {
+      Map<Instance, DecisionVariables> instanceDecisionVariables,
+      ImmutableList<Instance> order,
+      int numberOfCores) {
+
+    Variable firstActorVariable = instanceDecisionVariables.get(order.get(0)).getPartitionNumber();
+
+    // -- the first actor can be assigned to either the first or the second core
+    model.addConstraint(
+        firstActorVariable,
+        Sense.EQUAL,
+        0.0,
+        "a_" + order.get(0).getInstanceName() + "_constraint");
+    // -- the rest of the actors follow the restricted growth rule:
+    // a_j <= max(a_1, a_2, ..., a_(j-1)) + 1
+    // which means that between actor a_j can be either assigned to a new core
+    // that no other actor is assigned to or be assigned to one the cores that
+    // have already some actors assigned to them. The prefix maximum is chained, i.e.,
+    // max_prefix_j = max(max_prefix_(j-1), a_(j-1)), so every max constraint has two terms and
+    // the model grows linearly with the number of actors.
+    Variable previousPrefix = null;
+    for (int instIx = 1; instIx < order.size(); instIx++) {
+
+      Instance instance = order.get(instIx);
+      // -- variable a_j
+      Variable partitionVariable = instanceDecisionVariables.get(instance).getPartitionNumber();
+      Variable previousActor =
+          instanceDecisionVariables.get(order.get(instIx - 1)).getPartitionNumber();
+      Variable[] maxTerms =
+          previousPrefix == null
+              ? new Variable[] {previousActor}
+              : new Variable[] {previousPrefix, previousActor};
+      Variable maxPrefix =
+          model.addVariable(
+              0.0,
+              numberOfCores - 1,
+              VariableType.INTEGER,
+              "max_prefix_" + order.get(instIx).getInstanceName());
+
+      model.addMaxConstraint(
+          maxPrefix, maxTerms, 0.0, "a_" + instance.getInstanceName() + "_max_prefix_constraint");
+      previousPrefix = maxPrefix;
+      LinearExpression expr = new LinearExpression();
+      expr.addConstant(1.0);
+      expr.addTerm(1.0, maxPrefix);
+
+      // -- finally the constraint a_j <= max(...) + 1.0
+      model.addConstraint(
+          partitionVariable,
+          Sense.LESS_EQUAL,
+          expr,
+          "a_" + instance.getInstanceName() + "_restricted_growth");
+    }
 
-      // -- the first actor can be assigned to either the first or the second core
-      model.addConstr(
-          firstActorVariable,
-          GRB.EQUAL,
-          0.0,
-          "a_" + getSoftwareActors().get(0).getInstanceName() + "_constraint");
-      // -- the rest of the actors follow the restricted growth rule:
-      // a_j <= max(a_1, a_2, ..., a_(j-1)) + 1
-      // which means that between actor a_j can be either assigned to a new core
-      // that no other actor is assigned to or be assigned to one the cores that
-      // have already some actors assigned to them.
-      for (int instIx = 1; instIx < getSoftwareActors().size(); instIx++) {
-
-        Instance instance = getSoftwareActors().get(instIx);
-        // -- variable a_j
-        GRBVar partitionVariable = instanceDecisionVariables.get(instance).getPartitionNumber();
-        GRBVar[] maxTerms =
-            getSoftwareActors().subList(0, instIx).stream()
-                .map(i -> instanceDecisionVariables.get(i).getPartitionNumber())
-                .toArray(GRBVar[]::new);
-        GRBVar maxPrefix =
-            model.addVar(
-                0.0,
-                numberOfCores - 1,
-                0.0,
-                GRB.INTEGER,
-                "max_prefix_" + getSoftwareActors().get(instIx).getInstanceName());
-
-        model.addGenConstrMax(
-            maxPrefix, maxTerms, 0.0, "a_" + instance.getInstanceName() + "_max_prefix_constraint");
-        GRBLinExpr expr = new GRBLinExpr();
-        expr.addConstant(1.0);
-        expr.addTerm(1.0, maxPrefix);
-
-        // -- finally the constraint a_j <= max(...) + 1.0
-        model.addConstr(
-            partitionVariable,
-            GRB.LESS_EQUAL,
-            expr,
-            "a_" + instance.getInstanceName() + "_restricted_growth");
-      }
+    // -- we also need to add a constraint on the number of cores used to make sure all cores are
+    // utilized
+    Variable numCoresUsed =
+        model.addVariable(0.0, numberOfCores - 1, VariableType.INTEGER, "num_used_cores");
+    Variable lastActor =
+        instanceDecisionVariables.get(order.get(order.size() - 1)).getPartitionNumber();
+    Variable[] allVarsArray =
+        previousPrefix == null
+            ? new Variable[] {lastActor}
+            : new Variable[] {previousPrefix, lastActor};
+
+    model.addMaxConstraint(numCoresUsed, allVarsArray, 0.0, "max_core_index_constraint");
+    model.addConstraint(numCoresUsed, Sense.EQUAL, numberOfCores - 1, "all_cores_used_constrant");
+  }
+  /**
+   * Formulate the core to core communication cost
+   *
+   * @param partitions the list of software partitions
+   * @param instanceDecisionVariablesMap a map from instances to decision variables
+   * @return a linear expression formulating the inter-core communication cost
+   */
+  protected LinearExpression getCoreToCoreCommunicationTime(
+      ImmutableList<SoftwarePartition> partitions,
+      Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
+      ImmutableList<Connection> softwareConnections) {
+    return cutCoreToCore
+        ? getCutCoreToCoreCommunicationTime(
+            partitions, instanceDecisionVariablesMap, softwareConnections)
+        : getPairwiseCoreToCoreCommunicationTime(
+            partitions, instanceDecisionVariablesMap, softwareConnections);
+  }
 
-      // -- we also need to add a constraint on the number of cores used to make sure all cores are
-      // utilized
-      GRBVar numCoresUsed =
-          model.addVar(0.0, numberOfCores - 1, 0.0, GRB.INTEGER, "num_used_cores");
-      GRBVar[] allVarsArray =
-          getSoftwareActors().stream()
-              .map(i -> instanceDecisionVariables.get(i).getPartitionNumber())
-              .toArray(GRBVar[]::new);
+  /**
+   * Formulate the core to core communication cost with one binary split_* variable per connection
+   * that is 1 exactly when both ends are on different software partitions, i.e., O(E.P) linear
+   * constraints instead of O(E.P^2) conjunctions. For every software partition p
+   *
+   * <ul>
+   *   <li>split >= d_source_p - d_target_p - (d_target on a non-software partition), the source
+   *       is on p and the target on another core,
+   *   <li>split <= 2 - d_source_p - d_target_p, both ends are on the same partition,
+   * </ul>
+   *
+   * and split <= 1 - d_source_q, split <= 1 - d_target_q for the other partitions q (i.e., the
+   * accelerator), a connection to the accelerator is not a core to core connection.
+   *
+   * @param partitions the list of software partitions
+   * @param instanceDecisionVariablesMap a map from instances to decision variables
+   * @return a linear expression formulating the inter-core communication cost
+   */
+  protected LinearExpression getCutCoreToCoreCommunicationTime(
+      ImmutableList<SoftwarePartition> partitions,
+      Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
+      ImmutableList<Connection> softwareConnections) {
 
-      model.addGenConstrMax(numCoresUsed, allVarsArray, 0.0, "max_core_index_constraint");
-      model.addConstr(numCoresUsed, GRB.EQUAL, numberOfCores - 1, "all_cores_used_constrant");
+    LinearExpression expr = new LinearExpression();
+    if (partitions.size() < 2) return expr;
+    for (List<Connection> parallel : groupParallelConnections(softwareConnections)) {
+      Connection connection = parallel.get(0);
+      Instance sourceActor = getRepresentative(findInstance(connection.getSource()));
+      Instance targetActor = getRepresentative(findInstance(connection.getTarget()));
+      // -- a self loop never crosses cores, neither does a connection inside a group
+      if (sourceActor == targetActor) continue;
+      String variableName = "split_" + getConnectionName(connection);
+      double communicationTime =
+          getCommunicationTime(parallel, CommonProfileDataBase.CommunicationTicks.Kind.Global);
+      // -- a connection without traffic costs nothing wherever its ends are
+      if (hasNoTraffic(communicationTime)) {
+        presolved(PlacementPresolve.Rule.ZERO_TRAFFIC, variableName);
+        continue;
+      }
+      DecisionVariables sourceVars = instanceDecisionVariablesMap.get(sourceActor);
+      DecisionVariables targetVars = instanceDecisionVariablesMap.get(targetActor);
+      // -- an end fixed to software by the presolve has no variable for the accelerator
+      List<TypedPartition> otherPartitions =
+          Stream.concat(
+                  sourceVars.getPartitionSet().stream(), targetVars.getPartitionSet().stream())
+              .filter(p -> !(p instanceof SoftwarePartition))
+              .distinct()
+              .sorted(Comparator.comparingInt(TypedPartition::toIndex))
+              .collect(Collectors.toList());
+
+      Variable split = model.addVariable(0.0, 1.0, VariableType.BINARY, variableName);
+
+      for (SoftwarePartition p : partitions) {
+        Variable source = sourceVars.getDecisionVariable(p);
+        Variable target = targetVars.getDecisionVariable(p);
+
+        LinearExpression lower = new LinearExpression();
+        lower.addTerm(1.0, source);
+        lower.addTerm(-1.0, target);
+        for (TypedPartition q : otherPartitions) {
+          Variable other = targetVars.getDecisionVariable(q);
+          if (other != null) lower.addTerm(-1.0, other);
+        }
+        model.addConstraint(
+            split, Sense.GREATER_EQUAL, lower, variableName + "_" + p.toString() + "_lower");
+
+        LinearExpression upper = new LinearExpression();
+        upper.addConstant(2.0);
+        upper.addTerm(-1.0, source);
+        upper.addTerm(-1.0, target);
+        model.addConstraint(
+            split, Sense.LESS_EQUAL, upper, variableName + "_" + p.toString() + "_upper");
+      }
+      for (TypedPartition q : otherPartitions) {
+        for (DecisionVariables vars : ImmutableList.of(sourceVars, targetVars)) {
+          if (vars.getDecisionVariable(q) == null) continue;
+          LinearExpression upper = new LinearExpression();
+          upper.addConstant(1.0);
+          upper.addTerm(-1.0, vars.getDecisionVariable(q));
+          model.addConstraint(
+              split,
+              Sense.LESS_EQUAL,
+              upper,
+              variableName
+                  + "_"
+                  + q.toString()
+                  + (vars == sourceVars ? "_source" : "_target")
+                  + "_upper");
+        }
+      }
 
-    } catch (GRBException e) {
-      error("Could not build the symmetry breaking constraints");
+      expr.addTerm(communicationTime, split);
     }
+
+    return expr;
   }
+
   /**
-   * Formulate the core to core communication cost
+   * Formulate the core to core communication cost with a conjunction of the decision variables of
+   * both ends for every connection and ordered pair of software partitions, kept to cross-check
+   * the cut formulation.
    *
    * @param partitions the list of software partitions
    * @param instanceDecisionVariablesMap a map from instances to decision variables
    * @return a linear expression formulating the inter-core communication cost
    */
-  protected GRBLinExpr getCoreToCoreCommunicationTime(
+  protected LinearExpression getPairwiseCoreToCoreCommunicationTime(
       ImmutableList<SoftwarePartition> partitions,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
       ImmutableList<Connection> softwareConnections) {
     //        ImmutableList<Connection> softwareConnection = getSoftwareOnlyConnections();
     Set<SoftwarePartition> partitionSet = new HashSet<>(partitions);
 
-    GRBLinExpr expr = new GRBLinExpr();
-    for (Connection connection : softwareConnections) {
+    LinearExpression expr = new LinearExpression();
+    for (List<Connection> parallel : groupParallelConnections(softwareConnections)) {
+      Connection connection = parallel.get(0);
+      Instance sourceActor = getRepresentative(findInstance(connection.getSource()));
+      Instance targetActor = getRepresentative(findInstance(connection.getTarget()));
+      // -- a self loop never crosses cores, neither does a connection inside a group
+      if (sourceActor == targetActor) continue;
+      double communicationTime =
+          getCommunicationTime(parallel, CommonProfileDataBase.CommunicationTicks.Kind.Global);
 
       for (SoftwarePartition psource : partitionSet) {
 
@@ -176,41 +673,28 @@ public class MulticorePerformanceModel extends PerformanceModel {
 
         for (SoftwarePartition ptarget : exclusivePartitionSet) {
 
-          Instance sourceActor = findInstance(connection.getSource());
-          Instance targetActor = findInstance(connection.getTarget());
-          GRBVar sourceDecisionVariable =
+          Variable sourceDecisionVariable =
               instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(psource);
-          GRBVar targetDecisionVariable =
+          Variable targetDecisionVariable =
               instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(ptarget);
-          try {
-            String variableName =
-                "d_"
-                    + getConnectionName(connection)
-                    + "_"
-                    + psource.toString()
-                    + "_"
-                    + ptarget.toString();
-            GRBVar conjunctionSourceTarget = model.addVar(0.0, 1.0, 0.0, GRB.BINARY, variableName);
-            GRBVar[] conjunctionArguments = {sourceDecisionVariable, targetDecisionVariable};
-            model.addGenConstrAnd(
-                conjunctionSourceTarget, conjunctionArguments, variableName + "_and_constraint");
-
-            double communicationTime =
-                this.multicoreDB.getCommunicationTicks(
-                        connection, CommonProfileDataBase.CommunicationTicks.Kind.Global)
-                    * this.multicoreClockPeriod;
-
-            expr.addTerm(communicationTime, conjunctionSourceTarget);
-
-          } catch (GRBException e) {
-            error(
-                "Could not formulate the "
-                    + psource.toString()
-                    + " to "
-                    + ptarget.toString()
-                    + " communication time for connection "
-                    + getConnectionName(connection));
+          String variableName =
+              "d_"
+                  + getConnectionName(connection)
+                  + "_"
+                  + psource.toString()
+                  + "_"
+                  + ptarget.toString();
+          if (hasNoTraffic(communicationTime)) {
+            presolved(PlacementPresolve.Rule.ZERO_TRAFFIC, variableName);
+            continue;
           }
+          Variable conjunctionSourceTarget =
+              model.addVariable(0.0, 1.0, VariableType.BINARY, variableName);
+          Variable[] conjunctionArguments = {sourceDecisionVariable, targetDecisionVariable};
+          model.addAndConstraint(
+              conjunctionSourceTarget, conjunctionArguments, variableName + "_and_constraint");
+
+          expr.addTerm(communicationTime, conjunctionSourceTarget);
         }
       }
     }
@@ -225,58 +709,57 @@ public class MulticorePerformanceModel extends PerformanceModel {
    * @param instanceDecisionVariables
    * @return A linear expression showing the time spent on each partition for local communications
    */
-  protected GRBLinExpr getLocalCoreCommunicationExpression(
+  protected LinearExpression getLocalCoreCommunicationExpression(
       SoftwarePartition partition,
       Map<Instance, DecisionVariables> instanceDecisionVariables,
       ImmutableList<Connection> softwareConnections) {
 
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
     //        ImmutableList<Connection> softwareConnections = getSoftwareOnlyConnections();
-    try {
 
-      for (Connection connection : softwareConnections) {
-
-        Instance sourceActor = findInstance(connection.getSource());
-        Instance targetActor = findInstance(connection.getTarget());
-
-        GRBVar sourceDecisionVariable =
-            instanceDecisionVariables.get(sourceActor).getDecisionVariable(partition);
-        GRBVar targetDecisionVariable =
-            instanceDecisionVariables.get(targetActor).getDecisionVariable(partition);
-
-        GRBVar connectionOnTheSamePartition =
-            model.addVar(
-                0.0,
-                1.0,
-                0.0,
-                GRB.BINARY,
-                "d_" + partition.toString() + "_" + getConnectionName(connection));
-
-        // -- the connection is local one if both source and target decision variables are 1, i.e.,
-        // logical and
-        // constraint
-        GRBVar[] conjunctionConstraintArguments = new GRBVar[2];
-        conjunctionConstraintArguments[0] = sourceDecisionVariable;
-        conjunctionConstraintArguments[1] = targetDecisionVariable;
-
-        model.addGenConstrAnd(
-            connectionOnTheSamePartition,
-            conjunctionConstraintArguments,
-            "connection_"
-                + getConnectionName(connection)
-                + "_on_partition_"
-                + partition.toString()
-                + "_constraint");
-
-        double communicationTime =
-            this.multicoreDB.getCommunicationTicks(
-                    connection, CommonProfileDataBase.CommunicationTicks.Kind.Local)
-                * this.multicoreClockPeriod;
-        expr.addTerm(communicationTime, connectionOnTheSamePartition);
+    for (List<Connection> parallel : groupParallelConnections(softwareConnections)) {
+
+      Connection connection = parallel.get(0);
+      Instance sourceActor = getRepresentative(findInstance(connection.getSource()));
+      Instance targetActor = getRepresentative(findInstance(connection.getTarget()));
+      double communicationTime =
+          getCommunicationTime(parallel, CommonProfileDataBase.CommunicationTicks.Kind.Local);
+
+      Variable sourceDecisionVariable =
+          instanceDecisionVariables.get(sourceActor).getDecisionVariable(partition);
+      // -- a self loop or a connection inside a group is local wherever its actor is
+      if (sourceActor == targetActor) {
+        expr.addTerm(communicationTime, sourceDecisionVariable);
+        continue;
       }
+      Variable targetDecisionVariable =
+          instanceDecisionVariables.get(targetActor).getDecisionVariable(partition);
 
-    } catch (GRBException e) {
-      error("Could not formulate the local communication time");
+      String variableName = "d_" + partition.toString() + "_" + getConnectionName(connection);
+      if (hasNoTraffic(communicationTime)) {
+        presolved(PlacementPresolve.Rule.ZERO_TRAFFIC, variableName);
+        continue;
+      }
+      Variable connectionOnTheSamePartition =
+          model.addVariable(0.0, 1.0, VariableType.BINARY, variableName);
+
+      // -- the connection is local one if both source and target decision variables are 1, i.e.,
+      // logical and
+      // constraint
+      Variable[] conjunctionConstraintArguments = new Variable[2];
+      conjunctionConstraintArguments[0] = sourceDecisionVariable;
+      conjunctionConstraintArguments[1] = targetDecisionVariable;
+
+      model.addAndConstraint(
+          connectionOnTheSamePartition,
+          conjunctionConstraintArguments,
+          "connection_"
+              + getConnectionName(connection)
+              + "_on_partition_"
+              + partition.toString()
+              + "_constraint");
+
+      expr.addTerm(communicationTime, connectionOnTheSamePartition);
     }
 
     return expr;
@@ -288,38 +771,202 @@ public class MulticorePerformanceModel extends PerformanceModel {
    * @param instanceDecisionVariables a map from instance to decision variables
    * @return a linear expression formulating the local partition communication time
    */
-  protected GRBLinExpr getPartitionTimeExpression(
+  protected LinearExpression getPartitionTimeExpression(
       SoftwarePartition partition,
       Map<Instance, DecisionVariables> instanceDecisionVariables,
       ImmutableList<Instance> actors) {
 
     // The time spent in each partition is the sum of the times of each actor assigned to that
     // partition
-    GRBLinExpr expr = new GRBLinExpr();
-    try {
-      int numActors = actors.size();
-      GRBVar[] decisionVariables =
-          actors.stream()
-              .map(
-                  instance ->
-                      instanceDecisionVariables.get(instance).getDecisionVariable(partition))
-              .collect(ImmutableList.collector())
-              .toArray(new GRBVar[numActors]);
-      double[] actorCost = new double[numActors];
-      for (int ix = 0; ix < numActors; ix++)
-        actorCost[ix] =
-            this.multicoreDB.getInstanceTicks(actors.get(ix)).doubleValue()
-                * this.multicoreClockPeriod;
-      // if a decision variable is 1, then the cost of the corresponding actor is added to the
-      // partition cost
-      expr.addTerms(actorCost, decisionVariables);
-
-    } catch (GRBException e) {
-      error("Could not formulate partition time");
-    }
+    LinearExpression expr = new LinearExpression();
+    int numActors = actors.size();
+    Variable[] decisionVariables =
+        actors.stream()
+            .map(instance -> instanceDecisionVariables.get(instance).getDecisionVariable(partition))
+            .collect(ImmutableList.collector())
+            .toArray(new Variable[numActors]);
+    double[] actorCost = new double[numActors];
+    for (int ix = 0; ix < numActors; ix++)
+      actorCost[ix] =
+          this.multicoreDB.getInstanceTicks(actors.get(ix)).doubleValue()
+              * this.multicoreClockPeriod;
+    // if a decision variable is 1, then the cost of the corresponding actor is added to the
+    // partition cost
+    expr.addTerms(actorCost, decisionVariables);
     return expr;
   }
 
+  /**
+   * Groups the connections by the actors at their ends, in either direction, and with the
+   * representatives of the grouped actors. The connections of a group need a single variable of
+   * the model, weighted by the sum of their times.
+   *
+   * @param connections the connections
+   * @return the groups, in the order of their first connection
+   */
+  protected Collection<List<Connection>> groupParallelConnections(
+      ImmutableList<Connection> connections) {
+    Map<Set<Instance>, List<Connection>> groups = new LinkedHashMap<>();
+    for (Connection connection : connections) {
+      Set<Instance> ends = new HashSet<>();
+      ends.add(getRepresentative(findInstance(connection.getSource())));
+      ends.add(getRepresentative(findInstance(connection.getTarget())));
+      groups.computeIfAbsent(ends, k -> new ArrayList<>()).add(connection);
+    }
+    return groups.values();
+  }
+
+  /** @return the communication time of the connections in seconds */
+  private double getCommunicationTime(
+      List<Connection> connections, CommonProfileDataBase.CommunicationTicks.Kind kind) {
+    double ticks = 0.0;
+    for (Connection connection : connections) {
+      ticks += this.multicoreDB.getCommunicationTicks(connection, kind);
+    }
+    return ticks * this.multicoreClockPeriod;
+  }
+
+  /**
+   * Reduces the network when reduce is set and keeps the representative of every grouped actor.
+   *
+   * @param costModel the cost model of the network, its actors are the instances of the network
+   * @param numberOfCores the number of software cores
+   * @return the reduction, or null if the network is not reduced
+   */
+  protected NetworkReduction.Result reduceNetwork(CostModel costModel, int numberOfCores) {
+    this.representatives = new LinkedHashMap<>();
+    if (!reduce) return null;
+    NetworkReduction.Result reduction = new NetworkReduction(costModel).reduce(numberOfCores);
+    info("Reduced the network on " + numberOfCores + " cores: " + reduction);
+    ImmutableList<Instance> instances = task.getNetwork().getInstances();
+    for (int actor = 0; actor < instances.size(); actor++) {
+      int representative = reduction.getRepresentative(actor);
+      if (representative != actor) {
+        representatives.put(instances.get(actor), instances.get(representative));
+      }
+    }
+    return reduction;
+  }
+
+  /** @return true if the network being solved is reduced, i.e., some actors are grouped */
+  @Override
+  protected boolean isRestricted() {
+    return !representatives.isEmpty();
+  }
+
+  /** @return the actor that stands for the group of the instance, the instance if it has none */
+  protected Instance getRepresentative(Instance instance) {
+    return representatives.getOrDefault(instance, instance);
+  }
+
+  /**
+   * Ties the decision variables of every grouped actor to the ones of its representative, the
+   * solver substitutes them so that only the reduced network is searched.
+   *
+   * @param instanceDecisionVariables a map from instances to decision variables
+   * @param partitions the partitions of the model
+   */
+  protected void tieGroupedActors(
+      Map<Instance, DecisionVariables> instanceDecisionVariables,
+      List<? extends TypedPartition> partitions) {
+    for (Map.Entry<Instance, Instance> entry : representatives.entrySet()) {
+      DecisionVariables actor = instanceDecisionVariables.get(entry.getKey());
+      DecisionVariables representative = instanceDecisionVariables.get(entry.getValue());
+      if (actor == null || representative == null) continue;
+      for (TypedPartition p : partitions) {
+        // -- an actor fixed to software by the presolve has no variable for the accelerator, it
+        // ties the one of the rest of the group to 0
+        Variable actorVariable = actor.getDecisionVariable(p);
+        Variable representativeVariable = representative.getDecisionVariable(p);
+        if (actorVariable == null && representativeVariable == null) continue;
+        LinearExpression tie = new LinearExpression();
+        if (actorVariable != null) tie.addTerm(1.0, actorVariable);
+        if (representativeVariable != null) tie.addTerm(-1.0, representativeVariable);
+        model.addConstraint(
+            tie,
+            Sense.EQUAL,
+            0.0,
+            "constraint_grouped_" + entry.getKey().getInstanceName() + "_" + p.toString());
+      }
+    }
+  }
+
+  /**
+   * Records a variable that the presolve kept out of the model, a variable that several cost terms
+   * would share is counted once.
+   *
+   * @param rule the rule that removed the variable
+   * @param variableName the name the variable would have in the model
+   */
+  protected void presolved(PlacementPresolve.Rule rule, String variableName) {
+    presolved.computeIfAbsent(rule, r -> new HashSet<>()).add(variableName);
+  }
+
+  /**
+   * @param communicationTime the communication time of a connection
+   * @return true if the connection has no traffic and the presolve leaves its variables out. The
+   *     rule is off while sweeping, a scenario may give the connection traffic and the sweep
+   *     patches the model of its first solve.
+   */
+  protected boolean hasNoTraffic(double communicationTime) {
+    return !sweeping && communicationTime == 0.0;
+  }
+
+  /** Reports how many variables every rule of the presolve removed from the model just built. */
+  protected void reportPresolve() {
+    int total = presolved.values().stream().mapToInt(Set::size).sum();
+    info(
+        "Presolve removed "
+            + total
+            + " variables: "
+            + Arrays.stream(PlacementPresolve.Rule.values())
+                .map(
+                    rule ->
+                        rule.getName()
+                            + " "
+                            + presolved.getOrDefault(rule, Collections.emptySet()).size())
+                .collect(Collectors.joining(", ")));
+    presolved.clear();
+  }
+
+  /**
+   * Solves the heuristics of a solve on the reduced network and expands their solution.
+   *
+   * @param costModel the cost model of the network
+   * @param reduction the reduction of the network, or null
+   * @param heuristic solves the heuristics on a cost model
+   * @return the solution of the heuristics on the network, or null if there is none
+   */
+  protected Assignment solveReduced(
+      CostModel costModel,
+      NetworkReduction.Result reduction,
+      Function<CostModel, Assignment> heuristic) {
+    if (reduction == null) return heuristic.apply(costModel);
+    Assignment reduced = heuristic.apply(reduction.getCostModel());
+    return reduced == null ? null : reduction.expand(reduced);
+  }
+
+  /**
+   * Moves every grouped actor of a start to the partition of its representative, a start derived
+   * from another solve may split a group.
+   *
+   * @param costModel the cost model of the network
+   * @param reduction the reduction of the network, or null
+   * @param start the start, or null
+   * @param numberOfCores the number of software cores
+   * @return the start that keeps the groups together, or null if there is none
+   */
+  protected Assignment keepGroupsTogether(
+      CostModel costModel, NetworkReduction.Result reduction, Assignment start, int numberOfCores) {
+    if (start == null || reduction == null || !reduction.hasGroups()) return start;
+    int[] partition = reduction.project(start.getPartitions());
+    if (!costModel.isFeasible(partition, numberOfCores)) {
+      info("The start on " + numberOfCores + " cores splits a group of actors, dropping it");
+      return null;
+    }
+    return costModel.evaluate(partition, numberOfCores);
+  }
+
   private ImmutableList<Connection> getSoftwareOnlyConnections() {
     return task.getNetwork().getConnections().stream()
         .filter(
@@ -337,222 +984,374 @@ public class MulticorePerformanceModel extends PerformanceModel {
   }
 
   /**
-   * Build a symmetric MILP model for performance and solve it
-   *
-   * @param numberOfCores
+   * @param mode the directory of the mode, homogeneous or heterogeneous
+   * @param numberOfCores the number of cores
+   * @return the output directory of a core count, under sweep/name while solving a scenario
    */
-  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+  protected Path getOutputPath(String mode, int numberOfCores) {
+    Path path = context.getConfiguration().get(Compiler.targetPath).resolve(mode);
+    if (scenario != null) path = path.resolve("sweep").resolve(scenario.getName());
+    return path.resolve(String.valueOf(numberOfCores));
+  }
 
-    // The full actor network
-    Network network = task.getNetwork();
+  /** Replaces the profile inputs of the model by the ones the scenario defines. */
+  protected void applyScenario(ProfileScenario scenario) {
+    if (scenario.getMulticoreDB() != null) this.multicoreDB = scenario.getMulticoreDB();
+    if (scenario.getMulticoreClockPeriod() != null) {
+      this.multicoreClockPeriod = scenario.getMulticoreClockPeriod();
+    }
+  }
 
-    // -- trivial none solution
-    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+  /** @return a scenario with the current profile inputs of the model */
+  protected ProfileScenario currentScenario() {
+    return new ProfileScenario("baseline")
+        .setMulticoreDB(multicoreDB)
+        .setMulticoreClockPeriod(multicoreClockPeriod);
+  }
 
+  /**
+   * Solves the model for every scenario of a what-if sweep over the profiles. The scenarios only
+   * change the costs, so the backend keeps the model of the first one and every later one patches
+   * its coefficients, right hand sides and bounds in place and starts from the best solution of
+   * the previous scenario. The outputs of every scenario go into sweep/name of the output
+   * directory of the mode, the profiles of the model are restored afterwards.
+   *
+   * @param numberOfCores the number of software cores
+   * @param scenarios the scenarios, solved in order
+   * @return the solutions of every scenario, in the order of the scenarios
+   */
+  public ImmutableList<ImmutableList<PartitioningSolution<String>>> solveScenarios(
+      int numberOfCores, List<ProfileScenario> scenarios) {
+    ProfileScenario baseline = currentScenario();
+    PartitioningSolution<String> baselineWarmStart = this.warmStart;
+    ImmutableList.Builder<ImmutableList<PartitioningSolution<String>>> results =
+        ImmutableList.builder();
+    beginSweep();
     try {
-      info("Starting pinned hardware partitioning on " + numberOfCores + " cores");
-      GRBEnv env = new GRBEnv(true);
-
-      Path logPath = context.getConfiguration().get(Compiler.targetPath);
-      logPath.toFile().mkdirs();
-
-      info("Logging into " + logPath.toAbsolutePath().toString());
-
-      env.set("LogFile", logPath.resolve("gurobi.log").toAbsolutePath().toString());
-
-      env.start();
-
-      this.model = new GRBModel(env);
-
-      model.set(GRB.DoubleParam.TimeLimit, this.timeLimit);
-
-      // -- create the parititions set
-      ImmutableList<SoftwarePartition> partitions = makeSoftwarePartitionSet(numberOfCores);
-      ImmutableList<TypedPartition> basePartitions = partitions.map(p -> p);
-
-      // -- declare the decision variables
-      Map<Instance, DecisionVariables> instanceDecisionVariables =
-          getSoftwareActors().stream()
-              .collect(
-                  Collectors.toMap(
-                      Function.identity(),
-                      instance -> new DecisionVariables(instance, basePartitions, model)));
-
-      // -- we need to make sure every actor is mapped to exactly one partition
-      for (Instance inst : instanceDecisionVariables.keySet()) {
-        GRBLinExpr constraint = instanceDecisionVariables.get(inst).getUniquePartitionConstraint();
-        model.addConstr(constraint, GRB.EQUAL, 1.0, inst.getInstanceName() + "_unique_partition");
-      }
-      // -- restricted growth and core utilization constraints
-      restrictedGrowthConstraint(instanceDecisionVariables, numberOfCores);
-
-      // -- symmetry breaking constraints
-      for (Instance inst : instanceDecisionVariables.keySet()) {
-        getSymmetryBreakingConstraints(inst, instanceDecisionVariables.get(inst));
+      for (ProfileScenario next : scenarios) {
+        info("Solving scenario " + next.getName() + " on " + numberOfCores + " cores");
+        applyScenario(next);
+        this.scenario = next;
+        this.warmStart = null;
+        ImmutableList<PartitioningSolution<String>> solutions = solveModel(numberOfCores);
+        saveScenarioSolutions(numberOfCores, solutions);
+        results.add(solutions);
       }
+    } finally {
+      endSweep();
+      this.scenario = null;
+      this.sweepGrowthOrder = null;
+      this.warmStart = baselineWarmStart;
+      applyScenario(baseline);
+    }
+    return results.build();
+  }
 
-      // -- Formulate core execution time, note that plink is pinned to the first core
+  /** Writes the summary and the configurations of the solutions of a scenario. */
+  protected void saveScenarioSolutions(
+      int numberOfCores, ImmutableList<PartitioningSolution<String>> solutions) {
+    File dumpDir = getOutputPath("homogeneous", numberOfCores).toFile();
+    dumpDir.mkdirs();
+    solutionsSummary(dumpDir);
+    for (int ix = 0; ix < solutions.size(); ix++) {
+      dumpMulticoreConfig(dumpDir + "/config_" + ix + ".xml", solutions.get(ix), multicoreDB);
+    }
+  }
 
-      // -- the upper bound for each partition is simply the sum of all actor execution times on
-      // software
-      Double partitionTimeUpperBound =
-          getSoftwareActors().stream()
-                  .map(this.multicoreDB::getInstanceTicks)
-                  .reduce(Long::sum)
-                  .orElseThrow(
-                      () ->
-                          new CompilationException(
-                              new Diagnostic(
-                                  Diagnostic.Kind.ERROR,
-                                  "Could not" + " compute partition execution time upper bound")))
-                  .doubleValue()
-              * this.multicoreClockPeriod;
+  /**
+   * Writes the outputs a solve of the model writes itself for solutions restored from a cache, the
+   * reports excluded. The homogeneous configurations are written by the caller.
+   *
+   * @param numberOfCores the number of cores of the solutions
+   * @param solutions the solutions as returned by solveModel
+   */
+  public void restoreSolutions(
+      int numberOfCores, ImmutableList<PartitioningSolution<String>> solutions) {}
 
-      List<GRBVar> partitionExecutionTimeList = new ArrayList<>();
-      for (SoftwarePartition partition : partitions) {
+  /**
+   * Build a symmetric MILP model for performance and solve it
+   *
+   * @param numberOfCores
+   */
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
 
-        GRBLinExpr partitionTimeExpression =
-            getPartitionTimeExpression(partition, instanceDecisionVariables, getSoftwareActors());
+    // The full actor network
+    Network network = task.getNetwork();
 
-        GRBVar partitionExecTime =
-            model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_exec_" + partition.toString());
-        // -- set the variable representing the partition time to the sum expression formulated
-        // above
-        model.addConstr(
-            partitionExecTime,
-            GRB.EQUAL,
-            partitionTimeExpression,
-            "T_exec_" + partition.toString() + "_constraint");
+    // -- trivial none solution
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+    this.provenStart = null;
 
-        partitionExecutionTimeList.add(partitionExecTime);
-      }
-      GRBVar[] partitionExecutionTimeArray = partitionExecutionTimeList.toArray(new GRBVar[0]);
-      GRBVar executionTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_exec");
-      model.addGenConstrMax(executionTime, partitionExecutionTimeArray, 0.0, "T_exec_constraints");
-      // -- formulate the intra core communication, i.e., the local communication time on each
-      // partition,
-      // note that this excludes the time spent communicating on first core with the plink
-
-      // -- upper bound for local communication time
-      // TODO: make this bound tighter!
-
-      Double localCommunicationTimeUpperBound =
-          network.getConnections().stream()
-              .map(
-                  con ->
-                      this.multicoreDB.getCommunicationTicks(
-                              con, CommonProfileDataBase.CommunicationTicks.Kind.Local)
-                          * this.multicoreClockPeriod)
-              .reduce(Double::sum)
-              .orElseThrow(
-                  () ->
-                      new CompilationException(
-                          new Diagnostic(
-                              Diagnostic.Kind.ERROR,
-                              "Could not compute local communication time upper bound")));
-
-      List<GRBVar> localCommunicationTimeList = new ArrayList<>();
-      for (SoftwarePartition partition : partitions) {
-
-        GRBLinExpr localCommunicationTimeExpression =
-            getLocalCoreCommunicationExpression(
-                partition, instanceDecisionVariables, getSoftwareOnlyConnections());
-
-        GRBVar localCommunicationTimeInPartition =
-            model.addVar(
-                0.0,
-                localCommunicationTimeUpperBound,
-                0.0,
-                GRB.CONTINUOUS,
-                "T_lc_" + partition.toString());
-
-        model.addConstr(
-            localCommunicationTimeInPartition,
-            GRB.EQUAL,
-            localCommunicationTimeExpression,
-            "T_lc_" + partition.toString() + "_constraint");
-
-        localCommunicationTimeList.add(localCommunicationTimeInPartition);
-      }
+    info("Starting pinned hardware partitioning on " + numberOfCores + " cores");
+    long buildStartTime = System.nanoTime();
 
-      GRBVar localCommunicationTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_lc");
-      GRBVar[] localCommunicationTimeInPartitionArray =
-          localCommunicationTimeList.toArray(new GRBVar[localCommunicationTimeList.size()]);
-      model.addGenConstrMax(
-          localCommunicationTime, localCommunicationTimeInPartitionArray, 0.0, "T_lc_constraint");
+    // -- every core count logs into its own directory so that they can be solved concurrently
+    Path logPath = getOutputPath("homogeneous", numberOfCores);
+    logPath.toFile().mkdirs();
 
-      // -- formulate the inter core communication time
+    info("Logging into " + logPath.toAbsolutePath().toString());
 
-      GRBLinExpr globalCommunicationTimeExpression =
-          getCoreToCoreCommunicationTime(
-              partitions, instanceDecisionVariables, getSoftwareOnlyConnections());
+    SolverSettings settings = new SolverSettings(this.timeLimit);
+    settings.setLogFile(logPath.resolve("gurobi.log"));
+    settings.setThreads(this.threads);
 
-      // -- compute and upper bound for the global communication time
-      // TODO: Maybe make the bound tighter?
-      Double globalCommunicationTimeUpperBound =
-          network.getConnections().stream()
-              .map(
-                  con ->
-                      this.multicoreDB.getCommunicationTicks(
-                              con, CommonProfileDataBase.CommunicationTicks.Kind.Global)
-                          * this.multicoreClockPeriod)
-              .reduce(Double::sum)
-              .orElseThrow(
-                  () ->
-                      new CompilationException(
-                          new Diagnostic(
-                              Diagnostic.Kind.ERROR,
-                              "Could not compute local communication time upper bound")));
-      GRBVar globalCommunicationTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T_cc");
-      model.addConstr(
-          globalCommunicationTime, GRB.EQUAL, globalCommunicationTimeExpression, "T_cc_constraint");
+    this.model = new OptimizationModel("homogeneous_" + numberOfCores);
 
-      GRBLinExpr objectiveExpression = new GRBLinExpr();
-      objectiveExpression.addTerm(1.0, executionTime);
-      objectiveExpression.addTerm(1.0, localCommunicationTime);
-      objectiveExpression.addTerm(1.0, globalCommunicationTime);
+    // -- create the parititions set
+    ImmutableList<SoftwarePartition> partitions = makeSoftwarePartitionSet(numberOfCores);
+    ImmutableList<TypedPartition> basePartitions = partitions.map(p -> p);
 
-      GRBVar totalTime = model.addVar(0.0, GRB.INFINITY, 0.0, GRB.CONTINUOUS, "T");
-      model.addConstr(totalTime, GRB.EQUAL, objectiveExpression, "total_time_constraint");
+    // -- declare the decision variables
+    Map<Instance, DecisionVariables> instanceDecisionVariables =
+        getSoftwareActors().stream()
+            .collect(
+                Collectors.toMap(
+                    Function.identity(),
+                    instance -> new DecisionVariables(instance, basePartitions, model)));
 
-      model.setObjective(objectiveExpression, GRB.MINIMIZE);
+    // -- we need to make sure every actor is mapped to exactly one partition
+    for (Instance inst : instanceDecisionVariables.keySet()) {
+      LinearExpression constraint =
+          instanceDecisionVariables.get(inst).getUniquePartitionConstraint();
+      model.addConstraint(
+          constraint, Sense.EQUAL, 1.0, inst.getInstanceName() + "_unique_partition");
+    }
 
-      Path modelFile = logPath.resolve("model.lp");
-      info("Writing the model into " + modelFile.toAbsolutePath().toString());
+    // -- start from the greedy solution, the best pipeline partition or the previous core count,
+    // and bound the objective terms by the objective of the start
+    CostModel costModel =
+        new HomogeneousCostModel(
+            PartitioningProblem.fromNetwork(network, multicoreDB, multicoreClockPeriod));
+    NetworkReduction.Result reduction = reduceNetwork(costModel, numberOfCores);
+    Assignment start =
+        selectStart(
+            costModel,
+            solveReduced(costModel, reduction, reduced -> solveHeuristics(reduced, numberOfCores)),
+            numberOfCores);
+    LowerBounds.Result bounds = computeLowerBounds(costModel, numberOfCores);
+    if (start != null && start.getTotalTime() <= getObjectiveStop()) {
+      // -- the solver can not do better than the gap limit allows
+      info(
+          String.format(
+              "The start on %d cores is within the gap limit of the lower bound %s, skipping the"
+                  + " solver",
+              numberOfCores, lowerBound));
+      skipSolve(start.getTotalTime());
+      this.provenStart = start;
+      return ImmutableList.of(createSolution(costModel.getProblem(), start));
+    }
+    start = keepGroupsTogether(costModel, reduction, start, numberOfCores);
+    tieGroupedActors(instanceDecisionVariables, basePartitions);
+    ImmutableList<Instance> growthOrder =
+        sweepGrowthOrder != null
+            ? sweepGrowthOrder
+            : getRestrictedGrowthOrder(costModel.getProblem());
+    if (scenario != null) sweepGrowthOrder = growthOrder;
+    if (start != null) {
+      applyWarmStart(
+          instanceDecisionVariables,
+          toRestrictedGrowth(toStartMap(costModel.getProblem(), start), growthOrder));
+    }
 
-      model.write(modelFile.toString());
+    // -- restricted growth and core utilization constraints
+    restrictedGrowthConstraint(instanceDecisionVariables, growthOrder, numberOfCores);
 
-      model.presolve();
-      model.optimize();
+    // -- symmetry breaking constraints
+    for (Instance inst : instanceDecisionVariables.keySet()) {
+      getSymmetryBreakingConstraints(inst, instanceDecisionVariables.get(inst));
+    }
 
-      return collectSolutions(model, basePartitions, instanceDecisionVariables);
+    // -- Formulate core execution time, note that plink is pinned to the first core
+
+    // -- the upper bound for each partition is simply the sum of all actor execution times on
+    // software
+    Double partitionTimeUpperBound =
+        getSoftwareActors().stream()
+                .map(this.multicoreDB::getInstanceTicks)
+                .reduce(Long::sum)
+                .orElseThrow(
+                    () ->
+                        new CompilationException(
+                            new Diagnostic(
+                                Diagnostic.Kind.ERROR,
+                                "Could not" + " compute partition execution time upper bound")))
+                .doubleValue()
+            * this.multicoreClockPeriod;
+
+    List<Variable> partitionExecutionTimeList = new ArrayList<>();
+    for (SoftwarePartition partition : partitions) {
+
+      LinearExpression partitionTimeExpression =
+          getPartitionTimeExpression(partition, instanceDecisionVariables, getSoftwareActors());
+
+      Variable partitionExecTime =
+          model.addVariable(
+              0.0,
+              partitionTimeUpperBound,
+              VariableType.CONTINUOUS,
+              "T_exec_" + partition.toString());
+      // -- set the variable representing the partition time to the sum expression formulated
+      // above
+      model.addConstraint(
+          partitionExecTime,
+          Sense.EQUAL,
+          partitionTimeExpression,
+          "T_exec_" + partition.toString() + "_constraint");
+
+      partitionExecutionTimeList.add(partitionExecTime);
+    }
+    Variable[] partitionExecutionTimeArray = partitionExecutionTimeList.toArray(new Variable[0]);
+    Variable executionTime =
+        model.addVariable(0.0, partitionTimeUpperBound, VariableType.CONTINUOUS, "T_exec");
+    model.addMaxConstraint(executionTime, partitionExecutionTimeArray, 0.0, "T_exec_constraints");
+    // -- formulate the intra core communication, i.e., the local communication time on each
+    // partition,
+    // note that this excludes the time spent communicating on first core with the plink
+
+    // -- upper bound for local communication time, tightened by the start below
+
+    Double localCommunicationTimeUpperBound =
+        network.getConnections().stream()
+            .map(
+                con ->
+                    this.multicoreDB.getCommunicationTicks(
+                            con, CommonProfileDataBase.CommunicationTicks.Kind.Local)
+                        * this.multicoreClockPeriod)
+            .reduce(Double::sum)
+            .orElseThrow(
+                () ->
+                    new CompilationException(
+                        new Diagnostic(
+                            Diagnostic.Kind.ERROR,
+                            "Could not compute local communication time upper bound")));
+
+    List<Variable> localCommunicationTimeList = new ArrayList<>();
+    for (SoftwarePartition partition : partitions) {
+
+      LinearExpression localCommunicationTimeExpression =
+          getLocalCoreCommunicationExpression(
+              partition, instanceDecisionVariables, getSoftwareOnlyConnections());
+
+      Variable localCommunicationTimeInPartition =
+          model.addVariable(
+              0.0,
+              localCommunicationTimeUpperBound,
+              VariableType.CONTINUOUS,
+              "T_lc_" + partition.toString());
+
+      model.addConstraint(
+          localCommunicationTimeInPartition,
+          Sense.EQUAL,
+          localCommunicationTimeExpression,
+          "T_lc_" + partition.toString() + "_constraint");
+
+      localCommunicationTimeList.add(localCommunicationTimeInPartition);
+    }
 
-    } catch (GRBException e) {
-      fatalError("Could not solve or build the performance model: " + e.toString());
+    Variable localCommunicationTime =
+        model.addVariable(0.0, localCommunicationTimeUpperBound, VariableType.CONTINUOUS, "T_lc");
+    Variable[] localCommunicationTimeInPartitionArray =
+        localCommunicationTimeList.toArray(new Variable[localCommunicationTimeList.size()]);
+    model.addMaxConstraint(
+        localCommunicationTime, localCommunicationTimeInPartitionArray, 0.0, "T_lc_constraint");
+
+    // -- formulate the inter core communication time
+
+    LinearExpression globalCommunicationTimeExpression =
+        getCoreToCoreCommunicationTime(
+            partitions, instanceDecisionVariables, getSoftwareOnlyConnections());
+
+    // -- compute and upper bound for the global communication time, tightened by the start below
+    Double globalCommunicationTimeUpperBound =
+        network.getConnections().stream()
+            .map(
+                con ->
+                    this.multicoreDB.getCommunicationTicks(
+                            con, CommonProfileDataBase.CommunicationTicks.Kind.Global)
+                        * this.multicoreClockPeriod)
+            .reduce(Double::sum)
+            .orElseThrow(
+                () ->
+                    new CompilationException(
+                        new Diagnostic(
+                            Diagnostic.Kind.ERROR,
+                            "Could not compute local communication time upper bound")));
+    Variable globalCommunicationTime =
+        model.addVariable(0.0, globalCommunicationTimeUpperBound, VariableType.CONTINUOUS, "T_cc");
+    model.addConstraint(
+        globalCommunicationTime, Sense.EQUAL, globalCommunicationTimeExpression, "T_cc_constraint");
+
+    LinearExpression objectiveExpression = new LinearExpression();
+    objectiveExpression.addTerm(1.0, executionTime);
+    objectiveExpression.addTerm(1.0, localCommunicationTime);
+    objectiveExpression.addTerm(1.0, globalCommunicationTime);
+
+    Variable totalTime = model.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T");
+    model.addConstraint(totalTime, Sense.EQUAL, objectiveExpression, "total_time_constraint");
+
+    model.setObjective(objectiveExpression, ObjectiveSense.MINIMIZE);
+
+    reportPresolve();
+    applyUpperBounds(new UpperBounds(costModel).compute(numberOfCores), numberOfCores);
+    if (start != null) boundByIncumbent(start.getTotalTime(), getObjectiveTermNames(numberOfCores));
+    // -- bound the objective from below and stop once the incumbent is close enough to the bound
+    applyLowerBounds(bounds, settings);
+
+    Path modelFile = logPath.resolve("model.lp");
+    info("Writing the model into " + modelFile.toAbsolutePath().toString());
+    settings.setModelFile(modelFile);
+
+    solve(settings, buildStartTime);
+    dumpWarmStartReport(logPath.toFile());
+
+    ImmutableList<PartitioningSolution<String>> solutions =
+        collectSolutions(basePartitions, instanceDecisionVariables);
+    if (refine) {
+      solutions =
+          refineSolutions(
+              costModel, solutions, Function.identity(), numberOfCores, logPath.toFile());
     }
+    return solutions;
+  }
 
-    return ImmutableList.empty();
+  /**
+   * Partitions the network greedily and into contiguous segments of its pipeline order. The
+   * segments are the best partition of a pipeline up to the interleaving of its actors, and the
+   * best one of a series-parallel network that keeps its branches together.
+   *
+   * @param costModel the cost model of the problem being solved
+   * @param numberOfCores the number of software cores
+   * @return the better of the two partitions, or null if there is none
+   */
+  private Assignment solveHeuristics(CostModel costModel, int numberOfCores) {
+    Assignment greedy = new GreedyPartitioner(costModel).solve(numberOfCores);
+    ChainPartitioner chain = new ChainPartitioner(costModel.getProblem());
+    ChainPartitioner.Result contiguous =
+        chain.solve(
+            numberOfCores, greedy == null ? Double.POSITIVE_INFINITY : greedy.getTotalTime());
+    info(
+        String.format(
+            "Contiguous partition of the %s network on %d cores: %s (%s, %d labels)",
+            chain.getStructure(),
+            numberOfCores,
+            contiguous.getAssignment() == null
+                ? "none better than greedy"
+                : contiguous.getAssignment(),
+            contiguous.isExact() ? "exact" : "pruned",
+            contiguous.getLabels()));
+    return contiguous.getAssignment() != null ? contiguous.getAssignment() : greedy;
   }
 
   private ImmutableList<PartitioningSolution<String>> collectSolutions(
-      GRBModel model,
       ImmutableList<TypedPartition> partitionTypes,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
 
     ImmutableList.Builder<PartitioningSolution<String>> solutionBuilder = ImmutableList.builder();
 
-    if (model == null) return ImmutableList.empty();
-
-    try {
-      int solutionCount = model.get(GRB.IntAttr.SolCount);
-
-      for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
-        model.set(GRB.IntParam.SolutionNumber, solutionIndex);
-        solutionBuilder.add(createSolution(partitionTypes, instanceDecisionVariablesMap));
-      }
+    if (solutionPool == null) return ImmutableList.empty();
 
-    } catch (GRBException e) {
-      fatalError("Could not obtains solutions: " + e.getMessage());
+    for (Solution solution : solutionPool.getSolutions()) {
+      solutionBuilder.add(createSolution(partitionTypes, instanceDecisionVariablesMap, solution));
     }
 
     return solutionBuilder.build();
@@ -560,7 +1359,8 @@ public class MulticorePerformanceModel extends PerformanceModel {
 
   protected PartitioningSolution<String> createSolution(
       List<TypedPartition> partitionTypes,
-      Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
+      Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
+      Solution solution) {
 
     ImmutableList.Builder<Partition<String>> partitionsBuilder = ImmutableList.builder();
     //        partitionTypes.sort(Comparator.comparingInt(SoftwarePartition::toIndex));
@@ -571,24 +1371,8 @@ public class MulticorePerformanceModel extends PerformanceModel {
           getSoftwareActors().stream()
               .filter(
                   inst -> {
-                    GRBVar pNumber = instanceDecisionVariablesMap.get(inst).getPartitionNumber();
-                    int partitionIndex = 0;
-                    try {
-                      Double pNumberDouble = pNumber.get(GRB.DoubleAttr.Xn);
-                      Double floorValue = (double) pNumberDouble.intValue();
-                      Double ceilValue = floorValue + 1;
-                      if (pNumberDouble - floorValue < ceilValue - pNumberDouble) {
-                        partitionIndex = floorValue.intValue();
-                      } else {
-                        partitionIndex = ceilValue.intValue();
-                      }
-                    } catch (GRBException e) {
-                      fatalError(
-                          "Could not get the partitionIndex value as Integer for instance "
-                              + inst.getInstanceName()
-                              + ": "
-                              + e.getMessage());
-                    }
+                    Variable pNumber = instanceDecisionVariablesMap.get(inst).getPartitionNumber();
+                    int partitionIndex = solution.getIntegerValue(pNumber);
                     return partitionIndex == p.toIndex();
                   })
               .collect(ImmutableList.collector());
@@ -602,24 +1386,51 @@ public class MulticorePerformanceModel extends PerformanceModel {
     return new PartitioningSolution<>(partitionsBuilder.build());
   }
 
+  protected PartitioningSolution<String> createSolution(
+      PartitioningProblem problem, Assignment assignment) {
+
+    ImmutableList.Builder<Partition<String>> partitionsBuilder = ImmutableList.builder();
+    for (SoftwarePartition p : makeSoftwarePartitionSet(assignment.getNumberOfPartitions())) {
+      ImmutableList.Builder<String> instanceNames = ImmutableList.builder();
+      for (int actor = 0; actor < problem.getNumActors(); actor++) {
+        if (assignment.getPartition(actor) == p.toIndex()) {
+          instanceNames.add(problem.getActorName(actor));
+        }
+      }
+      partitionsBuilder.add(new Partition<>(instanceNames.build(), p));
+    }
+    return new PartitioningSolution<>(partitionsBuilder.build());
+  }
+
   public void solutionsSummary(File dumpDir) {
 
-    if (model == null) return;
+    if (solutionPool == null && provenStart == null) return;
     File dumpFile = new File(dumpDir + "/solutions.csv");
     try {
       PrintWriter solutionWriter = new PrintWriter(dumpFile);
-      solutionWriter.println("T,T_exec,T_lc,T_cc");
-      try {
-        int solutionCount = model.get(GRB.IntAttr.SolCount);
-        for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
-
-          model.set(GRB.IntParam.SolutionNumber, solutionIndex);
-          System.out.println("Solution " + solutionIndex + ": ");
-          printTimingBreakdown(solutionIndex, solutionWriter);
-          System.out.println();
-        }
-      } catch (GRBException e) {
-        fatalError("Could not print solution summary: " + e.getMessage());
+      solutionWriter.println("T,T_exec,T_lc,T_cc,lower_bound,gap");
+      if (solutionPool == null) {
+        System.out.println("Solution 0: " + provenStart);
+        solutionWriter.println(
+            provenStart.getTotalTime()
+                + ","
+                + provenStart.getExecutionTime()
+                + ","
+                + provenStart.getLocalCommunicationTime()
+                + ","
+                + provenStart.getCoreToCoreCommunicationTime()
+                + ","
+                + lowerBound
+                + ","
+                + getGap(provenStart.getTotalTime()));
+        solutionWriter.close();
+        return;
+      }
+      for (int solutionIndex = 0; solutionIndex < solutionPool.size(); solutionIndex++) {
+
+        System.out.println("Solution " + solutionIndex + ": ");
+        printTimingBreakdown(solutionPool.get(solutionIndex), solutionWriter);
+        System.out.println();
       }
       solutionWriter.close();
     } catch (FileNotFoundException e) {
@@ -627,31 +1438,31 @@ public class MulticorePerformanceModel extends PerformanceModel {
     }
   }
 
-  private void printTimingBreakdown(int id, PrintWriter writer) throws GRBException {
+  private void printTimingBreakdown(Solution solution, PrintWriter writer) {
 
-    printVar("T");
-    printVar("T_exec");
-    printVar("T_lc");
-    printVar("T_cc");
+    printVar("T", solution);
+    printVar("T_exec", solution);
+    printVar("T_lc", solution);
+    printVar("T_cc", solution);
     writer.println(
-        getVarByName("T")
+        getVariableValue("T", solution)
             + ","
-            + getVarByName("T_exec")
+            + getVariableValue("T_exec", solution)
             + ","
-            + getVarByName("T_lc")
+            + getVariableValue("T_lc", solution)
             + ","
-            + getVarByName("T_cc"));
-  }
-
-  private Double getVarByName(String name) throws GRBException {
-    return model.getVarByName(name).get(GRB.DoubleAttr.Xn);
+            + getVariableValue("T_cc", solution)
+            + ","
+            + lowerBound
+            + ","
+            + getGap(getVariableValue("T", solution)));
   }
 
   private void printVar(String name, Double value) {
     System.out.printf("%s = %6.6f s\n", name, value);
   }
 
-  private void printVar(String name) throws GRBException {
-    printVar(name, getVarByName(name));
+  private void printVar(String name, Solution solution) {
+    printVar(name, getVariableValue(name, solution));
   }
 }
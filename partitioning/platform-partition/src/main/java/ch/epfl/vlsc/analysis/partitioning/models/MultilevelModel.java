@@ -0,0 +1,88 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.BranchAndBoundSolver;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.MultilevelPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * Solves the homogeneous partitioning problem of large networks in multiple levels: the network
+ * is coarsened by heavy edge matching, the coarsest problem is solved by the branch and bound
+ * engine and the solution is refined at every level on the way back to the original network.
+ */
+public class MultilevelModel extends AssignmentModel {
+
+  private int coarsestSize = 0;
+
+  public MultilevelModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+  }
+
+  /** @param coarsestSize the largest number of actors of the coarsest level, 0 for the default */
+  public void setCoarsestSize(int coarsestSize) {
+    this.coarsestSize = coarsestSize;
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+
+    info("Starting multilevel partitioning on " + numberOfCores + " cores");
+
+    PartitioningProblem problem =
+        PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    HomogeneousCostModel costModel = new HomogeneousCostModel(problem);
+    computeLowerBounds(costModel, numberOfCores);
+    MultilevelPartitioner partitioner = new MultilevelPartitioner(costModel);
+    if (coarsestSize > 0) partitioner.setCoarsestSize(coarsestSize);
+    MultilevelPartitioner.Result result = partitioner.solve(numberOfCores, this::solveCoarsest);
+
+    if (result.getAssignment() == null) {
+      info("Could not partition the coarsest network on " + numberOfCores + " cores");
+      this.assignments = ImmutableList.empty();
+    } else {
+      info(
+          String.format(
+              "Multilevel partitioning on %d cores over levels of %s actors: coarsest T = %6.6f, "
+                  + "refined %s",
+              numberOfCores,
+              result.getLevelSizes(),
+              result.getCoarseTime(),
+              result.getAssignment()));
+      this.assignments = ImmutableList.of(result.getAssignment());
+    }
+    return assignments.map(assignment -> createSolution(problem, assignment));
+  }
+
+  private Assignment solveCoarsest(CostModel costModel, int numberOfCores) {
+    BranchAndBoundSolver solver = new BranchAndBoundSolver(costModel.getProblem(), numberOfCores);
+    solver.setTimeLimit(timeLimit);
+    // -- every coarse assignment is a fine one, the bound of the fine network holds here too
+    solver.setGapLimit(gapLimit);
+    solver.setLowerBound(lowerBound);
+    if (threads > 0) solver.setParallelism(threads);
+    Assignment start = new GreedyPartitioner(costModel).solve(numberOfCores);
+    if (start != null) solver.addStart(start.getPartitions());
+    BranchAndBoundSolver.Result result = solver.solve();
+    info(
+        String.format(
+            "Branch and bound on the coarsest level finished in %.3f s: %s, gap %.2f%%",
+            result.getRuntime(),
+            result.isOptimal() ? "OPTIMAL" : "TIME_LIMIT",
+            result.getGap() * 100.0));
+    return result.getSolutions().isEmpty() ? start : result.getSolutions().get(0);
+  }
+}
@@ -1,11 +1,13 @@
 package ch.epfl.vlsc.analysis.partitioning.models;
 
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.LowerBounds;
 import ch.epfl.vlsc.analysis.partitioning.parser.CommonProfileDataBase;
 import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
 import ch.epfl.vlsc.configuration.Configuration;
 
 import ch.epfl.vlsc.configuration.ConfigurationManager;
-import gurobi.*;
+import ch.epfl.vlsc.analysis.partitioning.solver.*;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import se.lth.cs.tycho.compiler.CompilationTask;
@@ -27,15 +29,362 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public abstract class PerformanceModel {
 
   protected Context context;
   protected CompilationTask task;
-  GRBModel model;
+  protected OptimizationModel model;
+  protected SolutionPool solutionPool;
+  protected SolverBackend backend = new GurobiBackend();
+  // -- the number of threads a single solve may use, 0 lets the solver decide
+  protected int threads = 0;
+  // -- when set, a model with a start is first solved without it to measure what the start saved
+  protected boolean measureWarmStart = false;
+  protected SolutionPool coldSolutionPool;
+  // -- a solve stops once its incumbent is within this relative gap of the lower bound
+  protected double gapLimit = 0.0;
+  // -- the best lower bound on the objective of the last solve, NaN if unknown
+  protected double lowerBound = Double.NaN;
+  // -- the status of the last solve of T, its gap and the gap it closed per second
+  private SolveStatus lastStatus = SolveStatus.UNKNOWN;
+  private double lastGap = Double.NaN;
+  private double gapClosingRate = Double.NaN;
+  // -- while sweeping, the backend keeps the model of the first solve and patches it for the next
+  protected boolean sweeping = false;
+  private SolverSession session;
+
+  public void setBackend(SolverBackend backend) {
+    this.backend = backend;
+  }
+
+  public SolverBackend getBackend() {
+    return this.backend;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getThreads() {
+    return this.threads;
+  }
+
+  public void setMeasureWarmStart(boolean measureWarmStart) {
+    this.measureWarmStart = measureWarmStart;
+  }
+
+  /** @param gapLimit the relative gap to the lower bound at which a solve stops, in [0, 1) */
+  public void setGapLimit(double gapLimit) {
+    this.gapLimit = gapLimit;
+  }
+
+  /** @return the best lower bound on the objective of the last solve, NaN if unknown */
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  /** @return the status of the last solve, UNKNOWN if the model was not solved by a backend */
+  public SolveStatus getLastStatus() {
+    return lastStatus;
+  }
+
+  /** @return the relative gap of the best solution of the last solve, NaN if unknown */
+  public double getLastGap() {
+    return lastGap;
+  }
+
+  /**
+   * @return the relative gap the incumbents of the last solve closed per second, from the first
+   *     one to the best one, NaN if unknown
+   */
+  public double getGapClosingRate() {
+    return gapClosingRate;
+  }
+
+  /**
+   * Computes the lower bounds of the problem and makes them the lower bound of the solve.
+   *
+   * @param costModel the cost model of the problem being solved
+   * @param numberOfCores the number of software cores
+   * @return the lower bounds
+   */
+  protected LowerBounds.Result computeLowerBounds(CostModel costModel, int numberOfCores) {
+    LowerBounds.Result bounds = new LowerBounds(costModel).compute(numberOfCores);
+    this.lowerBound = bounds.getBound();
+    info("Lower bound on " + numberOfCores + " cores: " + bounds);
+    return bounds;
+  }
+
+  /**
+   * @return true if the model only holds some of the assignments of the problem, e.g., with the
+   *     actors of a group tied together, the bound of the solver then only holds for them
+   */
+  protected boolean isRestricted() {
+    return false;
+  }
+
+  /** Raises the lower bound of the solve, bounds that are NaN or weaker are ignored. */
+  protected void raiseLowerBound(double bound) {
+    if (Double.isNaN(bound)) return;
+    this.lowerBound = Double.isNaN(lowerBound) ? bound : Math.max(lowerBound, bound);
+  }
+
+  /**
+   * @return the objective at which an incumbent is within the gap limit of the lower bound,
+   *     infinite without a lower bound
+   */
+  protected double getObjectiveStop() {
+    if (Double.isNaN(lowerBound) || gapLimit >= 1.0) return Double.POSITIVE_INFINITY;
+    return lowerBound / (1.0 - gapLimit);
+  }
+
+  /**
+   * @param objective the objective of a solution
+   * @return the relative gap between the objective and the lower bound, NaN if either is unknown
+   */
+  protected double getGap(double objective) {
+    if (Double.isNaN(lowerBound) || Double.isNaN(objective)) return Double.NaN;
+    if (objective <= 0.0) return 0.0;
+    return Math.max(0.0, (objective - lowerBound) / objective);
+  }
+
+  /**
+   * Bounds T and T_exec from below and stops the solve once an incumbent is within the gap limit
+   * of the lower bound. The gap limit of the backend is only set if one is configured.
+   *
+   * @param bounds the lower bounds of the problem
+   * @param settings the settings of the solve
+   */
+  protected void applyLowerBounds(LowerBounds.Result bounds, SolverSettings settings) {
+    raiseVariableLowerBound("T", bounds.getBound());
+    raiseVariableLowerBound("T_exec", bounds.getExecutionBound());
+    // -- without a configured gap the backend keeps its own default
+    if (gapLimit > 0.0) settings.setGapLimit(gapLimit);
+    settings.setObjectiveStop(getObjectiveStop());
+  }
+
+  private void raiseVariableLowerBound(String name, double bound) {
+    Variable variable = model.getVariable(name);
+    if (variable != null && variable.getLowerBound() < bound) {
+      variable.setLowerBound(Math.min(bound, variable.getUpperBound()));
+    }
+  }
+
+  /**
+   * Finds partitions of the network for the given number of cores
+   *
+   * @param numberOfCores the number of software cores
+   * @return the solutions found, best first
+   */
+  public abstract ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores);
+
+  /**
+   * Solves the current model with the configured backend and keeps the solution pool. The time
+   * spent building the model (i.e., since buildStartTime) is reported separately from the time
+   * spent in the solver.
+   *
+   * @param settings the solver settings
+   * @param buildStartTime System.nanoTime() when the model construction started
+   * @return the solution pool
+   */
+  protected SolutionPool solve(SolverSettings settings, long buildStartTime) {
+    double buildTime = (System.nanoTime() - buildStartTime) * 1e-9;
+    info(String.format("Built %s in %.3f s", model.describe(), buildTime));
+    this.coldSolutionPool = null;
+    if (sweeping) {
+      this.solutionPool = solveInSession(settings);
+    } else if (measureWarmStart && model.hasStart()) {
+      double[] start = model.getVariables().stream().mapToDouble(Variable::getStart).toArray();
+      model.clearStart();
+      this.coldSolutionPool = backend.solve(model, settings);
+      model.getVariables().forEach(v -> v.setStart(start[v.getIndex()]));
+      info(
+          String.format(
+              "Solved %s without warm start in %.3f s: %s, best %s",
+              model.getName(),
+              coldSolutionPool.getRuntime(),
+              coldSolutionPool.getStatus(),
+              coldSolutionPool.getBestObjective()));
+    }
+    if (!sweeping) this.solutionPool = backend.solve(model, settings);
+    // -- the bound of a restricted model bounds the problem from above, not from below
+    if (!isRestricted()) raiseLowerBound(solutionPool.getObjectiveBound());
+    recordProgress(solutionPool);
+    info(
+        String.format(
+            "Solved %s with %s in %.3f s: %s, %d solutions, best %s, bound %s",
+            model.getName(),
+            solutionPool.getBackend(),
+            solutionPool.getRuntime(),
+            solutionPool.getStatus(),
+            solutionPool.size(),
+            solutionPool.getBestObjective(),
+            solutionPool.getObjectiveBound()));
+    return this.solutionPool;
+  }
+
+  /**
+   * Records a solve that did not run since its start is within the gap limit of the lower bound,
+   * there is no solution pool.
+   *
+   * @param objective the objective of the start
+   */
+  protected void skipSolve(double objective) {
+    this.solutionPool = null;
+    this.coldSolutionPool = null;
+    this.lastStatus = SolveStatus.OBJECTIVE_STOP;
+    this.lastGap = getGap(objective);
+    this.gapClosingRate = Double.NaN;
+  }
+
+  /** Records the status, the gap and the rate at which the solve closed its gap. */
+  private void recordProgress(SolutionPool pool) {
+    this.lastStatus = pool.getStatus();
+    this.lastGap = getGap(pool.getBestObjective());
+    this.gapClosingRate = Double.NaN;
+    ImmutableList<SolutionPool.Incumbent> incumbents = pool.getIncumbents();
+    if (incumbents.isEmpty() || Double.isNaN(lastGap)) return;
+    SolutionPool.Incumbent first = incumbents.get(0);
+    double elapsed = pool.getRuntime() - first.getTime();
+    if (elapsed > 0.0) {
+      this.gapClosingRate = Math.max(0.0, getGap(first.getObjective()) - lastGap) / elapsed;
+    }
+  }
+
+  /**
+   * Solves the current model in the session of the sweep. A model with the structure of the model
+   * of the session only differs by coefficients, right hand sides and bounds, it is patched into the
+   * session and solved from the best solution of the previous solve. Any other model opens a new
+   * session.
+   */
+  private SolutionPool solveInSession(SolverSettings settings) {
+    Optional<ModelPatch> patch =
+        session == null ? Optional.empty() : ModelPatch.between(session.getModel(), model);
+    if (patch.isPresent()) {
+      info("Patched " + model.getName() + " in place: " + patch.get());
+      session.apply(patch.get());
+    } else {
+      if (session != null) {
+        info("The structure of " + model.getName() + " changed, translating it again");
+        session.close();
+      }
+      session = backend.open(model, settings);
+    }
+    return session.solve(settings);
+  }
+
+  /**
+   * Starts a sweep, the solves until {@link #endSweep()} patch the model held by the backend
+   * instead of translating a new one whenever the structure of the model allows it.
+   */
+  protected void beginSweep() {
+    this.sweeping = true;
+  }
+
+  /** Ends a sweep and releases the model held by the backend. */
+  protected void endSweep() {
+    if (session != null) session.close();
+    this.session = null;
+    this.sweeping = false;
+  }
+
+  /**
+   * Reports the effect of the start of the last solved model and saves it into warm_start.csv.
+   * The start objective is the first incumbent of the solve, i.e., the start completed by the
+   * solver. The saved time is known only when the model was also solved without its start, it is
+   * the time that solve needed to find an incumbent as good as the start (or all of its runtime if
+   * it never did).
+   *
+   * @param dumpDir the directory to save the report into
+   */
+  protected void dumpWarmStartReport(File dumpDir) {
+    if (model == null || !model.hasStart() || solutionPool == null) return;
+
+    ImmutableList<SolutionPool.Incumbent> incumbents = solutionPool.getIncumbents();
+    double startObjective = incumbents.isEmpty() ? Double.NaN : incumbents.get(0).getObjective();
+    double coldRuntime = Double.NaN;
+    double coldBestObjective = Double.NaN;
+    double savedTime = Double.NaN;
+    if (coldSolutionPool != null) {
+      coldRuntime = coldSolutionPool.getRuntime();
+      coldBestObjective = coldSolutionPool.getBestObjective();
+      double timeToStart = coldSolutionPool.getTimeToObjective(startObjective);
+      savedTime = Double.isNaN(timeToStart) ? coldRuntime : timeToStart;
+    }
+    info(
+        String.format(
+            "Warm start of %s: start %s, final %s in %.3f s, saved %s s",
+            model.getName(),
+            startObjective,
+            solutionPool.getBestObjective(),
+            solutionPool.getRuntime(),
+            Double.isNaN(savedTime) ? "unknown" : String.format("%.3f", savedTime)));
+
+    File dumpFile = new File(dumpDir, "warm_start.csv");
+    try (PrintWriter writer = new PrintWriter(dumpFile)) {
+      writer.println("start,final,runtime,cold_final,cold_runtime,saved_time");
+      writer.println(
+          startObjective
+              + ","
+              + solutionPool.getBestObjective()
+              + ","
+              + solutionPool.getRuntime()
+              + ","
+              + coldBestObjective
+              + ","
+              + coldRuntime
+              + ","
+              + savedTime);
+    } catch (FileNotFoundException e) {
+      error("Could not save the warm start report: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param name the name of a model variable
+   * @param solution the solution to look into
+   * @return the value of the variable in the given solution
+   */
+  protected Double getVariableValue(String name, Solution solution) {
+    Variable variable = model.getVariable(name);
+    if (variable == null) {
+      fatalError("Could not get the variable " + name);
+    }
+    return solution.getValue(variable);
+  }
+
+  /**
+   * Bounds nonnegative objective terms by the objective of a known solution, none of them can be
+   * larger in an optimal solution and the tighter bounds strengthen the relaxation.
+   *
+   * @param objective the objective of a feasible solution
+   * @param names the names of the variables to bound, missing variables are ignored
+   */
+  protected void boundByIncumbent(double objective, Collection<String> names) {
+    for (String name : names) boundAbove(name, objective);
+  }
+
+  /**
+   * Lowers the upper bound of a variable to a bound computed from the profiles, with some slack
+   * since the bound may add up the same costs in a different order than the model.
+   *
+   * @param name the name of the variable, a missing variable is ignored
+   * @param bound the new upper bound, ignored if it is not tighter
+   */
+  protected void boundAbove(String name, double bound) {
+    double relaxed = bound * (1.0 + 1e-6) + 1e-12;
+    Variable variable = model.getVariable(name);
+    if (variable != null && variable.getUpperBound() > relaxed) {
+      variable.setUpperBound(Math.max(relaxed, variable.getLowerBound()));
+    }
+  }
 
   public static class HardwarePartition implements TypedPartition {
 
@@ -114,39 +463,28 @@ public abstract class PerformanceModel {
   protected class DecisionVariables {
 
     // -- map from partition to the corresponding decision variable
-    private final Map<TypedPartition, GRBVar> vars;
+    private final Map<TypedPartition, Variable> vars;
     // -- the partition number variable which is part of the restricted growth string
-    private final GRBVar partitionNumber;
+    private final Variable partitionNumber;
 
     protected DecisionVariables(
-        Instance instance, List<TypedPartition> partitions, GRBModel model) {
+        Instance instance, List<TypedPartition> partitions, OptimizationModel model) {
       this.vars = new HashMap<>();
       int numberOfCores = partitions.size();
 
-      try {
+      partitionNumber =
+          model.addVariable(
+              0.0, numberOfCores - 1, VariableType.INTEGER, "a_" + instance.getInstanceName());
 
-        partitionNumber =
-            model.addVar(
-                0.0, numberOfCores - 1, 0.0, GRB.INTEGER, "a_" + instance.getInstanceName());
+      for (TypedPartition p : partitions) {
 
-        for (TypedPartition p : partitions) {
-
-          GRBVar decisionInstancePartition =
-              model.addVar(
-                  0.0,
-                  1.0,
-                  0.0,
-                  GRB.BINARY,
-                  String.format("d_%s_%s", instance.getInstanceName(), p.toString()));
-          vars.put(p, decisionInstancePartition);
-        }
-
-      } catch (GRBException e) {
-        throw new CompilationException(
-            new Diagnostic(
-                Diagnostic.Kind.ERROR,
-                "Could not build the decision variables for instance "
-                    + instance.getInstanceName()));
+        Variable decisionInstancePartition =
+            model.addVariable(
+                0.0,
+                1.0,
+                VariableType.BINARY,
+                String.format("d_%s_%s", instance.getInstanceName(), p.toString()));
+        vars.put(p, decisionInstancePartition);
       }
     }
 
@@ -157,26 +495,20 @@ public abstract class PerformanceModel {
      *     to a partition, to make sure each instance is assigned to exactly one partition, the
      *     returned expression should be constrained to the value 1.0
      */
-    public GRBLinExpr getUniquePartitionConstraint() {
-      try {
-        GRBLinExpr uniqueDecisionConstraint = new GRBLinExpr();
-        GRBVar[] decisionVars = vars.values().toArray(new GRBVar[vars.values().size()]);
-        double[] coeffs = new double[vars.values().size()];
-        Arrays.fill(coeffs, 1.0);
-        uniqueDecisionConstraint.addTerms(coeffs, decisionVars);
-        return uniqueDecisionConstraint;
-
-      } catch (GRBException e) {
-        error("Could not create unique decision constraint expression");
-      }
-      return new GRBLinExpr();
+    public LinearExpression getUniquePartitionConstraint() {
+      LinearExpression uniqueDecisionConstraint = new LinearExpression();
+      Variable[] decisionVars = vars.values().toArray(new Variable[vars.values().size()]);
+      double[] coeffs = new double[vars.values().size()];
+      Arrays.fill(coeffs, 1.0);
+      uniqueDecisionConstraint.addTerms(coeffs, decisionVars);
+      return uniqueDecisionConstraint;
     }
 
-    public GRBVar getPartitionNumber() {
+    public Variable getPartitionNumber() {
       return this.partitionNumber;
     }
 
-    public GRBVar getDecisionVariable(TypedPartition p) {
+    public Variable getDecisionVariable(TypedPartition p) {
       return this.vars.get(p);
     }
 
@@ -466,4 +798,33 @@ public abstract class PerformanceModel {
       fatalError("Could not write the xcf file to " + name + ": " + e.getMessage());
     }
   }
+
+  /**
+   * Writes the xcf configuration of a solution annotated with its objective vector, as a comment
+   * before the configuration element.
+   *
+   * @param objectives the objectives of the solution by name, in order, nothing is added if empty
+   */
+  public static void dumpXcfConfig(
+      String name,
+      PartitioningSolution<Instance> partitionMap,
+      Map<Connection, Integer> bufferDepthMap,
+      CompilationTask task,
+      Map<String, ? extends Number> objectives) {
+    dumpXcfConfig(name, partitionMap, bufferDepthMap, task);
+    if (objectives.isEmpty()) return;
+    String annotation =
+        objectives.entrySet().stream()
+            .map(e -> e.getKey() + "=" + e.getValue())
+            .collect(Collectors.joining(", ", " objectives: ", " "));
+    try {
+      File xcfFile = new File(name);
+      Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xcfFile);
+      doc.insertBefore(doc.createComment(annotation), doc.getDocumentElement());
+      Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.transform(new DOMSource(doc), new StreamResult(xcfFile));
+    } catch (Exception e) {
+      fatalError("Could not annotate the xcf file " + name + ": " + e.getMessage());
+    }
+  }
 }
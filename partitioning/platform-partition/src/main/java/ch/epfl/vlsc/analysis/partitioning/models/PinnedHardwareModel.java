@@ -5,7 +5,7 @@ import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
 import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
 import ch.epfl.vlsc.compiler.PartitionedCompilationTask;
 
-import gurobi.*;
+import ch.epfl.vlsc.analysis.partitioning.solver.*;
 import se.lth.cs.tycho.attribute.GlobalNames;
 import se.lth.cs.tycho.compiler.CompilationTask;
 import se.lth.cs.tycho.compiler.Context;
@@ -126,25 +126,20 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
    * @return A linear expression showing the time spent on each partition for local communications
    */
   @Override
-  protected GRBLinExpr getLocalCoreCommunicationExpression(
+  protected LinearExpression getLocalCoreCommunicationExpression(
       SoftwarePartition partition,
       Map<Instance, DecisionVariables> instanceDecisionVariables,
       ImmutableList<Connection> softwareConnections) {
 
-    GRBLinExpr expr =
+    LinearExpression expr =
         super.getLocalCoreCommunicationExpression(
             partition, instanceDecisionVariables, softwareConnections);
 
-    try {
-      if (partition.toIndex() == 0) {
-        GRBLinExpr plinkLocalCommunicationTimeExpression =
-            getPlinkLocalCommunicationTime(partition, instanceDecisionVariables);
-
-        expr.add(plinkLocalCommunicationTimeExpression);
-      }
+    if (partition.toIndex() == 0) {
+      LinearExpression plinkLocalCommunicationTimeExpression =
+          getPlinkLocalCommunicationTime(partition, instanceDecisionVariables);
 
-    } catch (GRBException e) {
-      error("Could not formulate the local communication time");
+      expr.add(plinkLocalCommunicationTimeExpression);
     }
 
     return expr;
@@ -159,11 +154,11 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
    * @return a linear expression formulating he time spent communicating to the plink from the the
    *     same core the plink is on
    */
-  private GRBLinExpr getPlinkLocalCommunicationTime(
+  private LinearExpression getPlinkLocalCommunicationTime(
       SoftwarePartition plinkPartition,
       Map<Instance, DecisionVariables> instanceDecisionVariables) {
 
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
 
     // -- get the connection that cross hardware and software, these are the ones that can
     // contribute
@@ -179,7 +174,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
 
       // target actor is on software and source actor is on hardware
       Instance targetActor = findInstance(connection.getTarget());
-      GRBVar targetActorDecisionVariable =
+      Variable targetActorDecisionVariable =
           instanceDecisionVariables.get(targetActor).getDecisionVariable(plinkPartition);
       Double communicationTime =
           this.multicoreDB.getCommunicationTicks(
@@ -192,7 +187,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
     for (Connection connection : softwareHardwareConnections) {
       // source actor is on software
       Instance sourceActor = findInstance(connection.getSource());
-      GRBVar sourceActorDecisionVariable =
+      Variable sourceActorDecisionVariable =
           instanceDecisionVariables.get(sourceActor).getDecisionVariable(plinkPartition);
       double communicationTime =
           this.multicoreDB.getCommunicationTicks(
@@ -247,7 +242,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
    * @return a linear expression formulating time spent communicating to the plink from actors on
    *     cores not containing the plink
    */
-  private GRBLinExpr getPartitionToPlinkCommunicationExpression(
+  private LinearExpression getPartitionToPlinkCommunicationExpression(
       ImmutableList<SoftwarePartition> partitions,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
 
@@ -260,7 +255,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
     ImmutableList<SoftwarePartition> nonePlinkPartitions =
         partitions.stream().filter(p -> p.toIndex() != 0).collect(ImmutableList.collector());
 
-    GRBLinExpr expr = new GRBLinExpr();
+    LinearExpression expr = new LinearExpression();
 
     // -- we want to formulate the amount of time spent on communicating
     // from none plink partitions to the plink partition (i.e., the first core)
@@ -270,7 +265,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
       for (Connection connection : hardwareSoftwareConnections) {
 
         Instance targetActor = findInstance(connection.getTarget());
-        GRBVar targetDecisionVariable =
+        Variable targetDecisionVariable =
             instanceDecisionVariablesMap.get(targetActor).getDecisionVariable(p);
         Double communicationTime =
             this.multicoreDB.getCommunicationTicks(
@@ -281,7 +276,7 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
       // inbound PLINK to other cores communications
       for (Connection connection : softwareHardwareConnections) {
         Instance sourceActor = findInstance(connection.getSource());
-        GRBVar sourceDecisionVariable =
+        Variable sourceDecisionVariable =
             instanceDecisionVariablesMap.get(sourceActor).getDecisionVariable(p);
         double communicationTime =
             this.multicoreDB.getCommunicationTicks(
@@ -303,23 +298,19 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
    * @return a linear expression formulating the inter-core communication cost
    */
   @Override
-  protected GRBLinExpr getCoreToCoreCommunicationTime(
+  protected LinearExpression getCoreToCoreCommunicationTime(
       ImmutableList<SoftwarePartition> partitions,
       Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
       ImmutableList<Connection> softwareConnections) {
 
     // -- add the plink global communication time
-    GRBLinExpr plinkCoreToCoreCommunicationTimeExpression =
+    LinearExpression plinkCoreToCoreCommunicationTimeExpression =
         getPartitionToPlinkCommunicationExpression(partitions, instanceDecisionVariablesMap);
 
-    GRBLinExpr expr =
+    LinearExpression expr =
         super.getCoreToCoreCommunicationTime(
             partitions, instanceDecisionVariablesMap, softwareConnections);
-    try {
-      expr.add(plinkCoreToCoreCommunicationTimeExpression);
-    } catch (GRBException e) {
-      fatalError("Could not formulate the core to core communication with plink");
-    }
+    expr.add(plinkCoreToCoreCommunicationTimeExpression);
 
     return expr;
   }
@@ -331,14 +322,14 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
    * @return a linear expression formulating the local partition communication time
    */
   @Override
-  protected GRBLinExpr getPartitionTimeExpression(
+  protected LinearExpression getPartitionTimeExpression(
       SoftwarePartition partition,
       Map<Instance, DecisionVariables> instanceDecisionVariables,
       ImmutableList<Instance> actors) {
 
     // The time spent in each partition is the sum of the times of each actor assigned to that
     // partition
-    GRBLinExpr expr =
+    LinearExpression expr =
         super.getPartitionTimeExpression(partition, instanceDecisionVariables, actors);
 
     if (partition.toIndex() == 0) {
@@ -641,7 +632,8 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
   @Override
   protected PartitioningSolution<String> createSolution(
       List<TypedPartition> partitionTypes,
-      Map<Instance, DecisionVariables> instanceDecisionVariablesMap) {
+      Map<Instance, DecisionVariables> instanceDecisionVariablesMap,
+      Solution solution) {
 
     ImmutableList.Builder<Partition<String>> partitionsBuilder = ImmutableList.builder();
     //        partitionTypes.sort(Comparator.comparingInt(SoftwarePartition::toIndex));
@@ -652,24 +644,8 @@ public class PinnedHardwareModel extends MulticorePerformanceModel {
           softwareActors.stream()
               .filter(
                   inst -> {
-                    GRBVar pNumber = instanceDecisionVariablesMap.get(inst).getPartitionNumber();
-                    int partitionIndex = 0;
-                    try {
-                      Double pNumberDouble = pNumber.get(GRB.DoubleAttr.Xn);
-                      Double floorValue = (double) pNumberDouble.intValue();
-                      Double ceilValue = floorValue + 1;
-                      if (pNumberDouble - floorValue < ceilValue - pNumberDouble) {
-                        partitionIndex = floorValue.intValue();
-                      } else {
-                        partitionIndex = ceilValue.intValue();
-                      }
-                    } catch (GRBException e) {
-                      fatalError(
-                          "Could not get the partitionIndex value as Integer for instance "
-                              + inst.getInstanceName()
-                              + ": "
-                              + e.getMessage());
-                    }
+                    Variable pNumber = instanceDecisionVariablesMap.get(inst).getPartitionNumber();
+                    int partitionIndex = solution.getIntegerValue(pNumber);
                     return partitionIndex == p.toIndex();
                   })
               .collect(ImmutableList.collector());
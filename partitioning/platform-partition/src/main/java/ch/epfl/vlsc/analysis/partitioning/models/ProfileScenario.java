@@ -0,0 +1,66 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.parser.DeviceProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+
+/**
+ * The profile inputs of a what-if scenario of a sweep, e.g., a faster accelerator clock or another
+ * bandwidth profile. The inputs left null keep the value the model was created with.
+ */
+public class ProfileScenario {
+
+  private final String name;
+  private MulticoreProfileDataBase multicoreDB;
+  private Double multicoreClockPeriod;
+  private DeviceProfileDataBase accelDB;
+  private Double accelClockPeriod;
+
+  /** @param name the name of the scenario, its outputs go into sweep/name */
+  public ProfileScenario(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public MulticoreProfileDataBase getMulticoreDB() {
+    return multicoreDB;
+  }
+
+  /** @param multicoreDB the software execution and bandwidth profiles */
+  public ProfileScenario setMulticoreDB(MulticoreProfileDataBase multicoreDB) {
+    this.multicoreDB = multicoreDB;
+    return this;
+  }
+
+  public Double getMulticoreClockPeriod() {
+    return multicoreClockPeriod;
+  }
+
+  /** @param multicoreClockPeriod the clock period of the cores, in seconds */
+  public ProfileScenario setMulticoreClockPeriod(Double multicoreClockPeriod) {
+    this.multicoreClockPeriod = multicoreClockPeriod;
+    return this;
+  }
+
+  public DeviceProfileDataBase getAccelDB() {
+    return accelDB;
+  }
+
+  /** @param accelDB the accelerator execution and PCIe bandwidth profiles */
+  public ProfileScenario setAccelDB(DeviceProfileDataBase accelDB) {
+    this.accelDB = accelDB;
+    return this;
+  }
+
+  public Double getAccelClockPeriod() {
+    return accelClockPeriod;
+  }
+
+  /** @param accelClockPeriod the clock period of the accelerator, in seconds */
+  public ProfileScenario setAccelClockPeriod(Double accelClockPeriod) {
+    this.accelClockPeriod = accelClockPeriod;
+    return this;
+  }
+}
@@ -0,0 +1,477 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.Assignment;
+import ch.epfl.vlsc.analysis.partitioning.engine.CostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.GreedyPartitioner;
+import ch.epfl.vlsc.analysis.partitioning.engine.HomogeneousCostModel;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.solver.Constraint;
+import ch.epfl.vlsc.analysis.partitioning.solver.LinearExpression;
+import ch.epfl.vlsc.analysis.partitioning.solver.ObjectiveSense;
+import ch.epfl.vlsc.analysis.partitioning.solver.OptimizationModel;
+import ch.epfl.vlsc.analysis.partitioning.solver.Sense;
+import ch.epfl.vlsc.analysis.partitioning.solver.Solution;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolutionPool;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolveStatus;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolverSession;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolverSettings;
+import ch.epfl.vlsc.analysis.partitioning.solver.Variable;
+import ch.epfl.vlsc.analysis.partitioning.solver.VariableType;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.compiler.Context;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solves the homogeneous partitioning problem with a set partitioning formulation. A column is a
+ * cluster of actors that runs on one core, and a solution picks numberOfCores clusters that cover
+ * every actor once. The cores are interchangeable bins, so the formulation has no symmetry to
+ * break, which is what makes it scale to many cores where the assignment formulation drowns in
+ * equivalent permutations.
+ *
+ * <p>The columns are generated by price and branch. The LP relaxation of the restricted master
+ * minimizes the core to core communication over the clusters that fit in the time of the
+ * incumbent, and a pricing MILP finds the cluster with the most negative reduced cost from the
+ * duals of the LP, until there is none. The integer master then picks the clusters with the exact
+ * objective, and a better solution tightens the capacity of the clusters for another round of
+ * pricing. The integer master is solved over the generated columns only, so its gap is relative to
+ * them and the lower bound of the model is the combinatorial one.
+ *
+ * <p>The LP of a pricing round stays open in a solver session and the generated columns are added
+ * to it. A pricing round uses at most half of the time left and a single pricing MILP a tenth of
+ * that, so the integer master always gets its share.
+ */
+public class SetPartitioningModel extends AssignmentModel {
+
+  private static final double TOLERANCE = 1e-9;
+  // -- the largest number of LP solves of a pricing round
+  private static final int MAX_PRICING_ITERATIONS = 500;
+  // -- the share of the time left that a pricing round may use, the rest is kept for the integer
+  // master
+  private static final double PRICING_SHARE = 0.5;
+  // -- the share of the time of a pricing round that a single pricing MILP may use
+  private static final double PRICING_SOLVE_SHARE = 0.1;
+
+  /** A column of the master, the actors of a core with their execution and communication. */
+  private static final class Cluster {
+    private final BitSet actors;
+    private final double load;
+    private final double local;
+    // -- the core to core communication the cluster saves by keeping its connections inside
+    private final double saved;
+
+    private Cluster(BitSet actors, PartitioningProblem problem) {
+      this.actors = actors;
+      double load = 0.0;
+      for (int a = actors.nextSetBit(0); a >= 0; a = actors.nextSetBit(a + 1)) {
+        load += problem.getActorCost(a);
+      }
+      double local = 0.0;
+      double saved = 0.0;
+      for (int e = 0; e < problem.getNumEdges(); e++) {
+        int source = problem.getEdgeSource(e);
+        int target = problem.getEdgeTarget(e);
+        if (!actors.get(source) || !actors.get(target)) continue;
+        local += problem.getEdgeLocalCost(e);
+        if (source != target) saved += problem.getEdgeGlobalCost(e);
+      }
+      this.load = load;
+      this.local = local;
+      this.saved = saved;
+    }
+
+    /** @return the time the cluster adds to T at least, its execution and local communication */
+    private double getTime() {
+      return load + local;
+    }
+  }
+
+  public SetPartitioningModel(
+      CompilationTask task,
+      Context context,
+      MulticoreProfileDataBase multicoreDB,
+      Double multicoreClockPeriod,
+      Double timeLimit) {
+    super(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+  }
+
+  @Override
+  public ImmutableList<PartitioningSolution<String>> solveModel(int numberOfCores) {
+
+    if (getMaxPartitions() < numberOfCores) return ImmutableList.empty();
+
+    info("Starting set partitioning on " + numberOfCores + " cores");
+    long startTime = System.nanoTime();
+    File dumpDir = getOutputPath("homogeneous", numberOfCores).toFile();
+    dumpDir.mkdirs();
+
+    PartitioningProblem problem =
+        PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    CostModel costModel = new HomogeneousCostModel(problem);
+    computeLowerBounds(costModel, numberOfCores);
+    Assignment incumbent =
+        selectStart(
+            costModel, new GreedyPartitioner(costModel).solve(numberOfCores), numberOfCores);
+    if (incumbent == null) {
+      info("Could not find a start for " + numberOfCores + " cores");
+      this.assignments = ImmutableList.empty();
+      return ImmutableList.empty();
+    }
+
+    // -- the clusters of the start make the restricted master feasible, the singletons give the
+    // LP room to move
+    Map<BitSet, Cluster> columns = new LinkedHashMap<>();
+    addColumns(columns, incumbent, problem, numberOfCores);
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      BitSet singleton = new BitSet();
+      singleton.set(a);
+      columns.putIfAbsent(singleton, new Cluster(singleton, problem));
+    }
+
+    File reportFile = new File(dumpDir, "set_partitioning.csv");
+    try (PrintWriter writer = new PrintWriter(reportFile)) {
+      writer.println("round,capacity,columns,lp_iterations,lp_objective,T,runtime");
+      for (int round = 0; ; round++) {
+        double capacity = incumbent.getTotalTime();
+        PricingResult pricing =
+            price(
+                problem,
+                columns,
+                numberOfCores,
+                capacity,
+                remaining(startTime) * PRICING_SHARE,
+                dumpDir);
+        double remaining = remaining(startTime);
+        Assignment best =
+            remaining > 0.0
+                ? solveMaster(problem, costModel, columns, numberOfCores, incumbent, remaining)
+                : null;
+        boolean improved =
+            best != null && best.getTotalTime() < incumbent.getTotalTime() - TOLERANCE;
+        if (improved) incumbent = best;
+        writer.println(
+            round
+                + ","
+                + capacity
+                + ","
+                + columns.size()
+                + ","
+                + pricing.iterations
+                + ","
+                + pricing.objective
+                + ","
+                + incumbent.getTotalTime()
+                + ","
+                + (System.nanoTime() - startTime) * 1e-9);
+        writer.flush();
+        info(
+            String.format(
+                "Set partitioning round %d on %d cores: %d columns, LP %6.6f, %s",
+                round, numberOfCores, columns.size(), pricing.objective, incumbent));
+        // -- a better incumbent shrinks the clusters that can improve on it
+        if (!improved || remaining(startTime) <= 0.0) break;
+      }
+    } catch (FileNotFoundException e) {
+      fatalError("Could not save the set partitioning report: " + e.getMessage());
+    }
+
+    info(
+        String.format(
+            "Set partitioning on %d cores finished in %.3f s with %d columns, best %s",
+            numberOfCores, (System.nanoTime() - startTime) * 1e-9, columns.size(), incumbent));
+    this.assignments = ImmutableList.of(incumbent);
+    return assignments.map(assignment -> createSolution(problem, assignment));
+  }
+
+  private double remaining(long startTime) {
+    return timeLimit - (System.nanoTime() - startTime) * 1e-9;
+  }
+
+  private static void addColumns(
+      Map<BitSet, Cluster> columns,
+      Assignment assignment,
+      PartitioningProblem problem,
+      int numberOfCores) {
+    for (int core = 0; core < numberOfCores; core++) {
+      BitSet actors = new BitSet();
+      for (int a = 0; a < problem.getNumActors(); a++) {
+        if (assignment.getPartition(a) == core) actors.set(a);
+      }
+      if (!actors.isEmpty()) columns.putIfAbsent(actors, new Cluster(actors, problem));
+    }
+  }
+
+  /** The outcome of a pricing round. */
+  private static final class PricingResult {
+    private int iterations;
+    private double objective = Double.NaN;
+  }
+
+  /**
+   * Generates columns until the LP relaxation of the restricted master has no column with a
+   * negative reduced cost among the clusters that fit in the capacity, or the time of the round is
+   * up.
+   *
+   * @param timeLimit the time of the round in seconds
+   */
+  private PricingResult price(
+      PartitioningProblem problem,
+      Map<BitSet, Cluster> columns,
+      int numberOfCores,
+      double capacity,
+      double timeLimit,
+      File dumpDir) {
+    PricingResult result = new PricingResult();
+    long roundStart = System.nanoTime();
+    int numActors = problem.getNumActors();
+
+    // -- the restricted master: cover every actor once with numberOfCores clusters and save as
+    // much core to core communication as possible, the columns are added in the session
+    OptimizationModel master = new OptimizationModel("set_partitioning_lp_" + numberOfCores);
+    Constraint.Linear[] cover = new Constraint.Linear[numActors];
+    for (int a = 0; a < numActors; a++) {
+      cover[a] =
+          master.addConstraint(new LinearExpression(), Sense.EQUAL, 1.0, "constraint_cover_" + a);
+    }
+    int countIndex = master.getNumConstraints();
+    Constraint.Linear count =
+        master.addConstraint(
+            new LinearExpression(), Sense.EQUAL, numberOfCores, "constraint_cores");
+    master.setObjective(LinearExpression.of(totalGlobalCost(problem)), ObjectiveSense.MINIMIZE);
+
+    SolverSettings settings = new SolverSettings(timeLimit);
+    settings.setThreads(this.threads);
+    settings.setLogFile(dumpDir.toPath().resolve("pricing.log"));
+    try (SolverSession session = backend.open(master, settings)) {
+      for (Cluster cluster : columns.values()) {
+        if (cluster.getTime() <= capacity + TOLERANCE) addColumn(session, cover, count, cluster);
+      }
+      while (result.iterations < MAX_PRICING_ITERATIONS) {
+        double remaining = timeLimit - (System.nanoTime() - roundStart) * 1e-9;
+        if (remaining <= 0.0) break;
+        result.iterations++;
+
+        settings.setTimeLimit(remaining);
+        SolutionPool lp = session.solve(settings);
+        if (lp.getStatus() != SolveStatus.OPTIMAL || lp.getDuals().length == 0) {
+          info("The restricted master LP on " + numberOfCores + " cores gave no duals");
+          break;
+        }
+        result.objective = lp.getBestObjective();
+        double[] actorDuals = new double[numActors];
+        for (int a = 0; a < numActors; a++) actorDuals[a] = lp.getDual(a);
+
+        remaining = timeLimit - (System.nanoTime() - roundStart) * 1e-9;
+        List<BitSet> generated =
+            solvePricing(
+                problem,
+                actorDuals,
+                lp.getDual(countIndex),
+                capacity,
+                Math.min(remaining, timeLimit * PRICING_SOLVE_SHARE),
+                dumpDir);
+        int added = 0;
+        for (BitSet actors : generated) {
+          if (!columns.containsKey(actors)) {
+            Cluster cluster = new Cluster(actors, problem);
+            columns.put(actors, cluster);
+            addColumn(session, cover, count, cluster);
+            added++;
+          }
+        }
+        if (added == 0) break;
+      }
+    }
+    return result;
+  }
+
+  /** Adds the cluster to the restricted master LP of the session. */
+  private static void addColumn(
+      SolverSession session, Constraint.Linear[] cover, Constraint.Linear count, Cluster cluster) {
+    Map<Constraint.Linear, Double> coefficients = new LinkedHashMap<>();
+    for (int a = cluster.actors.nextSetBit(0); a >= 0; a = cluster.actors.nextSetBit(a + 1)) {
+      coefficients.put(cover[a], 1.0);
+    }
+    coefficients.put(count, 1.0);
+    session.addColumn(
+        0.0,
+        1.0,
+        VariableType.CONTINUOUS,
+        "column_" + session.getModel().getNumVariables(),
+        -cluster.saved,
+        coefficients);
+  }
+
+  private static double totalGlobalCost(PartitioningProblem problem) {
+    double total = 0.0;
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      if (problem.getEdgeSource(e) != problem.getEdgeTarget(e)) {
+        total += problem.getEdgeGlobalCost(e);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Finds the clusters that fit in the capacity with a negative reduced cost, i.e., whose
+   * internal core to core communication plus the duals of their actors exceeds minus the dual of
+   * the number of cores.
+   *
+   * @return the clusters of the solutions of the pricing MILP with a negative reduced cost
+   */
+  private List<BitSet> solvePricing(
+      PartitioningProblem problem,
+      double[] actorDuals,
+      double coreDual,
+      double capacity,
+      double remaining,
+      File dumpDir) {
+    List<BitSet> clusters = new ArrayList<>();
+    if (remaining <= 0.0) return clusters;
+    int numActors = problem.getNumActors();
+    OptimizationModel pricing = new OptimizationModel("set_partitioning_pricing");
+    Variable[] inCluster = new Variable[numActors];
+    LinearExpression profit = new LinearExpression();
+    LinearExpression size = new LinearExpression();
+    LinearExpression time = new LinearExpression();
+    for (int a = 0; a < numActors; a++) {
+      inCluster[a] = pricing.addVariable(0.0, 1.0, VariableType.BINARY, "x_" + a);
+      profit.addTerm(actorDuals[a], inCluster[a]);
+      size.addTerm(1.0, inCluster[a]);
+      time.addTerm(problem.getActorCost(a), inCluster[a]);
+    }
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      int source = problem.getEdgeSource(e);
+      int target = problem.getEdgeTarget(e);
+      if (source == target) {
+        time.addTerm(problem.getEdgeLocalCost(e), inCluster[source]);
+        continue;
+      }
+      // -- the connection is inside the cluster if and only if both of its ends are
+      Variable inside = pricing.addVariable(0.0, 1.0, VariableType.CONTINUOUS, "y_" + e);
+      pricing.addConstraint(inside, Sense.LESS_EQUAL, inCluster[source], "constraint_source_" + e);
+      pricing.addConstraint(inside, Sense.LESS_EQUAL, inCluster[target], "constraint_target_" + e);
+      LinearExpression both = LinearExpression.of(inCluster[source]);
+      both.addTerm(1.0, inCluster[target]);
+      both.addConstant(-1.0);
+      pricing.addConstraint(inside, Sense.GREATER_EQUAL, both, "constraint_both_" + e);
+      profit.addTerm(problem.getEdgeGlobalCost(e), inside);
+      time.addTerm(problem.getEdgeLocalCost(e), inside);
+    }
+    pricing.addConstraint(size, Sense.GREATER_EQUAL, 1.0, "constraint_not_empty");
+    pricing.addConstraint(time, Sense.LESS_EQUAL, capacity, "constraint_capacity");
+    pricing.setObjective(profit, ObjectiveSense.MAXIMIZE);
+
+    SolverSettings settings = new SolverSettings(remaining);
+    settings.setThreads(this.threads);
+    settings.setLogFile(dumpDir.toPath().resolve("pricing.log"));
+    SolutionPool pool = backend.solve(pricing, settings);
+    for (Solution solution : pool.getSolutions()) {
+      // -- the reduced cost of the cluster is -(profit + coreDual)
+      if (solution.getObjective() + coreDual <= TOLERANCE) continue;
+      BitSet actors = new BitSet();
+      for (int a = 0; a < numActors; a++) {
+        if (solution.getValue(inCluster[a]) > 0.5) actors.set(a);
+      }
+      clusters.add(actors);
+    }
+    return clusters;
+  }
+
+  /**
+   * Solves the integer master over the generated columns with the exact objective, starting from
+   * the incumbent.
+   *
+   * @return the best assignment of the integer master, or null if it found none
+   */
+  private Assignment solveMaster(
+      PartitioningProblem problem,
+      CostModel costModel,
+      Map<BitSet, Cluster> columns,
+      int numberOfCores,
+      Assignment incumbent,
+      double remaining) {
+    int numActors = problem.getNumActors();
+    OptimizationModel master = new OptimizationModel("set_partitioning_" + numberOfCores);
+    Variable executionTime =
+        master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_exec");
+    Variable localTime = master.addVariable(0.0, Double.MAX_VALUE, VariableType.CONTINUOUS, "T_lc");
+    LinearExpression[] cover = new LinearExpression[numActors];
+    for (int a = 0; a < numActors; a++) cover[a] = new LinearExpression();
+    LinearExpression count = new LinearExpression();
+    LinearExpression objective = LinearExpression.of(totalGlobalCost(problem));
+    objective.addTerm(1.0, executionTime);
+    objective.addTerm(1.0, localTime);
+
+    Map<BitSet, Cluster> start = new LinkedHashMap<>();
+    addColumns(start, incumbent, problem, numberOfCores);
+    List<Cluster> clusters = new ArrayList<>();
+    List<Variable> variables = new ArrayList<>();
+    for (Cluster cluster : columns.values()) {
+      Variable column =
+          master.addVariable(0.0, 1.0, VariableType.BINARY, "column_" + clusters.size());
+      column.setStart(start.containsKey(cluster.actors) ? 1.0 : 0.0);
+      for (int a = cluster.actors.nextSetBit(0); a >= 0; a = cluster.actors.nextSetBit(a + 1)) {
+        cover[a].addTerm(1.0, column);
+      }
+      count.addTerm(1.0, column);
+      objective.addTerm(-cluster.saved, column);
+      // -- T_exec and T_lc are the largest execution and local communication of the clusters
+      LinearExpression load = new LinearExpression();
+      load.addTerm(cluster.load, column);
+      master.addConstraint(
+          executionTime, Sense.GREATER_EQUAL, load, "constraint_T_exec_" + clusters.size());
+      LinearExpression local = new LinearExpression();
+      local.addTerm(cluster.local, column);
+      master.addConstraint(
+          localTime, Sense.GREATER_EQUAL, local, "constraint_T_lc_" + clusters.size());
+      clusters.add(cluster);
+      variables.add(column);
+    }
+    for (int a = 0; a < numActors; a++) {
+      master.addConstraint(cover[a], Sense.EQUAL, 1.0, "constraint_cover_" + a);
+    }
+    master.addConstraint(count, Sense.EQUAL, numberOfCores, "constraint_cores");
+    master.setObjective(objective, ObjectiveSense.MINIMIZE);
+
+    File dumpDir = getOutputPath("homogeneous", numberOfCores).toFile();
+    SolverSettings settings = new SolverSettings(remaining);
+    settings.setThreads(this.threads);
+    if (gapLimit > 0.0) settings.setGapLimit(gapLimit);
+    settings.setObjectiveStop(getObjectiveStop());
+    settings.setLogFile(dumpDir.toPath().resolve("partitions.log"));
+    SolutionPool pool = backend.solve(master, settings);
+    info(
+        String.format(
+            "Set partitioning master on %d cores with %d columns: %s in %.3f s, best %s",
+            numberOfCores,
+            clusters.size(),
+            pool.getStatus(),
+            pool.getRuntime(),
+            pool.getBestObjective()));
+    if (pool.isEmpty()) return null;
+
+    int[] partition = new int[numActors];
+    int core = 0;
+    for (int ix = 0; ix < clusters.size(); ix++) {
+      if (pool.get(0).getValue(variables.get(ix)) < 0.5) continue;
+      BitSet actors = clusters.get(ix).actors;
+      for (int a = actors.nextSetBit(0); a >= 0; a = actors.nextSetBit(a + 1)) {
+        partition[a] = core;
+      }
+      core++;
+    }
+    return costModel.isFeasible(partition, numberOfCores)
+        ? costModel.evaluate(partition, numberOfCores)
+        : null;
+  }
+}
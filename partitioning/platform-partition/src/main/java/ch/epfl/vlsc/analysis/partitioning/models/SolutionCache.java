@@ -0,0 +1,239 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousProblem;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import se.lth.cs.tycho.ir.network.Connection;
+import se.lth.cs.tycho.ir.network.Instance;
+import se.lth.cs.tycho.ir.network.Network;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+/**
+ * A cache of the solutions of the models, keyed by a hash of everything a solve depends on: the
+ * elaborated network, the costs derived from the profiles, the mode and the solver settings. Every
+ * core count of a key gets its own directory with the solutions and the reports of the solve, so a
+ * rerun on the same inputs restores them instead of solving again.
+ *
+ * <p>The solutions are stored by instance name and partition, the configurations derived from them
+ * are written again from the network on a hit.
+ */
+public class SolutionCache {
+
+  // -- bump whenever the layout of the cache or the meaning of the solutions changes
+  private static final int VERSION = 1;
+
+  private static final String SOLUTIONS_FILE = "solutions.json";
+
+  /** The reports written by the models next to the configurations. */
+  private static final ImmutableList<String> REPORTS =
+      ImmutableList.of("solutions.csv", "timing.json", "refinement.csv", "warm_start.csv");
+
+  private final Path directory;
+
+  /**
+   * @param root the directory of the cache
+   * @param key the hash of the inputs, see {@link #key}
+   */
+  public SolutionCache(Path root, String key) {
+    this.directory = root.resolve(key);
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param network the elaborated network
+   * @param problem the costs of the network, a HeterogeneousProblem in the heterogeneous mode
+   * @param settings a canonical description of the mode and the solver settings
+   * @return a hex encoded SHA-256 of the inputs of a solve, without the core count
+   */
+  public static String key(Network network, PartitioningProblem problem, String settings) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("version ").append(VERSION).append('\n');
+    builder.append("settings ").append(settings).append('\n');
+    for (Instance instance : network.getInstances()) {
+      builder
+          .append("instance ")
+          .append(instance.getInstanceName())
+          .append(' ')
+          .append(instance.getEntityName())
+          .append('\n');
+    }
+    for (Connection connection : network.getConnections()) {
+      builder
+          .append("connection ")
+          .append(connection.getSource().getInstance().orElse(""))
+          .append('.')
+          .append(connection.getSource().getPort())
+          .append(' ')
+          .append(connection.getTarget().getInstance().orElse(""))
+          .append('.')
+          .append(connection.getTarget().getPort())
+          .append('\n');
+    }
+    // -- the profiles enter through the costs, doubles are hashed bit exact
+    HeterogeneousProblem heterogeneous =
+        problem instanceof HeterogeneousProblem ? (HeterogeneousProblem) problem : null;
+    for (int a = 0; a < problem.getNumActors(); a++) {
+      builder.append("actor ").append(Double.doubleToLongBits(problem.getActorCost(a)));
+      if (heterogeneous != null) {
+        builder
+            .append(' ')
+            .append(Double.doubleToLongBits(heterogeneous.getHardwareCost(a)))
+            .append(' ')
+            .append(heterogeneous.isSoftwareOnly(a))
+            .append(' ')
+            .append(heterogeneous.isHardwareOnly(a));
+      }
+      builder.append('\n');
+    }
+    for (int e = 0; e < problem.getNumEdges(); e++) {
+      builder
+          .append("edge ")
+          .append(problem.getEdgeSource(e))
+          .append(' ')
+          .append(problem.getEdgeTarget(e))
+          .append(' ')
+          .append(Double.doubleToLongBits(problem.getEdgeLocalCost(e)))
+          .append(' ')
+          .append(Double.doubleToLongBits(problem.getEdgeGlobalCost(e)));
+      if (heterogeneous != null) {
+        builder
+            .append(' ')
+            .append(Double.doubleToLongBits(heterogeneous.getEdgeReadCost(e)))
+            .append(' ')
+            .append(Double.doubleToLongBits(heterogeneous.getEdgeWriteCost(e)))
+            .append(' ')
+            .append(heterogeneous.getEdgeSourcePort(e));
+      }
+      builder.append('\n');
+    }
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest) hex.append(String.format("%02x", b));
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // -- every Java platform is required to provide SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Restores the solutions of a core count and copies its reports into the report directory.
+   *
+   * @param numberOfCores the number of cores
+   * @param reportDir the directory the model writes its reports to
+   * @return the cached solutions, or empty if there are none
+   */
+  public Optional<ImmutableList<PerformanceModel.PartitioningSolution<String>>> load(
+      int numberOfCores, File reportDir) throws IOException {
+    Path entry = directory.resolve(String.valueOf(numberOfCores));
+    File solutionsFile = entry.resolve(SOLUTIONS_FILE).toFile();
+    if (!solutionsFile.exists()) return Optional.empty();
+
+    ImmutableList.Builder<PerformanceModel.PartitioningSolution<String>> solutions =
+        ImmutableList.builder();
+    try (Reader reader = new FileReader(solutionsFile)) {
+      JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+      if (root.get("version").getAsInt() != VERSION) return Optional.empty();
+      for (JsonElement jSolution : root.getAsJsonArray("solutions")) {
+        ImmutableList.Builder<PerformanceModel.Partition<String>> partitions =
+            ImmutableList.builder();
+        for (JsonElement jPartition : jSolution.getAsJsonArray()) {
+          JsonObject jObj = jPartition.getAsJsonObject();
+          int index = jObj.get("index").getAsInt();
+          PerformanceModel.TypedPartition type =
+              jObj.get("hardware").getAsBoolean()
+                  ? new PerformanceModel.HardwarePartition(index)
+                  : new PerformanceModel.SoftwarePartition(index);
+          ImmutableList.Builder<String> instances = ImmutableList.builder();
+          for (JsonElement jInstance : jObj.getAsJsonArray("instances")) {
+            instances.add(jInstance.getAsString());
+          }
+          partitions.add(new PerformanceModel.Partition<>(instances.build(), type));
+        }
+        solutions.add(new PerformanceModel.PartitioningSolution<>(partitions.build()));
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("malformed cache entry " + solutionsFile + ": " + e.getMessage());
+    }
+
+    reportDir.mkdirs();
+    for (String report : REPORTS) {
+      Path cached = entry.resolve(report);
+      if (cached.toFile().exists()) {
+        Files.copy(cached, reportDir.toPath().resolve(report), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    return Optional.of(solutions.build());
+  }
+
+  /**
+   * Stores the solutions of a core count along with the reports found in the report directory.
+   *
+   * @param numberOfCores the number of cores
+   * @param solutions the solutions returned by the model
+   * @param reportDir the directory the model wrote its reports to
+   */
+  public void store(
+      int numberOfCores,
+      ImmutableList<PerformanceModel.PartitioningSolution<String>> solutions,
+      File reportDir)
+      throws IOException {
+    Path entry = directory.resolve(String.valueOf(numberOfCores));
+    entry.toFile().mkdirs();
+    for (String report : REPORTS) {
+      Path produced = reportDir.toPath().resolve(report);
+      if (produced.toFile().exists()) {
+        Files.copy(produced, entry.resolve(report), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    JsonArray jSolutions = new JsonArray();
+    for (PerformanceModel.PartitioningSolution<String> solution : solutions) {
+      JsonArray jPartitions = new JsonArray();
+      for (PerformanceModel.Partition<String> partition : solution.getPartitions()) {
+        JsonObject jObj = new JsonObject();
+        jObj.addProperty(
+            "hardware", partition.getPartitionType() instanceof PerformanceModel.HardwarePartition);
+        jObj.addProperty("index", partition.getPartitionType().toIndex());
+        JsonArray jInstances = new JsonArray();
+        partition.getInstances().forEach(jInstances::add);
+        jObj.add("instances", jInstances);
+        jPartitions.add(jObj);
+      }
+      jSolutions.add(jPartitions);
+    }
+    JsonObject root = new JsonObject();
+    root.addProperty("version", VERSION);
+    root.add("solutions", jSolutions);
+    // -- the solutions file marks a complete entry, so it is written last
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    try (Writer writer = new FileWriter(entry.resolve(SOLUTIONS_FILE).toFile())) {
+      gson.toJson(root, writer);
+    }
+  }
+}
@@ -1,7 +1,6 @@
 package ch.epfl.vlsc.analysis.partitioning.parser;
 
 
-import gurobi.GRB;
 import se.lth.cs.tycho.ir.network.Instance;
 
 import java.util.Collections;
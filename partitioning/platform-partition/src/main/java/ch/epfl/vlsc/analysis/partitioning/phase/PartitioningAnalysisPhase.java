@@ -1,15 +1,31 @@
 package ch.epfl.vlsc.analysis.partitioning.phase;
 
+import ch.epfl.vlsc.analysis.partitioning.models.AnnealingModel;
+import ch.epfl.vlsc.analysis.partitioning.models.BranchAndBoundModel;
+import ch.epfl.vlsc.analysis.partitioning.models.DecomposedHeterogeneousModel;
+import ch.epfl.vlsc.analysis.partitioning.models.GeneticModel;
+import ch.epfl.vlsc.analysis.partitioning.models.HeterogeneousAnnealingModel;
+import ch.epfl.vlsc.analysis.partitioning.models.HeterogeneousGeneticModel;
 import ch.epfl.vlsc.analysis.partitioning.models.HeterogeneousModel;
+import ch.epfl.vlsc.analysis.partitioning.models.HeterogeneousMultilevelModel;
 import ch.epfl.vlsc.analysis.partitioning.models.MulticorePerformanceModel;
+import ch.epfl.vlsc.analysis.partitioning.models.MultilevelModel;
 import ch.epfl.vlsc.analysis.partitioning.models.PerformanceModel;
+import ch.epfl.vlsc.analysis.partitioning.models.ProfileScenario;
+import ch.epfl.vlsc.analysis.partitioning.models.SetPartitioningModel;
+import ch.epfl.vlsc.analysis.partitioning.models.SolutionCache;
 
+import ch.epfl.vlsc.analysis.partitioning.engine.HeterogeneousProblem;
+import ch.epfl.vlsc.analysis.partitioning.engine.PartitioningProblem;
 import ch.epfl.vlsc.analysis.partitioning.parser.*;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolverBackend;
+import ch.epfl.vlsc.analysis.partitioning.solver.SolverBackends;
 import ch.epfl.vlsc.analysis.partitioning.util.JsonConfiguration;
 import ch.epfl.vlsc.analysis.partitioning.util.PartitionSettings;
 
 import ch.epfl.vlsc.analysis.partitioning.util.ProfileData;
 import ch.epfl.vlsc.analysis.partitioning.util.SolutionIdentity;
+import ch.epfl.vlsc.analysis.partitioning.util.SweepScenario;
 import com.google.gson.*;
 
 
@@ -29,12 +45,18 @@ import se.lth.cs.tycho.compiler.Compiler;
 
 import java.io.File;
 
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -48,6 +70,9 @@ public class PartitioningAnalysisPhase implements Phase {
   Double multicoreClockPeriod; // in NS
   Double accelClockPeriod; // in NS
   Double timeLimit;
+  Double gapLimit;
+  // -- the wall-clock budget of all the core counts, 0 gives every solve the time limit
+  Double timeBudget;
 
   public PartitioningAnalysisPhase() {
     this.multicoreDB = null;
@@ -56,6 +81,8 @@ public class PartitioningAnalysisPhase implements Phase {
     this.accelClockPeriod = 0.0;
 
     this.timeLimit = 300.0;
+    this.gapLimit = 0.0;
+    this.timeBudget = 0.0;
   }
 
   @Override
@@ -144,6 +171,52 @@ public class PartitioningAnalysisPhase implements Phase {
           .getReporter()
           .report(new Diagnostic(Diagnostic.Kind.WARNING, "Configuration is not named!"));
     }
+    if (jConfig.engine == PartitionSettings.Engine.BRANCH_AND_BOUND
+        && jConfig.mode != PartitionSettings.Mode.HOMOGENEOUS) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.ERROR,
+                  "branch_and_bound engine is only available in homogeneous mode"));
+    }
+    if (jConfig.engine == PartitionSettings.Engine.DECOMPOSITION
+        && jConfig.mode != PartitionSettings.Mode.HETEROGENEOUS) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.ERROR,
+                  "decomposition engine is only available in heterogeneous mode"));
+    }
+    if (jConfig.engine == PartitionSettings.Engine.SET_PARTITIONING
+        && jConfig.mode != PartitionSettings.Mode.HOMOGENEOUS) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.ERROR,
+                  "set_partitioning engine is only available in homogeneous mode"));
+    }
+    if (jConfig.timeLimit < 0) {
+      context
+          .getReporter()
+          .report(new Diagnostic(Diagnostic.Kind.ERROR, "time_limit must not be negative!"));
+    } else if (jConfig.timeLimit > 0) {
+      this.timeLimit = jConfig.timeLimit;
+    }
+    if (jConfig.timeBudget < 0) {
+      context
+          .getReporter()
+          .report(new Diagnostic(Diagnostic.Kind.ERROR, "time_budget must not be negative!"));
+    } else {
+      this.timeBudget = jConfig.timeBudget;
+    }
+    if (jConfig.gap < 0 || jConfig.gap >= 1) {
+      context.getReporter().report(new Diagnostic(Diagnostic.Kind.ERROR, "gap must be in [0, 1)!"));
+    } else {
+      this.gapLimit = jConfig.gap;
+    }
     switch (jConfig.mode) {
       case HETEROGENEOUS:
         if (jConfig.systemc == null) {
@@ -219,40 +292,187 @@ public class PartitioningAnalysisPhase implements Phase {
 
     PartitionSettings.Mode mode = jConfig.mode;
     Path logPath = context.getConfiguration().get(Compiler.targetPath).resolve("homogeneous");
+    // -- the Pareto front needs the heterogeneous milp engine, which is the default engine
+    boolean pareto =
+        jConfig.pareto
+            && mode == PartitionSettings.Mode.HETEROGENEOUS
+            && (jConfig.engine == null || jConfig.engine == PartitionSettings.Engine.MILP);
+    // -- the points of a Pareto front share a model, so they are not cached one by one
+    SolutionCache cache = jConfig.cache && !pareto ? createCache(jConfig) : null;
+    Set<Integer> restored = ConcurrentHashMap.newKeySet();
 
     if (mode == PartitionSettings.Mode.HOMOGENEOUS) {
       context
           .getReporter()
           .report(new Diagnostic(Diagnostic.Kind.INFO, "HOMOGENEOUS PARTITIONING MODE"));
 
-      MulticorePerformanceModel perfModel =
-          new MulticorePerformanceModel(task, context, multicoreDB, multicoreClockPeriod, 300.0);
-
-      maxCores = Math.min(perfModel.getMaxPartitions(), maxCores);
+      maxCores = Math.min(task.getNetwork().getInstances().size(), maxCores);
 
+      Map<Integer, MulticorePerformanceModel> models = new TreeMap<>();
       for (int cores = 2; cores <= maxCores; cores++) {
+        MulticorePerformanceModel perfModel;
+        if (jConfig.engine == PartitionSettings.Engine.BRANCH_AND_BOUND) {
+          perfModel =
+              new BranchAndBoundModel(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+        } else if (jConfig.engine == PartitionSettings.Engine.ANNEALING) {
+          perfModel =
+              new AnnealingModel(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+        } else if (jConfig.engine == PartitionSettings.Engine.GENETIC) {
+          perfModel = new GeneticModel(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+        } else if (jConfig.engine == PartitionSettings.Engine.MULTILEVEL) {
+          MultilevelModel multilevelModel =
+              new MultilevelModel(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+          multilevelModel.setCoarsestSize(jConfig.coarsestSize);
+          perfModel = multilevelModel;
+        } else if (jConfig.engine == PartitionSettings.Engine.SET_PARTITIONING) {
+          perfModel =
+              new SetPartitioningModel(task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+          perfModel.setBackend(createBackend(jConfig));
+        } else {
+          perfModel =
+              new MulticorePerformanceModel(
+                  task, context, multicoreDB, multicoreClockPeriod, timeLimit);
+          perfModel.setBackend(createBackend(jConfig));
+          perfModel.setRefine(jConfig.refine);
+          perfModel.setReduce(jConfig.reduce);
+          perfModel.setCutCoreToCore(jConfig.coreToCore != PartitionSettings.CoreToCore.PAIRWISE);
+        }
+        models.put(cores, perfModel);
+      }
+      Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> allSolutions =
+          solveConcurrently(models, jConfig.threads, jConfig.warmStart, cache, logPath, restored);
+
+      for (int cores : models.keySet()) {
+        MulticorePerformanceModel perfModel = models.get(cores);
         ImmutableList<PerformanceModel.PartitioningSolution<String>> solutions =
-            perfModel.solveModel(cores);
+            allSolutions.get(cores);
         File configDir = logPath.resolve(String.valueOf(cores)).toFile();
         if (!configDir.exists()) {
           configDir.mkdirs();
         }
         System.out.println("Solved the model for " + cores + " cores");
-        perfModel.solutionsSummary(configDir);
+        // -- the summary of a restored solve is restored along with the solutions
+        if (!restored.contains(cores)) perfModel.solutionsSummary(configDir);
         for (PerformanceModel.PartitioningSolution<String> solution : solutions) {
 
           perfModel.dumpMulticoreConfig(
               configDir + "/config_" + solutions.indexOf(solution) + ".xml", solution, multicoreDB);
         }
+        if (cache != null && !restored.contains(cores)) {
+          storeSolutions(cache, cores, solutions, configDir);
+        }
       }
+      solveSweep(jConfig, models);
 
     } else if (mode == PartitionSettings.Mode.HETEROGENEOUS) {
       context
           .getReporter()
           .report(new Diagnostic(Diagnostic.Kind.INFO, "HETEROGENEOUS PARTITIONING MODE"));
-      HeterogeneousModel perfModel =
-          new HeterogeneousModel(
-              task, context, multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod, 300.0);
+      Map<Integer, HeterogeneousModel> models = new TreeMap<>();
+      // -- the hardware sets tried by the decomposition of a core count are shared with the others
+      DecomposedHeterogeneousModel.HardwareCandidates hardwareCandidates =
+          new DecomposedHeterogeneousModel.HardwareCandidates();
+      // -- the parametric model with the most cores covers every smaller number of cores
+      for (int cores = pareto ? maxCores : 1; cores <= maxCores; cores++) {
+        HeterogeneousModel perfModel;
+        if (jConfig.engine == PartitionSettings.Engine.MULTILEVEL) {
+          HeterogeneousMultilevelModel multilevelModel =
+              new HeterogeneousMultilevelModel(
+                  task,
+                  context,
+                  multicoreDB,
+                  accelDB,
+                  multicoreClockPeriod,
+                  accelClockPeriod,
+                  timeLimit);
+          multilevelModel.setCoarsestSize(jConfig.coarsestSize);
+          perfModel = multilevelModel;
+        } else if (jConfig.engine == PartitionSettings.Engine.ANNEALING) {
+          perfModel =
+              new HeterogeneousAnnealingModel(
+                  task,
+                  context,
+                  multicoreDB,
+                  accelDB,
+                  multicoreClockPeriod,
+                  accelClockPeriod,
+                  timeLimit);
+        } else if (jConfig.engine == PartitionSettings.Engine.GENETIC) {
+          perfModel =
+              new HeterogeneousGeneticModel(
+                  task,
+                  context,
+                  multicoreDB,
+                  accelDB,
+                  multicoreClockPeriod,
+                  accelClockPeriod,
+                  timeLimit);
+        } else {
+          if (jConfig.engine == PartitionSettings.Engine.DECOMPOSITION) {
+            DecomposedHeterogeneousModel decomposedModel =
+                new DecomposedHeterogeneousModel(
+                    task,
+                    context,
+                    multicoreDB,
+                    accelDB,
+                    multicoreClockPeriod,
+                    accelClockPeriod,
+                    timeLimit,
+                    hardwareCandidates);
+            decomposedModel.setMaxIterations(jConfig.decompositionIterations);
+            perfModel = decomposedModel;
+          } else {
+            perfModel =
+                new HeterogeneousModel(
+                    task,
+                    context,
+                    multicoreDB,
+                    accelDB,
+                    multicoreClockPeriod,
+                    accelClockPeriod,
+                    timeLimit);
+          }
+          perfModel.setBackend(createBackend(jConfig));
+          perfModel.setRefine(jConfig.refine);
+          perfModel.setReduce(jConfig.reduce);
+          perfModel.setCutCoreToCore(jConfig.coreToCore != PartitionSettings.CoreToCore.PAIRWISE);
+          if (jConfig.objectives != null) {
+            perfModel.setSecondaryObjectives(
+                jConfig.objectives.stream()
+                    .map(
+                        objective ->
+                            objective == PartitionSettings.Objective.PLINK_CONNECTIONS
+                                ? HeterogeneousModel.SecondaryObjective.CONNECTIONS
+                                : HeterogeneousModel.SecondaryObjective.HARDWARE_ACTORS)
+                    .collect(Collectors.toList()),
+                jConfig.objectiveTolerance);
+          }
+        }
+        models.put(cores, perfModel);
+      }
+      Path dumpPath = context.getConfiguration().get(Compiler.targetPath).resolve("heterogeneous");
+      Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> allSolutions;
+      if (pareto) {
+        allSolutions =
+            solvePareto(
+                models.get(maxCores), maxCores, jConfig.threads, jConfig.warmStart, dumpPath);
+      } else {
+        allSolutions =
+            solveConcurrently(
+                models, jConfig.threads, jConfig.warmStart, cache, dumpPath, restored);
+      }
+      if (cache != null) {
+        for (int cores : models.keySet()) {
+          if (!restored.contains(cores)) {
+            storeSolutions(
+                cache,
+                cores,
+                allSolutions.get(cores),
+                dumpPath.resolve(String.valueOf(cores)).toFile());
+          }
+        }
+      }
+
       int solutionCount = 0;
       Map<SolutionIdentity, Integer> solutionToUniqueHwMap =
           new TreeMap<>(
@@ -269,7 +489,7 @@ public class PartitioningAnalysisPhase implements Phase {
       for (int cores = 1; cores <= maxCores; cores++) {
 
         ImmutableList<PerformanceModel.PartitioningSolution<String>> solutions =
-            perfModel.solveModel(cores);
+            allSolutions.get(cores);
 
         // Find the hardware partition for every solution and add the hardware partition to the
         // set of unique hardware partitions and update a map from solution ids to unique hw
@@ -385,11 +605,417 @@ public class PartitioningAnalysisPhase implements Phase {
                 .toString();
         PerformanceModel.dumpXcfConfig(xcfName, sol, bufferDepth, task);
       }
+      solveSweep(jConfig, models);
     }
 
     return task;
   }
 
+  /**
+   * Solves the given models concurrently, every model is solved for its core count on its own
+   * solver environment with an equal share of the thread budget. The models must be distinct
+   * instances since they keep the state of their last solve. With warm starts every core count
+   * starts from the best solution of the previous one, the solves then run one after the other
+   * with the whole thread budget. So do the solves of the decomposition, every core count starts
+   * from the hardware sets of the smaller ones.
+   *
+   * <p>With a time budget, every solve gets its time limit from the budget when it starts, and the
+   * core counts that hit their time limit are solved again from their best solution with the time
+   * the others did not use. The allocation goes into budget.csv of the output directory.
+   *
+   * @param models a map from core counts to the models to solve for them
+   * @param threadBudget the total number of threads, 0 uses all the available processors
+   * @param warmStart the warm start mode, null means none
+   * @param cache the cache to restore the solutions from instead of solving, null means none
+   * @param outputPath the directory of the outputs of every core count
+   * @param restored receives the core counts restored from the cache
+   * @return a map from core counts to solutions, sorted by core count
+   */
+  private Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>>
+      solveConcurrently(
+          Map<Integer, ? extends MulticorePerformanceModel> models,
+          int threadBudget,
+          PartitionSettings.WarmStart warmStart,
+          SolutionCache cache,
+          Path outputPath,
+          Set<Integer> restored) {
+
+    boolean chained = warmStart != null && warmStart != PartitionSettings.WarmStart.NONE;
+    // -- the shared hardware sets only depend on the core counts solved before in order
+    boolean sequential =
+        chained
+            || models.values().stream().anyMatch(m -> m instanceof DecomposedHeterogeneousModel);
+    int totalThreads = threadBudget > 0 ? threadBudget : Runtime.getRuntime().availableProcessors();
+    int concurrentSolves = sequential ? 1 : Math.max(1, Math.min(models.size(), totalThreads));
+    int threadsPerSolve = Math.max(1, totalThreads / concurrentSolves);
+    context
+        .getReporter()
+        .report(
+            new Diagnostic(
+                Diagnostic.Kind.INFO,
+                String.format(
+                    "Solving %d core counts, %d at a time with %d threads each",
+                    models.size(), concurrentSolves, threadsPerSolve)));
+    TimeBudget budget =
+        timeBudget > 0
+            ? new TimeBudget(timeBudget, concurrentSolves, getBudgetWeights(models))
+            : null;
+
+    ExecutorService executor = Executors.newFixedThreadPool(concurrentSolves);
+    try {
+      Map<Integer, Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>>> futures =
+          new TreeMap<>();
+      Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>> previous = null;
+      for (Map.Entry<Integer, ? extends MulticorePerformanceModel> entry : models.entrySet()) {
+        MulticorePerformanceModel perfModel = entry.getValue();
+        int cores = entry.getKey();
+        perfModel.setThreads(threadsPerSolve);
+        perfModel.setGapLimit(gapLimit);
+        perfModel.setMeasureWarmStart(warmStart == PartitionSettings.WarmStart.MEASURE);
+        // -- a single threaded executor runs the solves in order, so the previous one is done
+        Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>> predecessor =
+            chained ? previous : null;
+        previous =
+            executor.submit(
+                () -> {
+                  Optional<ImmutableList<PerformanceModel.PartitioningSolution<String>>> cached =
+                      loadSolutions(cache, cores, outputPath.resolve(String.valueOf(cores)));
+                  if (cached.isPresent()) {
+                    perfModel.restoreSolutions(cores, cached.get());
+                    restored.add(cores);
+                    return cached.get();
+                  }
+                  if (predecessor != null && !predecessor.get().isEmpty()) {
+                    perfModel.setWarmStart(predecessor.get().get(0));
+                  }
+                  return solveWithBudget(budget, perfModel, cores);
+                });
+        futures.put(cores, previous);
+      }
+      Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> solutions =
+          new TreeMap<>();
+      for (Map.Entry<Integer, Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>>>
+          entry : futures.entrySet()) {
+        solutions.put(entry.getKey(), entry.getValue().get());
+      }
+      if (budget != null) {
+        resolveWithBudget(budget, models, solutions, executor);
+        dumpBudget(budget, outputPath);
+      }
+      return solutions;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompilationException(
+          new Diagnostic(Diagnostic.Kind.ERROR, "Interrupted while solving the models"));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof CompilationException) {
+        throw (CompilationException) e.getCause();
+      }
+      throw new CompilationException(
+          new Diagnostic(
+              Diagnostic.Kind.ERROR, "Could not solve the model: " + e.getCause().getMessage()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Traces the Pareto front of the core limits with a single parametric model, with the whole
+   * thread budget. With a time budget, every core limit gets its time limit from the budget when it
+   * starts, the limits share a model of the same size so they weigh the same.
+   *
+   * @param paretoModel the model with the most cores
+   * @param maxCores the largest number of cores
+   * @param threadBudget the total number of threads, 0 uses all the available processors
+   * @param warmStart the warm start mode, null means none
+   * @param outputPath the directory of the outputs of every core count
+   * @return a map from core limits to solutions, sorted by core limit
+   */
+  private Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> solvePareto(
+      HeterogeneousModel paretoModel,
+      int maxCores,
+      int threadBudget,
+      PartitionSettings.WarmStart warmStart,
+      Path outputPath) {
+    paretoModel.setThreads(
+        threadBudget > 0 ? threadBudget : Runtime.getRuntime().availableProcessors());
+    paretoModel.setGapLimit(gapLimit);
+    paretoModel.setMeasureWarmStart(warmStart == PartitionSettings.WarmStart.MEASURE);
+    if (timeBudget <= 0) return paretoModel.solveParetoFront(maxCores);
+
+    Map<Integer, Double> weights = new TreeMap<>();
+    for (int limit = 1; limit <= maxCores; limit++) weights.put(limit, 1.0);
+    TimeBudget budget = new TimeBudget(timeBudget, 1, weights);
+    Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> front =
+        paretoModel.solveParetoFront(
+            maxCores,
+            limit -> budget.allocate(limit).getLimit(),
+            limit ->
+                budget.release(
+                    limit,
+                    paretoModel.getLastStatus(),
+                    paretoModel.getLastGap(),
+                    paretoModel.getGapClosingRate()));
+    dumpBudget(budget, outputPath);
+    return front;
+  }
+
+  /**
+   * @return the backend of the configuration, or a portfolio of several solves that race on every
+   *     model with a portfolio size above 1, their backends cycle through the portfolio solvers
+   */
+  private static SolverBackend createBackend(JsonConfiguration jConfig) {
+    if (jConfig.portfolio <= 1) return SolverBackends.create(jConfig.solver);
+    ImmutableList<String> names =
+        jConfig.portfolioSolvers == null || jConfig.portfolioSolvers.isEmpty()
+            ? ImmutableList.of(jConfig.solver == null ? SolverBackends.DEFAULT : jConfig.solver)
+            : ImmutableList.from(jConfig.portfolioSolvers);
+    return SolverBackends.createPortfolio(names, jConfig.portfolio);
+  }
+
+  /**
+   * @return the weight of every core count in the time budget, the number of decision variables
+   *     of its model, i.e., the actors times the partitions
+   */
+  private Map<Integer, Double> getBudgetWeights(
+      Map<Integer, ? extends MulticorePerformanceModel> models) {
+    int actors = task.getNetwork().getInstances().size();
+    Map<Integer, Double> weights = new TreeMap<>();
+    for (Map.Entry<Integer, ? extends MulticorePerformanceModel> entry : models.entrySet()) {
+      int partitions = entry.getKey() + (entry.getValue() instanceof HeterogeneousModel ? 1 : 0);
+      weights.put(entry.getKey(), (double) actors * partitions);
+    }
+    return weights;
+  }
+
+  /** Solves a model with the time limit of the budget, or its own time limit without one. */
+  private static ImmutableList<PerformanceModel.PartitioningSolution<String>> solveWithBudget(
+      TimeBudget budget, MulticorePerformanceModel perfModel, int cores) {
+    if (budget == null) return perfModel.solveModel(cores);
+    perfModel.setTimeLimit(budget.allocate(cores).getLimit());
+    try {
+      return perfModel.solveModel(cores);
+    } finally {
+      budget.release(
+          cores, perfModel.getLastStatus(), perfModel.getLastGap(), perfModel.getGapClosingRate());
+    }
+  }
+
+  /**
+   * Solves the core counts that hit their time limit again from their best solution, with the time
+   * left in the budget, and keeps the new solutions.
+   */
+  private void resolveWithBudget(
+      TimeBudget budget,
+      Map<Integer, ? extends MulticorePerformanceModel> models,
+      Map<Integer, ImmutableList<PerformanceModel.PartitioningSolution<String>>> solutions,
+      ExecutorService executor)
+      throws InterruptedException, ExecutionException {
+    Map<Integer, Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>>> retries =
+        new TreeMap<>();
+    for (int cores : budget.planSecondPass(gapLimit)) {
+      MulticorePerformanceModel perfModel = models.get(cores);
+      ImmutableList<PerformanceModel.PartitioningSolution<String>> previous = solutions.get(cores);
+      if (previous == null || previous.isEmpty()) continue;
+      perfModel.setWarmStart(previous.get(0));
+      retries.put(cores, executor.submit(() -> solveWithBudget(budget, perfModel, cores)));
+    }
+    for (Map.Entry<Integer, Future<ImmutableList<PerformanceModel.PartitioningSolution<String>>>>
+        entry : retries.entrySet()) {
+      ImmutableList<PerformanceModel.PartitioningSolution<String>> resolved =
+          entry.getValue().get();
+      if (!resolved.isEmpty()) solutions.put(entry.getKey(), resolved);
+    }
+  }
+
+  private void dumpBudget(TimeBudget budget, Path outputPath) {
+    File budgetFile = outputPath.resolve("budget.csv").toFile();
+    try {
+      budget.dump(budgetFile);
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.INFO, "Time budget allocation saved to " + budgetFile));
+    } catch (FileNotFoundException e) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.WARNING,
+                  "Could not save the time budget allocation: " + e.getMessage()));
+    }
+  }
+
+  /**
+   * Solves the scenarios of the sweep of the configuration on every core count, one core count
+   * after the other. Every model keeps its model in the backend across the scenarios and only
+   * patches the costs that change.
+   */
+  private void solveSweep(
+      JsonConfiguration jConfig, Map<Integer, ? extends MulticorePerformanceModel> models) {
+    if (jConfig.sweep == null || jConfig.sweep.isEmpty()) return;
+    List<ProfileScenario> scenarios = makeScenarios(jConfig);
+    for (Map.Entry<Integer, ? extends MulticorePerformanceModel> entry : models.entrySet()) {
+      long startTime = System.nanoTime();
+      entry.getValue().solveScenarios(entry.getKey(), scenarios);
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.INFO,
+                  String.format(
+                      "Solved %d scenarios on %d cores in %.3f s",
+                      scenarios.size(), entry.getKey(), (System.nanoTime() - startTime) * 1e-9)));
+    }
+  }
+
+  /**
+   * Parses the profiles of the scenarios of the sweep. A scenario profile without a path keeps the
+   * profile of the configuration, one without a freq keeps its frequency, and its multiplier
+   * scales the profiled times of the scenario.
+   */
+  private List<ProfileScenario> makeScenarios(JsonConfiguration jConfig) {
+    List<ProfileScenario> scenarios = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for (SweepScenario sweep : jConfig.sweep) {
+      if (sweep.name == null || !names.add(sweep.name)) {
+        throw new CompilationException(
+            new Diagnostic(
+                Diagnostic.Kind.ERROR, "Every sweep scenario needs a unique name: " + sweep.name));
+      }
+      ProfileScenario scenario = new ProfileScenario(sweep.name);
+
+      double multicorePeriod = getClockPeriod(jConfig.software, sweep.software);
+      scenario.setMulticoreClockPeriod(multicorePeriod);
+      if (hasPath(sweep.software) || hasPath(sweep.bandwidth)) {
+        MulticoreProfileParser multicoreParser =
+            new MulticoreProfileParser(task, context, multicorePeriod);
+        multicoreParser.parseExecutionProfile(Paths.get(getPath(jConfig.software, sweep.software)));
+        multicoreParser.parseBandwidthProfile(
+            Paths.get(getPath(jConfig.bandwidth, sweep.bandwidth)));
+        scenario.setMulticoreDB(multicoreParser.getDataBase());
+      }
+
+      if (jConfig.mode == PartitionSettings.Mode.HETEROGENEOUS) {
+        scenario.setAccelClockPeriod(getClockPeriod(jConfig.systemc, sweep.systemc));
+        if (hasPath(sweep.systemc) || hasPath(sweep.opencl)) {
+          DeviceProfileParser devParser = new DeviceProfileParser(task, context);
+          devParser.parseExecutionProfile(Paths.get(getPath(jConfig.systemc, sweep.systemc)));
+          devParser.parseBandwidthProfile(Paths.get(getPath(jConfig.opencl, sweep.opencl)));
+          scenario.setAccelDB(devParser.getDataBase());
+        }
+      }
+      scenarios.add(scenario);
+    }
+    return scenarios;
+  }
+
+  private static boolean hasPath(ProfileData pdata) {
+    return pdata != null && pdata.path != null;
+  }
+
+  private static String getPath(ProfileData base, ProfileData scenario) {
+    return hasPath(scenario) ? scenario.path : base.path;
+  }
+
+  private static double getClockPeriod(ProfileData base, ProfileData scenario) {
+    double freq = scenario != null && scenario.freq != null ? scenario.freq : base.freq;
+    double multiplier = scenario != null && scenario.multiplier != null ? scenario.multiplier : 1.0;
+    return 1 / freq * 1e-6 * multiplier;
+  }
+
+  /**
+   * Creates the cache of the solutions under the target path, keyed by the network, the costs of
+   * the profiles and the settings that change the solutions. The thread budget is part of the key,
+   * a solve that stops at its time limit may find another solution with other threads.
+   */
+  private SolutionCache createCache(JsonConfiguration jConfig) {
+    PartitioningProblem problem =
+        jConfig.mode == PartitionSettings.Mode.HETEROGENEOUS
+            ? HeterogeneousProblem.fromNetwork(
+                task.getNetwork(), multicoreDB, accelDB, multicoreClockPeriod, accelClockPeriod)
+            : PartitioningProblem.fromNetwork(task.getNetwork(), multicoreDB, multicoreClockPeriod);
+    String settings =
+        String.format(
+            "mode=%s engine=%s solver=%s warm_start=%s refine=%b reduce=%b coarsest_size=%d"
+                + " time_limit=%s time_budget=%s gap=%s core_to_core=%s objectives=%s"
+                + " objective_tolerance=%s portfolio=%d portfolio_solvers=%s"
+                + " decomposition_iterations=%d threads=%d",
+            jConfig.mode,
+            jConfig.engine,
+            jConfig.solver,
+            jConfig.warmStart,
+            jConfig.refine,
+            jConfig.reduce,
+            jConfig.coarsestSize,
+            timeLimit,
+            timeBudget,
+            gapLimit,
+            jConfig.coreToCore,
+            jConfig.objectives,
+            jConfig.objectiveTolerance,
+            jConfig.portfolio,
+            jConfig.portfolioSolvers,
+            jConfig.decompositionIterations,
+            jConfig.threads);
+    SolutionCache cache =
+        new SolutionCache(
+            context.getConfiguration().get(Compiler.targetPath).resolve("cache"),
+            SolutionCache.key(task.getNetwork(), problem, settings));
+    context
+        .getReporter()
+        .report(
+            new Diagnostic(
+                Diagnostic.Kind.INFO, "Using the solution cache in " + cache.getDirectory()));
+    return cache;
+  }
+
+  private Optional<ImmutableList<PerformanceModel.PartitioningSolution<String>>> loadSolutions(
+      SolutionCache cache, int cores, Path reportPath) {
+    if (cache == null) return Optional.empty();
+    try {
+      Optional<ImmutableList<PerformanceModel.PartitioningSolution<String>>> solutions =
+          cache.load(cores, reportPath.toFile());
+      if (solutions.isPresent()) {
+        context
+            .getReporter()
+            .report(
+                new Diagnostic(
+                    Diagnostic.Kind.INFO,
+                    "Restored " + solutions.get().size() + " solutions for " + cores + " cores"));
+      }
+      return solutions;
+    } catch (IOException e) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.WARNING,
+                  "Could not restore the solutions for " + cores + " cores: " + e.getMessage()));
+      return Optional.empty();
+    }
+  }
+
+  private void storeSolutions(
+      SolutionCache cache,
+      int cores,
+      ImmutableList<PerformanceModel.PartitioningSolution<String>> solutions,
+      File reportDir) {
+    // -- a solve without solutions may have run out of time, the next run tries again
+    if (solutions.isEmpty()) return;
+    try {
+      cache.store(cores, solutions, reportDir);
+    } catch (IOException e) {
+      context
+          .getReporter()
+          .report(
+              new Diagnostic(
+                  Diagnostic.Kind.WARNING,
+                  "Could not cache the solutions for " + cores + " cores: " + e.getMessage()));
+    }
+  }
+
   private void dumpUniqueHardwarePartitionJson(
       Map<SolutionIdentity, Integer> solutionToUniqueHwMap, String fileName) throws IOException {
     // dump a mapping from solution ids to unique hardware sets (as hash codes)
@@ -0,0 +1,193 @@
+package ch.epfl.vlsc.analysis.partitioning.phase;
+
+import ch.epfl.vlsc.analysis.partitioning.solver.SolveStatus;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out the time limits of the solves of a core count sweep from a global wall-clock budget.
+ * The solves run on a number of slots, so the budget offers the slots times the remaining wall
+ * clock time, less what the running solves may still use. A solve that starts gets the share of
+ * that capacity given by its weight among the solves that did not start yet, so time a solve does
+ * not use goes back to the ones after it.
+ *
+ * <p>The first pass weighs the solves by the size of their models. Once it is done, the solves
+ * that hit their time limit may get a second pass from what is left, weighed by the time they need
+ * to close their gap at the rate they closed it so far.
+ */
+public class TimeBudget {
+
+  // -- every solve gets at least this many seconds, to find a solution at all
+  private static final double MINIMUM_LIMIT = 1.0;
+
+  /** The time limit of a solve and how the solve used it. */
+  public static final class Allocation {
+    private final int cores;
+    private final int pass;
+    private final double weight;
+    private final double limit;
+    private final double start;
+    private double runtime = Double.NaN;
+    private SolveStatus status = SolveStatus.UNKNOWN;
+    private double gap = Double.NaN;
+    private double gapClosingRate = Double.NaN;
+
+    private Allocation(int cores, int pass, double weight, double limit, double start) {
+      this.cores = cores;
+      this.pass = pass;
+      this.weight = weight;
+      this.limit = limit;
+      this.start = start;
+    }
+
+    public int getCores() {
+      return cores;
+    }
+
+    public double getLimit() {
+      return limit;
+    }
+  }
+
+  private final double budget;
+  private final int slots;
+  private final long startTime = System.nanoTime();
+  // -- the weights of the solves that did not start yet, keyed by core count
+  private final Map<Integer, Double> pending = new LinkedHashMap<>();
+  private final Map<Integer, Allocation> running = new HashMap<>();
+  private final List<Allocation> allocations = new ArrayList<>();
+  private int pass = 1;
+
+  /**
+   * @param budget the wall-clock budget of the sweep, in seconds
+   * @param slots the number of solves that run at the same time
+   * @param weights the weight of every core count, e.g., the size of its model
+   */
+  public TimeBudget(double budget, int slots, Map<Integer, Double> weights) {
+    this.budget = budget;
+    this.slots = Math.max(1, slots);
+    this.pending.putAll(weights);
+  }
+
+  private double elapsed() {
+    return (System.nanoTime() - startTime) * 1e-9;
+  }
+
+  /** @return the solver time the solves that did not start yet may share */
+  private double capacity() {
+    double now = elapsed();
+    double remaining = Math.max(0.0, budget - now);
+    double committed = 0.0;
+    for (Allocation allocation : running.values()) {
+      committed += Math.max(0.0, allocation.limit - (now - allocation.start));
+    }
+    return Math.max(0.0, slots * remaining - committed);
+  }
+
+  /**
+   * Starts the solve of a core count.
+   *
+   * @param cores the core count
+   * @return the allocation of the solve, with its time limit in seconds
+   */
+  public synchronized Allocation allocate(int cores) {
+    double weight = pending.getOrDefault(cores, 1.0);
+    double total = pending.values().stream().mapToDouble(Double::doubleValue).sum();
+    if (!pending.containsKey(cores)) total += weight;
+    pending.remove(cores);
+    double share = total > 0.0 ? capacity() * weight / total : 0.0;
+    // -- a single solve can not use more than the wall clock time that is left
+    double limit = Math.max(MINIMUM_LIMIT, Math.min(share, budget - elapsed()));
+    if (pass > 1) limit = Math.min(limit, Math.max(MINIMUM_LIMIT, weight));
+    Allocation allocation = new Allocation(cores, pass, weight, limit, elapsed());
+    running.put(cores, allocation);
+    allocations.add(allocation);
+    return allocation;
+  }
+
+  /**
+   * Ends the solve of a core count, what it did not use goes back to the budget.
+   *
+   * @param cores the core count
+   * @param status the status of the solve
+   * @param gap the relative gap of the solve, NaN if unknown
+   * @param gapClosingRate the relative gap the solve closed per second, NaN if unknown
+   */
+  public synchronized void release(
+      int cores, SolveStatus status, double gap, double gapClosingRate) {
+    Allocation allocation = running.remove(cores);
+    if (allocation == null) return;
+    allocation.runtime = elapsed() - allocation.start;
+    allocation.status = status;
+    allocation.gap = gap;
+    allocation.gapClosingRate = gapClosingRate;
+  }
+
+  /**
+   * Plans a second pass over the solves of the first that hit their time limit with a gap above
+   * the gap limit. Every one of them needs the time to close the rest of its gap at the rate it
+   * closed it so far, or as much time again if it closed none, and that time is its weight.
+   *
+   * @param gapLimit the relative gap at which a solve stops
+   * @return the core counts to solve again, empty if there is no time left for them
+   */
+  public synchronized List<Integer> planSecondPass(double gapLimit) {
+    List<Integer> cores = new ArrayList<>();
+    if (budget - elapsed() < MINIMUM_LIMIT) return cores;
+    for (Allocation allocation : allocations) {
+      if (allocation.pass != 1
+          || allocation.status != SolveStatus.TIME_LIMIT
+          || Double.isNaN(allocation.gap)
+          || allocation.gap <= gapLimit) {
+        continue;
+      }
+      double needed =
+          allocation.gapClosingRate > 0.0
+              ? (allocation.gap - gapLimit) / allocation.gapClosingRate
+              : allocation.runtime;
+      pending.put(allocation.cores, needed);
+      cores.add(allocation.cores);
+    }
+    pass = 2;
+    return cores;
+  }
+
+  /**
+   * Writes the time limit of every solve and how it was used.
+   *
+   * @param file the csv file
+   */
+  public synchronized void dump(File file) throws FileNotFoundException {
+    file.getParentFile().mkdirs();
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println("cores,pass,weight,start,time_limit,runtime,status,gap,gap_rate");
+      for (Allocation allocation : allocations) {
+        writer.println(
+            allocation.cores
+                + ","
+                + allocation.pass
+                + ","
+                + allocation.weight
+                + ","
+                + allocation.start
+                + ","
+                + allocation.limit
+                + ","
+                + allocation.runtime
+                + ","
+                + allocation.status
+                + ","
+                + allocation.gap
+                + ","
+                + allocation.gapClosingRate);
+      }
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * The constraints an {@link OptimizationModel} can hold. Linear constraints are always supported,
+ * the general constraints (indicator, max, and, or) are translated by each backend to whatever the
+ * underlying engine offers.
+ */
+public abstract class Constraint {
+
+  private final String name;
+
+  protected Constraint(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Checks whether the constraint holds for the given assignment
+   *
+   * @param values variable values indexed by {@link Variable#getIndex()}
+   * @param tolerance absolute feasibility tolerance
+   */
+  public abstract boolean isSatisfied(double[] values, double tolerance);
+
+  protected static boolean holds(double lhs, Sense sense, double rhs, double tolerance) {
+    switch (sense) {
+      case LESS_EQUAL:
+        return lhs <= rhs + tolerance;
+      case GREATER_EQUAL:
+        return lhs >= rhs - tolerance;
+      default:
+        return Math.abs(lhs - rhs) <= tolerance;
+    }
+  }
+
+  /** expr (sense) rhs, where expr has no constant term */
+  public static class Linear extends Constraint {
+    private final LinearExpression expression;
+    private final Sense sense;
+    private double rhs;
+
+    Linear(LinearExpression expression, Sense sense, double rhs, String name) {
+      super(name);
+      this.expression = expression;
+      this.sense = sense;
+      this.rhs = rhs;
+    }
+
+    public LinearExpression getExpression() {
+      return expression;
+    }
+
+    public Sense getSense() {
+      return sense;
+    }
+
+    public double getRhs() {
+      return rhs;
+    }
+
+    public void setRhs(double rhs) {
+      this.rhs = rhs;
+    }
+
+    /**
+     * Changes the coefficient of a variable in the constraint, all the terms of the variable are
+     * merged into the first one.
+     */
+    public void setCoefficient(Variable variable, double coefficient) {
+      boolean found = false;
+      for (int ix = 0; ix < expression.size(); ix++) {
+        if (expression.getVariable(ix) == variable) {
+          expression.setCoefficient(ix, found ? 0.0 : coefficient);
+          found = true;
+        }
+      }
+      if (!found) {
+        expression.addTerm(coefficient, variable);
+      }
+    }
+
+    @Override
+    public boolean isSatisfied(double[] values, double tolerance) {
+      return holds(expression.evaluate(values), sense, rhs, tolerance);
+    }
+  }
+
+  /** binary = value implies expr (sense) rhs */
+  public static class Indicator extends Constraint {
+    private final Variable binary;
+    private final int value;
+    private final LinearExpression expression;
+    private final Sense sense;
+    private final double rhs;
+
+    Indicator(
+        Variable binary,
+        int value,
+        LinearExpression expression,
+        Sense sense,
+        double rhs,
+        String name) {
+      super(name);
+      this.binary = binary;
+      this.value = value;
+      this.expression = expression;
+      this.sense = sense;
+      this.rhs = rhs;
+    }
+
+    public Variable getBinary() {
+      return binary;
+    }
+
+    public int getValue() {
+      return value;
+    }
+
+    public LinearExpression getExpression() {
+      return expression;
+    }
+
+    public Sense getSense() {
+      return sense;
+    }
+
+    public double getRhs() {
+      return rhs;
+    }
+
+    @Override
+    public boolean isSatisfied(double[] values, double tolerance) {
+      if (Math.abs(values[binary.getIndex()] - value) > tolerance) return true;
+      return holds(expression.evaluate(values), sense, rhs, tolerance);
+    }
+  }
+
+  /** result = max(args..., constant) */
+  public static class Max extends Constraint {
+    private final Variable result;
+    private final ImmutableList<Variable> arguments;
+    private final double constant;
+
+    Max(Variable result, ImmutableList<Variable> arguments, double constant, String name) {
+      super(name);
+      this.result = result;
+      this.arguments = arguments;
+      this.constant = constant;
+    }
+
+    public Variable getResult() {
+      return result;
+    }
+
+    public ImmutableList<Variable> getArguments() {
+      return arguments;
+    }
+
+    public double getConstant() {
+      return constant;
+    }
+
+    @Override
+    public boolean isSatisfied(double[] values, double tolerance) {
+      double max = constant;
+      for (Variable v : arguments) max = Math.max(max, values[v.getIndex()]);
+      return Math.abs(values[result.getIndex()] - max) <= tolerance;
+    }
+  }
+
+  /** result = args_0 & args_1 & ... over binary variables */
+  public static class And extends Constraint {
+    private final Variable result;
+    private final ImmutableList<Variable> arguments;
+
+    And(Variable result, ImmutableList<Variable> arguments, String name) {
+      super(name);
+      this.result = result;
+      this.arguments = arguments;
+    }
+
+    public Variable getResult() {
+      return result;
+    }
+
+    public ImmutableList<Variable> getArguments() {
+      return arguments;
+    }
+
+    @Override
+    public boolean isSatisfied(double[] values, double tolerance) {
+      boolean conjunction = true;
+      for (Variable v : arguments) conjunction &= values[v.getIndex()] > 0.5;
+      return Math.abs(values[result.getIndex()] - (conjunction ? 1.0 : 0.0)) <= tolerance;
+    }
+  }
+
+  /** result = args_0 | args_1 | ... over binary variables */
+  public static class Or extends Constraint {
+    private final Variable result;
+    private final ImmutableList<Variable> arguments;
+
+    Or(Variable result, ImmutableList<Variable> arguments, String name) {
+      super(name);
+      this.result = result;
+      this.arguments = arguments;
+    }
+
+    public Variable getResult() {
+      return result;
+    }
+
+    public ImmutableList<Variable> getArguments() {
+      return arguments;
+    }
+
+    @Override
+    public boolean isSatisfied(double[] values, double tolerance) {
+      boolean disjunction = false;
+      for (Variable v : arguments) disjunction |= values[v.getIndex()] > 0.5;
+      return Math.abs(values[result.getIndex()] - (disjunction ? 1.0 : 0.0)) <= tolerance;
+    }
+  }
+}
@@ -0,0 +1,447 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import gurobi.*;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+import se.lth.cs.tycho.reporting.CompilationException;
+import se.lth.cs.tycho.reporting.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/** Solves an {@link OptimizationModel} with Gurobi through its Java bindings. */
+public class GurobiBackend implements SolverBackend {
+
+  public static final String NAME = "gurobi";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public SolutionPool solve(OptimizationModel model, SolverSettings settings) {
+    try (GurobiSession session = new GurobiSession(model, settings)) {
+      return session.solve(settings);
+    }
+  }
+
+  /**
+   * Keeps the translated model between the solves, patches it with chgCoeff and attributes and
+   * adds columns with addVar.
+   */
+  @Override
+  public SolverSession open(OptimizationModel model, SolverSettings settings) {
+    return new GurobiSession(model, settings);
+  }
+
+  private static class GurobiSession implements SolverSession {
+    private final OptimizationModel model;
+    private final Map<Constraint.Linear, GRBConstr> constraints = new IdentityHashMap<>();
+    // -- the log file of the session, null if there is none
+    private final String logFile;
+    private GRBEnv env;
+    private GRBModel grbModel;
+    private GRBVar[] vars;
+    private SolutionPool previous;
+
+    GurobiSession(OptimizationModel model, SolverSettings settings) {
+      this.model = model;
+      this.logFile = settings.getLogFile().map(f -> f.toAbsolutePath().toString()).orElse(null);
+      try {
+        env = new GRBEnv(true);
+        if (logFile != null) env.set("LogFile", logFile);
+        env.start();
+
+        grbModel = new GRBModel(env);
+        vars = translate(model, grbModel, constraints);
+        setStart(model, grbModel, vars);
+      } catch (GRBException e) {
+        close();
+        throw error(e);
+      }
+    }
+
+    @Override
+    public OptimizationModel getModel() {
+      return model;
+    }
+
+    @Override
+    public void apply(ModelPatch patch) {
+      patch.applyTo(model);
+      try {
+        for (ModelPatch.CoefficientChange change : patch.getCoefficientChanges()) {
+          grbModel.chgCoeff(
+              constraints.get(change.getConstraint()),
+              vars[change.getVariable().getIndex()],
+              change.getValue());
+        }
+        for (ModelPatch.RhsChange change : patch.getRhsChanges()) {
+          constraints.get(change.getConstraint()).set(GRB.DoubleAttr.RHS, change.getValue());
+        }
+        for (ModelPatch.BoundChange change : patch.getBoundChanges()) {
+          GRBVar var = vars[change.getVariable().getIndex()];
+          var.set(GRB.DoubleAttr.LB, toGRBBound(change.getLowerBound()));
+          var.set(GRB.DoubleAttr.UB, toGRBBound(change.getUpperBound()));
+        }
+        for (Map.Entry<Variable, Double> change : patch.getObjectiveChanges().entrySet()) {
+          vars[change.getKey().getIndex()].set(GRB.DoubleAttr.Obj, change.getValue());
+        }
+      } catch (GRBException e) {
+        throw error(e);
+      }
+    }
+
+    @Override
+    public Variable addColumn(
+        double lowerBound,
+        double upperBound,
+        VariableType type,
+        String name,
+        double objective,
+        Map<Constraint.Linear, Double> coefficients) {
+      Variable variable =
+          RebuildingSession.addColumn(
+              model, lowerBound, upperBound, type, name, objective, coefficients);
+      try {
+        GRBColumn column = new GRBColumn();
+        for (Map.Entry<Constraint.Linear, Double> entry : coefficients.entrySet()) {
+          column.addTerm(entry.getValue(), constraints.get(entry.getKey()));
+        }
+        vars = Arrays.copyOf(vars, model.getNumVariables());
+        vars[variable.getIndex()] =
+            grbModel.addVar(
+                toGRBBound(lowerBound),
+                toGRBBound(upperBound),
+                objective,
+                toGRBType(type),
+                column,
+                name);
+      } catch (GRBException e) {
+        throw error(e);
+      }
+      return variable;
+    }
+
+    @Override
+    public SolutionPool solve(SolverSettings settings) {
+      try {
+        // -- the parameters of a previous solve of the session, e.g., its seed or its objective
+        // stop, must not carry over to this one
+        GRBEnv modelEnv = grbModel.getEnv();
+        modelEnv.resetParams();
+        if (logFile != null) modelEnv.set("LogFile", logFile);
+        grbModel.set(GRB.DoubleParam.TimeLimit, settings.getTimeLimit());
+        if (settings.getThreads() > 0) {
+          grbModel.set(GRB.IntParam.Threads, settings.getThreads());
+        }
+        if (!Double.isNaN(settings.getGapLimit())) {
+          grbModel.set(GRB.DoubleParam.MIPGap, settings.getGapLimit());
+        }
+        if (!Double.isNaN(settings.getObjectiveStop())) {
+          grbModel.set(GRB.DoubleParam.BestObjStop, settings.getObjectiveStop());
+        }
+        if (settings.getSeed() >= 0) grbModel.set(GRB.IntParam.Seed, settings.getSeed());
+        if (settings.getSearchFocus() >= 0) {
+          grbModel.set(GRB.IntParam.MIPFocus, settings.getSearchFocus());
+        }
+        if (settings.getPresolve() >= 0) {
+          grbModel.set(GRB.IntParam.Presolve, settings.getPresolve());
+        }
+        if (settings.getCuts() >= 0) grbModel.set(GRB.IntParam.Cuts, settings.getCuts());
+
+        if (previous != null && !previous.isEmpty()) {
+          // -- the continuous part of the previous start no longer matches the coefficients
+          RebuildingSession.carryStart(model, previous);
+          double[] start =
+              model.getVariables().stream()
+                  .mapToDouble(v -> v.hasStart() ? v.getStart() : GRB.UNDEFINED)
+                  .toArray();
+          grbModel.set(GRB.DoubleAttr.Start, vars, start);
+        }
+        IncumbentTracker tracker = new IncumbentTracker(settings.getInterrupt());
+        grbModel.setCallback(tracker);
+
+        if (settings.getModelFile().isPresent()) {
+          grbModel.write(settings.getModelFile().get().toAbsolutePath().toString());
+        }
+
+        grbModel.optimize();
+
+        this.previous = collect(grbModel, vars, tracker.getIncumbents(), collectDuals());
+        return previous;
+      } catch (GRBException e) {
+        throw error(e);
+      }
+    }
+
+    /**
+     * @return the dual values of the constraints of an optimal continuous model, NaN for the
+     *     general constraints, empty for models with integer variables
+     */
+    private double[] collectDuals() throws GRBException {
+      if (grbModel.get(GRB.IntAttr.IsMIP) != 0
+          || grbModel.get(GRB.IntAttr.Status) != GRB.Status.OPTIMAL) {
+        return new double[0];
+      }
+      List<Constraint> all = model.getConstraints();
+      double[] duals = new double[all.size()];
+      for (int ix = 0; ix < duals.length; ix++) {
+        GRBConstr constraint = constraints.get(all.get(ix));
+        duals[ix] = constraint == null ? Double.NaN : constraint.get(GRB.DoubleAttr.Pi);
+      }
+      return duals;
+    }
+
+    @Override
+    public void close() {
+      dispose(grbModel, env);
+      grbModel = null;
+      env = null;
+    }
+
+    private CompilationException error(GRBException e) {
+      return new CompilationException(
+          new Diagnostic(
+              Diagnostic.Kind.ERROR,
+              String.format(
+                  "GRB exception caught with error %s while solving %s. %s",
+                  e.getErrorCode(), model.getName(), e.getMessage())));
+    }
+  }
+
+  private static GRBVar[] translate(
+      OptimizationModel model,
+      GRBModel grbModel,
+      Map<Constraint.Linear, GRBConstr> linearConstraints)
+      throws GRBException {
+
+    List<Variable> variables = model.getVariables();
+    GRBVar[] vars = new GRBVar[variables.size()];
+    for (Variable v : variables) {
+      vars[v.getIndex()] =
+          grbModel.addVar(
+              toGRBBound(v.getLowerBound()),
+              toGRBBound(v.getUpperBound()),
+              0.0,
+              toGRBType(v.getType()),
+              v.getName());
+    }
+
+    for (Constraint constraint : model.getConstraints()) {
+      if (constraint instanceof Constraint.Linear) {
+        Constraint.Linear c = (Constraint.Linear) constraint;
+        linearConstraints.put(
+            c,
+            grbModel.addConstr(
+                toGRBExpr(c.getExpression(), vars),
+                toGRBSense(c.getSense()),
+                c.getRhs(),
+                c.getName()));
+      } else if (constraint instanceof Constraint.Indicator) {
+        Constraint.Indicator c = (Constraint.Indicator) constraint;
+        grbModel.addGenConstrIndicator(
+            vars[c.getBinary().getIndex()],
+            c.getValue(),
+            toGRBExpr(c.getExpression(), vars),
+            toGRBSense(c.getSense()),
+            c.getRhs(),
+            c.getName());
+      } else if (constraint instanceof Constraint.Max) {
+        Constraint.Max c = (Constraint.Max) constraint;
+        grbModel.addGenConstrMax(
+            vars[c.getResult().getIndex()],
+            toGRBVars(c.getArguments(), vars),
+            c.getConstant(),
+            c.getName());
+      } else if (constraint instanceof Constraint.And) {
+        Constraint.And c = (Constraint.And) constraint;
+        grbModel.addGenConstrAnd(
+            vars[c.getResult().getIndex()], toGRBVars(c.getArguments(), vars), c.getName());
+      } else if (constraint instanceof Constraint.Or) {
+        Constraint.Or c = (Constraint.Or) constraint;
+        grbModel.addGenConstrOr(
+            vars[c.getResult().getIndex()], toGRBVars(c.getArguments(), vars), c.getName());
+      } else {
+        throw new CompilationException(
+            new Diagnostic(
+                Diagnostic.Kind.ERROR,
+                "Unsupported constraint " + constraint.getName() + " for the gurobi backend"));
+      }
+    }
+
+    grbModel.setObjective(
+        toGRBExpr(model.getObjective(), vars),
+        model.getObjectiveSense() == ObjectiveSense.MINIMIZE ? GRB.MINIMIZE : GRB.MAXIMIZE);
+
+    return vars;
+  }
+
+  /** Passes the variable start values as a (partial) MIP start, gurobi completes the rest */
+  private static void setStart(OptimizationModel model, GRBModel grbModel, GRBVar[] vars)
+      throws GRBException {
+    List<GRBVar> startVars = new ArrayList<>();
+    List<Double> startValues = new ArrayList<>();
+    for (Variable v : model.getVariables()) {
+      if (v.hasStart()) {
+        startVars.add(vars[v.getIndex()]);
+        startValues.add(v.getStart());
+      }
+    }
+    if (!startVars.isEmpty()) {
+      grbModel.set(
+          GRB.DoubleAttr.Start,
+          startVars.toArray(new GRBVar[0]),
+          startValues.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+  }
+
+  /** Records the time and objective of every new incumbent and stops the solve on interrupts. */
+  private static class IncumbentTracker extends GRBCallback {
+    private final List<SolutionPool.Incumbent> incumbents = new ArrayList<>();
+    private final BooleanSupplier interrupt;
+
+    IncumbentTracker(BooleanSupplier interrupt) {
+      this.interrupt = interrupt;
+    }
+
+    @Override
+    protected void callback() {
+      if (interrupt.getAsBoolean()) {
+        abort();
+        return;
+      }
+      if (where == GRB.CB_MIPSOL) {
+        try {
+          incumbents.add(
+              new SolutionPool.Incumbent(
+                  getDoubleInfo(GRB.CB_RUNTIME), getDoubleInfo(GRB.CB_MIPSOL_OBJ)));
+        } catch (GRBException e) {
+          // -- the trace is informative only, never interrupt the solve for it
+        }
+      }
+    }
+
+    ImmutableList<SolutionPool.Incumbent> getIncumbents() {
+      return ImmutableList.from(incumbents);
+    }
+  }
+
+  private static SolutionPool collect(
+      GRBModel grbModel,
+      GRBVar[] vars,
+      ImmutableList<SolutionPool.Incumbent> incumbents,
+      double[] duals)
+      throws GRBException {
+
+    ImmutableList.Builder<Solution> builder = ImmutableList.builder();
+    int solutionCount = grbModel.get(GRB.IntAttr.SolCount);
+    for (int solutionIndex = 0; solutionIndex < solutionCount; solutionIndex++) {
+      grbModel.set(GRB.IntParam.SolutionNumber, solutionIndex);
+      double[] values = vars.length > 0 ? grbModel.get(GRB.DoubleAttr.Xn, vars) : new double[0];
+      builder.add(new Solution(values, grbModel.get(GRB.DoubleAttr.PoolObjVal)));
+    }
+
+    double bound = Double.NaN;
+    if (solutionCount > 0) {
+      try {
+        bound = grbModel.get(GRB.DoubleAttr.ObjBound);
+      } catch (GRBException e) {
+        // -- pure LPs and some terminations do not report a bound
+      }
+    }
+    return new SolutionPool(
+        builder.build(),
+        toStatus(grbModel.get(GRB.IntAttr.Status)),
+        bound,
+        grbModel.get(GRB.DoubleAttr.Runtime),
+        NAME,
+        incumbents,
+        duals);
+  }
+
+  private static void dispose(GRBModel grbModel, GRBEnv env) {
+    if (grbModel != null) {
+      grbModel.dispose();
+    }
+    if (env != null) {
+      try {
+        env.dispose();
+      } catch (GRBException e) {
+        // -- nothing left to clean up
+      }
+    }
+  }
+
+  private static SolveStatus toStatus(int status) {
+    switch (status) {
+      case GRB.Status.OPTIMAL:
+        return SolveStatus.OPTIMAL;
+      case GRB.Status.TIME_LIMIT:
+        return SolveStatus.TIME_LIMIT;
+      case GRB.Status.INFEASIBLE:
+      case GRB.Status.INF_OR_UNBD:
+        return SolveStatus.INFEASIBLE;
+      case GRB.Status.USER_OBJ_LIMIT:
+        return SolveStatus.OBJECTIVE_STOP;
+      case GRB.Status.INTERRUPTED:
+        return SolveStatus.INTERRUPTED;
+      default:
+        return SolveStatus.UNKNOWN;
+    }
+  }
+
+  private static double toGRBBound(double bound) {
+    if (bound >= Double.MAX_VALUE) return GRB.INFINITY;
+    if (bound <= -Double.MAX_VALUE) return -GRB.INFINITY;
+    return bound;
+  }
+
+  private static char toGRBType(VariableType type) {
+    switch (type) {
+      case BINARY:
+        return GRB.BINARY;
+      case INTEGER:
+        return GRB.INTEGER;
+      default:
+        return GRB.CONTINUOUS;
+    }
+  }
+
+  private static char toGRBSense(Sense sense) {
+    switch (sense) {
+      case LESS_EQUAL:
+        return GRB.LESS_EQUAL;
+      case GREATER_EQUAL:
+        return GRB.GREATER_EQUAL;
+      default:
+        return GRB.EQUAL;
+    }
+  }
+
+  private static GRBLinExpr toGRBExpr(LinearExpression expr, GRBVar[] vars) throws GRBException {
+    GRBLinExpr grbExpr = new GRBLinExpr();
+    int size = expr.size();
+    double[] coeffs = new double[size];
+    GRBVar[] terms = new GRBVar[size];
+    for (int ix = 0; ix < size; ix++) {
+      coeffs[ix] = expr.getCoefficient(ix);
+      terms[ix] = vars[expr.getVariable(ix).getIndex()];
+    }
+    grbExpr.addTerms(coeffs, terms);
+    grbExpr.addConstant(expr.getConstant());
+    return grbExpr;
+  }
+
+  private static GRBVar[] toGRBVars(ImmutableList<Variable> arguments, GRBVar[] vars) {
+    GRBVar[] result = new GRBVar[arguments.size()];
+    for (int ix = 0; ix < result.length; ix++) {
+      result[ix] = vars[arguments.get(ix).getIndex()];
+    }
+    return result;
+  }
+}
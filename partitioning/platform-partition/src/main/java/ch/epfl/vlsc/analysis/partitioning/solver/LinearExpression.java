@@ -0,0 +1,99 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A linear expression sum(c_i * x_i) + constant over model variables. */
+public class LinearExpression {
+
+  private final List<Variable> variables;
+  private final List<Double> coefficients;
+  private double constant;
+
+  public LinearExpression() {
+    this.variables = new ArrayList<>();
+    this.coefficients = new ArrayList<>();
+    this.constant = 0.0;
+  }
+
+  public static LinearExpression of(Variable variable) {
+    LinearExpression expr = new LinearExpression();
+    expr.addTerm(1.0, variable);
+    return expr;
+  }
+
+  public static LinearExpression of(double constant) {
+    LinearExpression expr = new LinearExpression();
+    expr.addConstant(constant);
+    return expr;
+  }
+
+  public void addTerm(double coefficient, Variable variable) {
+    this.variables.add(variable);
+    this.coefficients.add(coefficient);
+  }
+
+  public void addTerms(double[] coefficients, Variable[] variables) {
+    if (coefficients.length != variables.length) {
+      throw new IllegalArgumentException(
+          "coefficient and variable arrays have different lengths "
+              + coefficients.length
+              + " != "
+              + variables.length);
+    }
+    for (int ix = 0; ix < variables.length; ix++) {
+      addTerm(coefficients[ix], variables[ix]);
+    }
+  }
+
+  public void addConstant(double constant) {
+    this.constant += constant;
+  }
+
+  /** Adds all the terms and the constant of another expression to this one */
+  public void add(LinearExpression other) {
+    multAdd(1.0, other);
+  }
+
+  /** Adds multiplier * other to this expression */
+  public void multAdd(double multiplier, LinearExpression other) {
+    for (int ix = 0; ix < other.size(); ix++) {
+      addTerm(multiplier * other.getCoefficient(ix), other.getVariable(ix));
+    }
+    this.constant += multiplier * other.getConstant();
+  }
+
+  public int size() {
+    return variables.size();
+  }
+
+  public Variable getVariable(int ix) {
+    return variables.get(ix);
+  }
+
+  public double getCoefficient(int ix) {
+    return coefficients.get(ix);
+  }
+
+  void setCoefficient(int ix, double value) {
+    coefficients.set(ix, value);
+  }
+
+  public double getConstant() {
+    return constant;
+  }
+
+  /**
+   * Evaluates the expression for the given assignment
+   *
+   * @param values variable values indexed by {@link Variable#getIndex()}
+   * @return the value of the expression
+   */
+  public double evaluate(double[] values) {
+    double value = constant;
+    for (int ix = 0; ix < variables.size(); ix++) {
+      value += coefficients.get(ix) * values[variables.get(ix).getIndex()];
+    }
+    return value;
+  }
+}
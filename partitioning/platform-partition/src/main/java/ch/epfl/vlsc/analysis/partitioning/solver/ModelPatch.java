@@ -0,0 +1,269 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The coefficient, right hand side and bound changes that turn a model into another one with the
+ * same structure, i.e., the same variables, the same constraints over the same variables and the
+ * same general constraints. Models built from the same network with different profiles differ only
+ * by such changes, so a backend can update the model it already holds instead of translating the
+ * new one.
+ */
+public final class ModelPatch {
+
+  /** A new coefficient of a variable in a linear constraint. */
+  public static final class CoefficientChange {
+    private final Constraint.Linear constraint;
+    private final Variable variable;
+    private final double value;
+
+    private CoefficientChange(Constraint.Linear constraint, Variable variable, double value) {
+      this.constraint = constraint;
+      this.variable = variable;
+      this.value = value;
+    }
+
+    public Constraint.Linear getConstraint() {
+      return constraint;
+    }
+
+    public Variable getVariable() {
+      return variable;
+    }
+
+    public double getValue() {
+      return value;
+    }
+  }
+
+  /** A new right hand side of a linear constraint. */
+  public static final class RhsChange {
+    private final Constraint.Linear constraint;
+    private final double value;
+
+    private RhsChange(Constraint.Linear constraint, double value) {
+      this.constraint = constraint;
+      this.value = value;
+    }
+
+    public Constraint.Linear getConstraint() {
+      return constraint;
+    }
+
+    public double getValue() {
+      return value;
+    }
+  }
+
+  /** New bounds of a variable. */
+  public static final class BoundChange {
+    private final Variable variable;
+    private final double lowerBound;
+    private final double upperBound;
+
+    private BoundChange(Variable variable, double lowerBound, double upperBound) {
+      this.variable = variable;
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+
+    public Variable getVariable() {
+      return variable;
+    }
+
+    public double getLowerBound() {
+      return lowerBound;
+    }
+
+    public double getUpperBound() {
+      return upperBound;
+    }
+  }
+
+  private final List<CoefficientChange> coefficients = new ArrayList<>();
+  private final List<RhsChange> rhs = new ArrayList<>();
+  private final List<BoundChange> bounds = new ArrayList<>();
+  // -- the new objective coefficient of every variable whose coefficient changed
+  private final Map<Variable, Double> objective = new LinkedHashMap<>();
+
+  private ModelPatch() {}
+
+  /**
+   * @param base the model to update
+   * @param target the model to update it to
+   * @return the changes from base to target, empty if the models differ in structure
+   */
+  public static Optional<ModelPatch> between(OptimizationModel base, OptimizationModel target) {
+    if (base.getNumVariables() != target.getNumVariables()
+        || base.getNumConstraints() != target.getNumConstraints()
+        || base.getObjectiveSense() != target.getObjectiveSense()) {
+      return Optional.empty();
+    }
+    ModelPatch patch = new ModelPatch();
+    List<Variable> baseVariables = base.getVariables();
+    List<Variable> targetVariables = target.getVariables();
+    for (int ix = 0; ix < baseVariables.size(); ix++) {
+      Variable b = baseVariables.get(ix);
+      Variable t = targetVariables.get(ix);
+      if (b.getType() != t.getType() || !b.getName().equals(t.getName())) return Optional.empty();
+      if (b.getLowerBound() != t.getLowerBound() || b.getUpperBound() != t.getUpperBound()) {
+        patch.bounds.add(new BoundChange(b, t.getLowerBound(), t.getUpperBound()));
+      }
+    }
+
+    List<Constraint> baseConstraints = base.getConstraints();
+    List<Constraint> targetConstraints = target.getConstraints();
+    for (int ix = 0; ix < baseConstraints.size(); ix++) {
+      Constraint b = baseConstraints.get(ix);
+      Constraint t = targetConstraints.get(ix);
+      if (b.getClass() != t.getClass() || !b.getName().equals(t.getName())) return Optional.empty();
+      if (b instanceof Constraint.Linear) {
+        if (!patch.diffLinear((Constraint.Linear) b, (Constraint.Linear) t, baseVariables)) {
+          return Optional.empty();
+        }
+      } else if (!sameGeneral(b, t)) {
+        // -- the backends can not change general constraints in place
+        return Optional.empty();
+      }
+    }
+
+    if (base.getObjective().getConstant() != target.getObjective().getConstant()) {
+      return Optional.empty();
+    }
+    Map<Integer, Double> baseObjective = aggregate(base.getObjective());
+    Map<Integer, Double> targetObjective = aggregate(target.getObjective());
+    for (Map.Entry<Integer, Double> entry : targetObjective.entrySet()) {
+      if (!entry.getValue().equals(baseObjective.getOrDefault(entry.getKey(), 0.0))) {
+        patch.objective.put(baseVariables.get(entry.getKey()), entry.getValue());
+      }
+    }
+    for (Integer index : baseObjective.keySet()) {
+      if (!targetObjective.containsKey(index)) patch.objective.put(baseVariables.get(index), 0.0);
+    }
+    return Optional.of(patch);
+  }
+
+  /** Records the changes of a linear constraint, false if its variables differ. */
+  private boolean diffLinear(
+      Constraint.Linear base, Constraint.Linear target, List<Variable> baseVariables) {
+    if (base.getSense() != target.getSense()) return false;
+    Map<Integer, Double> baseTerms = aggregate(base.getExpression());
+    Map<Integer, Double> targetTerms = aggregate(target.getExpression());
+    if (!baseTerms.keySet().equals(targetTerms.keySet())) return false;
+    for (Map.Entry<Integer, Double> entry : targetTerms.entrySet()) {
+      if (!entry.getValue().equals(baseTerms.get(entry.getKey()))) {
+        coefficients.add(
+            new CoefficientChange(base, baseVariables.get(entry.getKey()), entry.getValue()));
+      }
+    }
+    if (base.getRhs() != target.getRhs()) rhs.add(new RhsChange(base, target.getRhs()));
+    return true;
+  }
+
+  private static boolean sameGeneral(Constraint base, Constraint target) {
+    if (base instanceof Constraint.Indicator) {
+      Constraint.Indicator b = (Constraint.Indicator) base;
+      Constraint.Indicator t = (Constraint.Indicator) target;
+      return b.getBinary().getIndex() == t.getBinary().getIndex()
+          && b.getValue() == t.getValue()
+          && b.getSense() == t.getSense()
+          && b.getRhs() == t.getRhs()
+          && aggregate(b.getExpression()).equals(aggregate(t.getExpression()));
+    } else if (base instanceof Constraint.Max) {
+      Constraint.Max b = (Constraint.Max) base;
+      Constraint.Max t = (Constraint.Max) target;
+      return b.getResult().getIndex() == t.getResult().getIndex()
+          && b.getConstant() == t.getConstant()
+          && sameVariables(b.getArguments(), t.getArguments());
+    } else if (base instanceof Constraint.And) {
+      Constraint.And b = (Constraint.And) base;
+      Constraint.And t = (Constraint.And) target;
+      return b.getResult().getIndex() == t.getResult().getIndex()
+          && sameVariables(b.getArguments(), t.getArguments());
+    } else if (base instanceof Constraint.Or) {
+      Constraint.Or b = (Constraint.Or) base;
+      Constraint.Or t = (Constraint.Or) target;
+      return b.getResult().getIndex() == t.getResult().getIndex()
+          && sameVariables(b.getArguments(), t.getArguments());
+    }
+    return false;
+  }
+
+  private static boolean sameVariables(List<Variable> base, List<Variable> target) {
+    if (base.size() != target.size()) return false;
+    for (int ix = 0; ix < base.size(); ix++) {
+      if (base.get(ix).getIndex() != target.get(ix).getIndex()) return false;
+    }
+    return true;
+  }
+
+  /** @return the coefficient of every variable of the expression, keyed by variable index */
+  private static Map<Integer, Double> aggregate(LinearExpression expression) {
+    Map<Integer, Double> terms = new LinkedHashMap<>();
+    for (int ix = 0; ix < expression.size(); ix++) {
+      terms.merge(
+          expression.getVariable(ix).getIndex(), expression.getCoefficient(ix), Double::sum);
+    }
+    return terms;
+  }
+
+  /** Applies the changes to the base model they were computed from. */
+  public void applyTo(OptimizationModel base) {
+    for (CoefficientChange change : coefficients) {
+      change.getConstraint().setCoefficient(change.getVariable(), change.getValue());
+    }
+    for (RhsChange change : rhs) {
+      change.getConstraint().setRhs(change.getValue());
+    }
+    for (BoundChange change : bounds) {
+      change.getVariable().setLowerBound(change.getLowerBound());
+      change.getVariable().setUpperBound(change.getUpperBound());
+    }
+    if (!objective.isEmpty()) {
+      LinearExpression updated = new LinearExpression();
+      updated.addConstant(base.getObjective().getConstant());
+      Map<Integer, Double> terms = aggregate(base.getObjective());
+      objective.forEach((variable, value) -> terms.put(variable.getIndex(), value));
+      List<Variable> variables = base.getVariables();
+      terms.forEach(
+          (index, value) -> {
+            if (value != 0.0) updated.addTerm(value, variables.get(index));
+          });
+      base.setObjective(updated, base.getObjectiveSense());
+    }
+  }
+
+  public List<CoefficientChange> getCoefficientChanges() {
+    return Collections.unmodifiableList(coefficients);
+  }
+
+  public List<RhsChange> getRhsChanges() {
+    return Collections.unmodifiableList(rhs);
+  }
+
+  public List<BoundChange> getBoundChanges() {
+    return Collections.unmodifiableList(bounds);
+  }
+
+  /** @return the new objective coefficients, keyed by the variables of the base model */
+  public Map<Variable, Double> getObjectiveChanges() {
+    return Collections.unmodifiableMap(objective);
+  }
+
+  /** @return the number of changes */
+  public int size() {
+    return coefficients.size() + rhs.size() + bounds.size() + objective.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d coefficients, %d right hand sides, %d bounds, %d objective coefficients",
+        coefficients.size(), rhs.size(), bounds.size(), objective.size());
+  }
+}
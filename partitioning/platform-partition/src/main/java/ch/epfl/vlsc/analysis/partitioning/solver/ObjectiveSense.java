@@ -0,0 +1,6 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+public enum ObjectiveSense {
+  MINIMIZE,
+  MAXIMIZE
+}
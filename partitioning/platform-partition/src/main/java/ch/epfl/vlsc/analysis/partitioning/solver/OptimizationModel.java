@@ -0,0 +1,199 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A solver-neutral mixed integer model. The performance models build their formulations against
+ * this class and a {@link SolverBackend} translates it to a concrete engine when solving, so the
+ * formulation can be built, inspected and profiled without any solver installed.
+ */
+public class OptimizationModel {
+
+  private final String name;
+  private final List<Variable> variables;
+  private final Map<String, Variable> variablesByName;
+  private final List<Constraint> constraints;
+  private LinearExpression objective;
+  private ObjectiveSense objectiveSense;
+
+  public OptimizationModel(String name) {
+    this.name = name;
+    this.variables = new ArrayList<>();
+    this.variablesByName = new HashMap<>();
+    this.constraints = new ArrayList<>();
+    this.objective = new LinearExpression();
+    this.objectiveSense = ObjectiveSense.MINIMIZE;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Variable addVariable(
+      double lowerBound, double upperBound, VariableType type, String variableName) {
+    Variable variable = new Variable(variables.size(), variableName, type, lowerBound, upperBound);
+    variables.add(variable);
+    variablesByName.putIfAbsent(variableName, variable);
+    return variable;
+  }
+
+  /** @return the first variable with the given name or null if there is none */
+  public Variable getVariable(String variableName) {
+    return variablesByName.get(variableName);
+  }
+
+  public List<Variable> getVariables() {
+    return Collections.unmodifiableList(variables);
+  }
+
+  public int getNumVariables() {
+    return variables.size();
+  }
+
+  /** @return true if some variable has a start value */
+  public boolean hasStart() {
+    return variables.stream().anyMatch(Variable::hasStart);
+  }
+
+  /** Removes the start values of all the variables */
+  public void clearStart() {
+    variables.forEach(v -> v.setStart(Double.NaN));
+  }
+
+  public List<Constraint> getConstraints() {
+    return Collections.unmodifiableList(constraints);
+  }
+
+  public int getNumConstraints() {
+    return constraints.size();
+  }
+
+  /**
+   * Removes the constraints added after the given number of constraints, e.g., the ones of a
+   * solve that is done.
+   *
+   * @param numConstraints the number of constraints to keep
+   */
+  public void truncateConstraints(int numConstraints) {
+    constraints.subList(numConstraints, constraints.size()).clear();
+  }
+
+  public Constraint.Linear addConstraint(
+      LinearExpression lhs, Sense sense, LinearExpression rhs, String constraintName) {
+    // -- normalize to expr (sense) constant
+    LinearExpression expr = new LinearExpression();
+    expr.multAdd(1.0, lhs);
+    expr.multAdd(-1.0, rhs);
+    double constant = expr.getConstant();
+    expr.addConstant(-constant);
+    Constraint.Linear constraint = new Constraint.Linear(expr, sense, -constant, constraintName);
+    constraints.add(constraint);
+    return constraint;
+  }
+
+  public Constraint.Linear addConstraint(
+      LinearExpression lhs, Sense sense, double rhs, String constraintName) {
+    return addConstraint(lhs, sense, LinearExpression.of(rhs), constraintName);
+  }
+
+  public Constraint.Linear addConstraint(
+      Variable lhs, Sense sense, LinearExpression rhs, String constraintName) {
+    return addConstraint(LinearExpression.of(lhs), sense, rhs, constraintName);
+  }
+
+  public Constraint.Linear addConstraint(
+      Variable lhs, Sense sense, Variable rhs, String constraintName) {
+    return addConstraint(LinearExpression.of(lhs), sense, LinearExpression.of(rhs), constraintName);
+  }
+
+  public Constraint.Linear addConstraint(
+      Variable lhs, Sense sense, double rhs, String constraintName) {
+    return addConstraint(LinearExpression.of(lhs), sense, LinearExpression.of(rhs), constraintName);
+  }
+
+  public Constraint.Indicator addIndicatorConstraint(
+      Variable binary,
+      int value,
+      LinearExpression expr,
+      Sense sense,
+      double rhs,
+      String constraintName) {
+    LinearExpression normalized = new LinearExpression();
+    normalized.multAdd(1.0, expr);
+    double constant = normalized.getConstant();
+    normalized.addConstant(-constant);
+    Constraint.Indicator constraint =
+        new Constraint.Indicator(binary, value, normalized, sense, rhs - constant, constraintName);
+    constraints.add(constraint);
+    return constraint;
+  }
+
+  public Constraint.Max addMaxConstraint(
+      Variable result, Variable[] arguments, double constant, String constraintName) {
+    Constraint.Max constraint =
+        new Constraint.Max(result, ImmutableList.of(arguments), constant, constraintName);
+    constraints.add(constraint);
+    return constraint;
+  }
+
+  public Constraint.And addAndConstraint(
+      Variable result, Variable[] arguments, String constraintName) {
+    Constraint.And constraint =
+        new Constraint.And(result, ImmutableList.of(arguments), constraintName);
+    constraints.add(constraint);
+    return constraint;
+  }
+
+  public Constraint.Or addOrConstraint(
+      Variable result, Variable[] arguments, String constraintName) {
+    Constraint.Or constraint =
+        new Constraint.Or(result, ImmutableList.of(arguments), constraintName);
+    constraints.add(constraint);
+    return constraint;
+  }
+
+  public void setObjective(LinearExpression objective, ObjectiveSense sense) {
+    this.objective = objective;
+    this.objectiveSense = sense;
+  }
+
+  public LinearExpression getObjective() {
+    return objective;
+  }
+
+  public ObjectiveSense getObjectiveSense() {
+    return objectiveSense;
+  }
+
+  public long countVariables(VariableType type) {
+    return variables.stream().filter(v -> v.getType() == type).count();
+  }
+
+  public long countConstraints(Class<? extends Constraint> kind) {
+    return constraints.stream().filter(kind::isInstance).count();
+  }
+
+  /** @return a one line summary of the model size */
+  public String describe() {
+    return String.format(
+        "%s: %d variables (%d binary, %d integer, %d continuous), %d constraints "
+            + "(%d linear, %d indicator, %d max, %d and, %d or)",
+        name,
+        getNumVariables(),
+        countVariables(VariableType.BINARY),
+        countVariables(VariableType.INTEGER),
+        countVariables(VariableType.CONTINUOUS),
+        getNumConstraints(),
+        countConstraints(Constraint.Linear.class),
+        countConstraints(Constraint.Indicator.class),
+        countConstraints(Constraint.Max.class),
+        countConstraints(Constraint.And.class),
+        countConstraints(Constraint.Or.class));
+  }
+}
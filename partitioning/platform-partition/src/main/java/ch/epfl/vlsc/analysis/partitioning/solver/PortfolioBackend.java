@@ -0,0 +1,202 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+import se.lth.cs.tycho.reporting.CompilationException;
+import se.lth.cs.tycho.reporting.Diagnostic;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Races differently configured solves of the same model and keeps the first one that proves its
+ * solution optimal, or the best solution of all of them at the time limit. The members of the
+ * portfolio vary the seed, the focus of the search, the presolve level and the cuts, and cycle
+ * through the given backends. The first member keeps the settings as they are, so the race is never
+ * worse than a single solve, and the threads of the settings are shared among the members.
+ *
+ * <p>The solve time of a model varies a lot between seeds, so racing a few of them turns the
+ * slowest core counts of a sweep into something close to the best case.
+ */
+public class PortfolioBackend implements SolverBackend {
+
+  public static final String NAME = "portfolio";
+
+  // -- the search variations of the members after the first one, in order
+  private static final int[] SEARCH_FOCUS = {1, 2, 3, 0};
+  private static final int[] PRESOLVE = {-1, 2, 1, -1, 0};
+  private static final int[] CUTS = {-1, -1, 2, 1, 3};
+
+  private final ImmutableList<SolverBackend> backends;
+  private final int size;
+
+  /**
+   * @param backends the backends the members cycle through
+   * @param size the number of members
+   */
+  public PortfolioBackend(ImmutableList<SolverBackend> backends, int size) {
+    if (backends.isEmpty()) throw new IllegalArgumentException("a portfolio needs a backend");
+    this.backends = backends;
+    this.size = Math.max(1, size);
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /** The backend and the settings of a member of the portfolio. */
+  private static final class Member {
+    private final SolverBackend backend;
+    private final SolverSettings settings;
+    private final String description;
+
+    private Member(SolverBackend backend, SolverSettings settings, String description) {
+      this.backend = backend;
+      this.settings = settings;
+      this.description = description;
+    }
+  }
+
+  private List<Member> makeMembers(SolverSettings settings, AtomicBoolean decided) {
+    int totalThreads =
+        settings.getThreads() > 0
+            ? settings.getThreads()
+            : Runtime.getRuntime().availableProcessors();
+    int threads = Math.max(1, totalThreads / size);
+    List<Member> members = new ArrayList<>();
+    for (int ix = 0; ix < size; ix++) {
+      SolverBackend backend = backends.get(ix % backends.size());
+      SolverSettings member = settings.copy();
+      member.setThreads(threads);
+      if (ix > 0) {
+        member.setSeed(ix);
+        member.setSearchFocus(SEARCH_FOCUS[(ix - 1) % SEARCH_FOCUS.length]);
+        member.setPresolve(PRESOLVE[(ix - 1) % PRESOLVE.length]);
+        member.setCuts(CUTS[(ix - 1) % CUTS.length]);
+        // -- the first member writes the model, the members log to their own files
+        member.setModelFile(null);
+        if (settings.getLogFile().isPresent()) {
+          Path log = settings.getLogFile().get();
+          member.setLogFile(log.resolveSibling(log.getFileName() + "." + ix));
+        }
+      }
+      member.setInterrupt(() -> decided.get() || settings.getInterrupt().getAsBoolean());
+      members.add(
+          new Member(
+              backend,
+              member,
+              String.format(
+                  "%s#%d[seed=%d, focus=%d, presolve=%d, cuts=%d]",
+                  backend.getName(),
+                  ix,
+                  member.getSeed(),
+                  member.getSearchFocus(),
+                  member.getPresolve(),
+                  member.getCuts())));
+    }
+    return members;
+  }
+
+  @Override
+  public SolutionPool solve(OptimizationModel model, SolverSettings settings) {
+    if (size == 1) return backends.get(0).solve(model, settings);
+
+    AtomicBoolean decided = new AtomicBoolean(false);
+    List<Member> members = makeMembers(settings, decided);
+    ExecutorService executor = Executors.newFixedThreadPool(members.size());
+    CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+    SolutionPool[] pools = new SolutionPool[members.size()];
+    try {
+      for (int ix = 0; ix < members.size(); ix++) {
+        int index = ix;
+        Member member = members.get(ix);
+        completion.submit(
+            () -> {
+              pools[index] = member.backend.solve(model, member.settings);
+              return index;
+            });
+      }
+      Integer winner = null;
+      for (int done = 0; done < members.size(); done++) {
+        int index = completion.take().get();
+        if (winner == null && isDecided(pools[index].getStatus())) {
+          // -- the others stop at their next callback
+          winner = index;
+          decided.set(true);
+        }
+      }
+      if (winner == null) winner = best(model.getObjectiveSense(), pools);
+      return merge(model.getObjectiveSense(), pools, winner, members.get(winner).description);
+    } catch (InterruptedException e) {
+      decided.set(true);
+      Thread.currentThread().interrupt();
+      throw new CompilationException(
+          new Diagnostic(Diagnostic.Kind.ERROR, "Interrupted while racing " + model.getName()));
+    } catch (ExecutionException e) {
+      decided.set(true);
+      if (e.getCause() instanceof CompilationException) {
+        throw (CompilationException) e.getCause();
+      }
+      throw new CompilationException(
+          new Diagnostic(
+              Diagnostic.Kind.ERROR,
+              "Could not race " + model.getName() + ": " + e.getCause().getMessage()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** @return whether the solve proved its solution, i.e., no other member can do better */
+  private static boolean isDecided(SolveStatus status) {
+    return status == SolveStatus.OPTIMAL
+        || status == SolveStatus.OBJECTIVE_STOP
+        || status == SolveStatus.INFEASIBLE;
+  }
+
+  /** @return the index of the pool with the best solution, the first one if none has any */
+  private static int best(ObjectiveSense sense, SolutionPool[] pools) {
+    int best = 0;
+    for (int ix = 1; ix < pools.length; ix++) {
+      if (pools[ix].isEmpty()) continue;
+      if (pools[best].isEmpty()
+          || better(sense, pools[ix].getBestObjective(), pools[best].getBestObjective())) {
+        best = ix;
+      }
+    }
+    return best;
+  }
+
+  private static boolean better(ObjectiveSense sense, double a, double b) {
+    return sense == ObjectiveSense.MINIMIZE ? a < b : a > b;
+  }
+
+  /**
+   * @return the pool of the winner, with the strongest bound of all the members, which holds for
+   *     every one of them since they solve the same model
+   */
+  private static SolutionPool merge(
+      ObjectiveSense sense, SolutionPool[] pools, int winner, String description) {
+    double bound = pools[winner].getObjectiveBound();
+    for (SolutionPool pool : pools) {
+      double other = pool.getObjectiveBound();
+      if (Double.isNaN(other)) continue;
+      if (Double.isNaN(bound) || better(sense, bound, other)) bound = other;
+    }
+    SolutionPool pool = pools[winner];
+    return new SolutionPool(
+        pool.getSolutions(),
+        pool.getStatus(),
+        bound,
+        pool.getRuntime(),
+        NAME + " " + description,
+        pool.getIncumbents(),
+        pool.getDuals());
+  }
+}
@@ -0,0 +1,85 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import java.util.Map;
+
+/** A session for backends without in place updates, the model is translated on every solve. */
+class RebuildingSession implements SolverSession {
+
+  private final SolverBackend backend;
+  private final OptimizationModel model;
+  private SolutionPool previous;
+
+  RebuildingSession(SolverBackend backend, OptimizationModel model) {
+    this.backend = backend;
+    this.model = model;
+  }
+
+  @Override
+  public OptimizationModel getModel() {
+    return model;
+  }
+
+  @Override
+  public void apply(ModelPatch patch) {
+    patch.applyTo(model);
+  }
+
+  @Override
+  public Variable addColumn(
+      double lowerBound,
+      double upperBound,
+      VariableType type,
+      String name,
+      double objective,
+      Map<Constraint.Linear, Double> coefficients) {
+    return addColumn(model, lowerBound, upperBound, type, name, objective, coefficients);
+  }
+
+  @Override
+  public SolutionPool solve(SolverSettings settings) {
+    carryStart(model, previous);
+    this.previous = backend.solve(model, settings);
+    return previous;
+  }
+
+  @Override
+  public void close() {}
+
+  /**
+   * Makes the integral part of the best solution of a previous solve the start of the model. The
+   * continuous variables are left to the solver since they follow from the integral ones and the
+   * new coefficients.
+   *
+   * @param model the model to start
+   * @param previous the result of the previous solve, null or empty leaves the start as it is
+   */
+  static void carryStart(OptimizationModel model, SolutionPool previous) {
+    if (previous == null || previous.isEmpty()) return;
+    Solution best = previous.get(0);
+    for (Variable variable : model.getVariables()) {
+      // -- the variables added since the previous solve have no value in it
+      boolean solved = variable.getIndex() < best.getValues().length;
+      variable.setStart(variable.isIntegral() && solved ? best.getValue(variable) : Double.NaN);
+    }
+  }
+
+  /** Adds a variable with its objective and constraint coefficients to the model. */
+  static Variable addColumn(
+      OptimizationModel model,
+      double lowerBound,
+      double upperBound,
+      VariableType type,
+      String name,
+      double objective,
+      Map<Constraint.Linear, Double> coefficients) {
+    Variable variable = model.addVariable(lowerBound, upperBound, type, name);
+    coefficients.forEach((constraint, value) -> constraint.setCoefficient(variable, value));
+    if (objective != 0.0) {
+      LinearExpression updated = new LinearExpression();
+      updated.add(model.getObjective());
+      updated.addTerm(objective, variable);
+      model.setObjective(updated, model.getObjectiveSense());
+    }
+    return variable;
+  }
+}
@@ -0,0 +1,7 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+public enum Sense {
+  LESS_EQUAL,
+  EQUAL,
+  GREATER_EQUAL
+}
@@ -0,0 +1,30 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+/** A single assignment of values to all the variables of an {@link OptimizationModel}. */
+public class Solution {
+
+  private final double[] values;
+  private final double objective;
+
+  public Solution(double[] values, double objective) {
+    this.values = values;
+    this.objective = objective;
+  }
+
+  public double getValue(Variable variable) {
+    return values[variable.getIndex()];
+  }
+
+  /** @return the value of a variable rounded to the nearest integer */
+  public int getIntegerValue(Variable variable) {
+    return (int) Math.round(getValue(variable));
+  }
+
+  public double getObjective() {
+    return objective;
+  }
+
+  public double[] getValues() {
+    return values;
+  }
+}
@@ -0,0 +1,160 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+/**
+ * The outcome of a solve: the solutions found by a backend ordered from best to worst together
+ * with the final status, the best proven objective bound and the time spent in the backend.
+ */
+public class SolutionPool {
+
+  private final ImmutableList<Solution> solutions;
+  private final SolveStatus status;
+  private final double objectiveBound;
+  private final double runtime;
+  private final String backend;
+  private final ImmutableList<Incumbent> incumbents;
+  private final double[] duals;
+
+  public SolutionPool(
+      ImmutableList<Solution> solutions,
+      SolveStatus status,
+      double objectiveBound,
+      double runtime,
+      String backend) {
+    this(solutions, status, objectiveBound, runtime, backend, ImmutableList.empty());
+  }
+
+  public SolutionPool(
+      ImmutableList<Solution> solutions,
+      SolveStatus status,
+      double objectiveBound,
+      double runtime,
+      String backend,
+      ImmutableList<Incumbent> incumbents) {
+    this(solutions, status, objectiveBound, runtime, backend, incumbents, new double[0]);
+  }
+
+  /**
+   * @param duals the dual values of the constraints of a continuous model, indexed by the position
+   *     of the constraint in the model, empty if the backend did not report them
+   */
+  public SolutionPool(
+      ImmutableList<Solution> solutions,
+      SolveStatus status,
+      double objectiveBound,
+      double runtime,
+      String backend,
+      ImmutableList<Incumbent> incumbents,
+      double[] duals) {
+    this.solutions = solutions;
+    this.status = status;
+    this.objectiveBound = objectiveBound;
+    this.runtime = runtime;
+    this.backend = backend;
+    this.incumbents = incumbents;
+    this.duals = duals;
+  }
+
+  /** An improving solution reported by the backend while solving. */
+  public static final class Incumbent {
+    private final double time;
+    private final double objective;
+
+    public Incumbent(double time, double objective) {
+      this.time = time;
+      this.objective = objective;
+    }
+
+    /** @return the time since the start of the solve in seconds */
+    public double getTime() {
+      return time;
+    }
+
+    public double getObjective() {
+      return objective;
+    }
+  }
+
+  public static SolutionPool empty(SolveStatus status, String backend) {
+    return new SolutionPool(ImmutableList.empty(), status, Double.NaN, 0.0, backend);
+  }
+
+  public ImmutableList<Solution> getSolutions() {
+    return solutions;
+  }
+
+  public int size() {
+    return solutions.size();
+  }
+
+  public boolean isEmpty() {
+    return solutions.isEmpty();
+  }
+
+  public Solution get(int index) {
+    return solutions.get(index);
+  }
+
+  public SolveStatus getStatus() {
+    return status;
+  }
+
+  /** @return the best proven bound on the objective or NaN if the backend did not report one */
+  public double getObjectiveBound() {
+    return objectiveBound;
+  }
+
+  /** @return the time spent solving in seconds */
+  public double getRuntime() {
+    return runtime;
+  }
+
+  public String getBackend() {
+    return backend;
+  }
+
+  public double getBestObjective() {
+    return solutions.isEmpty() ? Double.NaN : solutions.get(0).getObjective();
+  }
+
+  /** @return the relative gap between the best solution and the bound, NaN if unknown */
+  public double getGap() {
+    double best = getBestObjective();
+    if (Double.isNaN(best) || Double.isNaN(objectiveBound)) return Double.NaN;
+    if (best == 0.0) return objectiveBound == 0.0 ? 0.0 : Double.POSITIVE_INFINITY;
+    return Math.abs(best - objectiveBound) / Math.abs(best);
+  }
+
+  /** @return the improving solutions in the order they were found, empty if not tracked */
+  public ImmutableList<Incumbent> getIncumbents() {
+    return incumbents;
+  }
+
+  /**
+   * @param constraintIndex the position of a linear constraint in the model
+   * @return the dual value of the constraint in the optimal solution of a continuous model, NaN if
+   *     the backend did not report it
+   */
+  public double getDual(int constraintIndex) {
+    return constraintIndex < duals.length ? duals[constraintIndex] : Double.NaN;
+  }
+
+  /** @return the dual values of the constraints, empty if the backend did not report them */
+  public double[] getDuals() {
+    return duals;
+  }
+
+  /**
+   * @param objective a target objective value of a minimization
+   * @return the time at which an incumbent at least as good as the target was first found, NaN
+   *     if no such incumbent was found
+   */
+  public double getTimeToObjective(double objective) {
+    double tolerance = 1e-9 * Math.max(1.0, Math.abs(objective));
+    for (Incumbent incumbent : incumbents) {
+      if (incumbent.getObjective() <= objective + tolerance) return incumbent.getTime();
+    }
+    return Double.NaN;
+  }
+}
@@ -0,0 +1,11 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+public enum SolveStatus {
+  OPTIMAL,
+  TIME_LIMIT,
+  // -- an incumbent reached the objective stop of the settings
+  OBJECTIVE_STOP,
+  INFEASIBLE,
+  INTERRUPTED,
+  UNKNOWN
+}
@@ -0,0 +1,28 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+/** A mixed integer engine that can solve an {@link OptimizationModel}. */
+public interface SolverBackend {
+
+  String getName();
+
+  /**
+   * Solves the given model
+   *
+   * @param model the model to solve, it is not modified
+   * @param settings the solver parameters
+   * @return all the solutions found ordered from best to worst
+   */
+  SolutionPool solve(OptimizationModel model, SolverSettings settings);
+
+  /**
+   * Opens a session for a series of solves of the given model with patches in between, the default
+   * session translates the patched model again on every solve.
+   *
+   * @param model the model of the session, the patches and the starts of the solves modify it
+   * @param settings the solver parameters of the session, e.g., its log file
+   * @return the session, to be closed after its last solve
+   */
+  default SolverSession open(OptimizationModel model, SolverSettings settings) {
+    return new RebuildingSession(this, model);
+  }
+}
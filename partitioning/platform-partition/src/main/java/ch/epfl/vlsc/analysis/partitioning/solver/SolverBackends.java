@@ -0,0 +1,33 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+import se.lth.cs.tycho.reporting.CompilationException;
+import se.lth.cs.tycho.reporting.Diagnostic;
+
+/** Looks up the available solver backends by the name used in the json configuration. */
+public class SolverBackends {
+
+  public static final String DEFAULT = GurobiBackend.NAME;
+
+  public static SolverBackend create(String name) {
+    if (name == null || name.equals(GurobiBackend.NAME)) {
+      return new GurobiBackend();
+    } else {
+      throw new CompilationException(
+          new Diagnostic(Diagnostic.Kind.ERROR, "Unknown solver backend " + name));
+    }
+  }
+
+  /**
+   * @param names the backends the members of the portfolio cycle through
+   * @param size the number of members, 1 solves with the first backend alone
+   * @return a backend that races differently configured solves of every model
+   */
+  public static SolverBackend createPortfolio(ImmutableList<String> names, int size) {
+    ImmutableList<SolverBackend> backends =
+        names.isEmpty()
+            ? ImmutableList.of(create(null))
+            : names.stream().map(SolverBackends::create).collect(ImmutableList.collector());
+    return size > 1 ? new PortfolioBackend(backends, size) : backends.get(0);
+  }
+}
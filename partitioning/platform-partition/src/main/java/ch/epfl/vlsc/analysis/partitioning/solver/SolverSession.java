@@ -0,0 +1,50 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import java.util.Map;
+
+/**
+ * A model held by a backend over a series of solves, e.g., a sweep over profiles that only changes
+ * the costs. The model is patched in place between the solves and every solve starts from the best
+ * solution of the previous one.
+ */
+public interface SolverSession extends AutoCloseable {
+
+  /** @return the model of the session, patches are applied to it */
+  OptimizationModel getModel();
+
+  /**
+   * Updates the model of the session and the model held by the backend
+   *
+   * @param patch changes computed against the model of the session
+   */
+  void apply(ModelPatch patch);
+
+  /**
+   * Adds a variable to the model of the session and to the model held by the backend, e.g., a
+   * column generated for a restricted master. The next solve starts without a value for it.
+   *
+   * @param objective the coefficient of the variable in the objective
+   * @param coefficients the coefficient of the variable in the linear constraints of the model of
+   *     the session it appears in
+   * @return the new variable
+   */
+  Variable addColumn(
+      double lowerBound,
+      double upperBound,
+      VariableType type,
+      String name,
+      double objective,
+      Map<Constraint.Linear, Double> coefficients);
+
+  /**
+   * Solves the current model, starting from the integral part of the best solution of the previous
+   * solve if there was one.
+   *
+   * @param settings the solver parameters
+   * @return all the solutions found ordered from best to worst
+   */
+  SolutionPool solve(SolverSettings settings);
+
+  @Override
+  void close();
+}
@@ -0,0 +1,156 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/** Backend independent solver parameters, backends ignore the ones they do not support. */
+public class SolverSettings {
+
+  private double timeLimit;
+  private int threads;
+  private Optional<Path> logFile;
+  private Optional<Path> modelFile;
+  private double gapLimit;
+  private double objectiveStop;
+  // -- the search parameters, -1 keeps the backend default
+  private int seed;
+  private int searchFocus;
+  private int presolve;
+  private int cuts;
+  private BooleanSupplier interrupt;
+
+  public SolverSettings(double timeLimit) {
+    this.timeLimit = timeLimit;
+    this.threads = 0;
+    this.gapLimit = Double.NaN;
+    this.objectiveStop = Double.NaN;
+    this.logFile = Optional.empty();
+    this.modelFile = Optional.empty();
+    this.seed = -1;
+    this.searchFocus = -1;
+    this.presolve = -1;
+    this.cuts = -1;
+    this.interrupt = () -> false;
+  }
+
+  /** @return a copy of the settings, to vary some of them */
+  public SolverSettings copy() {
+    SolverSettings copy = new SolverSettings(timeLimit);
+    copy.threads = threads;
+    copy.logFile = logFile;
+    copy.modelFile = modelFile;
+    copy.gapLimit = gapLimit;
+    copy.objectiveStop = objectiveStop;
+    copy.seed = seed;
+    copy.searchFocus = searchFocus;
+    copy.presolve = presolve;
+    copy.cuts = cuts;
+    copy.interrupt = interrupt;
+    return copy;
+  }
+
+  /** @return the wall-clock limit of a single solve in seconds */
+  public double getTimeLimit() {
+    return timeLimit;
+  }
+
+  public void setTimeLimit(double timeLimit) {
+    this.timeLimit = timeLimit;
+  }
+
+  /** @return the number of threads a backend may use, 0 lets the backend decide */
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public Optional<Path> getLogFile() {
+    return logFile;
+  }
+
+  public void setLogFile(Path logFile) {
+    this.logFile = Optional.ofNullable(logFile);
+  }
+
+  /** @return where the backend should dump the model in its native format before solving */
+  public Optional<Path> getModelFile() {
+    return modelFile;
+  }
+
+  public void setModelFile(Path modelFile) {
+    this.modelFile = Optional.ofNullable(modelFile);
+  }
+
+  /** @return the relative gap at which the solve stops, NaN keeps the backend default */
+  public double getGapLimit() {
+    return gapLimit;
+  }
+
+  public void setGapLimit(double gapLimit) {
+    this.gapLimit = gapLimit;
+  }
+
+  /**
+   * @return the objective at which the solve of a minimization stops as soon as an incumbent
+   *     reaches it, NaN to never stop early
+   */
+  public double getObjectiveStop() {
+    return objectiveStop;
+  }
+
+  public void setObjectiveStop(double objectiveStop) {
+    this.objectiveStop = objectiveStop;
+  }
+
+  /** @return the random seed of the search, -1 keeps the backend default */
+  public int getSeed() {
+    return seed;
+  }
+
+  public void setSeed(int seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * @return the focus of the search, 0 balanced, 1 feasible solutions, 2 optimality, 3 the bound,
+   *     -1 keeps the backend default
+   */
+  public int getSearchFocus() {
+    return searchFocus;
+  }
+
+  public void setSearchFocus(int searchFocus) {
+    this.searchFocus = searchFocus;
+  }
+
+  /** @return the presolve level, 0 off, 1 conservative, 2 aggressive, -1 keeps the default */
+  public int getPresolve() {
+    return presolve;
+  }
+
+  public void setPresolve(int presolve) {
+    this.presolve = presolve;
+  }
+
+  /** @return the cut generation level, 0 off up to 3 very aggressive, -1 keeps the default */
+  public int getCuts() {
+    return cuts;
+  }
+
+  public void setCuts(int cuts) {
+    this.cuts = cuts;
+  }
+
+  /** @return polled by the backend during the solve, the solve stops once it returns true */
+  public BooleanSupplier getInterrupt() {
+    return interrupt;
+  }
+
+  public void setInterrupt(BooleanSupplier interrupt) {
+    this.interrupt = interrupt;
+  }
+}
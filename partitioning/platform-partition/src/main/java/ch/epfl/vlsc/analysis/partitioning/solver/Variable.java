@@ -0,0 +1,75 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+/**
+ * A decision variable of an {@link OptimizationModel}. Variables are created through the model
+ * and identified by their index in it, which is also their position in a {@link Solution}.
+ */
+public final class Variable {
+
+  private final int index;
+  private final String name;
+  private final VariableType type;
+  private double lowerBound;
+  private double upperBound;
+  private double start;
+
+  Variable(int index, String name, VariableType type, double lowerBound, double upperBound) {
+    this.index = index;
+    this.name = name;
+    this.type = type;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+    this.start = Double.NaN;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public VariableType getType() {
+    return type;
+  }
+
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  public double getUpperBound() {
+    return upperBound;
+  }
+
+  public void setLowerBound(double lowerBound) {
+    this.lowerBound = lowerBound;
+  }
+
+  public void setUpperBound(double upperBound) {
+    this.upperBound = upperBound;
+  }
+
+  /** @return the value of the variable in the start solution, NaN if it has none */
+  public double getStart() {
+    return start;
+  }
+
+  /** @param start the value of the variable in a (partial) start solution */
+  public void setStart(double start) {
+    this.start = start;
+  }
+
+  public boolean hasStart() {
+    return !Double.isNaN(start);
+  }
+
+  public boolean isIntegral() {
+    return type != VariableType.CONTINUOUS;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,7 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+public enum VariableType {
+  CONTINUOUS,
+  BINARY,
+  INTEGER
+}
@@ -1,5 +1,9 @@
 package ch.epfl.vlsc.analysis.partitioning.util;
 
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
 public class JsonConfiguration {
     public String name;
     public String comment;
@@ -9,6 +13,33 @@ public class JsonConfiguration {
     public ProfileData bandwidth;
     public ProfileData software;
     public PartitionSettings.Mode mode;
+    public String solver;
+    public int portfolio;
+    @SerializedName("portfolio_solvers")
+    public List<String> portfolioSolvers;
+    public PartitionSettings.Engine engine;
+    public int threads;
+    @SerializedName("warm_start")
+    public PartitionSettings.WarmStart warmStart;
+    public boolean refine;
+    public boolean reduce;
+    @SerializedName("coarsest_size")
+    public int coarsestSize;
+    @SerializedName("decomposition_iterations")
+    public int decompositionIterations;
+    @SerializedName("time_limit")
+    public double timeLimit;
+    @SerializedName("time_budget")
+    public double timeBudget;
+    public double gap;
+    @SerializedName("core_to_core")
+    public PartitionSettings.CoreToCore coreToCore;
+    public boolean cache;
+    public boolean pareto;
+    public List<PartitionSettings.Objective> objectives;
+    @SerializedName("objective_tolerance")
+    public double objectiveTolerance;
+    public List<SweepScenario> sweep;
 
     public JsonConfiguration() {}
 
@@ -74,4 +105,156 @@ public class JsonConfiguration {
     public void setCores(int cores) {
         this.cores = cores;
     }
+
+    public String getSolver() {
+        return solver;
+    }
+
+    public void setSolver(String solver) {
+        this.solver = solver;
+    }
+
+    public int getPortfolio() {
+        return portfolio;
+    }
+
+    public void setPortfolio(int portfolio) {
+        this.portfolio = portfolio;
+    }
+
+    public List<String> getPortfolioSolvers() {
+        return portfolioSolvers;
+    }
+
+    public void setPortfolioSolvers(List<String> portfolioSolvers) {
+        this.portfolioSolvers = portfolioSolvers;
+    }
+
+    public PartitionSettings.Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(PartitionSettings.Engine engine) {
+        this.engine = engine;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public PartitionSettings.WarmStart getWarmStart() {
+        return warmStart;
+    }
+
+    public void setWarmStart(PartitionSettings.WarmStart warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public boolean getRefine() {
+        return refine;
+    }
+
+    public void setRefine(boolean refine) {
+        this.refine = refine;
+    }
+
+    public boolean getReduce() {
+        return reduce;
+    }
+
+    public void setReduce(boolean reduce) {
+        this.reduce = reduce;
+    }
+
+    public int getCoarsestSize() {
+        return coarsestSize;
+    }
+
+    public void setCoarsestSize(int coarsestSize) {
+        this.coarsestSize = coarsestSize;
+    }
+
+    public double getTimeLimit() {
+        return timeLimit;
+    }
+
+    public void setTimeLimit(double timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public double getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(double timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public double getGap() {
+        return gap;
+    }
+
+    public void setGap(double gap) {
+        this.gap = gap;
+    }
+
+    public PartitionSettings.CoreToCore getCoreToCore() {
+        return coreToCore;
+    }
+
+    public void setCoreToCore(PartitionSettings.CoreToCore coreToCore) {
+        this.coreToCore = coreToCore;
+    }
+
+    public boolean getCache() {
+        return cache;
+    }
+
+    public void setCache(boolean cache) {
+        this.cache = cache;
+    }
+
+    public boolean getPareto() {
+        return pareto;
+    }
+
+    public void setPareto(boolean pareto) {
+        this.pareto = pareto;
+    }
+
+    public List<PartitionSettings.Objective> getObjectives() {
+        return objectives;
+    }
+
+    public void setObjectives(List<PartitionSettings.Objective> objectives) {
+        this.objectives = objectives;
+    }
+
+    public double getObjectiveTolerance() {
+        return objectiveTolerance;
+    }
+
+    public void setObjectiveTolerance(double objectiveTolerance) {
+        this.objectiveTolerance = objectiveTolerance;
+    }
+
+    public int getDecompositionIterations() {
+        return decompositionIterations;
+    }
+
+    public void setDecompositionIterations(int decompositionIterations) {
+        this.decompositionIterations = decompositionIterations;
+    }
+
+    public List<SweepScenario> getSweep() {
+        return sweep;
+    }
+
+    public void setSweep(List<SweepScenario> sweep) {
+        this.sweep = sweep;
+    }
 }
\ No newline at end of file
@@ -36,5 +36,56 @@ public class PartitionSettings {
 
     }
 
+    public enum Engine {
+        @SerializedName("milp")
+        MILP,
+        @SerializedName("branch_and_bound")
+        BRANCH_AND_BOUND,
+        // -- coarsen the network, solve the coarsest one and refine on the way back
+        @SerializedName("multilevel")
+        MULTILEVEL,
+        // -- simulated annealing with one chain per thread over the whole time limit
+        @SerializedName("annealing")
+        ANNEALING,
+        // -- island model genetic algorithm, returns several distinct good partitions
+        @SerializedName("genetic")
+        GENETIC,
+        // -- a master problem picks the accelerator actors, the heterogeneous model maps the rest
+        @SerializedName("decomposition")
+        DECOMPOSITION,
+        // -- clusters of actors as columns generated by pricing, for many cores
+        @SerializedName("set_partitioning")
+        SET_PARTITIONING
+    }
+
+    public enum CoreToCore {
+        // -- one split variable per connection, linked to the decision variables by inequalities
+        @SerializedName("cut")
+        CUT,
+        // -- one conjunction per connection and pair of cores, to cross-check the cut formulation
+        @SerializedName("pairwise")
+        PAIRWISE
+    }
+
+    public enum Objective {
+        // -- the number of PCIe connections, read_connections + write_connections
+        @SerializedName("plink_connections")
+        PLINK_CONNECTIONS,
+        // -- the number of actors on the FPGA
+        @SerializedName("hardware_actors")
+        HARDWARE_ACTORS
+    }
+
+    public enum WarmStart {
+        @SerializedName("none")
+        NONE,
+        // -- start every core count from the best solution of the previous one
+        @SerializedName("previous")
+        PREVIOUS,
+        // -- like previous but also solve without the start to measure the time it saves
+        @SerializedName("measure")
+        MEASURE
+    }
+
 
 }
\ No newline at end of file
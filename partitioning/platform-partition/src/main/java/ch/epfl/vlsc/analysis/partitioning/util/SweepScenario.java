@@ -0,0 +1,55 @@
+package ch.epfl.vlsc.analysis.partitioning.util;
+
+/**
+ * A what-if scenario of the json configuration, the profiles it leaves undefined and the fields of
+ * its profiles it leaves undefined are the ones of the configuration.
+ */
+public class SweepScenario {
+    public String name;
+    public ProfileData software;
+    public ProfileData bandwidth;
+    public ProfileData systemc;
+    public ProfileData opencl;
+
+    public SweepScenario() {}
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ProfileData getSoftware() {
+        return software;
+    }
+
+    public void setSoftware(ProfileData software) {
+        this.software = software;
+    }
+
+    public ProfileData getBandwidth() {
+        return bandwidth;
+    }
+
+    public void setBandwidth(ProfileData bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public ProfileData getSystemc() {
+        return systemc;
+    }
+
+    public void setSystemc(ProfileData systemc) {
+        this.systemc = systemc;
+    }
+
+    public ProfileData getOpencl() {
+        return opencl;
+    }
+
+    public void setOpencl(ProfileData opencl) {
+        this.opencl = opencl;
+    }
+}
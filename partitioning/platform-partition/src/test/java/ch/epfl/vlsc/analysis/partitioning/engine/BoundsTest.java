@@ -0,0 +1,70 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/** Checks the bounds against the exhaustive enumeration of the assignments of small problems. */
+public class BoundsTest {
+
+  private static final double TOLERANCE = 1e-9;
+  private static final int PROBLEMS = 50;
+
+  @Test
+  public void homogeneousBoundsHoldForEveryAssignment() {
+    Random random = new Random(1);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem =
+          RandomProblems.homogeneous(random, 3 + random.nextInt(4), random.nextInt(10));
+      for (int cores = 1; cores <= 3 && cores <= problem.getNumActors(); cores++) {
+        checkBounds(new HomogeneousCostModel(problem), cores);
+      }
+    }
+  }
+
+  @Test
+  public void heterogeneousBoundsHoldForEveryAssignment() {
+    Random random = new Random(2);
+    for (int i = 0; i < PROBLEMS; i++) {
+      HeterogeneousProblem problem =
+          RandomProblems.heterogeneous(random, 3 + random.nextInt(4), random.nextInt(10));
+      for (int cores = 1; cores <= 2 && cores < problem.getNumActors(); cores++) {
+        checkBounds(new HeterogeneousCostModel(problem), cores);
+      }
+    }
+  }
+
+  /**
+   * Enumerates every feasible assignment, the upper bounds hold for each of them and the lower
+   * bound for the best one.
+   */
+  private static void checkBounds(CostModel costModel, int numberOfCores) {
+    int numActors = costModel.getProblem().getNumActors();
+    int numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+    UpperBounds.Result upper = new UpperBounds(costModel).compute(numberOfCores);
+    LowerBounds.Result lower = new LowerBounds(costModel).compute(numberOfCores);
+
+    int[] partition = new int[numActors];
+    double best = Double.POSITIVE_INFINITY;
+    do {
+      if (!costModel.isFeasible(partition, numberOfCores)) continue;
+      Assignment assignment = costModel.evaluate(partition.clone(), numberOfCores);
+      String message = assignment + " on " + numberOfCores + " cores, " + upper;
+      assertTrue(message, assignment.getExecutionTime() <= upper.getExecution() + TOLERANCE);
+      assertTrue(message, assignment.getLocalCommunicationTime() <= upper.getLocal() + TOLERANCE);
+      assertTrue(
+          message,
+          assignment.getCoreToCoreCommunicationTime() <= upper.getCoreToCore() + TOLERANCE);
+      assertTrue(message, assignment.getTotalTime() <= upper.getTotal() + TOLERANCE);
+      best = Math.min(best, assignment.getTotalTime());
+    } while (RandomProblems.next(partition, numPartitions));
+
+    if (best < Double.POSITIVE_INFINITY) {
+      assertTrue(
+          "T = " + best + " on " + numberOfCores + " cores, " + lower,
+          lower.getBound() <= best + TOLERANCE);
+    }
+  }
+}
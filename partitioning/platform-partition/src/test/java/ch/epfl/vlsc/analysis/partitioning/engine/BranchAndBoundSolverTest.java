@@ -0,0 +1,78 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Checks the optimum of the search against the exhaustive enumeration of small problems. */
+public class BranchAndBoundSolverTest {
+
+  private static final double TOLERANCE = 1e-9;
+  private static final int PROBLEMS = 40;
+
+  @Test
+  public void findsTheOptimum() {
+    Random random = new Random(5);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem =
+          RandomProblems.homogeneous(random, 1 + random.nextInt(7), random.nextInt(12));
+      for (int cores = 1; cores <= 4; cores++) checkOptimum(problem, cores);
+    }
+  }
+
+  @Test
+  public void findsTheOptimumAmongTies() {
+    Random random = new Random(6);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem =
+          RandomProblems.tied(random, 1 + random.nextInt(7), random.nextInt(12));
+      for (int cores = 1; cores <= 4; cores++) checkOptimum(problem, cores);
+    }
+  }
+
+  @Test
+  public void findsTheOptimumFromAStart() {
+    Random random = new Random(7);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem =
+          RandomProblems.homogeneous(random, 2 + random.nextInt(6), random.nextInt(12));
+      int cores = 1 + random.nextInt(problem.getNumActors());
+      BranchAndBoundSolver solver = new BranchAndBoundSolver(problem, cores);
+      solver.addStart(
+          new GreedyPartitioner(new HomogeneousCostModel(problem)).solve(cores).getPartitions());
+      checkResult(problem, cores, solver.solve());
+    }
+  }
+
+  private static void checkOptimum(PartitioningProblem problem, int numberOfCores) {
+    BranchAndBoundSolver solver = new BranchAndBoundSolver(problem, numberOfCores);
+    solver.setParallelism(2);
+    checkResult(problem, numberOfCores, solver.solve());
+  }
+
+  private static void checkResult(
+      PartitioningProblem problem, int numberOfCores, BranchAndBoundSolver.Result result) {
+    HomogeneousCostModel costModel = new HomogeneousCostModel(problem);
+    double optimum = RandomProblems.optimum(costModel, numberOfCores);
+    String message = problem.getNumActors() + " actors on " + numberOfCores + " cores";
+    assertTrue(message, result.isOptimal());
+    if (Double.isInfinite(optimum)) {
+      assertTrue(message, result.getSolutions().isEmpty());
+      return;
+    }
+    assertFalse(message, result.getSolutions().isEmpty());
+    Assignment best = result.getSolutions().get(0);
+    assertTrue(message, costModel.isFeasible(best.getPartitions(), numberOfCores));
+    assertEquals(message, optimum, best.getTotalTime(), TOLERANCE);
+    assertEquals(
+        message,
+        best.getTotalTime(),
+        costModel.evaluate(best.getPartitions(), numberOfCores).getTotalTime(),
+        TOLERANCE);
+    assertTrue(message, result.getLowerBound() <= optimum + TOLERANCE);
+  }
+}
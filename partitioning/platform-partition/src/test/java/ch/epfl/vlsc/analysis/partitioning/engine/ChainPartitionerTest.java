@@ -0,0 +1,67 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Checks the dynamic program against every contiguous partition of small random chains. */
+public class ChainPartitionerTest {
+
+  private static final double TOLERANCE = 1e-9;
+  private static final int PROBLEMS = 50;
+
+  @Test
+  public void findsTheBestContiguousPartition() {
+    Random random = new Random(8);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem = RandomProblems.chain(random, 1 + random.nextInt(9));
+      ChainPartitioner partitioner = new ChainPartitioner(problem);
+      assertEquals(ChainPartitioner.Structure.CHAIN, partitioner.getStructure());
+      for (int cores = 1; cores <= problem.getNumActors(); cores++) {
+        ChainPartitioner.Result result = partitioner.solve(cores, Double.POSITIVE_INFINITY);
+        String message = problem.getNumActors() + " actors on " + cores + " cores";
+        assertTrue(message, result.isExact());
+        assertNotNull(message, result.getAssignment());
+        assertEquals(
+            message,
+            bestContiguous(problem, partitioner.getOrder(), cores),
+            result.getAssignment().getTotalTime(),
+            TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void findsNothingWithMoreCoresThanActors() {
+    Random random = new Random(9);
+    PartitioningProblem problem = RandomProblems.chain(random, 4);
+    ChainPartitioner.Result result =
+        new ChainPartitioner(problem).solve(5, Double.POSITIVE_INFINITY);
+    assertNull(result.getAssignment());
+  }
+
+  /** @return the best T over every split of the order into the given number of segments */
+  private static double bestContiguous(
+      PartitioningProblem problem, int[] order, int numberOfCores) {
+    HomogeneousCostModel costModel = new HomogeneousCostModel(problem);
+    int numActors = order.length;
+    // -- a segment starts at every position whose bit is set, the first one always does
+    double best = Double.POSITIVE_INFINITY;
+    for (int starts = 0; starts < 1 << (numActors - 1); starts++) {
+      if (Integer.bitCount(starts) != numberOfCores - 1) continue;
+      int[] partition = new int[numActors];
+      int segment = 0;
+      for (int position = 0; position < numActors; position++) {
+        if (position > 0 && (starts & 1 << (position - 1)) != 0) segment++;
+        partition[order[position]] = segment;
+      }
+      best = Math.min(best, costModel.evaluate(partition, numberOfCores).getTotalTime());
+    }
+    return best;
+  }
+}
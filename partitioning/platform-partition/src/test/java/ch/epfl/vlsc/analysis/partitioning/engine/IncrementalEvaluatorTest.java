@@ -0,0 +1,73 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/** Checks the incremental terms against a full evaluation after every random move. */
+public class IncrementalEvaluatorTest {
+
+  private static final double TOLERANCE = 1e-6;
+  private static final int PROBLEMS = 20;
+  private static final int MOVES = 200;
+
+  @Test
+  public void homogeneousMovesMatchTheCostModel() {
+    Random random = new Random(3);
+    for (int i = 0; i < PROBLEMS; i++) {
+      PartitioningProblem problem =
+          RandomProblems.homogeneous(random, 2 + random.nextInt(20), random.nextInt(40));
+      checkMoves(new HomogeneousCostModel(problem), 1 + random.nextInt(4), random);
+    }
+  }
+
+  @Test
+  public void heterogeneousMovesMatchTheCostModel() {
+    Random random = new Random(4);
+    for (int i = 0; i < PROBLEMS; i++) {
+      HeterogeneousProblem problem =
+          RandomProblems.heterogeneous(random, 2 + random.nextInt(20), random.nextInt(40));
+      checkMoves(new HeterogeneousCostModel(problem), 1 + random.nextInt(4), random);
+    }
+  }
+
+  private static void checkMoves(CostModel costModel, int numberOfCores, Random random) {
+    int numActors = costModel.getProblem().getNumActors();
+    int numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+    int[] partition = RandomProblems.partition(random, numActors, numPartitions);
+    IncrementalEvaluator evaluator = new IncrementalEvaluator(costModel, numberOfCores, partition);
+    for (int move = 0; move < MOVES; move++) {
+      int actor = random.nextInt(numActors);
+      int to = random.nextInt(numPartitions);
+      double before = costModel.evaluate(partition.clone(), numberOfCores).getTotalTime();
+      partition[actor] = to;
+      Assignment expected = costModel.evaluate(partition.clone(), numberOfCores);
+
+      assertEquals(
+          "delta of move " + move,
+          expected.getTotalTime() - before,
+          evaluator.delta(actor, to),
+          TOLERANCE);
+      evaluator.move(actor, to);
+      assertEquals(
+          "T_exec after move " + move,
+          expected.getExecutionTime(),
+          evaluator.getExecutionTime(),
+          TOLERANCE);
+      assertEquals(
+          "T_lc after move " + move,
+          expected.getLocalCommunicationTime(),
+          evaluator.getLocalCommunicationTime(),
+          TOLERANCE);
+      assertEquals(
+          "T_cc after move " + move,
+          expected.getCoreToCoreCommunicationTime(),
+          evaluator.getCoreToCoreCommunicationTime(),
+          TOLERANCE);
+      assertEquals(
+          "T after move " + move, expected.getTotalTime(), evaluator.getTotalTime(), TOLERANCE);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package ch.epfl.vlsc.analysis.partitioning.engine;
+
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small random problems for the tests, with self loops and parallel connections, and the
+ * enumeration of their assignments.
+ */
+final class RandomProblems {
+
+  private RandomProblems() {}
+
+  static PartitioningProblem homogeneous(Random random, int numActors, int numEdges) {
+    int[] edgeSource = new int[numEdges];
+    int[] edgeTarget = new int[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      edgeSource[e] = random.nextInt(numActors);
+      edgeTarget[e] = random.nextInt(numActors);
+    }
+    return withCosts(random, numActors, edgeSource, edgeTarget, 100, 20, 40);
+  }
+
+  /** @return a problem whose costs take few values, so that many assignments tie */
+  static PartitioningProblem tied(Random random, int numActors, int numEdges) {
+    int[] edgeSource = new int[numEdges];
+    int[] edgeTarget = new int[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      edgeSource[e] = random.nextInt(numActors);
+      edgeTarget[e] = random.nextInt(numActors);
+    }
+    return withCosts(random, numActors, edgeSource, edgeTarget, 2, 2, 2);
+  }
+
+  /** @return a pipeline, every actor but the last one feeds the next one */
+  static PartitioningProblem chain(Random random, int numActors) {
+    int[] edgeSource = new int[Math.max(0, numActors - 1)];
+    int[] edgeTarget = new int[edgeSource.length];
+    for (int e = 0; e < edgeSource.length; e++) {
+      edgeSource[e] = e;
+      edgeTarget[e] = e + 1;
+    }
+    return withCosts(random, numActors, edgeSource, edgeTarget, 100, 20, 40);
+  }
+
+  private static PartitioningProblem withCosts(
+      Random random,
+      int numActors,
+      int[] edgeSource,
+      int[] edgeTarget,
+      int actorCosts,
+      int localCosts,
+      int globalCosts) {
+    List<String> names = new ArrayList<>();
+    double[] actorCost = new double[numActors];
+    for (int a = 0; a < numActors; a++) {
+      names.add("actor_" + a);
+      actorCost[a] = 1.0 + random.nextInt(actorCosts);
+    }
+    int numEdges = edgeSource.length;
+    double[] edgeLocalCost = new double[numEdges];
+    double[] edgeGlobalCost = new double[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      edgeLocalCost[e] = random.nextInt(localCosts);
+      edgeGlobalCost[e] = random.nextInt(globalCosts);
+    }
+    return new PartitioningProblem(
+        ImmutableList.from(names),
+        actorCost,
+        edgeSource,
+        edgeTarget,
+        edgeLocalCost,
+        edgeGlobalCost);
+  }
+
+  static HeterogeneousProblem heterogeneous(Random random, int numActors, int numEdges) {
+    PartitioningProblem software = homogeneous(random, numActors, numEdges);
+    double[] hardwareCost = new double[numActors];
+    boolean[] softwareOnly = new boolean[numActors];
+    boolean[] hardwareOnly = new boolean[numActors];
+    for (int a = 0; a < numActors; a++) {
+      hardwareCost[a] = 1.0 + random.nextInt(100);
+      int side = random.nextInt(8);
+      softwareOnly[a] = side == 0;
+      hardwareOnly[a] = side == 1;
+    }
+    double[] edgeReadCost = new double[numEdges];
+    double[] edgeWriteCost = new double[numEdges];
+    int[] edgeSourcePort = new int[numEdges];
+    for (int e = 0; e < numEdges; e++) {
+      edgeReadCost[e] = random.nextInt(30);
+      edgeWriteCost[e] = random.nextInt(30);
+      edgeSourcePort[e] = e;
+    }
+    return new HeterogeneousProblem(
+        software,
+        hardwareCost,
+        softwareOnly,
+        hardwareOnly,
+        edgeReadCost,
+        edgeWriteCost,
+        edgeSourcePort);
+  }
+
+  /** Steps to the next partition in lexicographic order, false after the last one. */
+  static boolean next(int[] partition, int numPartitions) {
+    for (int a = 0; a < partition.length; a++) {
+      if (++partition[a] < numPartitions) return true;
+      partition[a] = 0;
+    }
+    return false;
+  }
+
+  /** @return the best T over every feasible assignment, infinite if there is none */
+  static double optimum(CostModel costModel, int numberOfCores) {
+    int[] partition = new int[costModel.getProblem().getNumActors()];
+    int numPartitions = costModel.getNumberOfPartitions(numberOfCores);
+    double best = Double.POSITIVE_INFINITY;
+    do {
+      if (costModel.isFeasible(partition, numberOfCores)) {
+        best = Math.min(best, costModel.evaluate(partition.clone(), numberOfCores).getTotalTime());
+      }
+    } while (next(partition, numPartitions));
+    return best;
+  }
+
+  /** @return a random partition of the actors, not necessarily feasible */
+  static int[] partition(Random random, int numActors, int numPartitions) {
+    int[] partition = new int[numActors];
+    for (int a = 0; a < numActors; a++) partition[a] = random.nextInt(numPartitions);
+    return partition;
+  }
+}
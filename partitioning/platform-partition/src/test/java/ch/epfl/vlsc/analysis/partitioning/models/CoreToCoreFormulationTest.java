@@ -0,0 +1,204 @@
+package ch.epfl.vlsc.analysis.partitioning.models;
+
+import ch.epfl.vlsc.analysis.partitioning.models.PerformanceModel.HardwarePartition;
+import ch.epfl.vlsc.analysis.partitioning.models.PerformanceModel.SoftwarePartition;
+import ch.epfl.vlsc.analysis.partitioning.models.PerformanceModel.TypedPartition;
+import ch.epfl.vlsc.analysis.partitioning.parser.CommonProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.parser.MulticoreProfileDataBase;
+import ch.epfl.vlsc.analysis.partitioning.solver.Constraint;
+import ch.epfl.vlsc.analysis.partitioning.solver.LinearExpression;
+import ch.epfl.vlsc.analysis.partitioning.solver.OptimizationModel;
+import ch.epfl.vlsc.analysis.partitioning.solver.Variable;
+import org.junit.Test;
+import se.lth.cs.tycho.compiler.CompilationTask;
+import se.lth.cs.tycho.ir.QID;
+import se.lth.cs.tycho.ir.network.Connection;
+import se.lth.cs.tycho.ir.network.Instance;
+import se.lth.cs.tycho.ir.network.Network;
+import se.lth.cs.tycho.ir.util.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the cut formulation of the core to core communication against the pairwise one on fixed
+ * assignments of small random networks, with self loops, parallel connections, connections
+ * without traffic and an accelerator.
+ */
+public class CoreToCoreFormulationTest {
+
+  private static final double TOLERANCE = 1e-9;
+  private static final double CLOCK_PERIOD = 0.5;
+  private static final int NETWORKS = 30;
+  private static final int ASSIGNMENTS = 20;
+
+  @Test
+  public void cutMatchesPairwise() {
+    Random random = new Random(11);
+    for (int i = 0; i < NETWORKS; i++) {
+      int numActors = 2 + random.nextInt(5);
+      int numConnections = random.nextInt(10);
+      int numberOfCores = 1 + random.nextInt(4);
+      boolean accelerator = random.nextBoolean();
+
+      List<Instance> instances = new ArrayList<>();
+      for (int a = 0; a < numActors; a++) {
+        instances.add(
+            new Instance("a" + a, QID.of("a"), ImmutableList.empty(), ImmutableList.empty()));
+      }
+      TicksDataBase db = new TicksDataBase();
+      List<Connection> connections = new ArrayList<>();
+      for (int c = 0; c < numConnections; c++) {
+        Connection connection =
+            new Connection(
+                new Connection.End(
+                    Optional.of("a" + random.nextInt(numActors)), "out" + random.nextInt(2)),
+                new Connection.End(
+                    Optional.of("a" + random.nextInt(numActors)), "in" + random.nextInt(2)));
+        connections.add(connection);
+        db.ticks.put(connection, random.nextInt(4) == 0 ? 0.0 : 1.0 + random.nextInt(100));
+      }
+      Network network =
+          new Network(ImmutableList.empty(), ImmutableList.empty(), instances, connections);
+      CompilationTask task = new CompilationTask(ImmutableList.empty(), QID.of("test"), network);
+
+      List<SoftwarePartition> cores = new ArrayList<>();
+      List<TypedPartition> partitions = new ArrayList<>();
+      for (int p = 0; p < numberOfCores; p++) {
+        cores.add(new SoftwarePartition(p));
+        partitions.add(cores.get(p));
+      }
+      if (accelerator) partitions.add(new HardwarePartition(numberOfCores));
+
+      Formulation cut = new Formulation(task, db, partitions, true);
+      Formulation pairwise = new Formulation(task, db, partitions, false);
+      for (int j = 0; j < ASSIGNMENTS; j++) {
+        Map<Instance, TypedPartition> assignment = new LinkedHashMap<>();
+        for (Instance instance : instances) {
+          assignment.put(instance, partitions.get(random.nextInt(partitions.size())));
+        }
+        double expected = 0.0;
+        for (Connection connection : connections) {
+          TypedPartition source = assignment.get(cut.findInstance(connection.getSource()));
+          TypedPartition target = assignment.get(cut.findInstance(connection.getTarget()));
+          if (source instanceof SoftwarePartition
+              && target instanceof SoftwarePartition
+              && source != target) {
+            expected += db.ticks.get(connection) * CLOCK_PERIOD;
+          }
+        }
+        String message =
+            String.format(
+                "%d actors, %d connections on %d cores%s",
+                numActors, numConnections, numberOfCores, accelerator ? " and accel" : "");
+        assertEquals(message, expected, cut.evaluate(assignment), TOLERANCE);
+        assertEquals(message, expected, pairwise.evaluate(assignment), TOLERANCE);
+      }
+    }
+  }
+
+  /** The communication ticks of every connection, without any profile. */
+  private static class TicksDataBase extends MulticoreProfileDataBase {
+    private final Map<Connection, Double> ticks = new IdentityHashMap<>();
+
+    @Override
+    public Double getCommunicationTicks(
+        Connection connection, CommonProfileDataBase.CommunicationTicks.Kind kind) {
+      return ticks.get(connection);
+    }
+  }
+
+  /** One of the two formulations of the core to core communication of a network. */
+  private static class Formulation extends MulticorePerformanceModel {
+
+    private final Map<Instance, DecisionVariables> decisionVariables = new LinkedHashMap<>();
+    private final List<TypedPartition> partitions;
+    private final LinearExpression communicationTime;
+    // -- the variables the formulation added to the decision variables
+    private final List<Variable> auxiliaries;
+
+    Formulation(
+        CompilationTask task,
+        MulticoreProfileDataBase db,
+        List<TypedPartition> partitions,
+        boolean cutCoreToCore) {
+      super(task, null, db, CLOCK_PERIOD, null);
+      this.model = new OptimizationModel(cutCoreToCore ? "cut" : "pairwise");
+      this.partitions = partitions;
+      for (Instance instance : task.getNetwork().getInstances()) {
+        decisionVariables.put(instance, new DecisionVariables(instance, partitions, model));
+      }
+      int numDecisionVariables = model.getNumVariables();
+      ImmutableList<SoftwarePartition> cores =
+          partitions.stream()
+              .filter(p -> p instanceof SoftwarePartition)
+              .map(p -> (SoftwarePartition) p)
+              .collect(ImmutableList.collector());
+      ImmutableList<Connection> connections = task.getNetwork().getConnections();
+      this.communicationTime =
+          cutCoreToCore
+              ? getCutCoreToCoreCommunicationTime(cores, decisionVariables, connections)
+              : getPairwiseCoreToCoreCommunicationTime(cores, decisionVariables, connections);
+      this.auxiliaries =
+          model.getVariables().subList(numDecisionVariables, model.getNumVariables());
+    }
+
+    /**
+     * @param assignment the partition of every actor
+     * @return the communication time of the assignment in the model, every variable the
+     *     formulation added must take the only value that satisfies its constraints
+     */
+    double evaluate(Map<Instance, TypedPartition> assignment) {
+      double[] values = new double[model.getNumVariables()];
+      assignment.forEach(
+          (instance, partition) -> {
+            DecisionVariables vars = decisionVariables.get(instance);
+            values[vars.getDecisionVariable(partition).getIndex()] = 1.0;
+            values[vars.getPartitionNumber().getIndex()] = partitions.indexOf(partition);
+          });
+      for (Variable auxiliary : auxiliaries) {
+        int feasible = 0;
+        for (double value : new double[] {0.0, 1.0}) {
+          values[auxiliary.getIndex()] = value;
+          if (satisfiesConstraintsOf(auxiliary, values)) feasible++;
+        }
+        assertEquals(auxiliary.getName(), 1, feasible);
+        values[auxiliary.getIndex()] = 0.0;
+        if (!satisfiesConstraintsOf(auxiliary, values)) values[auxiliary.getIndex()] = 1.0;
+      }
+      for (Constraint constraint : model.getConstraints()) {
+        assertTrue(constraint.getName(), constraint.isSatisfied(values, TOLERANCE));
+      }
+      return communicationTime.evaluate(values);
+    }
+
+    private boolean satisfiesConstraintsOf(Variable variable, double[] values) {
+      for (Constraint constraint : model.getConstraints()) {
+        if (mentions(constraint, variable) && !constraint.isSatisfied(values, TOLERANCE)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean mentions(Constraint constraint, Variable variable) {
+      if (constraint instanceof Constraint.And) {
+        Constraint.And and = (Constraint.And) constraint;
+        return and.getResult() == variable || and.getArguments().contains(variable);
+      }
+      LinearExpression expression = ((Constraint.Linear) constraint).getExpression();
+      for (int ix = 0; ix < expression.size(); ix++) {
+        if (expression.getVariable(ix) == variable) return true;
+      }
+      return false;
+    }
+  }
+}
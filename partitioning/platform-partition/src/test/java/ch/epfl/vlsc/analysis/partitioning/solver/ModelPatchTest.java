@@ -0,0 +1,135 @@
+package ch.epfl.vlsc.analysis.partitioning.solver;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Checks that a patch turns a model into another one with the same structure. */
+public class ModelPatchTest {
+
+  private static final int MODELS = 50;
+
+  @Test
+  public void applyingThePatchGivesTheTarget() {
+    Random random = new Random(10);
+    for (int i = 0; i < MODELS; i++) {
+      int numVariables = 1 + random.nextInt(8);
+      int numConstraints = random.nextInt(8);
+      long seed = random.nextLong();
+      OptimizationModel base = randomModel(new Random(seed), numVariables, numConstraints, random);
+      OptimizationModel target =
+          randomModel(new Random(seed), numVariables, numConstraints, random);
+
+      Optional<ModelPatch> patch = ModelPatch.between(base, target);
+      assertTrue(patch.isPresent());
+      patch.get().applyTo(base);
+      assertSameModel(target, base);
+      assertEquals(0, ModelPatch.between(base, target).get().size());
+    }
+  }
+
+  @Test
+  public void aDifferentStructureHasNoPatch() {
+    OptimizationModel base = new OptimizationModel("base");
+    Variable x = base.addVariable(0.0, 1.0, VariableType.BINARY, "x");
+    Variable y = base.addVariable(0.0, 1.0, VariableType.BINARY, "y");
+    base.addConstraint(x, Sense.LESS_EQUAL, y, "c");
+
+    OptimizationModel swapped = new OptimizationModel("swapped");
+    Variable u = swapped.addVariable(0.0, 1.0, VariableType.BINARY, "x");
+    swapped.addVariable(0.0, 1.0, VariableType.BINARY, "y");
+    swapped.addConstraint(u, Sense.LESS_EQUAL, 1.0, "c");
+    assertFalse(ModelPatch.between(base, swapped).isPresent());
+
+    OptimizationModel general = new OptimizationModel("general");
+    Variable a = general.addVariable(0.0, 1.0, VariableType.BINARY, "x");
+    Variable b = general.addVariable(0.0, 1.0, VariableType.BINARY, "y");
+    general.addAndConstraint(a, new Variable[] {b}, "c");
+    assertFalse(ModelPatch.between(base, general).isPresent());
+
+    OptimizationModel larger = new OptimizationModel("larger");
+    larger.addVariable(0.0, 1.0, VariableType.BINARY, "x");
+    assertFalse(ModelPatch.between(base, larger).isPresent());
+  }
+
+  /**
+   * @param structure draws the variables and the terms of the constraints, models drawn from the
+   *     same seed have the same structure
+   * @param values draws the coefficients, right hand sides, bounds and objective
+   */
+  private static OptimizationModel randomModel(
+      Random structure, int numVariables, int numConstraints, Random values) {
+    OptimizationModel model = new OptimizationModel("random");
+    for (int v = 0; v < numVariables; v++) {
+      VariableType type = VariableType.values()[structure.nextInt(VariableType.values().length)];
+      double lowerBound = type == VariableType.BINARY ? 0.0 : values.nextInt(3);
+      double upperBound = type == VariableType.BINARY ? 1.0 : lowerBound + values.nextInt(5);
+      model.addVariable(lowerBound, upperBound, type, "v" + v);
+    }
+    List<Variable> variables = model.getVariables();
+    for (int c = 0; c < numConstraints; c++) {
+      LinearExpression expression = new LinearExpression();
+      for (Variable variable : variables) {
+        // -- a term may repeat a variable, the patch compares the aggregated coefficients
+        for (int t = structure.nextInt(3); t > 0; t--) {
+          expression.addTerm(1 + values.nextInt(4), variable);
+        }
+      }
+      Sense sense = Sense.values()[structure.nextInt(Sense.values().length)];
+      model.addConstraint(expression, sense, values.nextInt(10), "c" + c);
+    }
+    if (structure.nextBoolean()) {
+      Variable[] arguments = {variables.get(structure.nextInt(numVariables))};
+      model.addAndConstraint(variables.get(0), arguments, "and");
+    }
+    LinearExpression objective = new LinearExpression();
+    for (Variable variable : variables) {
+      if (values.nextBoolean()) objective.addTerm(values.nextInt(5), variable);
+    }
+    model.setObjective(objective, ObjectiveSense.MINIMIZE);
+    return model;
+  }
+
+  private static void assertSameModel(OptimizationModel expected, OptimizationModel actual) {
+    List<Variable> expectedVariables = expected.getVariables();
+    List<Variable> actualVariables = actual.getVariables();
+    for (int v = 0; v < expectedVariables.size(); v++) {
+      Variable e = expectedVariables.get(v);
+      Variable a = actualVariables.get(v);
+      assertEquals(e.getName(), e.getLowerBound(), a.getLowerBound(), 0.0);
+      assertEquals(e.getName(), e.getUpperBound(), a.getUpperBound(), 0.0);
+    }
+    List<Constraint> expectedConstraints = expected.getConstraints();
+    List<Constraint> actualConstraints = actual.getConstraints();
+    for (int c = 0; c < expectedConstraints.size(); c++) {
+      if (!(expectedConstraints.get(c) instanceof Constraint.Linear)) continue;
+      Constraint.Linear e = (Constraint.Linear) expectedConstraints.get(c);
+      Constraint.Linear a = (Constraint.Linear) actualConstraints.get(c);
+      assertEquals(e.getName(), e.getRhs(), a.getRhs(), 0.0);
+      assertEquals(
+          e.getName(),
+          coefficients(e.getExpression(), expectedVariables.size()),
+          coefficients(a.getExpression(), actualVariables.size()));
+    }
+    assertEquals(
+        coefficients(expected.getObjective(), expectedVariables.size()),
+        coefficients(actual.getObjective(), actualVariables.size()));
+  }
+
+  /** @return the aggregated coefficient of every variable, in the order of the variables */
+  private static List<Double> coefficients(LinearExpression expression, int numVariables) {
+    Double[] coefficients = new Double[numVariables];
+    Arrays.fill(coefficients, 0.0);
+    for (int ix = 0; ix < expression.size(); ix++) {
+      coefficients[expression.getVariable(ix).getIndex()] += expression.getCoefficient(ix);
+    }
+    return Arrays.asList(coefficients);
+  }
+}